@@ -1,63 +1,68 @@
 package com.example.visualassistant;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.ImageFormat;
 import android.graphics.Matrix;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
-import android.media.Image;
 import android.util.Log;
 
 import androidx.camera.core.ImageProxy;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.ByteBuffer;
-
 public class BitmapUtils {
     private static final String TAG = "BitmapUtils";
 
-    public static Bitmap getBitmap(ImageProxy imageProxy) {
-        if (imageProxy.getFormat() == ImageFormat.YUV_420_888) {
-            return yuv420ToBitmap(imageProxy);
-        } else if (imageProxy.getFormat() == ImageFormat.JPEG) {
-            ByteBuffer buffer = imageProxy.getPlanes()[0].getBuffer();
-            byte[] bytes = new byte[buffer.capacity()];
-            buffer.get(bytes);
-            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-        } else {
-            Log.e(TAG, "Unsupported image format: " + imageProxy.getFormat());
-            return null;
-        }
-    }
+    /**
+     * Copies the planes of a YUV_420_888 ImageProxy into a reusable, Android-free frame.
+     */
+    public static YuvFrame toYuvFrame(ImageProxy imageProxy, YuvFrame frame) {
+        int width = imageProxy.getWidth();
+        int height = imageProxy.getHeight();
+        frame.ensureCapacity(width, height, 1);
+        frame.hasChroma = true;
+        frame.rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+        frame.timestampNanos = imageProxy.getImageInfo().getTimestamp();
 
-    private static Bitmap yuv420ToBitmap(ImageProxy imageProxy) {
         ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
-
-        int ySize = yBuffer.remaining();
-        int uSize = uBuffer.remaining();
-        int vSize = vBuffer.remaining();
-
-        byte[] nv21 = new byte[ySize + uSize + vSize];
-
-        // U and V are swapped
-        yBuffer.get(nv21, 0, ySize);
-        vBuffer.get(nv21, ySize, vSize);
-        uBuffer.get(nv21, ySize + vSize, uSize);
+        YuvConverter.copyPlane(planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                width, height, frame.y);
+        YuvConverter.copyPlane(planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                frame.chromaWidth(), frame.chromaHeight(), frame.u);
+        YuvConverter.copyPlane(planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                frame.chromaWidth(), frame.chromaHeight(), frame.v);
+        return frame;
+    }
 
-        YuvImage yuvImage = new YuvImage(nv21, ImageFormat.NV21, imageProxy.getWidth(), imageProxy.getHeight(), null);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        yuvImage.compressToJpeg(new Rect(0, 0, yuvImage.getWidth(), yuvImage.getHeight()), 100, out);
+    /**
+     * Hands the image to the session recorder if it wants this frame.
+     */
+    public static void recordFrame(SessionRecorder recorder, ImageProxy imageProxy) {
+        if (imageProxy.getFormat() != ImageFormat.YUV_420_888) {
+            return;
+        }
+        YuvFrame frame = recorder.acquireFrame(imageProxy.getImageInfo().getTimestamp());
+        if (frame == null) {
+            return;
+        }
+        try {
+            toYuvFrame(imageProxy, frame);
+        } catch (Exception e) {
+            Log.e(TAG, "Error copying frame for recording: " + e.getMessage());
+        }
+        recorder.submitFrame(frame);
+    }
 
-        byte[] imageBytes = out.toByteArray();
-        Bitmap bitmap = BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
+    /**
+     * Wraps unrotated ARGB pixels in a Bitmap and applies the sensor rotation.
+     */
+    public static Bitmap argbToBitmap(int[] argb, int width, int height, int rotationDegrees) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.setPixels(argb, 0, width, 0, 0, width, height);
+        if (rotationDegrees == 0) {
+            return bitmap;
+        }
 
         // Rotate the bitmap if needed (most devices need rotation)
         Matrix matrix = new Matrix();
-        matrix.postRotate(imageProxy.getImageInfo().getRotationDegrees());
+        matrix.postRotate(rotationDegrees);
         return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
     }
-}
\ No newline at end of file
+}
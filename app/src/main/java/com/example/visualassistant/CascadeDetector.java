@@ -0,0 +1,162 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two-stage detector: a cheap {@link PresenceGate} scores every frame and the full
+ * detector only runs when the score reaches the threshold, or when
+ * {@code refreshInterval} frames have gone by without a full run so that nothing
+ * is missed for long. A gated-out frame is one the gate judged unchanged, so it
+ * reports copies of the detections of the last full run.
+ *
+ * Both stages can be swapped at any time. The cascade counts how often the gate
+ * passes and estimates the inference time saved from the measured cost of the
+ * full detector and of the gate.
+ */
+public class CascadeDetector implements DetectorBackend {
+
+    public static final float DEFAULT_THRESHOLD = 0.05f;
+    public static final int DEFAULT_REFRESH_INTERVAL = 5;
+    private static final float COST_SMOOTHING = 0.2f;
+
+    private volatile PresenceGate gate;
+    private volatile DetectorBackend detector;
+    private final float threshold;
+    private final int refreshInterval;
+
+    private int framesSinceDetection;
+    private long frameCount;
+    private long passedCount;
+    private long refreshCount;
+    private long gateNanos;
+    private long detectorRunNanos = -1;
+    private long savedNanos;
+    // Kept apart from what callers receive, which they may modify
+    private final List<ObjectDetection> lastResults = new ArrayList<>();
+
+    public CascadeDetector(PresenceGate gate, DetectorBackend detector) {
+        this(gate, detector, DEFAULT_THRESHOLD, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * @param refreshInterval Run the full detector at least every this many frames; 0 never forces it
+     */
+    public CascadeDetector(PresenceGate gate, DetectorBackend detector, float threshold, int refreshInterval) {
+        this.gate = gate;
+        this.detector = detector;
+        this.threshold = threshold;
+        this.refreshInterval = refreshInterval;
+    }
+
+    public void setGate(PresenceGate gate) {
+        this.gate = gate;
+    }
+
+    public void setDetector(DetectorBackend detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public List<ObjectDetection> detect(YuvFrame frame, int[] argb) throws Exception {
+        PresenceGate currentGate = gate;
+        DetectorBackend currentDetector = detector;
+        frameCount++;
+        framesSinceDetection++;
+
+        long gateStart = FrameTracer.now();
+        float score = currentGate != null ? currentGate.score(frame, argb) : 1f;
+        long gateCost = FrameTracer.now() - gateStart;
+        gateNanos += gateCost;
+
+        boolean passed = score >= threshold;
+        boolean refresh = !passed && refreshInterval > 0 && framesSinceDetection >= refreshInterval;
+        if (!passed && !refresh) {
+            // Until the detector has been timed once there is nothing to count as saved
+            if (detectorRunNanos > 0) {
+                savedNanos += detectorRunNanos - gateCost;
+            }
+            return copyOf(lastResults);
+        }
+
+        if (passed) {
+            passedCount++;
+        } else {
+            refreshCount++;
+        }
+        framesSinceDetection = 0;
+        long detectStart = FrameTracer.now();
+        List<ObjectDetection> results = currentDetector.detect(frame, argb);
+        long cost = FrameTracer.now() - detectStart;
+        detectorRunNanos = detectorRunNanos < 0 ? cost
+                : (long) (detectorRunNanos + COST_SMOOTHING * (cost - detectorRunNanos));
+        if (currentGate != null) {
+            currentGate.onDetectorRun();
+        }
+        lastResults.clear();
+        lastResults.addAll(copyOf(results));
+        return results;
+    }
+
+    private static List<ObjectDetection> copyOf(List<ObjectDetection> detections) {
+        List<ObjectDetection> copies = new ArrayList<>(detections.size());
+        for (ObjectDetection detection : detections) {
+            copies.add(new ObjectDetection(detection));
+        }
+        return copies;
+    }
+
+    @Override
+    public boolean usesArgb() {
+        DetectorBackend currentDetector = detector;
+        return currentDetector == null || currentDetector.usesArgb();
+    }
+
+    @Override
+    public void close() {
+        PresenceGate currentGate = gate;
+        if (currentGate != null) {
+            currentGate.close();
+        }
+        DetectorBackend currentDetector = detector;
+        if (currentDetector != null) {
+            currentDetector.close();
+        }
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return Share of frames the gate let through, not counting forced refreshes.
+     */
+    public float getPassRate() {
+        return frameCount == 0 ? 0f : (float) passedCount / frameCount;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * @return Estimated full-detector time avoided so far, net of the gate's own cost
+     *         on the skipped frames.
+     */
+    public long getSavedNanos() {
+        return savedNanos;
+    }
+
+    /**
+     * @return Total time spent in the gate, over all frames.
+     */
+    public long getGateNanos() {
+        return gateNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "gate pass rate " + Math.round(getPassRate() * 100) + "% of " + frameCount + " frames, "
+                + refreshCount + " refreshes, saved " + savedNanos / 1_000_000L + " ms";
+    }
+}
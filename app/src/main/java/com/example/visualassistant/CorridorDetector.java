@@ -0,0 +1,159 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a detector on the walking corridor only: a band of the upright frame,
+ * by default the lower centre, cropped at full camera resolution.
+ *
+ * The detector scales its input to a fixed model size, so giving it the crop
+ * instead of the whole frame makes obstacles in the user's path cover more
+ * model pixels, and converts fewer pixels per frame. Every
+ * {@code peripheryInterval}-th frame the whole frame is also run so that
+ * approaching objects outside the corridor are still seen. All boxes are
+ * returned in pixel coordinates of the whole rotated frame.
+ */
+public class CorridorDetector {
+
+    public static final float DEFAULT_LEFT = 0.2f;
+    public static final float DEFAULT_TOP = 0.35f;
+    public static final float DEFAULT_RIGHT = 0.8f;
+    public static final float DEFAULT_BOTTOM = 1f;
+    public static final int DEFAULT_PERIPHERY_INTERVAL = 4;
+
+    // Corridor in normalised coordinates of the upright frame
+    private final float left;
+    private final float top;
+    private final float right;
+    private final float bottom;
+    private final int peripheryInterval;
+
+    private final YuvFrame corridorFrame = new YuvFrame();
+    private int[] corridorArgb = new int[0];
+    private int[] fullArgb = new int[0];
+
+    // Corridor of the last frame in rotated full-frame pixels
+    private int offsetX;
+    private int offsetY;
+    private int corridorWidth;
+    private int corridorHeight;
+    private final int[] offset = new int[2];
+
+    private long frameCount;
+    private long peripheryFrameCount;
+    private long convertedPixels;
+
+    public CorridorDetector() {
+        this(DEFAULT_LEFT, DEFAULT_TOP, DEFAULT_RIGHT, DEFAULT_BOTTOM, DEFAULT_PERIPHERY_INTERVAL);
+    }
+
+    /**
+     * @param peripheryInterval Run the whole frame every this many frames; 0 never does
+     */
+    public CorridorDetector(float left, float top, float right, float bottom, int peripheryInterval) {
+        if (left < 0 || top < 0 || right > 1 || bottom > 1 || left >= right || top >= bottom) {
+            throw new IllegalArgumentException("Corridor must lie within the frame: "
+                    + left + ", " + top + ", " + right + ", " + bottom);
+        }
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.peripheryInterval = peripheryInterval;
+    }
+
+    /**
+     * @return Detections from the corridor, plus those outside it on periphery frames,
+     *         in pixel coordinates of the whole rotated frame.
+     */
+    public List<ObjectDetection> detect(DetectorBackend backend, YuvFrame frame) throws Exception {
+        return detect(backend, backend, frame);
+    }
+
+    /**
+     * Like {@link #detect(DetectorBackend, YuvFrame)} with a separate detector for the
+     * periphery pass, e.g. when the corridor detector is gated by a {@link CascadeDetector}.
+     */
+    public List<ObjectDetection> detect(DetectorBackend backend, DetectorBackend peripheryBackend,
+                                        YuvFrame frame) throws Exception {
+        frameCount++;
+        crop(frame, corridorFrame);
+
+        int[] converted = null;
+        if (backend.usesArgb()) {
+            int pixels = corridorFrame.width * corridorFrame.height;
+            if (corridorArgb.length != pixels) {
+                corridorArgb = new int[pixels];
+            }
+            YuvConverter.yuvToArgb(corridorFrame, corridorArgb);
+            convertedPixels += pixels;
+            converted = corridorArgb;
+        }
+
+        List<ObjectDetection> results = new ArrayList<>();
+        for (ObjectDetection detection : backend.detect(corridorFrame, converted)) {
+            results.add(detection.offset(offsetX, offsetY));
+        }
+
+        if (peripheryInterval > 0 && frameCount % peripheryInterval == 0) {
+            peripheryFrameCount++;
+            int[] fullConverted = null;
+            if (peripheryBackend.usesArgb()) {
+                int fullPixels = frame.width * frame.height;
+                if (fullArgb.length != fullPixels) {
+                    fullArgb = new int[fullPixels];
+                }
+                YuvConverter.yuvToArgb(frame, fullArgb);
+                convertedPixels += fullPixels;
+                fullConverted = fullArgb;
+            }
+
+            // The corridor pass already covered objects centred inside it
+            for (ObjectDetection detection : peripheryBackend.detect(frame, fullConverted)) {
+                float centerX = (detection.getLeft() + detection.getRight()) / 2f;
+                float centerY = (detection.getTop() + detection.getBottom()) / 2f;
+                if (centerX < offsetX || centerX >= offsetX + corridorWidth
+                        || centerY < offsetY || centerY >= offsetY + corridorHeight) {
+                    results.add(detection);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Copies the corridor of {@code src} into {@code dst}, keeping its rotation, and
+     * records where the crop sits in the rotated frame.
+     */
+    void crop(YuvFrame src, YuvFrame dst) {
+        YuvConverter.cropUpright(src, left, top, right, bottom, dst, offset);
+        offsetX = offset[0];
+        offsetY = offset[1];
+        corridorWidth = dst.orientedWidth();
+        corridorHeight = dst.orientedHeight();
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getPeripheryFrameCount() {
+        return peripheryFrameCount;
+    }
+
+    /**
+     * @return Pixels converted for the detector so far, to compare against whole-frame analysis.
+     */
+    public long getConvertedPixels() {
+        return convertedPixels;
+    }
+
+    int getOffsetX() {
+        return offsetX;
+    }
+
+    int getOffsetY() {
+        return offsetY;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.visualassistant;
+
+import android.graphics.ImageFormat;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Analyzer for "describe" mode: converts a frame once and lets {@link SceneDescriber}
+ * run detection and text recognition on it in parallel, then speaks one merged
+ * description.
+ */
+public class DescribeAnalyzer implements ImageAnalysis.Analyzer, ModelLoader.Client {
+    private static final String TAG = "DescribeAnalyzer";
+
+    // Long enough for the previous description to be spoken
+    static final long DESCRIBE_INTERVAL = 4000;
+
+    // Only the frame being described: no frame is taken while the describer is busy, as
+    // one converted ahead would be seconds old by the time it could be described
+    private static final int FRAME_POOL_SIZE = 1;
+
+    private final ExecutorService detectionExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService recognitionExecutor = Executors.newSingleThreadExecutor();
+    private final SharedFrame.Pool framePool = new SharedFrame.Pool(FRAME_POOL_SIZE);
+    private final SceneDescriber describer = new SceneDescriber(detectionExecutor, recognitionExecutor);
+    private final FrameTracer tracer = FrameTracer.getInstance();
+
+    private long lastDescribeTimestamp = 0;
+    private volatile SessionRecorder sessionRecorder;
+    private volatile ResolutionController resolutionController;
+
+    private volatile PipelineEventBus eventBus;
+    private volatile MotionGovernor motionGovernor;
+    private final FreshnessGate freshnessGate = new FreshnessGate(FreshnessGate.DESCRIBE_BUDGET_NANOS);
+    // Arrival of the frame being described; one description runs at a time
+    private volatile long describeCaptureNanos;
+
+    private final ModelLoader modelLoader;
+    // Completes once the detector has been claimed, or fails with the model
+    private final CompletableFuture<DetectorBackend> modelReady = new CompletableFuture<>();
+    private volatile long framesBeforeReady;
+
+    /**
+     * @param modelLoader Shared with the object and navigation analyzers, from
+     *                    {@link ObjectDetectionAnalyzer#newModelLoader}
+     */
+    public DescribeAnalyzer(ModelLoader modelLoader) {
+        this.modelLoader = modelLoader;
+        // Each backend is created on the worker that will use it
+        modelLoader.addListener(new ModelLoader.ReadinessListener() {
+            @Override
+            public void onModelReady(DetectorBackend loaded) {
+                try {
+                    DetectorBackend backend = modelLoader.claimBackend();
+                    describer.setDetectorBackend(backend);
+                    modelReady.complete(backend);
+                    Log.d(TAG, "Object detector ready: " + modelLoader + ", " + framesBeforeReady
+                            + " frames dropped while loading");
+                } catch (Exception e) {
+                    onModelFailed(e);
+                }
+            }
+
+            @Override
+            public void onModelFailed(Exception error) {
+                // Descriptions go on with text alone
+                Log.e(TAG, "Error initializing object detector: " + error.getMessage());
+                modelReady.completeExceptionally(error);
+            }
+        }, detectionExecutor);
+        modelLoader.load(detectionExecutor);
+        recognitionExecutor.execute(() -> describer.setTextRecognizerBackend(new MlKitTextRecognizerBackend()));
+    }
+
+    @Override
+    public void addModelReadinessListener(ModelLoader.ReadinessListener listener, Executor executor) {
+        ModelLoader.addListener(modelReady, listener, executor);
+    }
+
+    @Override
+    public boolean isModelReady() {
+        return modelReady.isDone() && !modelReady.isCompletedExceptionally();
+    }
+
+    /**
+     * Publish each description, with its boxes, to {@code bus}.
+     */
+    public void setEventBus(PipelineEventBus bus) {
+        this.eventBus = bus;
+    }
+
+    /**
+     * Let {@code governor} pick the frames to analyse from how the user is moving (null for a fixed interval)
+     */
+    public void setMotionGovernor(MotionGovernor governor) {
+        this.motionGovernor = governor;
+    }
+
+    /**
+     * @return Description deadlines, with counts of downgraded and stale-dropped descriptions
+     */
+    public FreshnessGate getFreshnessGate() {
+        return freshnessGate;
+    }
+
+    public void setCurrentLanguage(String language) {
+        describer.setCurrentLanguage(language);
+    }
+
+    /**
+     * Warms both backends in the background ahead of a likely switch to describe mode.
+     */
+    public void warmUp(BooleanSupplier cancelled) {
+        describer.warmUp(ModelLoader.WARMUP_WIDTH, ModelLoader.WARMUP_HEIGHT, cancelled);
+    }
+
+    public void setSessionRecorder(SessionRecorder recorder) {
+        this.sessionRecorder = recorder;
+    }
+
+    public void setResolutionController(ResolutionController controller) {
+        this.resolutionController = controller;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        long currentTimestamp = System.currentTimeMillis();
+        long captureNanos = FrameTracer.now();
+
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            BitmapUtils.recordFrame(recorder, image);
+        }
+
+        MotionGovernor governor = motionGovernor;
+        if (describer.isBusy() || image.getFormat() != ImageFormat.YUV_420_888
+                || (governor != null
+                        ? !governor.shouldAnalyze(currentTimestamp, lastDescribeTimestamp, DESCRIBE_INTERVAL)
+                        : currentTimestamp - lastDescribeTimestamp < DESCRIBE_INTERVAL)) {
+            image.close();
+            return;
+        }
+
+        if (!modelReady.isDone()) {
+            // A description without the objects in view would mislead
+            framesBeforeReady++;
+            image.close();
+            return;
+        }
+
+        SharedFrame frame = framePool.acquire();
+        if (frame == null) {
+            image.close();
+            return;
+        }
+        if (governor != null) {
+            governor.onAnalyzed();
+        }
+
+        final long traceId = image.getImageInfo().getTimestamp();
+        tracer.beginFrame(traceId);
+        try {
+            long convertStart = FrameTracer.now();
+            BitmapUtils.toYuvFrame(image, frame.yuv);
+            if (describer.usesArgb()) {
+                frame.convert();
+            }
+            tracer.record(traceId, FrameTracer.SPAN_CONVERT, convertStart, FrameTracer.now());
+        } catch (Exception e) {
+            Log.e(TAG, "Error converting image: " + e.getMessage());
+            frame.release();
+            image.close();
+            return;
+        }
+        image.close();
+
+        describeCaptureNanos = captureNanos;
+        if (describer.describe(frame, traceId, this::onSceneDescribed)) {
+            lastDescribeTimestamp = currentTimestamp;
+        }
+    }
+
+    private void onSceneDescribed(SceneDescriber.Description description) {
+        if (description.detectionError != null) {
+            Log.e(TAG, "Detection failed: " + description.detectionError.getMessage());
+        }
+        if (description.recognitionError != null) {
+            Log.e(TAG, "Text recognition failed: " + description.recognitionError.getMessage());
+        }
+        Log.d(TAG, "Described scene in " + description.wallNanos / 1_000_000L + " ms (detection "
+                + description.detectionNanos / 1_000_000L + " ms, OCR "
+                + description.recognitionNanos / 1_000_000L + " ms)");
+
+        long now = FrameTracer.now();
+        ResolutionController controller = resolutionController;
+        if (controller != null) {
+            controller.onTextLineHeight(description.textLineHeight);
+            controller.onFrameProcessed(now - description.wallNanos, now);
+        }
+
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            recorder.recordDetections(description.traceId, description.detections);
+            recorder.recordAnnouncement(description.traceId, description.text);
+        }
+
+        FreshnessGate.Verdict verdict = freshnessGate.complete(describeCaptureNanos, now - description.wallNanos, now);
+        if (verdict == FreshnessGate.Verdict.STALE) {
+            Log.d(TAG, "Dropped stale description: " + freshnessGate);
+            return;
+        }
+
+        PipelineEventBus bus = eventBus;
+        if (bus != null) {
+            // A late description still shows its boxes, but is not read out
+            String text = verdict == FreshnessGate.Verdict.FRESH ? description.text : null;
+            bus.publishDetections(description.traceId, description.detections, null, text);
+        }
+    }
+
+    public void shutdown() {
+        // Queued behind any frame still in flight on each worker
+        detectionExecutor.execute(describer::closeDetectorBackend);
+        recognitionExecutor.execute(describer::closeTextRecognizerBackend);
+        detectionExecutor.shutdown();
+        recognitionExecutor.shutdown();
+    }
+}
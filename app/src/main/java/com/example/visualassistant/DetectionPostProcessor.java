@@ -0,0 +1,220 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns raw detector output into overlay boxes and spoken announcements.
+ *
+ * This is the Android-free part of ObjectDetectionAnalyzer: confidence filtering,
+ * box normalisation, area ratio and direction bucketing, repeat suppression and
+ * message translation. Keeping it separate lets the replay harness, tests and
+ * benchmarks run exactly the same logic as the app.
+ */
+public class DetectionPostProcessor {
+
+    public static final float CONFIDENCE_THRESHOLD = 0.45f;
+    public static final float OBSTACLE_PROXIMITY_THRESHOLD = 0.4f;
+    public static final long ANALYSIS_INTERVAL = 1000; // 1 sec
+    public static final long SPEECH_INTERVAL = 3000;   // 3 sec
+    private static final long REPEAT_SUPPRESSION_INTERVAL = 10000;
+    private static final int MAX_SPOKEN_OBJECTS = 3;
+
+    private final Map<String, Long> lastDetectionTimes = new HashMap<>();
+
+    // Per-frame working state, reused so that frames which are not spoken allocate nothing.
+    // Overlay entries are pooled: callers must copy them to keep them past the next frame.
+    private final List<ObjectDetection> overlayResults = new ArrayList<>();
+    private final List<ObjectDetection> overlayPool = new ArrayList<>();
+    private final List<String> spokenLabels = new ArrayList<>();
+    private final StringBuilder message = new StringBuilder();
+    private final Map<String, String> summaryCache = new HashMap<>();
+    private String summaryCacheLanguage;
+
+    private boolean isNavigationMode = false;
+    private String currentLanguage = "ENGLISH";
+
+    private String announcement;
+    private String summary;
+
+    public void setIsNavigationMode(boolean isNavigationMode) {
+        this.isNavigationMode = isNavigationMode;
+    }
+
+    public boolean isNavigationMode() {
+        return isNavigationMode;
+    }
+
+    public void setCurrentLanguage(String language) {
+        this.currentLanguage = language;
+    }
+
+    /**
+     * Processes one frame's detections.
+     *
+     * @param detections  Detections in pixel coordinates of the (rotated) detector input
+     * @param imageWidth  Width of the detector input
+     * @param imageHeight Height of the detector input
+     * @param currentTime Frame time in milliseconds
+     * @param shouldSpeak Whether enough time has passed since the last announcement
+     */
+    public void process(List<ObjectDetection> detections, int imageWidth, int imageHeight,
+                        long currentTime, boolean shouldSpeak) {
+        overlayResults.clear();
+        spokenLabels.clear();
+        message.setLength(0);
+        announcement = null;
+
+        String language = currentLanguage;
+        if (!language.equals(summaryCacheLanguage)) {
+            summaryCache.clear();
+            summaryCacheLanguage = language;
+        }
+
+        if (detections.isEmpty()) {
+            summary = noObjectMessage(language);
+            return;
+        }
+
+        int spokenCount = 0;
+        float imageArea = imageWidth * imageHeight;
+
+        // Indexed loop: an iterator would be allocated every frame
+        for (int i = 0, n = detections.size(); i < n; i++) {
+            ObjectDetection detection = detections.get(i);
+            if (detection.getConfidence() < CONFIDENCE_THRESHOLD) continue;
+
+            String label = detection.getLabel();
+            float confidence = detection.getConfidence();
+
+            obtainOverlayResult().set(label, confidence, detection.getDistanceEstimate(),
+                    detection.getLeft() / imageWidth,
+                    detection.getTop() / imageHeight,
+                    detection.getRight() / imageWidth,
+                    detection.getBottom() / imageHeight);
+
+            float objectArea = detection.getBoxWidth() * detection.getBoxHeight();
+            float areaRatio = objectArea / imageArea;
+
+            float centerX = (detection.getLeft() + detection.getRight()) / 2f;
+            float normalizedX = centerX / imageWidth;
+
+            if (shouldSpeak) {
+                if (!isNavigationMode &&
+                        lastDetectionTimes.containsKey(label) &&
+                        currentTime - lastDetectionTimes.get(label) < REPEAT_SUPPRESSION_INTERVAL) {
+                    continue;
+                }
+
+                if (spokenLabels.contains(label)) continue;
+
+                if (isNavigationMode) {
+                    if (areaRatio > OBSTACLE_PROXIMITY_THRESHOLD) {
+                        message.append(label).append(" ahead to the ").append(direction(normalizedX)).append(". ");
+                        spokenLabels.add(label);
+                    }
+                } else {
+                    lastDetectionTimes.put(label, currentTime);
+                    spokenLabels.add(label);
+                    if (spokenCount < MAX_SPOKEN_OBJECTS) {
+                        message.append(spokenCount == 0 ? "I can see " : ", ")
+                                .append(label).append(" (").append(Math.round(confidence * 100)).append("%)");
+                    }
+                    spokenCount++;
+                }
+            }
+        }
+
+        if (shouldSpeak && message.length() > 0) {
+            announcement = translateOutput(message.toString());
+        }
+
+        String firstLabel = detections.get(0).getLabel();
+        summary = summaryCache.get(firstLabel);
+        if (summary == null) {
+            summary = firstObjectMessage(firstLabel, language);
+            summaryCache.put(firstLabel, summary);
+        }
+    }
+
+    private ObjectDetection obtainOverlayResult() {
+        int index = overlayResults.size();
+        if (index == overlayPool.size()) {
+            overlayPool.add(new ObjectDetection("", 0f, 0f, 0f, 0f, 0f, 0f));
+        }
+        ObjectDetection result = overlayPool.get(index);
+        overlayResults.add(result);
+        return result;
+    }
+
+    /**
+     * @return Normalised (0..1) boxes of the detections that passed the threshold. The list
+     *         and its entries are reused by the next call; copy them to keep them.
+     */
+    public List<ObjectDetection> getOverlayResults() {
+        return overlayResults;
+    }
+
+    /**
+     * @return The detailed announcement for the last frame, or null if nothing should be said.
+     */
+    public String getAnnouncement() {
+        return announcement;
+    }
+
+    /**
+     * @return The short "detected object" / "no object" message for the last frame.
+     */
+    public String getSummary() {
+        return summary;
+    }
+
+    static String direction(float normalizedX) {
+        return normalizedX < 0.4 ? "left" : (normalizedX > 0.6 ? "right" : "front");
+    }
+
+    private static String firstObjectMessage(String label, String language) {
+        if (language.equals("HINDI")) {
+            return "पहचाना गया ऑब्जेक्ट: " + label;
+        } else if (language.equals("MARATHI")) {
+            return "ओळखलेली वस्तू: " + label;
+        }
+        return "Detected object: " + label;
+    }
+
+    private static String noObjectMessage(String language) {
+        if (language.equals("HINDI")) {
+            return "कोई वस्तु नहीं मिली";
+        } else if (language.equals("MARATHI")) {
+            return "कोणतीही वस्तू सापडली नाही";
+        }
+        return "No object detected";
+    }
+
+    String translateOutput(String englishText) {
+        if (currentLanguage.equals("HINDI")) {
+            if (englishText.contains("ahead to the")) englishText = englishText.replace("ahead to the", "के पास है");
+            if (englishText.contains("I can see")) englishText = englishText.replace("I can see", "मैं देख सकता हूँ");
+            if (englishText.contains("detected")) englishText = englishText.replace("detected", "पहचाना गया");
+
+            if (englishText.contains("left")) englishText = englishText.replace("left", "बाईं ओर बाधा");
+            if (englishText.contains("right")) englishText = englishText.replace("right", "दाईं ओर बाधा");
+            if (englishText.contains("front")) englishText = englishText.replace("front", "सामने बाधा");
+            if (englishText.contains("clear")) englishText = englishText.replace("clear", "रास्ता साफ है");
+
+        } else if (currentLanguage.equals("MARATHI")) {
+            if (englishText.contains("ahead to the")) englishText = englishText.replace("ahead to the", "समोर आहे");
+            if (englishText.contains("I can see")) englishText = englishText.replace("I can see", "मी पाहू शकतो");
+            if (englishText.contains("detected")) englishText = englishText.replace("detected", "शोधले");
+
+            if (englishText.contains("left")) englishText = englishText.replace("left", "डावीकडे अडथळा");
+            if (englishText.contains("right")) englishText = englishText.replace("right", "उजवीकडे अडथळा");
+            if (englishText.contains("front")) englishText = englishText.replace("front", "पुढे अडथळा");
+            if (englishText.contains("clear")) englishText = englishText.replace("clear", "मार्ग मोकळा आहे");
+        }
+
+        return englishText;
+    }
+}
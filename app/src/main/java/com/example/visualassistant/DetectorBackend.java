@@ -0,0 +1,31 @@
+package com.example.visualassistant;
+
+import java.util.List;
+
+/**
+ * An object detection model that the analyzers and the replay harness can run a
+ * frame through. Implementations: {@link TfliteDetectorBackend} and
+ * {@link InterpreterDetectorBackend} on device, stubs in host tests.
+ */
+public interface DetectorBackend {
+
+    /**
+     * Runs detection on one frame.
+     *
+     * @param frame The frame in YUV form
+     * @param argb  The same frame converted to unrotated ARGB pixels, or null if
+     *              {@link #usesArgb()} is false
+     * @return Detections in pixel coordinates of the rotated frame
+     *         ({@link YuvFrame#orientedWidth()} x {@link YuvFrame#orientedHeight()})
+     */
+    List<ObjectDetection> detect(YuvFrame frame, int[] argb) throws Exception;
+
+    /**
+     * @return Whether {@link #detect} reads the ARGB pixels; callers skip the conversion if not.
+     */
+    default boolean usesArgb() {
+        return true;
+    }
+
+    void close();
+}
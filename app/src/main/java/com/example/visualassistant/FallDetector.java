@@ -0,0 +1,146 @@
+package com.example.visualassistant;
+
+/**
+ * Recognises a fall in the raw accelerometer stream: a stretch of free fall, an impact
+ * shortly after it, then the phone lying still. A shake has impacts but no free fall,
+ * and a dropped phone that is picked up again is not still for long, so neither fires.
+ *
+ * The total acceleration magnitude goes into a fixed ring of primitive samples covering
+ * the free-fall lookback; an impact scans it for the free fall that led up to it, and
+ * stillness is then checked sample by sample, so memory is constant and nothing is
+ * allocated per sample.
+ */
+public class FallDetector {
+
+    public enum State {
+        /** Waiting for an impact. */
+        WATCHING,
+        /** Impact after free fall seen; waiting for the phone to settle and stay still. */
+        CHECKING_STILLNESS
+    }
+
+    // In m/s^2 of total acceleration; about 0.5 g and 2.5 g
+    static final float FREE_FALL_THRESHOLD = 5f;
+    static final float IMPACT_THRESHOLD = 24f;
+    static final long MIN_FREE_FALL_NANOS = 80_000_000L;
+    // The free fall must end this close before the impact
+    static final long FALL_LOOKBACK_NANOS = 1_000_000_000L;
+    // Bouncing and sliding after the impact are ignored, then it must stay still
+    static final long SETTLE_NANOS = 1_000_000_000L;
+    static final long STILL_NANOS = 2_000_000_000L;
+    static final float STILL_TOLERANCE = 2f;
+
+    private static final float GRAVITY = 9.80665f;
+    private static final long MAX_GAP_NANOS = 200_000_000L;
+    // Over a second at the fastest sensor rates
+    private static final int CAPACITY = 512;
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] magnitudes = new float[CAPACITY];
+    private int head;
+    private int size;
+    private long lastSampleNanos = Long.MIN_VALUE;
+
+    private State state = State.WATCHING;
+    private long impactNanos;
+    // Whether the previous sample was above the impact threshold, so one impact counts once
+    private boolean inImpact;
+    private int fallCount;
+    private int impactsWithoutFreeFall;
+
+    /**
+     * @param timestampNanos Sensor event timestamp
+     * @return Whether this sample confirms a fall
+     */
+    public boolean onSample(long timestampNanos, float x, float y, float z) {
+        long gap = timestampNanos - lastSampleNanos;
+        if (lastSampleNanos != Long.MIN_VALUE && (gap > MAX_GAP_NANOS || gap < 0)) {
+            // The sensor was paused: nothing before the gap belongs to this sample
+            reset();
+        }
+        lastSampleNanos = timestampNanos;
+
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        head = (head + 1) & (CAPACITY - 1);
+        times[head] = timestampNanos;
+        magnitudes[head] = magnitude;
+        if (size < CAPACITY) size++;
+
+        switch (state) {
+            case WATCHING:
+                boolean wasImpact = inImpact;
+                inImpact = magnitude >= IMPACT_THRESHOLD;
+                if (inImpact && !wasImpact) {
+                    if (freeFallBefore(timestampNanos)) {
+                        state = State.CHECKING_STILLNESS;
+                        impactNanos = timestampNanos;
+                        inImpact = false;
+                    } else {
+                        impactsWithoutFreeFall++;
+                    }
+                }
+                return false;
+            case CHECKING_STILLNESS:
+            default:
+                long sinceImpact = timestampNanos - impactNanos;
+                if (sinceImpact < SETTLE_NANOS) {
+                    return false;
+                }
+                if (Math.abs(magnitude - GRAVITY) > STILL_TOLERANCE) {
+                    // Moving again, so whoever holds it is up, or it was only dropped
+                    state = State.WATCHING;
+                    return false;
+                }
+                if (sinceImpact < SETTLE_NANOS + STILL_NANOS) {
+                    return false;
+                }
+                state = State.WATCHING;
+                fallCount++;
+                return true;
+        }
+    }
+
+    /**
+     * @return Whether the ring holds a free-fall run of at least {@link #MIN_FREE_FALL_NANOS}
+     *         ending within {@link #FALL_LOOKBACK_NANOS} before {@code impactNanos}
+     */
+    private boolean freeFallBefore(long impactNanos) {
+        long lookbackStart = impactNanos - FALL_LOOKBACK_NANOS;
+        long runEnd = -1;
+        int index = head;
+        for (int i = 0; i < size; i++) {
+            long time = times[index];
+            if (time < lookbackStart) break;
+            if (magnitudes[index] < FREE_FALL_THRESHOLD) {
+                if (runEnd < 0) runEnd = time;
+                if (runEnd - time >= MIN_FREE_FALL_NANOS) return true;
+            } else {
+                runEnd = -1;
+            }
+            index = (index - 1) & (CAPACITY - 1);
+        }
+        return false;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getFallCount() {
+        return fallCount;
+    }
+
+    /**
+     * @return Impacts rejected for lack of a free fall before them, e.g. from shaking
+     */
+    public int getImpactsWithoutFreeFall() {
+        return impactsWithoutFreeFall;
+    }
+
+    public void reset() {
+        size = 0;
+        lastSampleNanos = Long.MIN_VALUE;
+        state = State.WATCHING;
+        inImpact = false;
+    }
+}
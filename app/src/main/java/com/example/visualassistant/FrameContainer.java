@@ -0,0 +1,325 @@
+package com.example.visualassistant;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact container for recorded analysis sessions.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * file header:   int magic "VAFR" | short version | short reserved | long createdMillis
+ * record header: byte type | long timestampNanos | int payloadLength
+ * FRAME:         int width | int height | short rotation | byte chromaShift (0 = luma only)
+ *                | Y (width*height) | U | V (each chromaWidth*chromaHeight)
+ * DETECTIONS:    short count | count * (short labelLength | label UTF-8 | float confidence
+ *                | float left | float top | float right | float bottom), boxes normalised 0..1
+ * ANNOUNCEMENT:  UTF-8 text
+ * </pre>
+ * Every record carries its payload length so readers can skip types they do not know.
+ * The same reader is used on device and by host tooling (replay, tests, benchmarks).
+ */
+public final class FrameContainer {
+
+    public static final int MAGIC = 0x56414652; // "VAFR"
+    public static final short VERSION = 1;
+    public static final int FILE_HEADER_SIZE = 16;
+    public static final int RECORD_HEADER_SIZE = 13;
+
+    public static final int RECORD_END = -1;
+    public static final byte RECORD_FRAME = 1;
+    public static final byte RECORD_DETECTIONS = 2;
+    public static final byte RECORD_ANNOUNCEMENT = 3;
+
+    private static final int FRAME_HEADER_SIZE = 11;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private FrameContainer() {
+    }
+
+    /**
+     * @return The payload size of a frame record written with the given chroma shift
+     *         (0 to drop chroma entirely).
+     */
+    public static int framePayloadSize(int width, int height, int chromaShift) {
+        int size = FRAME_HEADER_SIZE + width * height;
+        if (chromaShift > 0) {
+            int chromaWidth = (width + (1 << chromaShift) - 1) >> chromaShift;
+            int chromaHeight = (height + (1 << chromaShift) - 1) >> chromaShift;
+            size += 2 * chromaWidth * chromaHeight;
+        }
+        return size;
+    }
+
+    /**
+     * Appends records to a channel. Not thread-safe; the session recorder drives it
+     * from its own writer thread.
+     */
+    public static class Writer implements Closeable {
+
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private long bytesWritten = 0;
+
+        public Writer(WritableByteChannel channel) throws IOException {
+            this(channel, System.currentTimeMillis());
+        }
+
+        public Writer(WritableByteChannel channel, long createdMillis) throws IOException {
+            this.channel = channel;
+            buffer.clear();
+            buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(createdMillis);
+            drain();
+        }
+
+        /**
+         * Writes a frame, re-sampling its chroma to {@code chromaShift}
+         * (0 drops chroma, 1 keeps 4:2:0, each step above halves it again).
+         */
+        public void writeFrame(YuvFrame frame, int chromaShift) throws IOException {
+            // Chroma can only be dropped or subsampled further, never upsampled
+            chromaShift = frame.hasChroma && chromaShift > 0 ? Math.max(chromaShift, frame.chromaShift) : 0;
+            int payload = framePayloadSize(frame.width, frame.height, chromaShift);
+            beginRecord(RECORD_FRAME, frame.timestampNanos, payload);
+
+            buffer.putInt(frame.width).putInt(frame.height)
+                    .putShort((short) frame.rotationDegrees).put((byte) chromaShift);
+            buffer.put(frame.y, 0, frame.width * frame.height);
+
+            if (chromaShift > 0) {
+                putChroma(frame, frame.u, chromaShift);
+                putChroma(frame, frame.v, chromaShift);
+            }
+            drain();
+        }
+
+        private void putChroma(YuvFrame frame, byte[] plane, int chromaShift) {
+            int step = 1 << (chromaShift - frame.chromaShift);
+            int srcWidth = frame.chromaWidth();
+            int dstWidth = (frame.width + (1 << chromaShift) - 1) >> chromaShift;
+            int dstHeight = (frame.height + (1 << chromaShift) - 1) >> chromaShift;
+            if (step == 1) {
+                buffer.put(plane, 0, dstWidth * dstHeight);
+                return;
+            }
+            for (int row = 0; row < dstHeight; row++) {
+                int srcRow = row * step * srcWidth;
+                for (int col = 0; col < dstWidth; col++) {
+                    buffer.put(plane[srcRow + col * step]);
+                }
+            }
+        }
+
+        /**
+         * @param detections Detections with boxes normalised to 0..1
+         */
+        public void writeDetections(long timestampNanos, List<ObjectDetection> detections) throws IOException {
+            int count = Math.min(detections.size(), Short.MAX_VALUE);
+            byte[][] labels = new byte[count][];
+            int payload = 2;
+            for (int i = 0; i < count; i++) {
+                labels[i] = detections.get(i).getLabel().getBytes(UTF_8);
+                payload += 2 + labels[i].length + 5 * 4;
+            }
+            beginRecord(RECORD_DETECTIONS, timestampNanos, payload);
+
+            buffer.putShort((short) count);
+            for (int i = 0; i < count; i++) {
+                ObjectDetection detection = detections.get(i);
+                buffer.putShort((short) labels[i].length).put(labels[i]);
+                buffer.putFloat(detection.getConfidence())
+                        .putFloat(detection.getLeft()).putFloat(detection.getTop())
+                        .putFloat(detection.getRight()).putFloat(detection.getBottom());
+            }
+            drain();
+        }
+
+        public void writeAnnouncement(long timestampNanos, String text) throws IOException {
+            byte[] bytes = text.getBytes(UTF_8);
+            beginRecord(RECORD_ANNOUNCEMENT, timestampNanos, bytes.length);
+            buffer.put(bytes);
+            drain();
+        }
+
+        /**
+         * @return Bytes written to the channel so far, including the file header.
+         */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        private void beginRecord(byte type, long timestampNanos, int payloadLength) {
+            int needed = RECORD_HEADER_SIZE + payloadLength;
+            if (buffer.capacity() < needed) {
+                buffer = ByteBuffer.allocate(needed);
+            }
+            buffer.clear();
+            buffer.put(type).putLong(timestampNanos).putInt(payloadLength);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sequential reader. Call {@link #next()} and then the accessor that matches
+     * the returned record type.
+     */
+    public static class Reader implements Closeable {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        private ByteBuffer payload = ByteBuffer.allocate(64 * 1024);
+        private final long createdMillis;
+
+        private int recordType = RECORD_END;
+        private long timestampNanos;
+
+        public Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            if (!readFully(fileHeader)) {
+                throw new IOException("Not a frame container: file too short");
+            }
+            fileHeader.flip();
+            if (fileHeader.getInt() != MAGIC) {
+                throw new IOException("Not a frame container: bad magic");
+            }
+            short version = fileHeader.getShort();
+            if (version > VERSION) {
+                throw new IOException("Unsupported frame container version " + version);
+            }
+            fileHeader.getShort();
+            createdMillis = fileHeader.getLong();
+        }
+
+        public long getCreatedMillis() {
+            return createdMillis;
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return The record type, or {@link #RECORD_END} at end of file. A record cut
+         *         short by a crash while recording is treated as end of file.
+         */
+        public int next() throws IOException {
+            header.clear();
+            if (!readFully(header)) {
+                return recordType = RECORD_END;
+            }
+            header.flip();
+            byte type = header.get();
+            timestampNanos = header.getLong();
+            int length = header.getInt();
+            if (length < 0) {
+                throw new IOException("Corrupt record length " + length);
+            }
+
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocate(length);
+            }
+            payload.clear();
+            payload.limit(length);
+            if (!readFully(payload)) {
+                return recordType = RECORD_END;
+            }
+            payload.flip();
+            return recordType = type;
+        }
+
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        /**
+         * Decodes the current FRAME record into {@code frame}, reusing its buffers.
+         */
+        public YuvFrame readFrame(YuvFrame frame) throws IOException {
+            expect(RECORD_FRAME);
+            payload.rewind();
+            int width = payload.getInt();
+            int height = payload.getInt();
+            int rotation = payload.getShort();
+            int chromaShift = payload.get();
+
+            frame.ensureCapacity(width, height, Math.max(chromaShift, 1));
+            frame.rotationDegrees = rotation;
+            frame.timestampNanos = timestampNanos;
+            frame.hasChroma = chromaShift > 0;
+            payload.get(frame.y, 0, width * height);
+            if (frame.hasChroma) {
+                int chromaSize = frame.chromaWidth() * frame.chromaHeight();
+                payload.get(frame.u, 0, chromaSize);
+                payload.get(frame.v, 0, chromaSize);
+            }
+            return frame;
+        }
+
+        /**
+         * @return The detections of the current DETECTIONS record, boxes normalised to 0..1.
+         */
+        public List<ObjectDetection> readDetections() throws IOException {
+            expect(RECORD_DETECTIONS);
+            payload.rewind();
+            int count = payload.getShort();
+            List<ObjectDetection> detections = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] label = new byte[payload.getShort()];
+                payload.get(label);
+                float confidence = payload.getFloat();
+                float left = payload.getFloat();
+                float top = payload.getFloat();
+                float right = payload.getFloat();
+                float bottom = payload.getFloat();
+                detections.add(new ObjectDetection(new String(label, UTF_8), confidence, 0f,
+                        left, top, right, bottom));
+            }
+            return detections;
+        }
+
+        public String readAnnouncement() throws IOException {
+            expect(RECORD_ANNOUNCEMENT);
+            payload.rewind();
+            return new String(payload.array(), payload.arrayOffset(), payload.limit(), UTF_8);
+        }
+
+        private void expect(int type) throws IOException {
+            if (recordType != type) {
+                throw new IOException("Current record is type " + recordType + ", not " + type);
+            }
+        }
+
+        private boolean readFully(ByteBuffer target) throws IOException {
+            while (target.hasRemaining()) {
+                int read = channel.read(target);
+                if (read < 0) {
+                    // Clean end of file, or a partial record left by a recorder killed mid-write
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Drives recorded frames through the same conversion, detection and OCR pipeline
+ * the analyzers use, without a camera or an Android device.
+ *
+ * Time is taken from the frame timestamps rather than the wall clock, so a given
+ * recording and backend always produce the same detections and announcements.
+ * Either backend may be null to replay only one pipeline. Runs on the host through
+ * the benchmark module's ReplayRecording entry point.
+ */
+public class FrameReplayer {
+
+    private final DetectorBackend detectorBackend;
+    private final TextRecognizerBackend textRecognizerBackend;
+    private final DetectionPostProcessor postProcessor = new DetectionPostProcessor();
+
+    private String preferredTextLanguage = TextAnnouncer.AUTO;
+
+    private final YuvFrame frame = new YuvFrame();
+    private int[] argb = new int[0];
+
+    // Far enough in the past that the first frame is always analysed, without overflowing
+    private long lastDetectionMillis = Long.MIN_VALUE / 2;
+    private long lastTextMillis = Long.MIN_VALUE / 2;
+
+    private ReplayReport report = new ReplayReport();
+
+    public FrameReplayer(DetectorBackend detectorBackend, TextRecognizerBackend textRecognizerBackend) {
+        this.detectorBackend = detectorBackend;
+        this.textRecognizerBackend = textRecognizerBackend;
+    }
+
+    public void setCurrentLanguage(String language) {
+        postProcessor.setCurrentLanguage(language);
+    }
+
+    public void setIsNavigationMode(boolean isNavigationMode) {
+        postProcessor.setIsNavigationMode(isNavigationMode);
+    }
+
+    public void setPreferredTextLanguage(String language) {
+        this.preferredTextLanguage = language;
+    }
+
+    /**
+     * Replays every frame in the container; other record types are skipped.
+     */
+    public ReplayReport replay(FrameContainer.Reader reader) throws Exception {
+        int type;
+        while ((type = reader.next()) != FrameContainer.RECORD_END) {
+            if (type == FrameContainer.RECORD_FRAME) {
+                processFrame(reader.readFrame(frame));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Runs one frame through the pipelines, applying the analyzers' rate limits.
+     */
+    public void processFrame(YuvFrame frame) throws Exception {
+        long start = System.nanoTime();
+        long frameMillis = frame.timestampNanos / 1_000_000L;
+        report.frameCount++;
+
+        if (detectorBackend != null && frameMillis - lastDetectionMillis >= DetectionPostProcessor.ANALYSIS_INTERVAL) {
+            runDetection(frame, frameMillis);
+        }
+
+        if (textRecognizerBackend != null && frameMillis - lastTextMillis >= TextAnnouncer.PROCESSING_INTERVAL) {
+            runTextRecognition(frame);
+            lastTextMillis = frameMillis;
+        }
+
+        report.totalNanos += System.nanoTime() - start;
+    }
+
+    private void runDetection(YuvFrame frame, long frameMillis) throws Exception {
+        // Converts only for a backend that reads ARGB, as the analyzers do
+        long convertStart = System.nanoTime();
+        int[] pixels = null;
+        if (detectorBackend.usesArgb()) {
+            int size = frame.width * frame.height;
+            if (argb.length < size) {
+                argb = new int[size];
+            }
+            YuvConverter.yuvToArgb(frame, argb);
+            pixels = argb;
+        }
+        long inferenceStart = System.nanoTime();
+        List<ObjectDetection> detections = detectorBackend.detect(frame, pixels);
+        long postStart = System.nanoTime();
+
+        boolean shouldSpeak = frameMillis - lastDetectionMillis >= DetectionPostProcessor.SPEECH_INTERVAL;
+        postProcessor.process(detections, frame.orientedWidth(), frame.orientedHeight(), frameMillis, shouldSpeak);
+        long end = System.nanoTime();
+
+        report.detectionFrameCount++;
+        report.conversionNanos += inferenceStart - convertStart;
+        report.detectionNanos += postStart - inferenceStart;
+        report.postProcessingNanos += end - postStart;
+        List<ObjectDetection> overlay = new ArrayList<>();
+        for (ObjectDetection detection : postProcessor.getOverlayResults()) {
+            overlay.add(new ObjectDetection(detection));
+        }
+        report.detections.add(overlay);
+        if (postProcessor.getAnnouncement() != null) {
+            report.addAnnouncement(frame.timestampNanos, postProcessor.getAnnouncement());
+        }
+        report.addAnnouncement(frame.timestampNanos, postProcessor.getSummary());
+
+        lastDetectionMillis = frameMillis;
+    }
+
+    private void runTextRecognition(YuvFrame frame) throws Exception {
+        long start = System.nanoTime();
+        String text = textRecognizerBackend.recognize(frame);
+        report.textNanos += System.nanoTime() - start;
+        report.textFrameCount++;
+
+        String language = TextAnnouncer.detectLanguage(text, preferredTextLanguage);
+        report.addAnnouncement(frame.timestampNanos, TextAnnouncer.buildAnnouncement(text, language));
+    }
+
+    public ReplayReport getReport() {
+        return report;
+    }
+
+    /**
+     * Clears the report and the rate-limit state so another recording can be replayed.
+     */
+    public void reset() {
+        report = new ReplayReport();
+        lastDetectionMillis = Long.MIN_VALUE / 2;
+        lastTextMillis = Long.MIN_VALUE / 2;
+    }
+
+    /**
+     * Outcome of a replay: what would have been shown and said, and how long it took.
+     */
+    public static class ReplayReport {
+        public int frameCount;
+        public int detectionFrameCount;
+        public int textFrameCount;
+
+        public long totalNanos;
+        public long conversionNanos;
+        public long detectionNanos;
+        public long postProcessingNanos;
+        public long textNanos;
+
+        /** Normalised overlay boxes, one list per frame that went through detection. */
+        public final List<List<ObjectDetection>> detections = new ArrayList<>();
+        /** Spoken messages in order, formatted as "&lt;frame ms&gt;: &lt;text&gt;". */
+        public final List<String> announcements = new ArrayList<>();
+
+        void addAnnouncement(long timestampNanos, String text) {
+            announcements.add((timestampNanos / 1_000_000L) + ": " + text);
+        }
+
+        public double framesPerSecond() {
+            return totalNanos == 0 ? 0 : frameCount * 1e9 / totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "ReplayReport{" +
+                    "frames=" + frameCount +
+                    ", detectionFrames=" + detectionFrameCount +
+                    ", textFrames=" + textFrameCount +
+                    ", fps=" + String.format(Locale.US, "%.1f", framesPerSecond()) +
+                    ", convertMs=" + conversionNanos / 1_000_000L +
+                    ", detectMs=" + detectionNanos / 1_000_000L +
+                    ", postMs=" + postProcessingNanos / 1_000_000L +
+                    ", textMs=" + textNanos / 1_000_000L +
+                    ", announcements=" + announcements.size() +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.visualassistant;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+/**
+ * The single analyzer bound to the camera for the lifetime of the activity.
+ *
+ * Frames are handed to the pipeline of the active mode; switching modes is a
+ * reference swap, so the camera session, preview and ImageAnalysis use case are
+ * never rebuilt. With no active pipeline (home mode) frames are closed at once.
+ * A change of analysis resolution replaces the use case, with this router as its analyzer.
+ *
+ * Switch latency is measured from {@link #setActiveAnalyzer} to the first frame
+ * the new pipeline receives, and recorded as a "mode_switch" trace span.
+ */
+public class FrameRouter implements ImageAnalysis.Analyzer {
+    private static final String TAG = "FrameRouter";
+
+    private final FrameTracer tracer = FrameTracer.getInstance();
+
+    private volatile ImageAnalysis.Analyzer activeAnalyzer;
+    private volatile long switchStartNanos = -1;
+    private volatile long lastSwitchLatencyNanos = -1;
+
+    /**
+     * Routes subsequent frames to {@code analyzer}, or drops them if it is null.
+     * Safe to call from any thread; takes effect on the next frame.
+     */
+    public void setActiveAnalyzer(ImageAnalysis.Analyzer analyzer) {
+        if (analyzer == activeAnalyzer) return;
+        switchStartNanos = analyzer != null ? FrameTracer.now() : -1;
+        activeAnalyzer = analyzer;
+    }
+
+    public ImageAnalysis.Analyzer getActiveAnalyzer() {
+        return activeAnalyzer;
+    }
+
+    /**
+     * @return Nanoseconds from the last switch request to the first frame delivered
+     *         to the new pipeline, or -1 if no switch has completed yet.
+     */
+    public long getLastSwitchLatencyNanos() {
+        return lastSwitchLatencyNanos;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        ImageAnalysis.Analyzer analyzer = activeAnalyzer;
+        if (analyzer == null) {
+            image.close();
+            return;
+        }
+
+        long switchStart = switchStartNanos;
+        if (switchStart >= 0) {
+            switchStartNanos = -1;
+            long now = FrameTracer.now();
+            lastSwitchLatencyNanos = now - switchStart;
+            tracer.record(image.getImageInfo().getTimestamp(), FrameTracer.SPAN_MODE_SWITCH, switchStart, now);
+            Log.d(TAG, "Mode switch took " + lastSwitchLatencyNanos / 1_000_000L + " ms");
+        }
+
+        analyzer.analyze(image);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.visualassistant;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records "glass-to-ear" latency spans for camera frames.
+ *
+ * Every analysed frame gets a trace id (the ImageProxy capture timestamp) that is
+ * carried through conversion, inference, message building and into the TTS
+ * utterance id, so the moment the speech engine starts talking can be tied back
+ * to the frame that caused it. Spans live in a fixed-size ring buffer and can be
+ * exported in Chrome trace-event JSON for chrome://tracing or Perfetto.
+ */
+public class FrameTracer {
+
+    public static final String SPAN_CONVERT = "convert";
+    public static final String SPAN_INFERENCE = "inference";
+    public static final String SPAN_OCR = "ocr";
+    public static final String SPAN_MESSAGE = "message";
+    public static final String SPAN_GLASS_TO_EAR = "glass_to_ear";
+    public static final String SPAN_MODE_SWITCH = "mode_switch";
+
+    public static final long NO_TRACE = -1L;
+
+    private static final String UTTERANCE_PREFIX = "frame-";
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int MAX_OPEN_FRAMES = 64;
+
+    private static final FrameTracer INSTANCE = new FrameTracer(DEFAULT_CAPACITY);
+
+    public static FrameTracer getInstance() {
+        return INSTANCE;
+    }
+
+    // Completed spans, stored as parallel arrays so recording never allocates
+    private final long[] spanTraceIds;
+    private final String[] spanNames;
+    private final long[] spanStartNanos;
+    private final long[] spanDurationNanos;
+    private final long[] spanThreadIds;
+    private long spanCount = 0;
+
+    // Frames that have started but not yet reached the speaker
+    private final long[] openTraceIds = new long[MAX_OPEN_FRAMES];
+    private final long[] openStartNanos = new long[MAX_OPEN_FRAMES];
+    private int openCursor = 0;
+
+    private volatile boolean enabled = true;
+
+    public FrameTracer(int capacity) {
+        spanTraceIds = new long[capacity];
+        spanNames = new String[capacity];
+        spanStartNanos = new long[capacity];
+        spanDurationNanos = new long[capacity];
+        spanThreadIds = new long[capacity];
+        Arrays.fill(openTraceIds, NO_TRACE);
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the arrival of a frame in an analyzer. The glass-to-ear span for this
+     * trace id is measured from here until the matching utterance starts.
+     */
+    public synchronized void beginFrame(long traceId) {
+        if (!enabled || traceId == NO_TRACE) return;
+        openTraceIds[openCursor] = traceId;
+        openStartNanos[openCursor] = now();
+        openCursor = (openCursor + 1) % MAX_OPEN_FRAMES;
+    }
+
+    /**
+     * Records a completed span for the given frame.
+     */
+    public synchronized void record(long traceId, String name, long startNanos, long endNanos) {
+        if (!enabled || traceId == NO_TRACE) return;
+        int slot = (int) (spanCount % spanTraceIds.length);
+        spanTraceIds[slot] = traceId;
+        spanNames[slot] = name;
+        spanStartNanos[slot] = startNanos;
+        spanDurationNanos[slot] = endNanos - startNanos;
+        spanThreadIds[slot] = Thread.currentThread().getId();
+        spanCount++;
+    }
+
+    /**
+     * Called from UtteranceProgressListener.onStart. Closes the glass-to-ear span
+     * of the frame encoded in the utterance id, if there is one.
+     */
+    public void onUtteranceStarted(String utteranceId) {
+        long traceId = traceIdFromUtterance(utteranceId);
+        if (traceId == NO_TRACE) return;
+
+        long end = now();
+        long start = -1;
+        synchronized (this) {
+            for (int i = 0; i < MAX_OPEN_FRAMES; i++) {
+                if (openTraceIds[i] == traceId) {
+                    start = openStartNanos[i];
+                    openTraceIds[i] = NO_TRACE;
+                    break;
+                }
+            }
+        }
+        if (start >= 0) {
+            record(traceId, SPAN_GLASS_TO_EAR, start, end);
+        }
+    }
+
+    public static String utteranceId(long traceId) {
+        return UTTERANCE_PREFIX + traceId;
+    }
+
+    public static long traceIdFromUtterance(String utteranceId) {
+        if (utteranceId == null || !utteranceId.startsWith(UTTERANCE_PREFIX)) {
+            return NO_TRACE;
+        }
+        try {
+            return Long.parseLong(utteranceId.substring(UTTERANCE_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return NO_TRACE;
+        }
+    }
+
+    /**
+     * @return The number of spans currently held in the ring buffer.
+     */
+    public synchronized int size() {
+        return (int) Math.min(spanCount, spanTraceIds.length);
+    }
+
+    public synchronized void clear() {
+        spanCount = 0;
+        Arrays.fill(openTraceIds, NO_TRACE);
+    }
+
+    /**
+     * Writes the buffered spans, oldest first, as a Chrome trace-event JSON document.
+     */
+    public void writeChromeTrace(Writer out) throws IOException {
+        long[] traceIds;
+        String[] names;
+        long[] starts;
+        long[] durations;
+        long[] threads;
+        int count;
+
+        // Copy under the lock so the (slow) serialisation does not block recorders
+        synchronized (this) {
+            count = size();
+            traceIds = new long[count];
+            names = new String[count];
+            starts = new long[count];
+            durations = new long[count];
+            threads = new long[count];
+            long first = spanCount - count;
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((first + i) % spanTraceIds.length);
+                traceIds[i] = spanTraceIds[slot];
+                names[i] = spanNames[slot];
+                starts[i] = spanStartNanos[slot];
+                durations[i] = spanDurationNanos[slot];
+                threads[i] = spanThreadIds[slot];
+            }
+        }
+
+        out.write("{\"traceEvents\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) out.write(',');
+            out.write("{\"name\":\"");
+            out.write(names[i]);
+            out.write("\",\"cat\":\"frame\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+            out.write(Long.toString(threads[i]));
+            out.write(",\"ts\":");
+            out.write(formatMicros(starts[i]));
+            out.write(",\"dur\":");
+            out.write(formatMicros(durations[i]));
+            out.write(",\"args\":{\"frame\":\"");
+            out.write(Long.toString(traceIds[i]));
+            out.write("\"}}");
+        }
+        out.write("],\"displayTimeUnit\":\"ms\"}");
+        out.flush();
+    }
+
+    private static String formatMicros(long nanos) {
+        return (nanos / 1000) + "." + String.format(Locale.US, "%03d", Math.abs(nanos % 1000));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.visualassistant;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deadlines for the frame jobs of one analysis mode. Every job carries the time its frame
+ * arrived and must deliver within the mode's freshness budget: a job that can no longer
+ * make its deadline is cancelled before inference, a result up to one budget late is
+ * downgraded to the overlay only, and anything older is dropped, so a frame from
+ * seconds ago is never spoken as if it were current.
+ */
+public class FreshnessGate {
+
+    public enum Verdict {
+        /** Within budget: draw and speak. */
+        FRESH,
+        /** Up to one budget late: draw, but say nothing. */
+        LATE,
+        /** More than one budget late: suppress. */
+        STALE
+    }
+
+    // Obstacles move relative to a walking user, so navigation has the tightest budget
+    public static final long NAVIGATION_BUDGET_NANOS = 700_000_000L;
+    public static final long IDENTIFY_BUDGET_NANOS = 2_000_000_000L;
+    // OCR is slow, and the text in view changes as soon as the user moves on
+    public static final long READ_BUDGET_NANOS = 3_000_000_000L;
+    public static final long DESCRIBE_BUDGET_NANOS = 4_000_000_000L;
+
+    private static final float PROCESSING_WEIGHT = 0.2f;
+
+    private final long budgetNanos;
+    // Moving average of admission to completion, written by the worker thread
+    private volatile long expectedProcessingNanos;
+
+    private final AtomicLong freshCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong downgradedCount = new AtomicLong();
+    private final AtomicLong staleDroppedCount = new AtomicLong();
+
+    public FreshnessGate(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public long deadline(long captureNanos) {
+        return captureNanos + budgetNanos;
+    }
+
+    /**
+     * Decides whether a job for a frame that arrived at {@code captureNanos} should still
+     * start. It should not if the usual processing time would take it past the deadline;
+     * at most half the budget is assumed, so a slow device still gets its freshest frames
+     * through.
+     *
+     * @return False if the job is cancelled, which is counted
+     */
+    public boolean admit(long captureNanos, long nowNanos) {
+        long expected = Math.min(expectedProcessingNanos, budgetNanos / 2);
+        if (nowNanos + expected > deadline(captureNanos)) {
+            cancelledCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Judges a finished job's result and learns its processing time.
+     *
+     * @param startNanos When the job was admitted
+     */
+    public Verdict complete(long captureNanos, long startNanos, long nowNanos) {
+        long processing = nowNanos - startNanos;
+        long expected = expectedProcessingNanos;
+        expectedProcessingNanos = expected == 0
+                ? processing : expected + (long) (PROCESSING_WEIGHT * (processing - expected));
+
+        long age = nowNanos - captureNanos;
+        if (age <= budgetNanos) {
+            freshCount.incrementAndGet();
+            return Verdict.FRESH;
+        }
+        if (age <= 2 * budgetNanos) {
+            downgradedCount.incrementAndGet();
+            return Verdict.LATE;
+        }
+        staleDroppedCount.incrementAndGet();
+        return Verdict.STALE;
+    }
+
+    public long getExpectedProcessingNanos() {
+        return expectedProcessingNanos;
+    }
+
+    public long getFreshCount() {
+        return freshCount.get();
+    }
+
+    /**
+     * @return Jobs cancelled before inference because they could not make their deadline
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    public long getDowngradedCount() {
+        return downgradedCount.get();
+    }
+
+    public long getStaleDroppedCount() {
+        return staleDroppedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "budget " + budgetNanos / 1_000_000L + " ms, fresh " + getFreshCount()
+                + ", cancelled " + getCancelledCount() + ", downgraded " + getDowngradedCount()
+                + ", stale " + getStaleDroppedCount() + ", expected "
+                + expectedProcessingNanos / 1_000_000L + " ms";
+    }
+}
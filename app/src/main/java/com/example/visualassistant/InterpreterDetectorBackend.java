@@ -0,0 +1,130 @@
+package com.example.visualassistant;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import org.tensorflow.lite.support.metadata.MetadataExtractor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DetectorBackend} that feeds an SSD model through a plain TensorFlow Lite
+ * {@link Interpreter}. Camera planes are written straight into the input tensor by
+ * {@link TensorInputWriter}, as uint8 for quantized models, and outputs are decoded
+ * by {@link SsdOutputDecoder}; the ARGB frame is never used.
+ *
+ * Expects the usual SSD output order (boxes, classes, scores, count) and labels in
+ * the model metadata as {@code labelmap.txt}.
+ */
+public class InterpreterDetectorBackend implements DetectorBackend {
+
+    static final String LABEL_FILE = "labelmap.txt";
+    // Float SSD MobileNet inputs are scaled to [-1, 1]
+    private static final float FLOAT_MEAN = 127.5f;
+    private static final float FLOAT_STD = 127.5f;
+
+    private final Interpreter interpreter;
+    private final TensorInputWriter inputWriter = new TensorInputWriter();
+    private final SsdOutputDecoder decoder;
+    private final boolean quantizedInput;
+    private final int inputWidth;
+    private final int inputHeight;
+    private final ByteBuffer input;
+    private final Object[] inputs;
+    private final Map<Integer, Object> outputs = new HashMap<>();
+    private final float scoreThreshold;
+    private final int maxResults;
+
+    /**
+     * @param model  Model bytes in a direct or mapped buffer, e.g. from {@link TfliteDetectorBackend#mapAsset}
+     * @param config Interpreter threads and XNNPACK, e.g. from {@link InterpreterTuner}
+     */
+    public InterpreterDetectorBackend(ByteBuffer model, InterpreterTuner.Config config,
+                                      float scoreThreshold, int maxResults) throws IOException {
+        this.scoreThreshold = scoreThreshold;
+        this.maxResults = maxResults;
+        decoder = new SsdOutputDecoder(readLabels(model));
+
+        Interpreter.Options options = new Interpreter.Options();
+        if (config != null) {
+            options.setNumThreads(config.numThreads).setUseXNNPACK(config.useXnnpack);
+        }
+        interpreter = new Interpreter(model, options);
+
+        Tensor inputTensor = interpreter.getInputTensor(0);
+        int[] shape = inputTensor.shape();
+        inputHeight = shape[1];
+        inputWidth = shape[2];
+        quantizedInput = inputTensor.dataType() == DataType.UINT8;
+        input = ByteBuffer.allocateDirect(inputWidth * inputHeight * 3 * (quantizedInput ? 1 : 4))
+                .order(ByteOrder.nativeOrder());
+        inputs = new Object[]{input};
+
+        for (int i = 0; i < 4; i++) {
+            Tensor tensor = interpreter.getOutputTensor(i);
+            int elements = 1;
+            for (int dimension : tensor.shape()) {
+                elements *= dimension;
+            }
+            boolean quantized = tensor.dataType() == DataType.UINT8;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(elements * (quantized ? 1 : 4));
+            outputs.put(i, buffer);
+            decoder.setOutput(i, buffer, quantized ? tensor.quantizationParams().getScale() : 0f,
+                    quantized ? tensor.quantizationParams().getZeroPoint() : 0);
+        }
+    }
+
+    private static String[] readLabels(ByteBuffer model) throws IOException {
+        List<String> labels = new ArrayList<>();
+        InputStream in = new MetadataExtractor(model.duplicate()).getAssociatedFile(LABEL_FILE);
+        if (in == null) {
+            throw new IOException("Model has no " + LABEL_FILE);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                labels.add(line.trim());
+            }
+        }
+        return labels.toArray(new String[0]);
+    }
+
+    public boolean isQuantized() {
+        return quantizedInput;
+    }
+
+    @Override
+    public boolean usesArgb() {
+        return false;
+    }
+
+    @Override
+    public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+        input.clear();
+        if (quantizedInput) {
+            inputWriter.writeUint8(frame, inputWidth, inputHeight, input);
+        } else {
+            inputWriter.writeFloat(frame, inputWidth, inputHeight, FLOAT_MEAN, FLOAT_STD, input);
+        }
+        input.rewind();
+        for (Object output : outputs.values()) {
+            ((ByteBuffer) output).clear();
+        }
+        interpreter.runForMultipleInputsOutputs(inputs, outputs);
+        return decoder.decode(scoreThreshold, maxResults, frame.orientedWidth(), frame.orientedHeight());
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+    }
+}
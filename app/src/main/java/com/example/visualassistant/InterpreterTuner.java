@@ -0,0 +1,314 @@
+package com.example.visualassistant;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * First-run micro-benchmark that picks the fastest interpreter configuration for a
+ * model on this device.
+ *
+ * Each candidate {@link Config} is opened through a {@link SessionFactory}, run a few
+ * times to warm up and then timed; the configuration with the lowest median run time
+ * wins. Winners are stored per device and model hash in a properties file, so later
+ * sessions load them instead of tuning again. Nothing here depends on Android: the
+ * app supplies TensorFlow Lite sessions, tests and host tools supply their own.
+ */
+public class InterpreterTuner {
+
+    public static final int MAX_THREADS = 4;
+    public static final int DEFAULT_WARMUP_RUNS = 2;
+    public static final int DEFAULT_MEASURED_RUNS = 5;
+
+    public static final class Config {
+        public final int numThreads;
+        public final boolean useXnnpack;
+
+        public Config(int numThreads, boolean useXnnpack) {
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+        }
+
+        /**
+         * @return The config written by {@link #toString()}, or null if {@code value} is not one
+         */
+        public static Config parse(String value) {
+            if (value == null) return null;
+            String[] parts = value.split(",");
+            if (parts.length != 2 || !parts[0].startsWith("threads=") || !parts[1].startsWith("xnnpack=")) {
+                return null;
+            }
+            try {
+                int threads = Integer.parseInt(parts[0].substring("threads=".length()));
+                if (threads < 1) return null;
+                return new Config(threads, Boolean.parseBoolean(parts[1].substring("xnnpack=".length())));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Config)) return false;
+            Config other = (Config) o;
+            return numThreads == other.numThreads && useXnnpack == other.useXnnpack;
+        }
+
+        @Override
+        public int hashCode() {
+            return numThreads * 2 + (useXnnpack ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return "threads=" + numThreads + ",xnnpack=" + useXnnpack;
+        }
+    }
+
+    /**
+     * One interpreter opened with a candidate configuration and fed a synthetic input.
+     */
+    public interface Session {
+        void run() throws Exception;
+
+        void close();
+    }
+
+    public interface SessionFactory {
+        Session open(Config config) throws Exception;
+    }
+
+    private final File storeFile;
+    private final SessionFactory factory;
+    private final int warmupRuns;
+    private final int measuredRuns;
+    private final Map<Config, Long> lastMedians = new LinkedHashMap<>();
+    private boolean lastTuned;
+    private IOException lastSaveError;
+
+    public InterpreterTuner(File storeFile, SessionFactory factory) {
+        this(storeFile, factory, DEFAULT_WARMUP_RUNS, DEFAULT_MEASURED_RUNS);
+    }
+
+    /**
+     * @param storeFile Properties file holding the winners; created on first save
+     */
+    public InterpreterTuner(File storeFile, SessionFactory factory, int warmupRuns, int measuredRuns) {
+        this.storeFile = storeFile;
+        this.factory = factory;
+        this.warmupRuns = warmupRuns;
+        this.measuredRuns = Math.max(1, measuredRuns);
+    }
+
+    /**
+     * Thread counts 1 up to {@code maxThreads} (capped at {@link #MAX_THREADS}), each
+     * with XNNPACK on and off.
+     */
+    public static List<Config> defaultGrid(int maxThreads) {
+        int threads = Math.max(1, Math.min(MAX_THREADS, maxThreads));
+        List<Config> grid = new ArrayList<>(2 * threads);
+        for (int t = 1; t <= threads; t++) {
+            grid.add(new Config(t, true));
+            grid.add(new Config(t, false));
+        }
+        return grid;
+    }
+
+    /**
+     * Thread counts 1 up to {@code maxThreads} (capped at {@link #MAX_THREADS}) with
+     * XNNPACK fixed, for runtimes that only take a thread count.
+     */
+    public static List<Config> threadGrid(int maxThreads, boolean useXnnpack) {
+        int threads = Math.max(1, Math.min(MAX_THREADS, maxThreads));
+        List<Config> grid = new ArrayList<>(threads);
+        for (int t = 1; t <= threads; t++) {
+            grid.add(new Config(t, useXnnpack));
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the stored winner for this device and model, or tunes over {@code grid}
+     * and stores the result. A failed save only costs a re-tune next session; see
+     * {@link #getLastSaveError}.
+     */
+    public synchronized Config loadOrTune(String deviceKey, String modelHash, List<Config> grid) throws Exception {
+        String key = deviceKey + "/" + modelHash;
+        Properties store = load();
+        Config stored = Config.parse(store.getProperty(key));
+        lastSaveError = null;
+        if (stored != null) {
+            lastTuned = false;
+            lastMedians.clear();
+            return stored;
+        }
+
+        Config winner = tune(grid);
+        store.setProperty(key, winner.toString());
+        try {
+            save(store);
+        } catch (IOException e) {
+            lastSaveError = e;
+        }
+        return winner;
+    }
+
+    /**
+     * Times every configuration in {@code grid} and returns the fastest. Candidates that
+     * fail to open or run are skipped; if all fail the first one's error is thrown.
+     */
+    public synchronized Config tune(List<Config> grid) throws Exception {
+        lastTuned = true;
+        lastMedians.clear();
+        Config best = null;
+        long bestMedian = Long.MAX_VALUE;
+        Exception firstError = null;
+        for (Config config : grid) {
+            long median;
+            try {
+                median = measure(config);
+            } catch (Exception e) {
+                if (firstError == null) firstError = e;
+                continue;
+            }
+            lastMedians.put(config, median);
+            if (median < bestMedian) {
+                bestMedian = median;
+                best = config;
+            }
+        }
+        if (best == null) {
+            throw firstError != null ? firstError : new IllegalArgumentException("Empty tuning grid");
+        }
+        return best;
+    }
+
+    private long measure(Config config) throws Exception {
+        Session session = factory.open(config);
+        try {
+            for (int i = 0; i < warmupRuns; i++) {
+                session.run();
+            }
+            long[] times = new long[measuredRuns];
+            for (int i = 0; i < measuredRuns; i++) {
+                long start = FrameTracer.now();
+                session.run();
+                times[i] = FrameTracer.now() - start;
+            }
+            Arrays.sort(times);
+            return times[measuredRuns / 2];
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * @return Whether the last {@link #loadOrTune} call had to run the benchmark.
+     */
+    public synchronized boolean wasTuned() {
+        return lastTuned;
+    }
+
+    /**
+     * @return Why the last {@link #loadOrTune} could not store its result, or null if it did
+     *         or had nothing to store
+     */
+    public synchronized IOException getLastSaveError() {
+        return lastSaveError;
+    }
+
+    /**
+     * @return Median run time per configuration from the last tuning run, in grid order.
+     */
+    public synchronized Map<Config, Long> getLastMedians() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(lastMedians));
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        if (!storeFile.exists()) return properties;
+        try (InputStream in = new FileInputStream(storeFile)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            // A corrupt store just means tuning again
+            properties.clear();
+        }
+        return properties;
+    }
+
+    private void save(Properties properties) throws IOException {
+        // Write aside and rename so a crash never leaves a half-written store
+        File temp = new File(storeFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, "Interpreter tuning results");
+        }
+        if (!temp.renameTo(storeFile)) {
+            storeFile.delete();
+            if (!temp.renameTo(storeFile)) {
+                throw new IOException("Could not replace " + storeFile);
+            }
+        }
+    }
+
+    /**
+     * @return Hex SHA-256 of everything {@code in} yields; the stream is not closed.
+     */
+    public static String modelHash(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            digest.update(buffer, 0, read);
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * @return Hex SHA-256 of the whole of {@code model}; its position is left alone.
+     */
+    public static String modelHash(ByteBuffer model) {
+        MessageDigest digest = sha256();
+        ByteBuffer all = model.duplicate();
+        all.clear();
+        digest.update(all);
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder(lastTuned ? "tuned" : "loaded");
+        for (Map.Entry<Config, Long> entry : lastMedians.entrySet()) {
+            builder.append(", ").append(entry.getKey()).append(": ")
+                    .append(entry.getValue() / 1000).append(" us");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.visualassistant;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-slot, latest-wins handoff from one writer thread to one reader thread, without
+ * locks or allocation. Three preallocated slots rotate between the writer, the reader
+ * and a shared middle slot; publishing swaps the written slot into the middle, so a
+ * result the reader has not taken yet is simply overwritten rather than queued.
+ *
+ * Writers on several threads must serialise {@link #writeSlot()} and {@link #publish()}
+ * themselves.
+ */
+public class LatestMailbox<T> {
+
+    public interface SlotFactory<T> {
+        T create();
+    }
+
+    // The middle slot's index, with FRESH set while it holds an unread result
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(2);
+    private int writeIndex = 0;
+    private int readIndex = 1;
+
+    private volatile long published;
+    private volatile long overwritten;
+
+    public LatestMailbox(SlotFactory<T> factory) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = factory.create();
+        }
+    }
+
+    /**
+     * @return The slot to fill before {@link #publish()}; owned by the writer until then.
+     */
+    @SuppressWarnings("unchecked")
+    public T writeSlot() {
+        return (T) slots[writeIndex];
+    }
+
+    /**
+     * Hands the filled slot to the reader, replacing any result it has not taken yet.
+     */
+    public void publish() {
+        int previous = middle.getAndSet(writeIndex | FRESH);
+        writeIndex = previous & INDEX_MASK;
+        if ((previous & FRESH) != 0) {
+            overwritten++;
+        }
+        published++;
+    }
+
+    public boolean hasFresh() {
+        return (middle.get() & FRESH) != 0;
+    }
+
+    /**
+     * @return The latest published slot, owned by the reader until the next poll, or
+     *         null if nothing was published since the last poll
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if ((middle.get() & FRESH) == 0) return null;
+        int previous = middle.getAndSet(readIndex);
+        readIndex = previous & INDEX_MASK;
+        return (T) slots[readIndex];
+    }
+
+    public long getPublishedCount() {
+        return published;
+    }
+
+    /**
+     * @return Results replaced before the reader took them
+     */
+    public long getOverwrittenCount() {
+        return overwritten;
+    }
+}
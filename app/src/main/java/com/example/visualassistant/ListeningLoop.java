@@ -0,0 +1,325 @@
+package com.example.visualassistant;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the speech recogniser listening for commands. A new session starts as soon as the
+ * previous one has ended and no utterance is queued or playing, so the recogniser never
+ * hears our own speech. Every transition is driven by recogniser and TTS callbacks; timers
+ * only back off after errors and act as watchdogs when a callback never comes.
+ *
+ * Time spent not listening while listening is wanted is "deaf" time, kept per state.
+ * Not thread-safe: every call, including the timer, must come on one thread, the main
+ * one on device.
+ */
+public class ListeningLoop {
+
+    public enum State {
+        /** The recogniser or TTS is not ready yet, or listening failed for good. */
+        IDLE,
+        /** Paused or in SOS mode; nothing starts until started again. */
+        SUSPENDED,
+        /** About to start, on the next turn of the loop. */
+        READY,
+        /** Waiting for queued and playing utterances to finish. */
+        WAITING_FOR_SPEECH,
+        /** Recogniser started, not yet ready for speech. */
+        STARTING,
+        LISTENING,
+        /** The user stopped speaking; waiting for results. */
+        PROCESSING,
+        /** Waiting to retry after an error. */
+        BACKOFF
+    }
+
+    public enum Failure {
+        /** Nothing was said or nothing matched: listen again at once. */
+        SILENCE,
+        /** Busy recogniser, client, audio or network error: retry after a backoff. */
+        RETRY,
+        /** Missing permission: stop trying. */
+        FATAL
+    }
+
+    public interface Recognizer {
+        /** Starts a session; may throw if the recogniser refuses. */
+        void start();
+
+        /** Ends the session without results. */
+        void cancel();
+    }
+
+    /**
+     * Progress of the utterances of every TTS engine, so listening waits until they are
+     * spoken. Reported to the loop on its own thread.
+     */
+    public interface UtteranceListener {
+        /** Called before the utterance is handed to the engine. */
+        void onUtteranceQueued(String utteranceId);
+
+        void onUtteranceStarted(String utteranceId);
+
+        /** The utterance finished, failed or was flushed. */
+        void onUtteranceEnded(String utteranceId);
+    }
+
+    /**
+     * The loop's clock and timer; a Handler on device, a virtual clock in tests.
+     */
+    public interface Scheduler {
+        long nowMillis();
+
+        void postDelayed(Runnable task, long delayMillis);
+
+        void removeCallbacks(Runnable task);
+    }
+
+    static final long START_TIMEOUT_MILLIS = 5000;
+    static final long LISTEN_TIMEOUT_MILLIS = 60_000;
+    static final long RESULT_TIMEOUT_MILLIS = 10_000;
+    // Longest a queued or playing utterance may hold listening off, in case a TTS callback is lost
+    static final long SPEECH_TIMEOUT_MILLIS = 30_000;
+    static final long MIN_BACKOFF_MILLIS = 250;
+    static final long MAX_BACKOFF_MILLIS = 4000;
+
+    private static final State[] STATES = State.values();
+
+    private final Recognizer recognizer;
+    private final Scheduler scheduler;
+    private final Runnable timer = this::onTimer;
+    // Utterance ids queued or playing, from every TTS engine
+    private final Set<String> utterances = new HashSet<>();
+
+    private State state = State.IDLE;
+    private long stateSinceMillis;
+    private final long[] timeInState = new long[STATES.length];
+    private long backoffMillis = MIN_BACKOFF_MILLIS;
+
+    private long sessions;
+    private long ignoredStarts;
+    private long timeouts;
+    private long errors;
+
+    public ListeningLoop(Recognizer recognizer, Scheduler scheduler) {
+        this.recognizer = recognizer;
+        this.scheduler = scheduler;
+        this.stateSinceMillis = scheduler.nowMillis();
+    }
+
+    /**
+     * Starts listening, ending a suspension, once queued speech has been spoken. Asking
+     * again while a session is already running or pending has no effect.
+     */
+    public void start() {
+        if (state == State.IDLE || state == State.SUSPENDED) {
+            tryStart();
+        } else {
+            ignoredStarts++;
+        }
+    }
+
+    /**
+     * Stops listening, e.g. on pause or in SOS mode, until {@link #start}.
+     */
+    public void suspend() {
+        if (state == State.STARTING || state == State.LISTENING || state == State.PROCESSING) {
+            recognizer.cancel();
+        }
+        scheduler.removeCallbacks(timer);
+        enter(State.SUSPENDED);
+    }
+
+    /**
+     * Drops the current session, if any, and starts afresh once the speech queued with it has
+     * been spoken.
+     */
+    public void restart() {
+        if (state == State.IDLE || state == State.SUSPENDED) {
+            return;
+        }
+        if (state == State.STARTING || state == State.LISTENING || state == State.PROCESSING) {
+            recognizer.cancel();
+        }
+        startNextTurn();
+    }
+
+    public void onReadyForSpeech() {
+        if (state != State.STARTING) return;
+        backoffMillis = MIN_BACKOFF_MILLIS;
+        enter(State.LISTENING);
+        schedule(LISTEN_TIMEOUT_MILLIS);
+    }
+
+    public void onEndOfSpeech() {
+        if (state != State.LISTENING) return;
+        enter(State.PROCESSING);
+        schedule(RESULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * The session ended with results, or was cancelled by us after acting on a partial
+     * result. Call after the command has been acted on, so its reply is already queued.
+     */
+    public void onSessionEnded() {
+        if (!isSessionActive()) return;
+        startNextTurn();
+    }
+
+    public void onError(Failure failure) {
+        if (!isSessionActive()) return;
+        errors++;
+        switch (failure) {
+            case SILENCE:
+                startNextTurn();
+                break;
+            case FATAL:
+                scheduler.removeCallbacks(timer);
+                enter(State.IDLE);
+                break;
+            case RETRY:
+            default:
+                enterBackoff();
+                break;
+        }
+    }
+
+    public void onUtteranceQueued(String utteranceId) {
+        utterances.add(utteranceId);
+    }
+
+    public void onUtteranceStarted(String utteranceId) {
+        utterances.add(utteranceId);
+    }
+
+    public void onUtteranceEnded(String utteranceId) {
+        if (utterances.remove(utteranceId) && utterances.isEmpty() && state == State.WAITING_FOR_SPEECH) {
+            tryStart();
+        }
+    }
+
+    private boolean isSessionActive() {
+        return state == State.STARTING || state == State.LISTENING || state == State.PROCESSING;
+    }
+
+    // Lets the rest of the current callback queue its reply before deciding whether to wait for it
+    private void startNextTurn() {
+        enter(State.READY);
+        schedule(0);
+    }
+
+    private void enterBackoff() {
+        enter(State.BACKOFF);
+        schedule(backoffMillis);
+        backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+    }
+
+    private void tryStart() {
+        if (!utterances.isEmpty()) {
+            enter(State.WAITING_FOR_SPEECH);
+            schedule(SPEECH_TIMEOUT_MILLIS);
+            return;
+        }
+        enter(State.STARTING);
+        schedule(START_TIMEOUT_MILLIS);
+        sessions++;
+        try {
+            recognizer.start();
+        } catch (RuntimeException e) {
+            errors++;
+            enterBackoff();
+        }
+    }
+
+    private void onTimer() {
+        switch (state) {
+            case READY:
+            case BACKOFF:
+                tryStart();
+                break;
+            case WAITING_FOR_SPEECH:
+                timeouts++;
+                utterances.clear();
+                tryStart();
+                break;
+            case STARTING:
+                timeouts++;
+                recognizer.cancel();
+                enterBackoff();
+                break;
+            case LISTENING:
+            case PROCESSING:
+                timeouts++;
+                recognizer.cancel();
+                startNextTurn();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        scheduler.removeCallbacks(timer);
+        scheduler.postDelayed(timer, delayMillis);
+    }
+
+    private void enter(State next) {
+        long now = scheduler.nowMillis();
+        timeInState[state.ordinal()] += now - stateSinceMillis;
+        stateSinceMillis = now;
+        state = next;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return Time spent in {@code s}, including the current stay
+     */
+    public long getTimeInMillis(State s) {
+        long time = timeInState[s.ordinal()];
+        return s == state ? time + scheduler.nowMillis() - stateSinceMillis : time;
+    }
+
+    /**
+     * @return Time not listening while listening was wanted, speech waits included
+     */
+    public long getDeafMillis() {
+        long deaf = 0;
+        for (State s : STATES) {
+            if (s != State.IDLE && s != State.SUSPENDED && s != State.LISTENING) {
+                deaf += getTimeInMillis(s);
+            }
+        }
+        return deaf;
+    }
+
+    public long getSessionCount() {
+        return sessions;
+    }
+
+    /**
+     * @return Start requests that found a session already running or pending
+     */
+    public long getIgnoredStartCount() {
+        return ignoredStarts;
+    }
+
+    public long getTimeoutCount() {
+        return timeouts;
+    }
+
+    public long getErrorCount() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return state + ", " + sessions + " sessions, deaf " + getDeafMillis() + " ms (waiting for speech "
+                + getTimeInMillis(State.WAITING_FOR_SPEECH) + " ms, starting " + getTimeInMillis(State.STARTING)
+                + " ms, processing " + getTimeInMillis(State.PROCESSING) + " ms, backing off "
+                + getTimeInMillis(State.BACKOFF) + " ms), listening " + getTimeInMillis(State.LISTENING)
+                + " ms, " + errors + " errors, " + timeouts + " timeouts";
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.visualassistant;
+
+import java.util.Arrays;
+
+/**
+ * {@link PresenceGate} that fires when the scene changes: the luma plane is reduced
+ * to a coarse grid of cell means and compared with the grid of the last frame the
+ * detector ran on. The score is the share of cells whose mean moved by more than
+ * {@link #CELL_THRESHOLD} levels. A static scene the detector has already seen scores
+ * close to 0; something entering the view, or the user turning or walking on, scores
+ * high. Comparing with the last detected frame rather than the previous one means
+ * slow changes add up until they fire.
+ *
+ * Costs one pass over the Y plane and no allocation once the grid exists.
+ */
+public class LumaChangeGate implements PresenceGate {
+
+    public static final int DEFAULT_COLUMNS = 16;
+    public static final int DEFAULT_ROWS = 12;
+    static final int CELL_THRESHOLD = 12;
+
+    private final int columns;
+    private final int rows;
+    private int[] sums;
+    private final int[] reference;
+    private final int[] current;
+    private int currentWidth = -1;
+    private int currentHeight = -1;
+    private int referenceWidth = -1;
+    private int referenceHeight = -1;
+
+    public LumaChangeGate() {
+        this(DEFAULT_COLUMNS, DEFAULT_ROWS);
+    }
+
+    public LumaChangeGate(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        sums = new int[columns * rows];
+        reference = new int[columns * rows];
+        current = new int[columns * rows];
+    }
+
+    @Override
+    public float score(YuvFrame frame, int[] argb) {
+        int width = frame.width;
+        int height = frame.height;
+        Arrays.fill(sums, 0);
+        for (int row = 0; row < height; row++) {
+            int cellRow = row * rows / height * columns;
+            int offset = row * width;
+            for (int col = 0; col < width; col++) {
+                sums[cellRow + col * columns / width] += frame.y[offset + col] & 0xFF;
+            }
+        }
+        int cellPixels = Math.max(1, (width / columns) * (height / rows));
+        for (int i = 0; i < sums.length; i++) {
+            current[i] = sums[i] / cellPixels;
+        }
+
+        currentWidth = width;
+        currentHeight = height;
+
+        // Nothing to compare a first frame or a new geometry against: let it through
+        if (width != referenceWidth || height != referenceHeight) {
+            return 1f;
+        }
+        int changed = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (Math.abs(current[i] - reference[i]) > CELL_THRESHOLD) {
+                changed++;
+            }
+        }
+        return (float) changed / current.length;
+    }
+
+    @Override
+    public void onDetectorRun() {
+        System.arraycopy(current, 0, reference, 0, current.length);
+        referenceWidth = currentWidth;
+        referenceHeight = currentHeight;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -25,11 +25,14 @@ import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.os.Vibrator;
 import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
 import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
 import android.util.Log;
 import android.util.Size;
 import android.view.View;
@@ -39,11 +42,17 @@ import android.widget.TextView;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MainActivity extends AppCompatActivity implements TextToSpeech.OnInitListener, SensorEventListener {
 
@@ -53,6 +62,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
     // UI Components
     private PreviewView previewView;
+    private ObjectDetectionOverlay objectOverlay;
     private Button emergencyButton;
     private Button sosButton;
 
@@ -63,10 +73,24 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
     // Camera variables
     private ExecutorService cameraExecutor;
     private ProcessCameraProvider cameraProvider;
+    // Bound once; mode changes only swap the pipeline it routes frames to
+    private final FrameRouter frameRouter = new FrameRouter();
+    // Picks the analysis size per mode; a change rebinds only the ImageAnalysis use case
+    private final ResolutionController resolutionController = new ResolutionController();
+    private ImageAnalysis imageAnalysis;
+    private CameraSelector cameraSelector;
+    // Tiled detection in identify mode, null when off
+    private TiledDetector.Schedule tiledSchedule;
+    // Announcement owed once the detector of the mode just started has loaded
+    private ModelLoader.ReadinessListener pendingReadyAnnouncement;
 
     // Text-to-Speech
     private TextToSpeech textToSpeech;
-    private boolean ttsInitialized = false;
+    // Read by the speech event consumer
+    private volatile boolean ttsInitialized = false;
+    // Whether onInit has come, successfully or not; the welcome waits for it
+    private boolean ttsInitFinished = false;
+    private boolean welcomed = false;
 
     // Speech Recognition
     private enum AppLanguage {
@@ -76,23 +100,105 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
     private SpeechRecognizer speechRecognizer;
     private Intent speechRecognizerIntent;
-    private boolean isListening = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Restarts the recogniser once each session ends and our own speech has been spoken
+    private final ListeningLoop listeningLoop = new ListeningLoop(new ListeningLoop.Recognizer() {
+        @Override
+        public void start() {
+            if (speechRecognizer == null) {
+                throw new IllegalStateException("Speech recognizer not initialized");
+            }
+            speechRecognizer.startListening(speechRecognizerIntent);
+            vibrator.vibrate(100); // Short vibration to indicate listening started
+        }
+
+        @Override
+        public void cancel() {
+            if (speechRecognizer != null) {
+                speechRecognizer.cancel();
+            }
+        }
+    }, new ListeningLoop.Scheduler() {
+        @Override
+        public long nowMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            mainHandler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            mainHandler.removeCallbacks(task);
+        }
+    });
+    // Reports every engine's utterances to the listening loop on the main thread
+    private final ListeningLoop.UtteranceListener utteranceListener = new ListeningLoop.UtteranceListener() {
+        @Override
+        public void onUtteranceQueued(String utteranceId) {
+            // Directly when on the main thread, so the loop sees it before its next turn
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                listeningLoop.onUtteranceQueued(utteranceId);
+            } else {
+                mainHandler.post(() -> listeningLoop.onUtteranceQueued(utteranceId));
+            }
+        }
+
+        @Override
+        public void onUtteranceStarted(String utteranceId) {
+            mainHandler.post(() -> listeningLoop.onUtteranceStarted(utteranceId));
+        }
+
+        @Override
+        public void onUtteranceEnded(String utteranceId) {
+            mainHandler.post(() -> listeningLoop.onUtteranceEnded(utteranceId));
+        }
+    };
+    private final AtomicLong utteranceCount = new AtomicLong();
+    // Matches commands on partial results too, so "stop" or "SOS" act as soon as they are heard
+    private final VoiceCommandMatcher voiceCommandMatcher = new VoiceCommandMatcher();
+    // Warms the pipeline a partial command is heading for, and times mode switches
+    private final SpeculativeWarmup speculativeWarmup = new SpeculativeWarmup();
+    private long speechEndNanos;
+    // Mode of the announcements the speech consumer is seeing; used on that thread only
+    private VoiceCommandMatcher.Command announcedMode;
 
     // Mode tracking
     private enum AppMode {
-        HOME, OBJECT_DETECTION, TEXT_RECOGNITION, NAVIGATION, SOS
+        HOME, OBJECT_DETECTION, TEXT_RECOGNITION, NAVIGATION, DESCRIBE, SOS
     }
     private AppMode currentMode = AppMode.HOME;
 
     // Vibration for feedback
     private Vibrator vibrator;
+    private static final long[] HAZARD_VIBRATION = {0, 80, 60, 80};
+
+    // Detections, text, hazards and mode changes, from the analyzers to speech, overlay and haptics
+    private static final int EVENT_BUS_CAPACITY = 64;
+    private final PipelineEventBus eventBus = new PipelineEventBus(EVENT_BUS_CAPACITY);
+    private final List<PipelineEventBus.Consumer> eventConsumers = new ArrayList<>();
 
     // Object detection analyzer
     private ObjectDetectionAnalyzer objectDetectionAnalyzer;
 
+    // Obstacle detection in the walking corridor
+    private NavigationAnalyzer navigationAnalyzer;
+
     // Text recognition analyzer
     private TextRecognitionAnalyzer textRecognitionAnalyzer;
 
+    // Detection and text recognition on the same frame
+    private DescribeAnalyzer describeAnalyzer;
+
+    // Opt-in capture of analysis frames for offline replay
+    private SessionRecorder sessionRecorder;
+    private static final long RECORDING_MAX_FILE_BYTES = 50L * 1024 * 1024;
+    private static final int RECORDING_MAX_FILES = 10;
+    private static final long RECORDING_FRAME_INTERVAL_MS = 200;
+    private static final int RECORDING_CHROMA_SHIFT = 2;
+
     // SOS related variables
     private MediaPlayer sirenPlayer;
     private boolean isSirenPlaying = false;
@@ -101,10 +207,17 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
     // Shake detection
     private SensorManager sensorManager;
     private Sensor accelerometer;
-    private float accelerationThreshold = 500.0f; // Threshold for shake detection
-    private float lastX, lastY, lastZ;
-    private long lastUpdate = 0;
-    private long shakeThresholdTime = 50000; // Minimum time between shakes (ms)
+    private Sensor gyroscope;
+    // Paces the analyzers from how the user is moving
+    private final MotionGovernor motionGovernor = new MotionGovernor();
+    // Fed every accelerometer sample at game rate, on the main thread
+    private final ShakeDetector shakeDetector = new ShakeDetector();
+    // Fed the same samples; a fall starts a countdown to SOS that the user can cancel
+    private final FallDetector fallDetector = new FallDetector();
+    private static final int FALL_COUNTDOWN_SECONDS = 10;
+    private final Handler fallCountdownHandler = new Handler();
+    private final Runnable fallCountdownTick = this::onFallCountdownTick;
+    private int fallCountdownRemaining = -1; // -1 while no countdown runs
     private boolean appInitialized = false;
 
     @Override
@@ -118,6 +231,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
         // Initialize UI components
         previewView = findViewById(R.id.previewView);
+        objectOverlay = findViewById(R.id.objectOverlay);
         emergencyButton = findViewById(R.id.emergencyButton);
         sosButton = findViewById(R.id.sosButton);
 
@@ -131,29 +245,49 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
         vibrator = (Vibrator) getSystemService(VIBRATOR_SERVICE);
 
         // Initialize analyzers
-        objectDetectionAnalyzer = new ObjectDetectionAnalyzer(this);
+        ModelVariant modelVariant = selectModelVariant();
+        // One load and one tuning run for every detecting analyzer, each with a backend of its own
+        ModelLoader detectorModel = ObjectDetectionAnalyzer.newModelLoader(this, modelVariant);
+        objectDetectionAnalyzer = new ObjectDetectionAnalyzer(detectorModel);
+        objectDetectionAnalyzer.setEventBus(eventBus);
+        navigationAnalyzer = new NavigationAnalyzer(detectorModel);
+        navigationAnalyzer.setEventBus(eventBus);
         textRecognitionAnalyzer = new TextRecognitionAnalyzer(this);
+        textRecognitionAnalyzer.setEventBus(eventBus);
+        textRecognitionAnalyzer.setUtteranceListener(utteranceListener);
+        describeAnalyzer = new DescribeAnalyzer(detectorModel);
+        describeAnalyzer.setEventBus(eventBus);
+        startEventConsumers();
+
+        objectDetectionAnalyzer.setMotionGovernor(motionGovernor);
+        navigationAnalyzer.setMotionGovernor(motionGovernor);
+        textRecognitionAnalyzer.setMotionGovernor(motionGovernor);
+        describeAnalyzer.setMotionGovernor(motionGovernor);
+        speculativeWarmup.register(VoiceCommandMatcher.Command.IDENTIFY, objectDetectionAnalyzer::warmUp);
+        speculativeWarmup.register(VoiceCommandMatcher.Command.NAVIGATE, navigationAnalyzer::warmUp);
+        speculativeWarmup.register(VoiceCommandMatcher.Command.READ, textRecognitionAnalyzer::warmUp);
+        speculativeWarmup.register(VoiceCommandMatcher.Command.DESCRIBE, describeAnalyzer::warmUp);
+        objectDetectionAnalyzer.setResolutionController(resolutionController);
+        navigationAnalyzer.setResolutionController(resolutionController);
+        textRecognitionAnalyzer.setResolutionController(resolutionController);
+        describeAnalyzer.setResolutionController(resolutionController);
+        resolutionController.setListener((width, height) -> runOnUiThread(() -> rebindAnalysis(width, height)));
 
         SharedPreferences prefs = getSharedPreferences("VisualAssistantPrefs", MODE_PRIVATE);
         String savedLanguage = prefs.getString("language", "ENGLISH");
         currentLanguage = AppLanguage.valueOf(savedLanguage);
+        describeAnalyzer.setCurrentLanguage(currentLanguage.name());
 
         // Set click listener for emergency button - MODIFIED for direct restart
         emergencyButton.setOnClickListener(v -> {
             vibrator.vibrate(200);
+            cancelFallCountdown();
 
             // Stop current activities
-            if (speechRecognizer != null) {
-                speechRecognizer.stopListening();
-                isListening = false;
-            }
+            listeningLoop.suspend();
 
-            // Stop all camera analyzer bindings
-            if (cameraProvider != null) {
-                cameraProvider.unbindAll();
-                // Rebind basic preview only
-                bindPreview(cameraProvider);
-            }
+            // Stop analysing frames, the camera and preview stay bound
+            frameRouter.setActiveAnalyzer(null);
 
             // Reset to home mode
             currentMode = AppMode.HOME;
@@ -174,8 +308,8 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             }
             speak(homeMessage, TextToSpeech.QUEUE_FLUSH);
 
-            // Wait for announcement to finish before welcoming user
-            new Handler().postDelayed(this::welcomeUser, 2000);
+            // Queued behind the announcement, so it is spoken once that has finished
+            welcomeUser();
         });
 
         // Initialize the media player for SOS
@@ -184,6 +318,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
         // Set up SOS button click listener
         sosButton.setOnClickListener(v -> {
+            if (cancelFallCountdown()) {
+                return;
+            }
             if (isSirenPlaying) {
                 stopSiren();
             } else {
@@ -212,10 +349,16 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
             if (accelerometer != null) {
                 // Register sensor listener
-                sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
+                sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
             } else {
                 Toast.makeText(this, "Accelerometer not available", Toast.LENGTH_SHORT).show();
             }
+
+            // Optional: without it turns go unnoticed and only stillness changes the pace
+            gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+            if (gyroscope != null) {
+                sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+            }
         }
     }
 
@@ -247,6 +390,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
             // Announce SOS mode activation through TTS
             speak("SOS Emergency Mode activated", TextToSpeech.QUEUE_FLUSH);
+
+            // Commands are ignored in SOS mode; the SOS button stops the siren
+            listeningLoop.suspend();
         }
     }
 
@@ -273,8 +419,8 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 // Announce SOS mode deactivation through TTS
                 speak("SOS Emergency Mode deactivated", TextToSpeech.QUEUE_FLUSH);
 
-                // Restart voice recognition
-                new Handler().postDelayed(this::startVoiceRecognition, 2000);
+                // Restart voice recognition once the announcement is over
+                listeningLoop.start();
 
                 Log.d("SirenDebug", "Siren stopping procedure completed");
             } catch (Exception e) {
@@ -350,14 +496,16 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
         // Set default UI mode
         updateUIForMode("HOME");
 
-        // Start with welcome message
-        new Handler().postDelayed(() -> {
-            if (ttsInitialized) {
-                welcomeUser();
-            } else {
-                new Handler().postDelayed(this::welcomeUser, 2000);
-            }
-        }, 1000);
+        // Start with welcome message, or once TTS is ready
+        welcomeWhenReady();
+    }
+
+    // The first welcome needs both the app and TTS, whichever of the two is ready last
+    private void welcomeWhenReady() {
+        if (appInitialized && ttsInitFinished && !welcomed) {
+            welcomed = true;
+            welcomeUser();
+        }
     }
 
     private void setAppLanguage(Locale locale) {
@@ -371,6 +519,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
         SharedPreferences.Editor editor = prefs.edit();
         editor.putString("language", currentLanguage.toString());
         editor.apply();
+        describeAnalyzer.setCurrentLanguage(currentLanguage.name());
         // Update TextToSpeech language
         if (ttsInitialized) {
             int result = textToSpeech.setLanguage(locale);
@@ -399,6 +548,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             case TEXT_RECOGNITION:
                 modeString = "READ";
                 break;
+            case DESCRIBE:
+                modeString = "DESCRIBE";
+                break;
             case NAVIGATION:
                 modeString = "NAVIGATE";
                 break;
@@ -452,6 +604,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 case TEXT_RECOGNITION:
                     modeText = "पढ़ने का मोड";
                     break;
+                case DESCRIBE:
+                    modeText = "वर्णन मोड";
+                    break;
                 case NAVIGATION:
                     modeText = "नेविगेशन मोड";
                     break;
@@ -470,6 +625,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 case TEXT_RECOGNITION:
                     modeText = "वाचन मोड";
                     break;
+                case DESCRIBE:
+                    modeText = "वर्णन मोड";
+                    break;
                 case NAVIGATION:
                     modeText = "नेविगेशन मोड";
                     break;
@@ -488,6 +646,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 case TEXT_RECOGNITION:
                     modeText = "READ";
                     break;
+                case DESCRIBE:
+                    modeText = "DESCRIBE";
+                    break;
                 case NAVIGATION:
                     modeText = "NAVIGATE";
                     break;
@@ -508,6 +669,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             switch (mode) {
                 case "IDENTIFY": return "पहचान";
                 case "READ": return "पढ़ना";
+                case "DESCRIBE": return "वर्णन";
                 case "NAVIGATE": return "नेविगेशन";
                 case "SOS": return "एसओएस";
                 default: return "होम";
@@ -516,6 +678,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             switch (mode) {
                 case "IDENTIFY": return "ओळख";
                 case "READ": return "वाचन";
+                case "DESCRIBE": return "वर्णन";
                 case "NAVIGATE": return "नेविगेशन";
                 case "SOS": return "एसओएस";
                 default: return "होम";
@@ -542,13 +705,18 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 break;
         }
 
-        speak(welcomeMessage, TextToSpeech.QUEUE_FLUSH);
+        // Queued, so speech still playing is finished rather than cut off
+        speak(welcomeMessage, TextToSpeech.QUEUE_ADD);
 
-        // Start listening after welcome message
-        new Handler().postDelayed(this::startVoiceRecognition, 5000);
+        // Starts listening once the welcome message has been spoken
+        listeningLoop.start();
     }
 
     private void updateUIForMode(String mode) {
+        // The overlay clears boxes from the previous mode, which would otherwise linger. A full
+        // ring makes this wait a bounded time on the UI thread, then drop the event
+        eventBus.publishModeChange(mode, currentLanguage.name());
+
         // Change mode indicator color based on mode
         int backgroundColor;
         switch (mode) {
@@ -558,6 +726,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             case "READ":
                 backgroundColor = getResources().getColor(R.color.colorPrimary);
                 break;
+            case "DESCRIBE":
+                backgroundColor = getResources().getColor(R.color.colorPrimaryDark);
+                break;
             case "NAVIGATE":
                 backgroundColor = getResources().getColor(R.color.successGreen);
                 break;
@@ -585,6 +756,9 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             case "READ":
                 appMode = AppMode.TEXT_RECOGNITION;
                 break;
+            case "DESCRIBE":
+                appMode = AppMode.DESCRIBE;
+                break;
             case "NAVIGATE":
                 appMode = AppMode.NAVIGATION;
                 break;
@@ -654,11 +828,14 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, recognitionLocale);
             speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_PREFERENCE, recognitionLocale);
             speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 1);
+            speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
 
             speechRecognizer.setRecognitionListener(new RecognitionListener() {
                 @Override
                 public void onReadyForSpeech(Bundle bundle) {
-                    isListening = true;
+                    listeningLoop.onReadyForSpeech();
+                    voiceCommandMatcher.beginUtterance();
+                    speechEndNanos = 0;
                 }
 
                 @Override
@@ -672,12 +849,14 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
                 @Override
                 public void onEndOfSpeech() {
-                    isListening = false;
+                    listeningLoop.onEndOfSpeech();
+                    speechEndNanos = FrameTracer.now();
                 }
 
                 @Override
                 public void onError(int error) {
                     String errorMessage;
+                    ListeningLoop.Failure failure = ListeningLoop.Failure.RETRY;
                     switch (error) {
                         case SpeechRecognizer.ERROR_AUDIO:
                             errorMessage = "Audio recording error";
@@ -687,6 +866,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                             break;
                         case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS:
                             errorMessage = "Insufficient permissions";
+                            failure = ListeningLoop.Failure.FATAL;
                             break;
                         case SpeechRecognizer.ERROR_NETWORK:
                             errorMessage = "Network error";
@@ -696,6 +876,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                             break;
                         case SpeechRecognizer.ERROR_NO_MATCH:
                             errorMessage = "No match found";
+                            failure = ListeningLoop.Failure.SILENCE;
                             break;
                         case SpeechRecognizer.ERROR_RECOGNIZER_BUSY:
                             errorMessage = "Recognition service busy";
@@ -705,6 +886,7 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                             break;
                         case SpeechRecognizer.ERROR_SPEECH_TIMEOUT:
                             errorMessage = "No speech input";
+                            failure = ListeningLoop.Failure.SILENCE;
                             break;
                         default:
                             errorMessage = "Unknown error";
@@ -712,20 +894,49 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                     }
 
                     Log.e(TAG, "Speech recognition error: " + errorMessage);
-                    startVoiceRecognition();
+                    speculativeWarmup.onCommand(null, FrameTracer.now());
+                    listeningLoop.onError(failure);
                 }
 
                 @Override
                 public void onResults(Bundle results) {
+                    if (voiceCommandMatcher.hasFired()) {
+                        // Already acted on from a partial result
+                        return;
+                    }
                     ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+                    long commandEnd = speechEndNanos > 0 ? speechEndNanos : FrameTracer.now();
                     if (matches != null && !matches.isEmpty()) {
-                        String command = matches.get(0).toLowerCase();
-                        processVoiceCommand(command);
+                        float[] scores = results.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES);
+                        float confidence = scores != null && scores.length > 0 ? scores[0] : -1f;
+                        String transcript = matches.get(0);
+                        VoiceCommandMatcher.Command command = voiceCommandMatcher.onFinalResult(transcript, confidence);
+                        speculativeWarmup.onCommand(command, commandEnd);
+                        processVoiceCommand(command, transcript);
+                    } else {
+                        speculativeWarmup.onCommand(null, commandEnd);
                     }
+                    // After the command, so the loop waits for its reply
+                    listeningLoop.onSessionEnded();
                 }
 
                 @Override
-                public void onPartialResults(Bundle bundle) {}
+                public void onPartialResults(Bundle partialResults) {
+                    ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+                    if (matches == null || matches.isEmpty()) {
+                        return;
+                    }
+                    String transcript = matches.get(0);
+                    VoiceCommandMatcher.Command command = voiceCommandMatcher.onPartialResult(transcript);
+                    if (command != null) {
+                        // Stop listening so the rest of the utterance and our reply are not heard
+                        listeningLoop.restart();
+                        speculativeWarmup.onCommand(command, FrameTracer.now());
+                        processVoiceCommand(command, transcript);
+                    } else {
+                        speculativeWarmup.onHint(voiceCommandMatcher.getHint());
+                    }
+                }
 
                 @Override
                 public void onEvent(int i, Bundle bundle) {}
@@ -735,34 +946,19 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
         }
     }
 
-    private void startVoiceRecognition() {
-        // Don't start voice recognition if in SOS mode
-        if (currentMode == AppMode.SOS) {
-            return;
-        }
-
-        if (!isListening && ttsInitialized && !textToSpeech.isSpeaking()) {
-            try {
-                speechRecognizer.startListening(speechRecognizerIntent);
-                vibrator.vibrate(100); // Short vibration to indicate listening started
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting voice recognition: " + e.getMessage());
-                new Handler().postDelayed(this::startVoiceRecognition, 3000);
-            }
-        } else {
-            new Handler().postDelayed(this::startVoiceRecognition, 1000);
-        }
-    }
-
-    private void processVoiceCommand(String command) {
-        Log.d(TAG, "Command received: " + command);
+    private void processVoiceCommand(VoiceCommandMatcher.Command command, String transcript) {
+        Log.d(TAG, "Command received: " + transcript + " -> " + command
+                + (command != null ? " (" + voiceCommandMatcher.getLastConfidence() + ")" : ""));
         vibrator.vibrate(200); // Vibrate to indicate command received
 
-        if (command.contains("navigate")) {
+        if (fallCountdownRemaining >= 0
+                && (command == VoiceCommandMatcher.Command.CANCEL || command == VoiceCommandMatcher.Command.STOP)) {
+            cancelFallCountdown();
+        } else if (command == VoiceCommandMatcher.Command.NAVIGATE) {
             speak("Starting navigation mode. I will detect obstacles and guide you.", TextToSpeech.QUEUE_FLUSH);
             currentMode = AppMode.NAVIGATION;
             startNavigationMode();
-        } else if (command.contains("read")) {
+        } else if (command == VoiceCommandMatcher.Command.READ) {
             // Language-specific announcement for reading mode
             String readingStartMessage;
             switch (currentLanguage) {
@@ -779,19 +975,25 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             speak(readingStartMessage, TextToSpeech.QUEUE_FLUSH);
             currentMode = AppMode.TEXT_RECOGNITION;
             startTextRecognitionMode();
-        } else if (command.contains("identify")) {
+        } else if (command == VoiceCommandMatcher.Command.DESCRIBE) {
+            speak("Starting describe mode. I will tell you about objects and text in front of you.",
+                    TextToSpeech.QUEUE_FLUSH);
+            currentMode = AppMode.DESCRIBE;
+            startDescribeMode();
+        } else if (command == VoiceCommandMatcher.Command.IDENTIFY) {
             speak("Starting object detection mode. I will identify objects around you.", TextToSpeech.QUEUE_FLUSH);
             currentMode = AppMode.OBJECT_DETECTION;
             startObjectDetectionMode();
-        } else if (command.contains("home")) {
+        } else if (command == VoiceCommandMatcher.Command.HOME) {
             speak("Returning to home mode", TextToSpeech.QUEUE_FLUSH);
             currentMode = AppMode.HOME;
+            frameRouter.setActiveAnalyzer(null);
             updateUIForMode("HOME");
-        } else if (command.contains("sos") || command.contains("emergency") || command.contains("help")) {
+        } else if (command == VoiceCommandMatcher.Command.SOS) {
             speak("Activating SOS emergency mode", TextToSpeech.QUEUE_FLUSH);
             sosManuallyTriggered = true;
             startSiren();
-        } else if (command.contains("stop")) {
+        } else if (command == VoiceCommandMatcher.Command.STOP) {
             if (isSirenPlaying) {
                 stopSiren();
             } else {
@@ -799,24 +1001,71 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 new Handler().postDelayed(this::finish, 2000);
                 return;
             }
-        } else if (command.contains("english")) {
+        } else if (command == VoiceCommandMatcher.Command.DETAIL) {
+            cycleTiledDetection();
+        } else if (command == VoiceCommandMatcher.Command.RECORD) {
+            toggleSessionRecording();
+        } else if (command == VoiceCommandMatcher.Command.ENGLISH) {
             currentLanguage = AppLanguage.ENGLISH;
             setAppLanguage(new Locale("en", "US"));
             speak("Language changed to English", TextToSpeech.QUEUE_FLUSH);
-        } else if (command.contains("hindi")) {
+        } else if (command == VoiceCommandMatcher.Command.HINDI) {
             currentLanguage = AppLanguage.HINDI;
             setAppLanguage(new Locale("hi", "IN"));
             speak("भाषा हिंदी में बदलीगई", TextToSpeech.QUEUE_FLUSH);
-        } else if (command.contains("marathi")) {
+        } else if (command == VoiceCommandMatcher.Command.MARATHI) {
             currentLanguage = AppLanguage.MARATHI;
             setAppLanguage(new Locale("mr", "IN"));
             speak("भाषा मराठी मध्ये बदलली", TextToSpeech.QUEUE_FLUSH);
         } else {
             speak("I didn't understand. Try saying 'Navigate', 'Read', or 'Identify'.", TextToSpeech.QUEUE_FLUSH);
         }
+    }
+
+    // Off -> all tiles every frame -> one tile per frame -> off
+    private void cycleTiledDetection() {
+        if (tiledSchedule == null) {
+            tiledSchedule = TiledDetector.Schedule.ALL;
+            speak("Detail mode on. Looking for small objects, answers will be slower.", TextToSpeech.QUEUE_FLUSH);
+        } else if (tiledSchedule == TiledDetector.Schedule.ALL) {
+            tiledSchedule = TiledDetector.Schedule.ROUND_ROBIN;
+            speak("Detail mode, fast scan", TextToSpeech.QUEUE_FLUSH);
+        } else {
+            tiledSchedule = null;
+            speak("Detail mode off", TextToSpeech.QUEUE_FLUSH);
+        }
+        objectDetectionAnalyzer.setTiledDetection(tiledSchedule);
+    }
+
+    private void toggleSessionRecording() {
+        if (sessionRecorder != null && sessionRecorder.isRecording()) {
+            objectDetectionAnalyzer.setSessionRecorder(null);
+            navigationAnalyzer.setSessionRecorder(null);
+            textRecognitionAnalyzer.setSessionRecorder(null);
+            describeAnalyzer.setSessionRecorder(null);
+            sessionRecorder.stop();
+            Log.d(TAG, "Session recording stopped: " + sessionRecorder.getRecordedFrames() + " frames, "
+                    + sessionRecorder.getDroppedFrames() + " dropped");
+            speak("Recording stopped", TextToSpeech.QUEUE_FLUSH);
+            return;
+        }
 
-        // Continue listening for commands
-        new Handler().postDelayed(this::startVoiceRecognition, 3000);
+        File recordingDir = getExternalFilesDir("recordings");
+        if (recordingDir == null) {
+            speak("Recording is not available", TextToSpeech.QUEUE_FLUSH);
+            return;
+        }
+        if (sessionRecorder == null) {
+            sessionRecorder = new SessionRecorder(recordingDir, RECORDING_MAX_FILE_BYTES, RECORDING_MAX_FILES,
+                    RECORDING_FRAME_INTERVAL_MS, RECORDING_CHROMA_SHIFT);
+            sessionRecorder.setErrorListener((message, cause) -> Log.e(TAG, message));
+        }
+        sessionRecorder.start();
+        objectDetectionAnalyzer.setSessionRecorder(sessionRecorder);
+        navigationAnalyzer.setSessionRecorder(sessionRecorder);
+        textRecognitionAnalyzer.setSessionRecorder(sessionRecorder);
+        describeAnalyzer.setSessionRecorder(sessionRecorder);
+        speak("Recording started", TextToSpeech.QUEUE_FLUSH);
     }
 
     private void initializeCamera() {
@@ -826,112 +1075,128 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
         cameraProviderFuture.addListener(() -> {
             try {
                 cameraProvider = cameraProviderFuture.get();
-                bindPreview(cameraProvider);
+                bindCamera(cameraProvider);
             } catch (ExecutionException | InterruptedException e) {
                 Log.e(TAG, "Error initializing camera: " + e.getMessage());
             }
         }, ContextCompat.getMainExecutor(this));
     }
 
-    private void bindPreview(ProcessCameraProvider cameraProvider) {
+    // Binds preview and the single analysis use case; called once when the camera is ready
+    private void bindCamera(ProcessCameraProvider cameraProvider) {
         cameraProvider.unbindAll();
 
         Preview preview = new Preview.Builder().build();
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-        CameraSelector cameraSelector = new CameraSelector.Builder()
+        imageAnalysis = buildImageAnalysis(resolutionController.getWidth(), resolutionController.getHeight());
+
+        cameraSelector = new CameraSelector.Builder()
                 .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                 .build();
 
         try {
-            cameraProvider.bindToLifecycle(this, cameraSelector, preview);
+            cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
         } catch (Exception e) {
-            Log.e(TAG, "Error binding camera preview: " + e.getMessage());
+            Log.e(TAG, "Error binding camera: " + e.getMessage());
         }
     }
 
-    private void startObjectDetectionMode() {
-        if (cameraProvider != null) {
-            cameraProvider.unbindAll();
-
-            Preview preview = new Preview.Builder().build();
-            preview.setSurfaceProvider(previewView.getSurfaceProvider());
-
-            ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                    .setTargetResolution(new Size(640, 480))
-                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                    .build();
-
-            imageAnalysis.setAnalyzer(cameraExecutor, objectDetectionAnalyzer);
+    private ImageAnalysis buildImageAnalysis(int width, int height) {
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setTargetResolution(new Size(width, height))
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+        analysis.setAnalyzer(cameraExecutor, frameRouter);
+        return analysis;
+    }
 
-            CameraSelector cameraSelector = new CameraSelector.Builder()
-                    .requireLensFacing(CameraSelector.LENS_FACING_BACK)
-                    .build();
+    // Swaps in an analysis use case of the new size; the preview keeps running
+    private void rebindAnalysis(int width, int height) {
+        Log.d(TAG, "Analysis resolution: " + resolutionController);
+        if (cameraProvider == null || imageAnalysis == null || isFinishing()) return;
 
-            try {
-                cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
-                updateUIForMode("IDENTIFY");
-            } catch (Exception e) {
-                Log.e(TAG, "Error binding camera for object detection: " + e.getMessage());
-            }
+        cameraProvider.unbind(imageAnalysis);
+        imageAnalysis = buildImageAnalysis(width, height);
+        try {
+            cameraProvider.bindToLifecycle(this, cameraSelector, imageAnalysis);
+        } catch (Exception e) {
+            Log.e(TAG, "Error rebinding image analysis: " + e.getMessage());
         }
     }
 
-    private void startTextRecognitionMode() {
-        if (cameraProvider != null) {
-            cameraProvider.unbindAll();
-
-            Preview preview = new Preview.Builder().build();
-            preview.setSurfaceProvider(previewView.getSurfaceProvider());
-
-            ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                    .setTargetResolution(new Size(640, 480))
-                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                    .build();
-
-            imageAnalysis.setAnalyzer(cameraExecutor, textRecognitionAnalyzer);
-
-            CameraSelector cameraSelector = new CameraSelector.Builder()
-                    .requireLensFacing(CameraSelector.LENS_FACING_BACK)
-                    .build();
-
-            try {
-                cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
-                updateUIForMode("READ");
-            } catch (Exception e) {
-                Log.e(TAG, "Error binding camera for text recognition: " + e.getMessage());
-            }
+    /**
+     * The detection pipeline for this run: a "model_variant" launch extra (task_library
+     * or interpreter_uint8) if given, which is also remembered, otherwise the remembered choice.
+     */
+    private ModelVariant selectModelVariant() {
+        SharedPreferences prefs = getSharedPreferences("VisualAssistantPrefs", MODE_PRIVATE);
+        String requested = getIntent() != null ? getIntent().getStringExtra("model_variant") : null;
+        ModelVariant variant = ModelVariant.fromName(requested, null);
+        if (variant != null) {
+            prefs.edit().putString("model_variant", variant.name()).apply();
+        } else {
+            variant = ModelVariant.fromName(prefs.getString("model_variant", null), ModelVariant.TASK_LIBRARY);
         }
+        Log.d(TAG, "Model variant: " + variant);
+        return variant;
     }
 
-    private void startNavigationMode() {
-        if (cameraProvider != null) {
-            cameraProvider.unbindAll();
+    private void startObjectDetectionMode() {
+        resolutionController.setProfile(ResolutionController.Profile.OBJECT_DETECTION, FrameTracer.now());
+        frameRouter.setActiveAnalyzer(objectDetectionAnalyzer);
+        updateUIForMode("IDENTIFY");
+        announceWhenReady(objectDetectionAnalyzer, AppMode.OBJECT_DETECTION);
+    }
 
-            Preview preview = new Preview.Builder().build();
-            preview.setSurfaceProvider(previewView.getSurfaceProvider());
+    private void startTextRecognitionMode() {
+        resolutionController.setProfile(ResolutionController.Profile.TEXT_RECOGNITION, FrameTracer.now());
+        frameRouter.setActiveAnalyzer(textRecognitionAnalyzer);
+        updateUIForMode("READ");
+    }
 
-            // Consider using a specialized analyzer for detecting obstacles
-            // For now, we'll use the object detection analyzer as a placeholder
-            ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                    .setTargetResolution(new Size(640, 480))
-                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                    .build();
+    private void startDescribeMode() {
+        resolutionController.setProfile(ResolutionController.Profile.DESCRIBE, FrameTracer.now());
+        frameRouter.setActiveAnalyzer(describeAnalyzer);
+        updateUIForMode("DESCRIBE");
+        announceWhenReady(describeAnalyzer, AppMode.DESCRIBE);
+    }
 
-            // You might want to create a specific NavigationAnalyzer class
-            imageAnalysis.setAnalyzer(cameraExecutor, objectDetectionAnalyzer);
+    private void startNavigationMode() {
+        resolutionController.setProfile(ResolutionController.Profile.NAVIGATION, FrameTracer.now());
+        frameRouter.setActiveAnalyzer(navigationAnalyzer);
+        updateUIForMode("NAVIGATE");
+        announceWhenReady(navigationAnalyzer, AppMode.NAVIGATION);
+    }
 
-            CameraSelector cameraSelector = new CameraSelector.Builder()
-                    .requireLensFacing(CameraSelector.LENS_FACING_BACK)
-                    .build();
+    /**
+     * Frames are dropped until the analyzer's model has loaded; say so, and say
+     * "ready" once it has, if the user is still in that mode.
+     */
+    private void announceWhenReady(ModelLoader.Client analyzer, AppMode mode) {
+        if (analyzer.isModelReady()) {
+            pendingReadyAnnouncement = null;
+            return;
+        }
+        speak("The detector is still loading. I will tell you when it is ready.", TextToSpeech.QUEUE_ADD);
+        pendingReadyAnnouncement = new ModelLoader.ReadinessListener() {
+            @Override
+            public void onModelReady(DetectorBackend backend) {
+                if (pendingReadyAnnouncement == this && currentMode == mode) {
+                    pendingReadyAnnouncement = null;
+                    speak("Ready", TextToSpeech.QUEUE_ADD);
+                }
+            }
 
-            try {
-                cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
-                updateUIForMode("NAVIGATE");
-            } catch (Exception e) {
-                Log.e(TAG, "Error binding camera for navigation: " + e.getMessage());
+            @Override
+            public void onModelFailed(Exception error) {
+                if (pendingReadyAnnouncement == this && currentMode == mode) {
+                    pendingReadyAnnouncement = null;
+                    speak("The detector could not be loaded", TextToSpeech.QUEUE_FLUSH);
+                }
             }
-        }
+        };
+        analyzer.addModelReadinessListener(pendingReadyAnnouncement, this::runOnUiThread);
     }
 
     @Override
@@ -959,47 +1224,215 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
                 textToSpeech.setLanguage(Locale.US);
             }
 
+            // Close the glass-to-ear span of frame-driven utterances, and listen again once speech ends
+            textToSpeech.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+                @Override
+                public void onStart(String utteranceId) {
+                    FrameTracer.getInstance().onUtteranceStarted(utteranceId);
+                    utteranceListener.onUtteranceStarted(utteranceId);
+                }
+
+                @Override
+                public void onDone(String utteranceId) {
+                    utteranceListener.onUtteranceEnded(utteranceId);
+                }
+
+                @Override
+                public void onError(String utteranceId) {
+                    utteranceListener.onUtteranceEnded(utteranceId);
+                }
+
+                @Override
+                public void onStop(String utteranceId, boolean interrupted) {
+                    utteranceListener.onUtteranceEnded(utteranceId);
+                }
+            });
+
             // Initialize speech recognizer after TTS initialization
             initializeSpeechRecognizer();
         } else {
             Log.e(TAG, "TTS Initialization failed");
         }
+        ttsInitFinished = true;
+        welcomeWhenReady();
+    }
+
+    // Speech, overlay and haptics each follow the event bus on a thread of their own
+    private void startEventConsumers() {
+        eventBus.setErrorListener((consumer, sequence, error) ->
+                Log.e(TAG, consumer + " failed on event " + sequence, error));
+        eventConsumers.add(eventBus.subscribe("SpeechEvents", this::onSpeechEvent,
+                PipelineEventBus.WaitStrategy.BLOCKING));
+        eventConsumers.add(eventBus.subscribe("OverlayEvents", this::onOverlayEvent,
+                PipelineEventBus.WaitStrategy.BLOCKING));
+        eventConsumers.add(eventBus.subscribe("HapticEvents", this::onHapticEvent,
+                PipelineEventBus.WaitStrategy.BLOCKING));
+        for (PipelineEventBus.Consumer consumer : eventConsumers) {
+            consumer.start();
+        }
+    }
+
+    private void onSpeechEvent(PipelineEvent event, long sequence, boolean endOfBatch) {
+        switch (event.type) {
+            case PipelineEvent.HAZARD:
+                speak(event.text, TextToSpeech.QUEUE_FLUSH, FrameTracer.utteranceId(event.traceId));
+                speculativeWarmup.onResult(announcedMode, event.publishNanos);
+                break;
+            case PipelineEvent.DETECTIONS:
+                // A newer frame is already waiting and would flush this one
+                if (!endOfBatch) break;
+                String utteranceId = FrameTracer.utteranceId(event.traceId);
+                if (event.text != null) {
+                    speak(event.text, TextToSpeech.QUEUE_FLUSH, utteranceId);
+                }
+                if (event.summary != null) {
+                    // Follows the announcement under an id of its own, so the listening loop
+                    // waits for both; the trace id stays on whichever is spoken first
+                    if (event.text != null) {
+                        speak(event.summary, TextToSpeech.QUEUE_ADD, utteranceId + "-summary");
+                    } else {
+                        speak(event.summary, TextToSpeech.QUEUE_FLUSH, utteranceId);
+                    }
+                }
+                if (event.text != null || event.summary != null) {
+                    speculativeWarmup.onResult(announcedMode, event.publishNanos);
+                }
+                break;
+            case PipelineEvent.TEXT:
+                // Spoken by TextRecognitionAnalyzer through its per-language engines
+                if (event.text != null && !event.text.isEmpty()) {
+                    speculativeWarmup.onResult(announcedMode, event.publishNanos);
+                }
+                break;
+            case PipelineEvent.MODE_CHANGE:
+                // Mode names match the commands that select them
+                announcedMode = VoiceCommandMatcher.Command.valueOf(event.text);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onOverlayEvent(PipelineEvent event, long sequence, boolean endOfBatch) {
+        if (event.type == PipelineEvent.DETECTIONS) {
+            objectOverlay.setDetections(event.boxes, event.labels, event.scores, event.count);
+        } else if (event.type == PipelineEvent.MODE_CHANGE) {
+            objectOverlay.clearDetections();
+        }
+    }
+
+    private void onHapticEvent(PipelineEvent event, long sequence, boolean endOfBatch) {
+        if (event.type == PipelineEvent.HAZARD && vibrator.hasVibrator()) {
+            vibrator.vibrate(HAZARD_VIBRATION, -1);
+        }
     }
 
     private void speak(String text, int queueMode) {
+        speak(text, queueMode, null);
+    }
+
+    private void speak(String text, int queueMode, String utteranceId) {
         if (ttsInitialized) {
-            textToSpeech.speak(text, queueMode, null, null);
+            // Every utterance needs an id for the listening loop to see it end
+            if (utteranceId == null) {
+                utteranceId = "say-" + utteranceCount.incrementAndGet();
+            }
+            utteranceListener.onUtteranceQueued(utteranceId);
+            if (textToSpeech.speak(text, queueMode, null, utteranceId) != TextToSpeech.SUCCESS) {
+                utteranceListener.onUtteranceEnded(utteranceId);
+            }
+        }
+    }
+
+    // Dump the latency trace so it can be pulled with adb and opened in a trace viewer
+    private void exportFrameTrace() {
+        File traceDir = getExternalFilesDir("traces");
+        if (traceDir == null) {
+            return;
+        }
+        File traceFile = new File(traceDir, "frame-trace-" + System.currentTimeMillis() + ".json");
+        try (Writer writer = new FileWriter(traceFile)) {
+            FrameTracer.getInstance().writeChromeTrace(writer);
+            Log.d(TAG, "Frame trace written to " + traceFile.getAbsolutePath());
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing frame trace: " + e.getMessage());
         }
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            long currentTime = System.currentTimeMillis();
-
-            // Only process if enough time has passed
-            if ((currentTime - lastUpdate) > shakeThresholdTime) {
-                float x = event.values[0];
-                float y = event.values[1];
-                float z = event.values[2];
-
-                float acceleration = Math.abs(x + y + z - lastX - lastY - lastZ) /
-                        (currentTime - lastUpdate) * 10000;
-
-                if (acceleration > accelerationThreshold) {
-                    // Shake detected
-                    if (currentMode != AppMode.SOS) {
-                        Log.d(TAG, "Shake detected - activating SOS");
-                        startSiren();
-                    }
-                }
-
-                lastX = x;
-                lastY = y;
-                lastZ = z;
-                lastUpdate = currentTime;
+            float x = event.values[0];
+            float y = event.values[1];
+            float z = event.values[2];
+            motionGovernor.onAccelerometer(event.timestamp, x, y, z);
+            if (shakeDetector.onSample(event.timestamp, x, y, z) && currentMode != AppMode.SOS) {
+                Log.d(TAG, "Shake detected - activating SOS");
+                cancelFallCountdown();
+                startSiren();
+            }
+            if (fallDetector.onSample(event.timestamp, x, y, z) && currentMode != AppMode.SOS
+                    && fallCountdownRemaining < 0) {
+                Log.d(TAG, "Fall detected - counting down to SOS");
+                startFallCountdown();
             }
+        } else if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
+            motionGovernor.onGyroscope(event.timestamp, event.values[0], event.values[1], event.values[2]);
+        }
+    }
+
+    private void startFallCountdown() {
+        fallCountdownRemaining = FALL_COUNTDOWN_SECONDS;
+        String message;
+        switch (currentLanguage) {
+            case HINDI:
+                message = "गिरने का पता चला। " + FALL_COUNTDOWN_SECONDS
+                        + " सेकंड में मदद बुलाई जाएगी। रोकने के लिए SOS बटन दबाएं।";
+                break;
+            case MARATHI:
+                message = "पडल्याचे आढळले. " + FALL_COUNTDOWN_SECONDS
+                        + " सेकंदात मदत बोलावली जाईल. थांबवण्यासाठी SOS बटण दाबा.";
+                break;
+            default:
+                message = "Fall detected. Calling for help in " + FALL_COUNTDOWN_SECONDS
+                        + " seconds. Press the SOS button or say cancel to stop.";
+                break;
+        }
+        statusText.setText("Fall detected - SOS in " + FALL_COUNTDOWN_SECONDS + " s");
+        speak(message, TextToSpeech.QUEUE_FLUSH);
+        if (vibrator.hasVibrator()) {
+            vibrator.vibrate(500);
+        }
+        fallCountdownHandler.postDelayed(fallCountdownTick, 1000);
+    }
+
+    private void onFallCountdownTick() {
+        fallCountdownRemaining--;
+        if (fallCountdownRemaining <= 0) {
+            fallCountdownRemaining = -1;
+            startSiren();
+            return;
+        }
+        statusText.setText("Fall detected - SOS in " + fallCountdownRemaining + " s");
+        vibrator.vibrate(100);
+        if (fallCountdownRemaining <= 5) {
+            speak(String.valueOf(fallCountdownRemaining), TextToSpeech.QUEUE_FLUSH);
+        }
+        fallCountdownHandler.postDelayed(fallCountdownTick, 1000);
+    }
+
+    /**
+     * @return Whether a fall countdown was running
+     */
+    private boolean cancelFallCountdown() {
+        if (fallCountdownRemaining < 0) {
+            return false;
         }
+        fallCountdownHandler.removeCallbacks(fallCountdownTick);
+        fallCountdownRemaining = -1;
+        statusText.setText("Listening for commands...");
+        speak("Fall alert cancelled", TextToSpeech.QUEUE_FLUSH);
+        return true;
     }
 
     @Override
@@ -1013,12 +1446,15 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
 
         // Register sensor listeners
         if (sensorManager != null && accelerometer != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
+            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+        }
+        if (sensorManager != null && gyroscope != null) {
+            sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
         }
 
         // Resume voice recognition if needed
-        if (!isListening && currentMode != AppMode.SOS) {
-            startVoiceRecognition();
+        if (speechRecognizer != null && currentMode != AppMode.SOS) {
+            listeningLoop.start();
         }
     }
 
@@ -1030,11 +1466,18 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
         if (sensorManager != null) {
             sensorManager.unregisterListener(this);
         }
+        // Samples from before the pause must not join a shake or fall after it
+        shakeDetector.reset();
+        fallDetector.reset();
+        motionGovernor.reset();
+        Log.d(TAG, "Mode switches: " + speculativeWarmup);
 
         // Stop voice recognition
-        if (speechRecognizer != null) {
-            speechRecognizer.stopListening();
-            isListening = false;
+        Log.d(TAG, "Listening: " + listeningLoop);
+        listeningLoop.suspend();
+
+        if (cameraExecutor != null) {
+            cameraExecutor.execute(this::exportFrameTrace);
         }
     }
 
@@ -1042,6 +1485,11 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
     protected void onDestroy() {
         super.onDestroy();
 
+        // First, so the speech, overlay and haptic threads no longer use what is released below
+        for (PipelineEventBus.Consumer consumer : eventConsumers) {
+            consumer.halt();
+        }
+
         // Release resources
         if (textToSpeech != null) {
             textToSpeech.stop();
@@ -1056,6 +1504,29 @@ public class MainActivity extends AppCompatActivity implements TextToSpeech.OnIn
             sirenPlayer.release();
         }
 
+        if (sessionRecorder != null) {
+            sessionRecorder.stop();
+        }
+
+        // Each analyzer closes the interpreters it claimed from the shared loader
+        if (objectDetectionAnalyzer != null) {
+            objectDetectionAnalyzer.shutdown();
+        }
+
+        if (navigationAnalyzer != null) {
+            navigationAnalyzer.shutdown();
+        }
+
+        if (textRecognitionAnalyzer != null) {
+            textRecognitionAnalyzer.shutdown();
+        }
+
+        if (describeAnalyzer != null) {
+            describeAnalyzer.shutdown();
+        }
+
+        fallCountdownHandler.removeCallbacks(fallCountdownTick);
+
         if (cameraExecutor != null) {
             cameraExecutor.shutdown();
         }
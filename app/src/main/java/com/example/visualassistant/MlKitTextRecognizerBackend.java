@@ -0,0 +1,90 @@
+package com.example.visualassistant;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.devanagari.DevanagariTextRecognizerOptions;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TextRecognizerBackend} that runs both the Latin and the Devanagari ML Kit
+ * recognizers and prefers Devanagari text when there is any.
+ */
+public class MlKitTextRecognizerBackend implements TextRecognizerBackend {
+
+    private static final long RECOGNITION_TIMEOUT_SECONDS = 3;
+
+    private final TextRecognizer latinTextRecognizer;
+    private final TextRecognizer devanagariTextRecognizer;
+    private byte[] nv21 = new byte[0];
+    private int[] lineHeights = new int[16];
+    private volatile float lastLineHeight = -1f;
+
+    public MlKitTextRecognizerBackend() {
+        latinTextRecognizer = TextRecognition.getClient(new TextRecognizerOptions.Builder().build());
+        devanagariTextRecognizer = TextRecognition.getClient(new DevanagariTextRecognizerOptions.Builder().build());
+    }
+
+    @Override
+    public String recognize(YuvFrame frame) throws Exception {
+        int size = YuvConverter.nv21Size(frame.width, frame.height);
+        if (nv21.length != size) {
+            nv21 = new byte[size];
+        }
+        YuvConverter.yuvToNv21(frame, nv21);
+        InputImage inputImage = InputImage.fromByteArray(nv21, frame.width, frame.height,
+                frame.rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+
+        Text result = recognizeWith(devanagariTextRecognizer, inputImage);
+        if (result == null || result.getText().trim().isEmpty()) {
+            result = recognizeWith(latinTextRecognizer, inputImage);
+        }
+        if (result == null) {
+            lastLineHeight = -1f;
+            return "";
+        }
+        lastLineHeight = medianLineHeight(result, frame.orientedHeight());
+        return result.getText().trim();
+    }
+
+    @Override
+    public float getLastLineHeight() {
+        return lastLineHeight;
+    }
+
+    private static Text recognizeWith(TextRecognizer recognizer, InputImage inputImage) throws Exception {
+        return Tasks.await(
+                recognizer.process(inputImage)
+                        .continueWith(task -> task.isSuccessful() ? task.getResult() : null),
+                RECOGNITION_TIMEOUT_SECONDS, TimeUnit.SECONDS
+        );
+    }
+
+    // Boxes are in upright image coordinates, as ML Kit applies the rotation
+    private float medianLineHeight(Text text, int imageHeight) {
+        int count = 0;
+        for (Text.TextBlock block : text.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) {
+                if (line.getBoundingBox() == null) continue;
+                if (count == lineHeights.length) {
+                    lineHeights = Arrays.copyOf(lineHeights, count * 2);
+                }
+                lineHeights[count++] = line.getBoundingBox().height();
+            }
+        }
+        if (count == 0 || imageHeight <= 0) return -1f;
+        Arrays.sort(lineHeights, 0, count);
+        return (float) lineHeights[count / 2] / imageHeight;
+    }
+
+    @Override
+    public void close() {
+        latinTextRecognizer.close();
+        devanagariTextRecognizer.close();
+    }
+}
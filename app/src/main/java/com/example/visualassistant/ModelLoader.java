@@ -0,0 +1,220 @@
+package com.example.visualassistant;
+
+import java.io.FileInputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads a detection model off the main thread and signals when it can be used.
+ *
+ * The model bytes come from a memory-mapped file, so nothing is copied onto the Java
+ * heap, and the new backend runs a few inferences on a blank frame before it is
+ * published: the first runs pay for delegate setup and cold caches, and would
+ * otherwise land on the first real camera frame. Readiness is available as a
+ * future and through listeners; map, create and warm-up times are kept for logging.
+ *
+ * One loader serves every worker that runs the model: the model is mapped and the
+ * factory set up once, and each worker claims a backend of its own.
+ */
+public class ModelLoader {
+
+    public static final int DEFAULT_WARMUP_RUNS = 2;
+    public static final int WARMUP_WIDTH = 640;
+    public static final int WARMUP_HEIGHT = 480;
+
+    public interface BackendFactory {
+        DetectorBackend create(ByteBuffer model) throws Exception;
+    }
+
+    public interface ReadinessListener {
+        void onModelReady(DetectorBackend backend);
+
+        void onModelFailed(Exception error);
+    }
+
+    /**
+     * An analyzer that runs a backend claimed from a loader, ready once it has one.
+     */
+    public interface Client {
+        boolean isModelReady();
+
+        /**
+         * Calls {@code listener} on {@code executor} once the backend is ready, or right away if it already is.
+         */
+        void addModelReadinessListener(ReadinessListener listener, Executor executor);
+    }
+
+    private final String name;
+    private final Callable<ByteBuffer> source;
+    private final BackendFactory factory;
+    private final int warmupRuns;
+    private final CompletableFuture<DetectorBackend> ready = new CompletableFuture<>();
+    private boolean started;
+    private boolean claimed;
+
+    private volatile ByteBuffer model;
+    private volatile DetectorBackend backend;
+    private volatile long mapNanos;
+    private volatile long createNanos;
+    private volatile long warmupNanos;
+
+    /**
+     * @param source Supplies the model bytes, typically {@link #map}
+     */
+    public ModelLoader(String name, Callable<ByteBuffer> source, BackendFactory factory, int warmupRuns) {
+        this.name = name;
+        this.source = source;
+        this.factory = factory;
+        this.warmupRuns = warmupRuns;
+    }
+
+    /**
+     * Starts loading on {@code executor}; later calls return the same future.
+     */
+    public synchronized CompletableFuture<DetectorBackend> load(Executor executor) {
+        if (!started) {
+            started = true;
+            executor.execute(this::loadNow);
+        }
+        return ready;
+    }
+
+    private void loadNow() {
+        DetectorBackend created = null;
+        try {
+            long start = FrameTracer.now();
+            ByteBuffer bytes = source.call();
+            long mapped = FrameTracer.now();
+            created = factory.create(bytes);
+            long createdAt = FrameTracer.now();
+            warmUp(created);
+
+            mapNanos = mapped - start;
+            createNanos = createdAt - mapped;
+            warmupNanos = FrameTracer.now() - createdAt;
+            model = bytes;
+            backend = created;
+            ready.complete(created);
+        } catch (Exception e) {
+            if (created != null) {
+                created.close();
+            }
+            ready.completeExceptionally(e);
+        }
+    }
+
+    private void warmUp(DetectorBackend created) throws Exception {
+        YuvFrame blank = YuvFrame.gray(WARMUP_WIDTH, WARMUP_HEIGHT);
+        int[] argb = new int[WARMUP_WIDTH * WARMUP_HEIGHT];
+        YuvConverter.yuvToArgb(blank, argb);
+        for (int i = 0; i < warmupRuns; i++) {
+            created.detect(blank, argb);
+        }
+    }
+
+    /**
+     * Returns the loaded backend to its first caller, and a new one created from the same
+     * model and warmed up the same way to each later caller, so workers never share one.
+     * Call once loading has finished, on the worker that will use the backend.
+     */
+    public DetectorBackend claimBackend() throws Exception {
+        DetectorBackend loaded = ready.get();
+        synchronized (this) {
+            if (!claimed) {
+                claimed = true;
+                return loaded;
+            }
+        }
+        DetectorBackend created = factory.create(model);
+        try {
+            warmUp(created);
+        } catch (Exception e) {
+            created.close();
+            throw e;
+        }
+        return created;
+    }
+
+    public CompletableFuture<DetectorBackend> getReadiness() {
+        return ready;
+    }
+
+    /**
+     * Calls {@code listener} on {@code callbackExecutor} once loading finishes, or
+     * right away if it already has.
+     */
+    public void addListener(ReadinessListener listener, Executor callbackExecutor) {
+        addListener(ready, listener, callbackExecutor);
+    }
+
+    /**
+     * Calls {@code listener} on {@code callbackExecutor} once {@code readiness} completes.
+     */
+    public static void addListener(CompletableFuture<DetectorBackend> readiness, ReadinessListener listener,
+                                   Executor callbackExecutor) {
+        readiness.whenCompleteAsync((loaded, error) -> {
+            if (loaded != null) {
+                listener.onModelReady(loaded);
+            } else {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                listener.onModelFailed(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+            }
+        }, callbackExecutor);
+    }
+
+    public boolean isReady() {
+        return backend != null;
+    }
+
+    /**
+     * @return The warmed-up backend, or null until loading has finished.
+     */
+    public DetectorBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return The model bytes the backend was created from, for further instances, or null until ready.
+     */
+    public ByteBuffer getModel() {
+        return model;
+    }
+
+    public long getMapNanos() {
+        return mapNanos;
+    }
+
+    public long getCreateNanos() {
+        return createNanos;
+    }
+
+    public long getWarmupNanos() {
+        return warmupNanos;
+    }
+
+    /**
+     * Maps {@code length} bytes at {@code offset} of an open file read-only. The mapping
+     * stays valid after the descriptor is closed.
+     */
+    public static MappedByteBuffer map(FileDescriptor descriptor, long offset, long length) throws IOException {
+        try (FileInputStream in = new FileInputStream(descriptor);
+             FileChannel channel = in.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (!isReady()) {
+            return name + (ready.isCompletedExceptionally() ? " failed" : " loading");
+        }
+        return name + " mapped in " + mapNanos / 1_000_000L + " ms, created in " + createNanos / 1_000_000L
+                + " ms, " + warmupRuns + " warm-up runs in " + warmupNanos / 1_000_000L + " ms";
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.visualassistant;
+
+/**
+ * Which detection pipeline the analyzers run, chosen at startup. Both run the same
+ * 8-bit SSD MobileNet; they differ in how frames reach it and results come back. No
+ * float model ships, so there is no float pipeline to choose or compare.
+ */
+public enum ModelVariant {
+    /**
+     * Task Library over an ARGB Bitmap, the original pipeline: the frame is converted
+     * to ARGB, wrapped in a Bitmap and converted again to the model input.
+     */
+    TASK_LIBRARY(ObjectDetectionAnalyzer.MODEL_FILE),
+    /**
+     * Raw interpreter fed uint8 straight from the camera planes, outputs dequantized
+     * only for boxes above the threshold.
+     */
+    INTERPRETER_UINT8(ObjectDetectionAnalyzer.MODEL_FILE);
+
+    public final String modelFile;
+
+    ModelVariant(String modelFile) {
+        this.modelFile = modelFile;
+    }
+
+    /**
+     * @return The variant called {@code name}, ignoring case, or {@code fallback}
+     */
+    public static ModelVariant fromName(String name, ModelVariant fallback) {
+        if (name != null) {
+            for (ModelVariant variant : values()) {
+                if (variant.name().equalsIgnoreCase(name)) {
+                    return variant;
+                }
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.visualassistant;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides from the IMU how often the analyzers look at frames. The user is classified
+ * as still, walking or turning:
+ * <ul>
+ *   <li>still: the view hardly changes, so analysis runs at {@link #STILL_INTERVAL_FACTOR}
+ *   times the analyzer's usual interval;</li>
+ *   <li>walking: the usual interval;</li>
+ *   <li>turning: frames are blurred and obsolete before inference ends, so they are
+ *   analysed only every {@link #MAX_TURN_SKIP_FACTOR} intervals, in case the user keeps
+ *   turning, and the first frame once the turn has settled is analysed at once.</li>
+ * </ul>
+ * Walking and stillness come from the spread of acceleration magnitude over the last
+ * second, kept in a fixed ring of primitive samples; turning needs the gyroscope and is
+ * never reported without one. Sensor samples arrive on one thread, typically the main
+ * one, and {@link #shouldAnalyze} and {@link #onAnalyzed} may be called from the
+ * analyzers' threads.
+ */
+public class MotionGovernor {
+
+    public enum State {
+        STILL, WALKING, TURNING
+    }
+
+    static final int STILL_INTERVAL_FACTOR = 2;
+    // A sustained turn, e.g. a spiral staircase, still gets a frame this many intervals apart
+    static final int MAX_TURN_SKIP_FACTOR = 3;
+    // Standard deviation of acceleration magnitude over the window, in m/s^2
+    static final float STILL_DEVIATION = 0.3f;
+    static final float WALKING_DEVIATION = 0.8f;
+    // Angular speed in rad/s; a turn ends once below the lower rate for SETTLE_NANOS
+    static final float TURN_RATE = 1.2f;
+    static final float TURN_END_RATE = 0.5f;
+    static final long SETTLE_NANOS = 150_000_000L;
+    static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private static final float GYRO_SMOOTHING = 0.3f;
+    private static final long MAX_GAP_NANOS = 200_000_000L;
+    private static final int CAPACITY = 512;
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] magnitudes = new float[CAPACITY];
+    private int head;
+    private int tail;
+    private int size;
+    private double sum;
+    private double sumOfSquares;
+    private long lastAccelerometerNanos = Long.MIN_VALUE;
+
+    private float angularSpeed;
+    private boolean hasGyroscope;
+    private long calmSinceNanos = -1;
+    private boolean turning;
+    private State motionState = State.WALKING;
+
+    private volatile State state = State.WALKING;
+    private final AtomicBoolean turnSettled = new AtomicBoolean();
+    private final AtomicLong skippedWhileTurning = new AtomicLong();
+    private volatile long stateChanges;
+
+    public void onAccelerometer(long timestampNanos, float x, float y, float z) {
+        long gap = timestampNanos - lastAccelerometerNanos;
+        if (lastAccelerometerNanos != Long.MIN_VALUE && (gap > MAX_GAP_NANOS || gap < 0)) {
+            clearWindow();
+        }
+        lastAccelerometerNanos = timestampNanos;
+
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        if (size == CAPACITY) {
+            drop();
+        }
+        head = (head + 1) & (CAPACITY - 1);
+        times[head] = timestampNanos;
+        magnitudes[head] = magnitude;
+        if (size == 0) tail = head;
+        size++;
+        sum += magnitude;
+        sumOfSquares += (double) magnitude * magnitude;
+        while (size > 1 && times[tail] < timestampNanos - WINDOW_NANOS) {
+            drop();
+        }
+
+        // Needs most of a window before judging, and hysteresis between the thresholds
+        if (timestampNanos - times[tail] >= WINDOW_NANOS * 3 / 4) {
+            float deviation = getDeviation();
+            if (deviation < STILL_DEVIATION) {
+                motionState = State.STILL;
+            } else if (deviation > WALKING_DEVIATION) {
+                motionState = State.WALKING;
+            }
+        }
+        publish();
+    }
+
+    public void onGyroscope(long timestampNanos, float x, float y, float z) {
+        hasGyroscope = true;
+        float speed = (float) Math.sqrt(x * x + y * y + z * z);
+        angularSpeed += GYRO_SMOOTHING * (speed - angularSpeed);
+
+        if (!turning) {
+            if (angularSpeed > TURN_RATE) {
+                turning = true;
+                calmSinceNanos = -1;
+            }
+        } else if (angularSpeed < TURN_END_RATE) {
+            if (calmSinceNanos < 0) {
+                calmSinceNanos = timestampNanos;
+            } else if (timestampNanos - calmSinceNanos >= SETTLE_NANOS) {
+                turning = false;
+                turnSettled.set(true);
+            }
+        } else {
+            calmSinceNanos = -1;
+        }
+        publish();
+    }
+
+    private void publish() {
+        State next = turning ? State.TURNING : motionState;
+        if (next != state) {
+            state = next;
+            stateChanges++;
+        }
+    }
+
+    private void drop() {
+        float magnitude = magnitudes[tail];
+        sum -= magnitude;
+        sumOfSquares -= (double) magnitude * magnitude;
+        tail = (tail + 1) & (CAPACITY - 1);
+        size--;
+    }
+
+    private void clearWindow() {
+        size = 0;
+        sum = 0;
+        sumOfSquares = 0;
+    }
+
+    /**
+     * Decides whether an analyzer should take the frame in hand. Changes nothing: an
+     * analyzer that then takes the frame reports it through {@link #onAnalyzed}, so a
+     * frame it turns away, e.g. while still busy, does not use up the settled turn.
+     *
+     * @param nowMillis          The analyzer's clock now
+     * @param lastAnalysisMillis When the analyzer last analysed a frame, on the same clock
+     * @param intervalMillis     The analyzer's usual interval between frames
+     */
+    public boolean shouldAnalyze(long nowMillis, long lastAnalysisMillis, long intervalMillis) {
+        State current = state;
+        if (current == State.TURNING) {
+            if (nowMillis - lastAnalysisMillis >= MAX_TURN_SKIP_FACTOR * intervalMillis) {
+                return true;
+            }
+            skippedWhileTurning.incrementAndGet();
+            return false;
+        }
+        if (turnSettled.get()) {
+            // The view just changed completely
+            return true;
+        }
+        long interval = current == State.STILL ? STILL_INTERVAL_FACTOR * intervalMillis : intervalMillis;
+        return nowMillis - lastAnalysisMillis >= interval;
+    }
+
+    /**
+     * Called once an analyzer has taken a frame that {@link #shouldAnalyze} let through.
+     */
+    public void onAnalyzed() {
+        turnSettled.set(false);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean hasGyroscope() {
+        return hasGyroscope;
+    }
+
+    /**
+     * @return Standard deviation of acceleration magnitude over the window, in m/s^2
+     */
+    public float getDeviation() {
+        if (size < 2) return 0f;
+        double mean = sum / size;
+        return (float) Math.sqrt(Math.max(0, sumOfSquares / size - mean * mean));
+    }
+
+    public long getSkippedWhileTurning() {
+        return skippedWhileTurning.get();
+    }
+
+    public long getStateChanges() {
+        return stateChanges;
+    }
+
+    public void reset() {
+        clearWindow();
+        lastAccelerometerNanos = Long.MIN_VALUE;
+        angularSpeed = 0;
+        turning = false;
+        calmSinceNanos = -1;
+        motionState = State.WALKING;
+        state = State.WALKING;
+        turnSettled.set(false);
+    }
+
+    @Override
+    public String toString() {
+        return state + " (deviation " + getDeviation() + ", angular speed " + angularSpeed
+                + ", skipped while turning " + skippedWhileTurning.get() + ")";
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.visualassistant;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Object detection restricted to the walking corridor, for navigation mode.
+ * Frames, speech and overlay are handled exactly as in ObjectDetectionAnalyzer;
+ * only the detection step is replaced by {@link CorridorDetector}, with the corridor
+ * pass gated by a {@link CascadeDetector} so static scenes skip full inference.
+ */
+public class NavigationAnalyzer extends ObjectDetectionAnalyzer {
+    private static final String TAG = "NavigationAnalyzer";
+    private static final int CASCADE_LOG_INTERVAL = 30;
+
+    private final CorridorDetector corridorDetector;
+    private final CascadeDetector cascade = new CascadeDetector(new LumaChangeGate(), null);
+
+    public NavigationAnalyzer(Context context) {
+        this(newModelLoader(context, ModelVariant.TASK_LIBRARY));
+    }
+
+    /**
+     * @param modelLoader Shared with the object detection analyzer, from {@link #newModelLoader}
+     */
+    public NavigationAnalyzer(ModelLoader modelLoader) {
+        this(new CorridorDetector(), modelLoader);
+    }
+
+    public NavigationAnalyzer(CorridorDetector corridorDetector, ModelLoader modelLoader) {
+        super(modelLoader);
+        this.corridorDetector = corridorDetector;
+        setIsNavigationMode(true);
+        setFreshnessGate(new FreshnessGate(FreshnessGate.NAVIGATION_BUDGET_NANOS));
+    }
+
+    @Override
+    protected List<ObjectDetection> detect(DetectorBackend backend, YuvFrame frame, long traceId) throws Exception {
+        // Crop, conversion and inference of the corridor (and periphery) in one span
+        long start = FrameTracer.now();
+        cascade.setDetector(backend);
+        List<ObjectDetection> results = corridorDetector.detect(cascade, backend, frame);
+        tracer.record(traceId, FrameTracer.SPAN_INFERENCE, start, FrameTracer.now());
+
+        if (cascade.getFrameCount() % CASCADE_LOG_INTERVAL == 0) {
+            Log.d(TAG, "Cascade: " + cascade);
+        }
+        return results;
+    }
+
+    /**
+     * Replaces the presence gate in front of the corridor detector, e.g. with a model-based one.
+     */
+    public void setPresenceGate(PresenceGate gate) {
+        cascade.setGate(gate);
+    }
+
+    public CascadeDetector getCascade() {
+        return cascade;
+    }
+}
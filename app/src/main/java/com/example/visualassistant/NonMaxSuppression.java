@@ -0,0 +1,517 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class-aware non-maximum suppression and box merging on primitive arrays, for
+ * combining detections across tiles, frames or models.
+ *
+ * Boxes are passed as {@code boxes[4 * i .. 4 * i + 3] = left, top, right, bottom}
+ * with {@code scores[i]} and {@code classes[i]}; boxes only interact with boxes of
+ * the same class, or with all boxes when {@code classes} is null. Four variants:
+ * <ul>
+ *   <li>{@link #greedy}: classic NMS, drops boxes overlapping a higher scoring one.</li>
+ *   <li>{@link #soft}: Gaussian soft-NMS, decays the scores of overlapping boxes instead.</li>
+ *   <li>{@link #fuse}: weighted box fusion, averages each cluster into one box.</li>
+ *   <li>{@link #merge}: grows the kept box over boxes mostly inside it or containing it,
+ *       for objects cut by tile edges.</li>
+ * </ul>
+ *
+ * Working buffers are kept and grown as needed, so after warm-up a call allocates
+ * nothing. Above {@link #setGridThreshold grid threshold} boxes, greedy and soft-NMS
+ * find overlapping boxes through a uniform spatial grid instead of testing every pair.
+ * Not thread-safe; use one instance per thread.
+ */
+public class NonMaxSuppression {
+
+    public static final int DEFAULT_GRID_THRESHOLD = 256;
+    private static final int MAX_GRID_CELLS_PER_SIDE = 64;
+
+    private int gridThreshold = DEFAULT_GRID_THRESHOLD;
+
+    // Box indices in descending score order; the sort key packs score and index
+    private long[] sortKeys = new long[0];
+    private int[] order = new int[0];
+    private int[] rank = new int[0];
+    private boolean[] removed = new boolean[0];
+    private float[] work = new float[0];
+    private int[] clusterSizes = new int[0];
+
+    // Spatial grid in compressed rows: the boxes of cell c are
+    // cellEntries[cellStart[c] .. cellStart[c + 1])
+    private int gridColumns;
+    private int gridRows;
+    private float gridLeft;
+    private float gridTop;
+    private float cellWidth;
+    private float cellHeight;
+    private int[] cellStart = new int[0];
+    private int[] cellFill = new int[0];
+    private int[] cellEntries = new int[0];
+    // Marks boxes already visited by the current query
+    private int[] visitStamp = new int[0];
+    private int stamp;
+    private final int[] buildSpan = new int[4];
+    private final int[] querySpan = new int[4];
+
+    /**
+     * Sets the box count above which greedy and soft-NMS use the spatial grid;
+     * {@link Integer#MAX_VALUE} disables it.
+     */
+    public void setGridThreshold(int gridThreshold) {
+        this.gridThreshold = gridThreshold;
+    }
+
+    /**
+     * Greedy NMS: keeps boxes in descending score order, dropping any box whose IoU
+     * with a kept box of the same class exceeds {@code iouThreshold}.
+     *
+     * @param keep Receives the indices of the kept boxes, best first
+     * @return Number of kept boxes
+     */
+    public int greedy(float[] boxes, float[] scores, int[] classes, int count, float iouThreshold, int[] keep) {
+        ensureCapacity(count);
+        sortByScore(scores, count);
+        Arrays.fill(removed, 0, count, false);
+        boolean useGrid = count > gridThreshold;
+        if (useGrid) {
+            buildGrid(boxes, count);
+        }
+
+        int kept = 0;
+        for (int p = 0; p < count; p++) {
+            int i = order[p];
+            if (removed[i]) continue;
+            keep[kept++] = i;
+            if (useGrid) {
+                int[] cells = queryCells(boxes, i);
+                for (int c = cells[0]; c <= cells[1]; c++) {
+                    for (int row = cells[2]; row <= cells[3]; row++) {
+                        int cell = row * gridColumns + c;
+                        for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                            int j = cellEntries[e];
+                            if (visitStamp[j] == stamp) continue;
+                            visitStamp[j] = stamp;
+                            if (rank[j] > p && !removed[j] && sameClass(classes, i, j)
+                                    && iou(boxes, i, j) > iouThreshold) {
+                                removed[j] = true;
+                            }
+                        }
+                    }
+                }
+            } else {
+                for (int q = p + 1; q < count; q++) {
+                    int j = order[q];
+                    if (!removed[j] && sameClass(classes, i, j) && iou(boxes, i, j) > iouThreshold) {
+                        removed[j] = true;
+                    }
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Gaussian soft-NMS: repeatedly keeps the highest scoring remaining box and
+     * multiplies the score of every other box of its class by exp(-IoU² / sigma).
+     * Boxes whose score falls below {@code scoreThreshold} are dropped.
+     *
+     * @param scores Updated in place with the decayed scores
+     * @param keep   Receives the indices of the kept boxes in the order they were picked
+     * @return Number of kept boxes
+     */
+    public int soft(float[] boxes, float[] scores, int[] classes, int count, float sigma,
+                    float scoreThreshold, int[] keep) {
+        ensureCapacity(count);
+        boolean useGrid = count > gridThreshold;
+        if (useGrid) {
+            buildGrid(boxes, count);
+        }
+        for (int i = 0; i < count; i++) {
+            removed[i] = scores[i] < scoreThreshold;
+        }
+
+        int kept = 0;
+        while (true) {
+            int best = -1;
+            for (int i = 0; i < count; i++) {
+                if (!removed[i] && (best < 0 || scores[i] > scores[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) break;
+            removed[best] = true;
+            keep[kept++] = best;
+
+            if (useGrid) {
+                int[] cells = queryCells(boxes, best);
+                for (int c = cells[0]; c <= cells[1]; c++) {
+                    for (int row = cells[2]; row <= cells[3]; row++) {
+                        int cell = row * gridColumns + c;
+                        for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                            int j = cellEntries[e];
+                            if (visitStamp[j] == stamp) continue;
+                            visitStamp[j] = stamp;
+                            decay(boxes, scores, classes, best, j, sigma, scoreThreshold);
+                        }
+                    }
+                }
+            } else {
+                for (int j = 0; j < count; j++) {
+                    decay(boxes, scores, classes, best, j, sigma, scoreThreshold);
+                }
+            }
+        }
+        return kept;
+    }
+
+    private void decay(float[] boxes, float[] scores, int[] classes, int kept, int j,
+                       float sigma, float scoreThreshold) {
+        if (removed[j] || !sameClass(classes, kept, j)) return;
+        float overlap = iou(boxes, kept, j);
+        if (overlap <= 0) return;
+        scores[j] *= (float) Math.exp(-overlap * overlap / sigma);
+        if (scores[j] < scoreThreshold) {
+            removed[j] = true;
+        }
+    }
+
+    /**
+     * Weighted box fusion: boxes are taken in descending score order and joined to the
+     * first cluster of their class whose fused box they overlap by more than
+     * {@code iouThreshold}. Each fused box is the score-weighted mean of its cluster,
+     * with the mean score of the cluster.
+     *
+     * @param outBoxes   Receives the fused boxes, at least {@code 4 * count} long
+     * @param outScores  Receives the fused scores
+     * @param outClasses Receives the cluster classes; may be null when {@code classes} is
+     * @return Number of fused boxes
+     */
+    public int fuse(float[] boxes, float[] scores, int[] classes, int count, float iouThreshold,
+                    float[] outBoxes, float[] outScores, int[] outClasses) {
+        ensureCapacity(count);
+        sortByScore(scores, count);
+
+        // work holds each cluster's score-weighted coordinate sums and its score sum
+        int clusters = 0;
+        for (int p = 0; p < count; p++) {
+            int i = order[p];
+            int match = -1;
+            for (int c = 0; c < clusters && match < 0; c++) {
+                if ((classes == null || outClasses[c] == classes[i]) && iou(outBoxes, c, boxes, i) > iouThreshold) {
+                    match = c;
+                }
+            }
+            float score = scores[i];
+            if (match < 0) {
+                match = clusters++;
+                Arrays.fill(work, 5 * match, 5 * match + 5, 0f);
+                clusterSizes[match] = 0;
+                if (outClasses != null && classes != null) {
+                    outClasses[match] = classes[i];
+                }
+            }
+            int w = 5 * match;
+            for (int k = 0; k < 4; k++) {
+                work[w + k] += score * boxes[4 * i + k];
+            }
+            work[w + 4] += score;
+            clusterSizes[match]++;
+            float scoreSum = work[w + 4];
+            for (int k = 0; k < 4; k++) {
+                outBoxes[4 * match + k] = scoreSum > 0 ? work[w + k] / scoreSum : boxes[4 * i + k];
+            }
+            outScores[match] = scoreSum / clusterSizes[match];
+        }
+        return clusters;
+    }
+
+    /**
+     * Non-maximum merging: boxes are taken in descending score order. A box of the same
+     * class as a kept box is dropped if their IoU exceeds {@code iouThreshold}; if more
+     * than {@code containmentThreshold} of the smaller one lies inside the other, the
+     * kept box grows to cover both instead, and absorbs any other kept box it now
+     * contains. Kept boxes keep their own score.
+     *
+     * @param outBoxes   Receives the merged boxes, at least {@code 4 * count} long
+     * @param outScores  Receives their scores
+     * @param outClasses Receives their classes; may be null when {@code classes} is
+     * @return Number of merged boxes
+     */
+    public int merge(float[] boxes, float[] scores, int[] classes, int count, float iouThreshold,
+                     float containmentThreshold, float[] outBoxes, float[] outScores, int[] outClasses) {
+        ensureCapacity(count);
+        sortByScore(scores, count);
+
+        int kept = 0;
+        for (int p = 0; p < count; p++) {
+            int i = order[p];
+            int cls = classes != null ? classes[i] : 0;
+            boolean absorbed = false;
+            for (int k = 0; k < kept && !absorbed; k++) {
+                if (classes != null && outClasses[k] != cls) continue;
+                float intersection = intersection(outBoxes, k, boxes, i);
+                if (intersection <= 0) continue;
+                float keptArea = area(outBoxes, k);
+                float boxArea = area(boxes, i);
+                if (intersection / Math.min(keptArea, boxArea) > containmentThreshold) {
+                    union(outBoxes, k, boxes, i);
+                    kept = absorbContained(outBoxes, outScores, outClasses, classes != null, k, kept,
+                            containmentThreshold);
+                    absorbed = true;
+                } else if (intersection / (keptArea + boxArea - intersection) > iouThreshold) {
+                    absorbed = true;
+                }
+            }
+            if (!absorbed) {
+                System.arraycopy(boxes, 4 * i, outBoxes, 4 * kept, 4);
+                outScores[kept] = scores[i];
+                if (outClasses != null && classes != null) {
+                    outClasses[kept] = cls;
+                }
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    // After kept box k grew, folds in the kept boxes it now mostly contains
+    private static int absorbContained(float[] outBoxes, float[] outScores, int[] outClasses, boolean classAware,
+                                       int k, int kept, float containmentThreshold) {
+        for (int m = 0; m < kept; m++) {
+            if (m == k || (classAware && outClasses[m] != outClasses[k])) continue;
+            float intersection = intersection(outBoxes, k, outBoxes, m);
+            if (intersection <= 0 || intersection / Math.min(area(outBoxes, k), area(outBoxes, m))
+                    <= containmentThreshold) {
+                continue;
+            }
+            union(outBoxes, k, outBoxes, m);
+            // Remove m, keeping the order of the rest
+            System.arraycopy(outBoxes, 4 * (m + 1), outBoxes, 4 * m, 4 * (kept - m - 1));
+            System.arraycopy(outScores, m + 1, outScores, m, kept - m - 1);
+            if (classAware) {
+                System.arraycopy(outClasses, m + 1, outClasses, m, kept - m - 1);
+            }
+            kept--;
+            if (m < k) k--;
+            // The union may now contain boxes already passed over
+            m = -1;
+        }
+        return kept;
+    }
+
+    private static void union(float[] into, int k, float[] boxes, int i) {
+        into[4 * k] = Math.min(into[4 * k], boxes[4 * i]);
+        into[4 * k + 1] = Math.min(into[4 * k + 1], boxes[4 * i + 1]);
+        into[4 * k + 2] = Math.max(into[4 * k + 2], boxes[4 * i + 2]);
+        into[4 * k + 3] = Math.max(into[4 * k + 3], boxes[4 * i + 3]);
+    }
+
+    private static boolean sameClass(int[] classes, int i, int j) {
+        return classes == null || classes[i] == classes[j];
+    }
+
+    static float iou(float[] boxes, int i, int j) {
+        return iou(boxes, i, boxes, j);
+    }
+
+    private static float iou(float[] a, int i, float[] b, int j) {
+        float intersection = intersection(a, i, b, j);
+        if (intersection <= 0) return 0f;
+        return intersection / (area(a, i) + area(b, j) - intersection);
+    }
+
+    private static float intersection(float[] a, int i, float[] b, int j) {
+        float width = Math.min(a[4 * i + 2], b[4 * j + 2]) - Math.max(a[4 * i], b[4 * j]);
+        float height = Math.min(a[4 * i + 3], b[4 * j + 3]) - Math.max(a[4 * i + 1], b[4 * j + 1]);
+        return width > 0 && height > 0 ? width * height : 0f;
+    }
+
+    private static float area(float[] boxes, int i) {
+        return (boxes[4 * i + 2] - boxes[4 * i]) * (boxes[4 * i + 3] - boxes[4 * i + 1]);
+    }
+
+    // Fills order[0 .. count) with box indices by descending score, ties by index
+    private void sortByScore(float[] scores, int count) {
+        for (int i = 0; i < count; i++) {
+            // Maps float order onto signed int order, then flips it for a descending sort
+            int bits = Float.floatToIntBits(scores[i]);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            sortKeys[i] = ((long) ~bits << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, count);
+        for (int p = 0; p < count; p++) {
+            int i = (int) sortKeys[p];
+            order[p] = i;
+            rank[i] = p;
+        }
+    }
+
+    private void buildGrid(float[] boxes, int count) {
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        float widthSum = 0, heightSum = 0;
+        for (int i = 0; i < count; i++) {
+            left = Math.min(left, boxes[4 * i]);
+            top = Math.min(top, boxes[4 * i + 1]);
+            right = Math.max(right, boxes[4 * i + 2]);
+            bottom = Math.max(bottom, boxes[4 * i + 3]);
+            widthSum += boxes[4 * i + 2] - boxes[4 * i];
+            heightSum += boxes[4 * i + 3] - boxes[4 * i + 1];
+        }
+        // Cells about the size of an average box, so a typical box touches two to four
+        float extentX = Math.max(right - left, Float.MIN_NORMAL);
+        float extentY = Math.max(bottom - top, Float.MIN_NORMAL);
+        gridColumns = gridCells(extentX, widthSum / count);
+        gridRows = gridCells(extentY, heightSum / count);
+        gridLeft = left;
+        gridTop = top;
+        cellWidth = extentX / gridColumns;
+        cellHeight = extentY / gridRows;
+
+        int cells = gridColumns * gridRows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cellFill = new int[cells];
+        }
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+
+        // Count, prefix-sum, fill
+        int[] span = buildSpan;
+        int entries = 0;
+        for (int i = 0; i < count; i++) {
+            cellSpan(boxes, i, span);
+            for (int c = span[0]; c <= span[1]; c++) {
+                for (int row = span[2]; row <= span[3]; row++) {
+                    cellStart[row * gridColumns + c + 1]++;
+                    entries++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        if (cellEntries.length < entries) {
+            cellEntries = new int[entries];
+        }
+        System.arraycopy(cellStart, 0, cellFill, 0, cells);
+        for (int i = 0; i < count; i++) {
+            cellSpan(boxes, i, span);
+            for (int c = span[0]; c <= span[1]; c++) {
+                for (int row = span[2]; row <= span[3]; row++) {
+                    cellEntries[cellFill[row * gridColumns + c]++] = i;
+                }
+            }
+        }
+    }
+
+    private static int gridCells(float extent, float meanSize) {
+        if (!(meanSize > 0)) return MAX_GRID_CELLS_PER_SIDE;
+        return Math.max(1, Math.min(MAX_GRID_CELLS_PER_SIDE, (int) (extent / meanSize)));
+    }
+
+    // Cells overlapped by box i, as {first column, last column, first row, last row}; starts a new visit
+    private int[] queryCells(float[] boxes, int i) {
+        if (++stamp == 0) {
+            Arrays.fill(visitStamp, 0);
+            stamp = 1;
+        }
+        cellSpan(boxes, i, querySpan);
+        return querySpan;
+    }
+
+    private void cellSpan(float[] boxes, int i, int[] span) {
+        span[0] = clampCell((int) ((boxes[4 * i] - gridLeft) / cellWidth), gridColumns);
+        span[1] = clampCell((int) ((boxes[4 * i + 2] - gridLeft) / cellWidth), gridColumns);
+        span[2] = clampCell((int) ((boxes[4 * i + 1] - gridTop) / cellHeight), gridRows);
+        span[3] = clampCell((int) ((boxes[4 * i + 3] - gridTop) / cellHeight), gridRows);
+    }
+
+    private static int clampCell(int cell, int cells) {
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    private void ensureCapacity(int count) {
+        if (order.length >= count) return;
+        sortKeys = new long[count];
+        order = new int[count];
+        rank = new int[count];
+        removed = new boolean[count];
+        work = new float[5 * count];
+        clusterSizes = new int[count];
+        visitStamp = new int[count];
+        stamp = 0;
+    }
+
+    /**
+     * Packs {@link ObjectDetection} lists into the primitive arrays the suppressors take,
+     * with labels mapped to class ids, and unpacks results. Buffers are reused.
+     */
+    public static class DetectionArrays {
+        public float[] boxes = new float[0];
+        public float[] scores = new float[0];
+        public int[] classes = new int[0];
+        public int count;
+
+        // Outputs of fuse and merge
+        public float[] outBoxes = new float[0];
+        public float[] outScores = new float[0];
+        public int[] outClasses = new int[0];
+
+        private final List<String> labels = new ArrayList<>();
+        private List<ObjectDetection> source;
+
+        public void load(List<ObjectDetection> detections) {
+            source = detections;
+            count = detections.size();
+            if (scores.length < count) {
+                int capacity = Math.max(count, 2 * scores.length);
+                boxes = new float[4 * capacity];
+                scores = new float[capacity];
+                classes = new int[capacity];
+                outBoxes = new float[4 * capacity];
+                outScores = new float[capacity];
+                outClasses = new int[capacity];
+            }
+            labels.clear();
+            for (int i = 0; i < count; i++) {
+                ObjectDetection detection = detections.get(i);
+                boxes[4 * i] = detection.getLeft();
+                boxes[4 * i + 1] = detection.getTop();
+                boxes[4 * i + 2] = detection.getRight();
+                boxes[4 * i + 3] = detection.getBottom();
+                scores[i] = detection.getConfidence();
+                int id = labels.indexOf(detection.getLabel());
+                if (id < 0) {
+                    id = labels.size();
+                    labels.add(detection.getLabel());
+                }
+                classes[i] = id;
+            }
+        }
+
+        /**
+         * @return The loaded detections at the given indices, e.g. those kept by {@link #greedy}.
+         */
+        public List<ObjectDetection> select(int[] indices, int n) {
+            List<ObjectDetection> result = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                result.add(source.get(indices[k]));
+            }
+            return result;
+        }
+
+        /**
+         * @return New detections built from the first {@code n} output boxes of {@link #fuse} or {@link #merge}.
+         */
+        public List<ObjectDetection> outputs(int n) {
+            List<ObjectDetection> result = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                result.add(new ObjectDetection(labels.get(outClasses[k]), outScores[k], 0f,
+                        outBoxes[4 * k], outBoxes[4 * k + 1], outBoxes[4 * k + 2], outBoxes[4 * k + 3]));
+            }
+            return result;
+        }
+    }
+}
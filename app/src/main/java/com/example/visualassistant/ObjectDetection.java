@@ -39,6 +39,35 @@ public class ObjectDetection implements Serializable {
         this.bottom = bottom;
     }
 
+    /**
+     * Copy constructor, for keeping a detection beyond the frame it came from.
+     */
+    public ObjectDetection(ObjectDetection other) {
+        this(other.label, other.confidence, other.distanceEstimate,
+                other.left, other.top, other.right, other.bottom);
+    }
+
+    /**
+     * @return A copy moved by {@code dx, dy}, e.g. from a crop into the whole frame; the
+     *         detection itself may belong to the backend and is left alone
+     */
+    public ObjectDetection offset(float dx, float dy) {
+        return new ObjectDetection(label, confidence, distanceEstimate,
+                left + dx, top + dy, right + dx, bottom + dy);
+    }
+
+    // Overwrites a pooled instance; only used by DetectionPostProcessor to avoid per-frame allocation
+    void set(String label, float confidence, float distanceEstimate,
+             float left, float top, float right, float bottom) {
+        this.label = label;
+        this.confidence = confidence;
+        this.distanceEstimate = distanceEstimate;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
     /**
      * @return The label of the detected object.
      */
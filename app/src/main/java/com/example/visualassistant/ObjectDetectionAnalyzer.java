@@ -1,285 +1,431 @@
 package com.example.visualassistant;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.RectF;
-import android.os.Handler;
-import android.os.Looper;
-import android.speech.tts.TextToSpeech;
+import android.graphics.ImageFormat;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.task.vision.detector.Detection;
-import org.tensorflow.lite.task.vision.detector.ObjectDetector;
-
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
-public class ObjectDetectionAnalyzer implements ImageAnalysis.Analyzer {
+public class ObjectDetectionAnalyzer implements ImageAnalysis.Analyzer, ModelLoader.Client {
     private static final String TAG = "ObjectDetectionAnalyzer";
-    private static final String MODEL_FILE = "lite-model_ssd_mobilenet_v1_1_metadata_2.tflite";
-
-    private final Context context;
-    private ObjectDetector objectDetector;
+    static final String MODEL_FILE = "lite-model_ssd_mobilenet_v1_1_metadata_2.tflite";
+
+    private static final int WARMUP_RUNS = ModelLoader.DEFAULT_WARMUP_RUNS;
+    private final ModelLoader modelLoader;
+    private volatile DetectorBackend detectorBackend;
+    // Completes once this analyzer's own backend has been claimed from the shared loader
+    private final CompletableFuture<DetectorBackend> modelReady = new CompletableFuture<>();
+    private volatile long framesBeforeReady;
+    private final DetectionPostProcessor postProcessor = new DetectionPostProcessor();
     private long lastAnalysisTimestamp = 0;
-    private static final long ANALYSIS_INTERVAL = 1000; // 1 sec
-    private static final long SPEECH_INTERVAL = 3000;   // 3 sec
+    static final long ANALYSIS_INTERVAL = DetectionPostProcessor.ANALYSIS_INTERVAL;
+    private static final long SPEECH_INTERVAL = DetectionPostProcessor.SPEECH_INTERVAL;
 
-    private final Map<String, Long> lastDetectionTimes = new HashMap<>();
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
-
-    private boolean isNavigationMode = false;
-    private static final float CONFIDENCE_THRESHOLD = 0.45f;
-    private static final float OBSTACLE_PROXIMITY_THRESHOLD = 0.4f;
-
-    private String currentLanguage = "ENGLISH";
-
-    public interface SpeechCallback {
-        void speak(String text, int queueMode);
+    protected final FrameTracer tracer = FrameTracer.getInstance();
+
+    private static final float CONFIDENCE_THRESHOLD = DetectionPostProcessor.CONFIDENCE_THRESHOLD;
+
+    // Conversion buffers reused across frames; only one frame is in flight at a time
+    private final YuvFrame frame = new YuvFrame();
+    private int[] argb = new int[0];
+    private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+
+    // Optional tiled detection; lane 0 uses detectorBackend, the others their own instances
+    private static final int MAX_TILE_LANES = 4;
+    private volatile TiledDetector tiledDetector;
+    private final List<DetectorBackend> tileBackends = new ArrayList<>();
+    private ExecutorService tileExecutor;
+
+    private volatile PipelineEventBus eventBus;
+    private volatile MotionGovernor motionGovernor;
+    private volatile FreshnessGate freshnessGate = new FreshnessGate(FreshnessGate.IDENTIFY_BUDGET_NANOS);
+
+    /**
+     * Publish each analysed frame's boxes and announcements, and navigation hazards, to {@code bus}.
+     */
+    public void setEventBus(PipelineEventBus bus) {
+        this.eventBus = bus;
     }
 
-    private SpeechCallback speechCallback;
+    /**
+     * Let {@code governor} pick the frames to analyse from how the user is moving (null for a fixed interval)
+     */
+    public void setMotionGovernor(MotionGovernor governor) {
+        this.motionGovernor = governor;
+    }
 
-    public void setSpeechCallback(SpeechCallback callback) {
-        this.speechCallback = callback;
+    /**
+     * Replaces the deadlines frame jobs are held to, e.g. with the tighter navigation budget.
+     */
+    public void setFreshnessGate(FreshnessGate gate) {
+        this.freshnessGate = gate;
     }
 
-    public void setCurrentLanguage(String language) {
-        this.currentLanguage = language;
+    /**
+     * @return The current deadlines, with counts of cancelled, downgraded and stale-dropped frames
+     */
+    public FreshnessGate getFreshnessGate() {
+        return freshnessGate;
     }
 
-    public interface ObjectDetectionListener {
-        void onDetectionResults(List<ObjectDetectionOverlay.DetectionResult> results);
+    public void setCurrentLanguage(String language) {
+        postProcessor.setCurrentLanguage(language);
     }
 
-    private ObjectDetectionListener detectionListener;
+    private volatile SessionRecorder sessionRecorder;
+    private volatile ResolutionController resolutionController;
 
-    public void setDetectionListener(ObjectDetectionListener listener) {
-        this.detectionListener = listener;
+    public ObjectDetectionAnalyzer(Context context) {
+        this(newModelLoader(context, ModelVariant.TASK_LIBRARY));
     }
 
-    public ObjectDetectionAnalyzer(Context context) {
-        this.context = context;
+    /**
+     * @param modelLoader Shared with the other analyzers running the same model, from {@link #newModelLoader}
+     */
+    public ObjectDetectionAnalyzer(ModelLoader modelLoader) {
+        this.modelLoader = modelLoader;
         initializeObjectDetector();
     }
 
-    public void setIsNavigationMode(boolean isNavigationMode) {
-        this.isNavigationMode = isNavigationMode;
+    public void setSessionRecorder(SessionRecorder recorder) {
+        this.sessionRecorder = recorder;
     }
 
-    private void initializeObjectDetector() {
+    /**
+     * Report per-frame latency to {@code controller} so it can adapt the analysis resolution
+     */
+    public void setResolutionController(ResolutionController controller) {
+        this.resolutionController = controller;
+    }
+
+    /**
+     * Runs detection on overlapping tiles of the frame to find small objects, or turns
+     * tiling off with a null schedule. Takes effect from the next frame.
+     */
+    public void setTiledDetection(TiledDetector.Schedule schedule) {
         backgroundExecutor.execute(() -> {
-            try {
-                ObjectDetector.ObjectDetectorOptions options = ObjectDetector.ObjectDetectorOptions.builder()
-                        .setMaxResults(10)
-                        .setScoreThreshold(CONFIDENCE_THRESHOLD)
-                        .build();
-                objectDetector = ObjectDetector.createFromFileAndOptions(context, MODEL_FILE, options);
-                Log.d(TAG, "Object detector initialized successfully");
-            } catch (IOException e) {
-                Log.e(TAG, "Error initializing object detector: " + e.getMessage());
+            if (schedule == null) {
+                tiledDetector = null;
+                Log.d(TAG, "Tiled detection off");
+                return;
+            }
+            if (detectorBackend == null) {
+                Log.e(TAG, "Tiled detection needs the object detector");
+                return;
+            }
+            if (tileExecutor == null) {
+                int lanes = Math.max(1, Math.min(MAX_TILE_LANES, Runtime.getRuntime().availableProcessors() / 2));
+                tileExecutor = Executors.newFixedThreadPool(lanes);
+                tileBackends.add(detectorBackend);
+                try {
+                    for (int i = 1; i < lanes; i++) {
+                        tileBackends.add(modelLoader.claimBackend());
+                    }
+                } catch (Exception e) {
+                    // Fewer lanes only costs parallelism
+                    Log.e(TAG, "Error creating tile detector: " + e.getMessage());
+                }
             }
+            tiledDetector = new TiledDetector(tileExecutor, tileBackends.size(), schedule);
+            Log.d(TAG, "Tiled detection " + schedule + " on " + tileBackends.size() + " lanes");
         });
     }
 
+    public void setIsNavigationMode(boolean isNavigationMode) {
+        postProcessor.setIsNavigationMode(isNavigationMode);
+    }
 
-    @Override
-    public void analyze(@NonNull ImageProxy image) {
-        long currentTimestamp = System.currentTimeMillis();
+    private void initializeObjectDetector() {
+        // Claimed on backgroundExecutor, the worker that runs it
+        modelLoader.addListener(new ModelLoader.ReadinessListener() {
+            @Override
+            public void onModelReady(DetectorBackend loaded) {
+                try {
+                    detectorBackend = modelLoader.claimBackend();
+                    modelReady.complete(detectorBackend);
+                    Log.d(TAG, "Object detector ready: " + modelLoader + ", " + framesBeforeReady
+                            + " frames dropped while loading");
+                } catch (Exception e) {
+                    onModelFailed(e);
+                }
+            }
 
-        if (currentTimestamp - lastAnalysisTimestamp < ANALYSIS_INTERVAL) {
-            image.close();
-            return;
-        }
+            @Override
+            public void onModelFailed(Exception error) {
+                Log.e(TAG, "Error initializing object detector: " + error.getMessage());
+                modelReady.completeExceptionally(error);
+            }
+        }, backgroundExecutor);
+        modelLoader.load(backgroundExecutor);
+    }
 
-        if (objectDetector == null) {
-            image.close();
-            return;
+    /**
+     * Loads the model of {@code variant} once for every analyzer that runs it. The
+     * interpreter is tuned for it on the first backend only and each analyzer claims a
+     * backend of its own with the tuned settings.
+     */
+    public static ModelLoader newModelLoader(Context context, ModelVariant variant) {
+        String modelFile = variant.modelFile;
+        return new ModelLoader(variant + " " + modelFile, () -> TfliteDetectorBackend.mapAsset(context, modelFile),
+                new TunedBackendFactory(context, variant), WARMUP_RUNS);
+    }
+
+    private static final class TunedBackendFactory implements ModelLoader.BackendFactory {
+        private final Context context;
+        private final ModelVariant variant;
+        private boolean tuned;
+        private InterpreterTuner.Config config;
+
+        TunedBackendFactory(Context context, ModelVariant variant) {
+            this.context = context;
+            this.variant = variant;
         }
 
-        try {
-            Bitmap bitmap = BitmapUtils.getBitmap(image);
-            if (bitmap != null) {
-                backgroundExecutor.execute(() -> {
+        @Override
+        public DetectorBackend create(ByteBuffer model) throws IOException {
+            InterpreterTuner.Config tunedConfig;
+            synchronized (this) {
+                if (!tuned) {
+                    tuned = true;
                     try {
-                        TensorImage tensorImage = TensorImage.fromBitmap(bitmap);
-                        List<Detection> results = objectDetector.detect(tensorImage);
-
-                        if (!results.isEmpty()) {
-                            processDetectionResults(results, image.getWidth(), image.getHeight(), currentTimestamp);
-
-                            // Speak the first detected object's label
-                            Detection firstDetection = results.get(0);
-                            String label = firstDetection.getCategories().get(0).getLabel();
-
-                            String message;
-                            if (currentLanguage.equals("HINDI")) {
-                                message = "पहचाना गया ऑब्जेक्ट: " + label;
-                            } else if (currentLanguage.equals("MARATHI")) {
-                                message = "ओळखलेली वस्तू: " + label;
-                            } else {
-                                message = "Detected object: " + label;
-                            }
-
-                            final String finalMessage = message;
-                            mainHandler.post(() -> {
-                                if (speechCallback != null) {
-                                    speechCallback.speak(finalMessage, TextToSpeech.QUEUE_FLUSH);
-                                }
-                            });
-                        } else {
-                            // No objects detected
-                            if (detectionListener != null) {
-                                mainHandler.post(() -> detectionListener.onDetectionResults(new ArrayList<>()));
-                            }
-
-                            String noObjectMessage;
-                            if (currentLanguage.equals("HINDI")) {
-                                noObjectMessage = "कोई वस्तु नहीं मिली";
-                            } else if (currentLanguage.equals("MARATHI")) {
-                                noObjectMessage = "कोणतीही वस्तू सापडली नाही";
-                            } else {
-                                noObjectMessage = "No object detected";
-                            }
-
-                            final String finalNoObjectMessage = noObjectMessage;
-                            mainHandler.post(() -> {
-                                if (speechCallback != null) {
-                                    speechCallback.speak(finalNoObjectMessage, TextToSpeech.QUEUE_FLUSH);
-                                }
-                            });
-                        }
-
-                        lastAnalysisTimestamp = currentTimestamp;
+                        // Benchmarks on the first run with this model, loads the stored winner afterwards
+                        // The Task Library takes only a thread count, so only that is tuned for it
+                        config = TfliteInterpreterTuning.loadOrTune(context, variant.modelFile, model,
+                                variant == ModelVariant.TASK_LIBRARY);
                     } catch (Exception e) {
-                        Log.e(TAG, "Error processing image: " + e.getMessage());
+                        Log.e(TAG, "Interpreter tuning failed, using defaults: " + e.getMessage());
                     }
-                });
+                }
+                tunedConfig = config;
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error analyzing image: " + e.getMessage());
+            return createBackend(variant, model, tunedConfig);
         }
+    }
 
-        image.close();
+    /**
+     * @param config Tuned interpreter settings, or null for the library defaults
+     */
+    static DetectorBackend createBackend(ModelVariant variant, ByteBuffer model, InterpreterTuner.Config config)
+            throws IOException {
+        if (variant == ModelVariant.INTERPRETER_UINT8) {
+            return new InterpreterDetectorBackend(model, config, CONFIDENCE_THRESHOLD, 10);
+        }
+        // The Task Library picks its own delegates; its config was tuned for the thread count alone
+        return new TfliteDetectorBackend(model, CONFIDENCE_THRESHOLD, 10, config != null ? config.numThreads : 0);
     }
 
+    /**
+     * Calls {@code listener} on {@code executor} once the detector is loaded and warmed
+     * up, or right away if it already is.
+     */
+    @Override
+    public void addModelReadinessListener(ModelLoader.ReadinessListener listener, Executor executor) {
+        ModelLoader.addListener(modelReady, listener, executor);
+    }
 
+    @Override
+    public boolean isModelReady() {
+        return detectorBackend != null;
+    }
 
-    private void processDetectionResults(List<Detection> results, int imageWidth, int imageHeight, long currentTime) {
-        List<String> detectedObjects = new ArrayList<>();
-        StringBuilder alertMessage = new StringBuilder();
-        List<ObjectDetectionOverlay.DetectionResult> overlayResults = new ArrayList<>();
+    /**
+     * Runs the detector once on the worker ahead of a likely switch to this mode. The model
+     * was warmed when it loaded, so this only sizes the conversion buffers for the last frame
+     * seen and touches the model again after it sat idle. Skipped if {@code cancelled}
+     * reports true before it starts, or if the model is still loading.
+     */
+    public void warmUp(BooleanSupplier cancelled) {
+        backgroundExecutor.execute(() -> {
+            DetectorBackend backend = detectorBackend;
+            if (backend == null || cancelled.getAsBoolean()) {
+                return;
+            }
+            int width = frame.width > 0 ? frame.width : ModelLoader.WARMUP_WIDTH;
+            int height = frame.height > 0 ? frame.height : ModelLoader.WARMUP_HEIGHT;
+            long start = FrameTracer.now();
+            try {
+                YuvFrame blank = YuvFrame.gray(width, height);
+                int[] pixels = null;
+                if (backend.usesArgb()) {
+                    if (argb.length != width * height) {
+                        argb = new int[width * height];
+                    }
+                    YuvConverter.yuvToArgb(blank, argb);
+                    pixels = argb;
+                }
+                backend.detect(blank, pixels);
+                Log.d(TAG, "Warmed up in " + (FrameTracer.now() - start) / 1_000_000L + " ms");
+            } catch (Exception e) {
+                Log.e(TAG, "Warm-up failed: " + e.getMessage());
+            }
+        });
+    }
 
-        Map<String, Boolean> spokenObjects = new HashMap<>();
-        boolean shouldSpeak = (currentTime - lastAnalysisTimestamp >= SPEECH_INTERVAL);
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        long currentTimestamp = System.currentTimeMillis();
+        // Arrival here stands in for capture: sensor timestamps may use another clock
+        final long captureNanos = FrameTracer.now();
 
-        for (Detection detection : results) {
-            if (detection.getCategories().get(0).getScore() < CONFIDENCE_THRESHOLD) continue;
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            BitmapUtils.recordFrame(recorder, image);
+        }
 
-            String label = detection.getCategories().get(0).getLabel();
-            float confidence = detection.getCategories().get(0).getScore();
-            RectF boundingBox = detection.getBoundingBox();
+        MotionGovernor governor = motionGovernor;
+        boolean due = governor != null
+                ? governor.shouldAnalyze(currentTimestamp, lastAnalysisTimestamp, ANALYSIS_INTERVAL)
+                : currentTimestamp - lastAnalysisTimestamp >= ANALYSIS_INTERVAL;
+        if (!due) {
+            image.close();
+            return;
+        }
 
-            RectF normalizedBox = new RectF(
-                    boundingBox.left / imageWidth,
-                    boundingBox.top / imageHeight,
-                    boundingBox.right / imageWidth,
-                    boundingBox.bottom / imageHeight
-            );
+        if (detectorBackend == null) {
+            framesBeforeReady++;
+            image.close();
+            return;
+        }
 
-            overlayResults.add(new ObjectDetectionOverlay.DetectionResult(normalizedBox, label, confidence));
+        if (image.getFormat() != ImageFormat.YUV_420_888 || !isProcessing.compareAndSet(false, true)) {
+            image.close();
+            return;
+        }
+        if (governor != null) {
+            governor.onAnalyzed();
+        }
 
-            float objectArea = boundingBox.width() * boundingBox.height();
-            float imageArea = imageWidth * imageHeight;
-            float areaRatio = objectArea / imageArea;
+        final long traceId = image.getImageInfo().getTimestamp();
+        tracer.beginFrame(traceId);
 
-            float centerX = boundingBox.centerX();
-            float normalizedX = centerX / imageWidth;
+        try {
+            // Only the plane copy happens on the camera thread, so the image can be closed at once
+            long copyStart = FrameTracer.now();
+            BitmapUtils.toYuvFrame(image, frame);
+            tracer.record(traceId, FrameTracer.SPAN_CONVERT, copyStart, FrameTracer.now());
+
+            backgroundExecutor.execute(() -> {
+                try {
+                    FreshnessGate gate = freshnessGate;
+                    long startNanos = FrameTracer.now();
+                    if (!gate.admit(captureNanos, startNanos)) {
+                        Log.d(TAG, "Frame missed its deadline before inference: " + gate);
+                        return;
+                    }
 
-            if (shouldSpeak) {
-                if (!isNavigationMode &&
-                        lastDetectionTimes.containsKey(label) &&
-                        currentTime - lastDetectionTimes.get(label) < 10000) {
-                    continue;
-                }
+                    List<ObjectDetection> results = detect(detectorBackend, frame, traceId);
+                    ResolutionController controller = resolutionController;
+                    if (controller != null) {
+                        controller.onFrameProcessed(copyStart, FrameTracer.now());
+                    }
 
-                if (isNavigationMode) {
-                    if (areaRatio > OBSTACLE_PROXIMITY_THRESHOLD && !spokenObjects.containsKey(label)) {
-                        String direction = normalizedX < 0.4 ? "left" : (normalizedX > 0.6 ? "right" : "front");
-                        alertMessage.append(label).append(" ahead to the ").append(direction).append(". ");
-                        spokenObjects.put(label, true);
+                    FreshnessGate.Verdict verdict = gate.complete(captureNanos, startNanos, FrameTracer.now());
+                    if (verdict == FreshnessGate.Verdict.STALE) {
+                        Log.d(TAG, "Dropped stale result: " + gate);
+                        return;
                     }
-                } else {
-                    if (!spokenObjects.containsKey(label)) {
-                        detectedObjects.add(label + " (" + Math.round(confidence * 100) + "%)");
-                        lastDetectionTimes.put(label, currentTime);
-                        spokenObjects.put(label, true);
+
+                    long messageStart = FrameTracer.now();
+                    // A late result is still drawn, but never spoken as if it were current
+                    boolean fresh = verdict == FreshnessGate.Verdict.FRESH;
+                    boolean shouldSpeak = fresh && currentTimestamp - lastAnalysisTimestamp >= SPEECH_INTERVAL;
+                    postProcessor.process(results, frame.orientedWidth(), frame.orientedHeight(),
+                            currentTimestamp, shouldSpeak);
+                    String announcement = postProcessor.getAnnouncement();
+                    String summary = fresh ? postProcessor.getSummary() : null;
+                    tracer.record(traceId, FrameTracer.SPAN_MESSAGE, messageStart, FrameTracer.now());
+
+                    if (recorder != null) {
+                        recorder.recordDetections(traceId, postProcessor.getOverlayResults());
+                        recorder.recordAnnouncement(traceId, announcement);
+                        recorder.recordAnnouncement(traceId, summary);
                     }
-                }
-            }
-        }
 
-        if (detectionListener != null) {
-            mainHandler.post(() -> detectionListener.onDetectionResults(overlayResults));
-        }
+                    PipelineEventBus bus = eventBus;
+                    if (bus != null) {
+                        if (announcement != null && postProcessor.isNavigationMode()) {
+                            // Obstacles close ahead, spoken first and felt
+                            bus.publishHazard(traceId, announcement);
+                            bus.publishDetections(traceId, postProcessor.getOverlayResults(), null, summary);
+                        } else {
+                            bus.publishDetections(traceId, postProcessor.getOverlayResults(), announcement, summary);
+                        }
+                    }
 
-        if (shouldSpeak && speechCallback != null) {
-            if (isNavigationMode && alertMessage.length() > 0) {
-                String translated = translateOutput(alertMessage.toString());
-                final String finalTranslated = translated;
-                mainHandler.post(() -> speechCallback.speak(finalTranslated, TextToSpeech.QUEUE_FLUSH));
-            } else if (!isNavigationMode && !detectedObjects.isEmpty()) {
-                int maxObjects = Math.min(detectedObjects.size(), 3);
-                StringBuilder message = new StringBuilder("I can see ");
-                for (int i = 0; i < maxObjects; i++) {
-                    message.append(detectedObjects.get(i));
-                    if (i < maxObjects - 1) message.append(", ");
+                    lastAnalysisTimestamp = currentTimestamp;
+                } catch (Exception e) {
+                    Log.e(TAG, "Error processing image: " + e.getMessage());
+                } finally {
+                    isProcessing.set(false);
                 }
-
-                String finalMessage = message.toString();
-                String translated = translateOutput(finalMessage);
-                final String finalTranslated = translated;
-                mainHandler.post(() -> speechCallback.speak(finalTranslated, TextToSpeech.QUEUE_FLUSH));
-            }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Error analyzing image: " + e.getMessage());
+            isProcessing.set(false);
         }
+
+        image.close();
     }
 
-    private String translateOutput(String englishText) {
-        if (currentLanguage.equals("HINDI")) {
-            if (englishText.contains("ahead to the")) englishText = englishText.replace("ahead to the", "के पास है");
-            if (englishText.contains("I can see")) englishText = englishText.replace("I can see", "मैं देख सकता हूँ");
-            if (englishText.contains("detected")) englishText = englishText.replace("detected", "पहचाना गया");
-
-            if (englishText.contains("left")) englishText = englishText.replace("left", "बाईं ओर बाधा");
-            if (englishText.contains("right")) englishText = englishText.replace("right", "दाईं ओर बाधा");
-            if (englishText.contains("front")) englishText = englishText.replace("front", "सामने बाधा");
-            if (englishText.contains("clear")) englishText = englishText.replace("clear", "रास्ता साफ है");
-
-        } else if (currentLanguage.equals("MARATHI")) {
-            if (englishText.contains("ahead to the")) englishText = englishText.replace("ahead to the", "समोर आहे");
-            if (englishText.contains("I can see")) englishText = englishText.replace("I can see", "मी पाहू शकतो");
-            if (englishText.contains("detected")) englishText = englishText.replace("detected", "शोधले");
-
-            if (englishText.contains("left")) englishText = englishText.replace("left", "डावीकडे अडथळा");
-            if (englishText.contains("right")) englishText = englishText.replace("right", "उजवीकडे अडथळा");
-            if (englishText.contains("front")) englishText = englishText.replace("front", "पुढे अडथळा");
-            if (englishText.contains("clear")) englishText = englishText.replace("clear", "मार्ग मोकळा आहे");
+    /**
+     * Runs the detector on a frame. Called on the background executor, one frame at a time.
+     *
+     * @return Detections in pixel coordinates of the whole rotated frame
+     */
+    protected List<ObjectDetection> detect(DetectorBackend backend, YuvFrame frame, long traceId) throws Exception {
+        TiledDetector tiled = tiledDetector;
+        if (tiled != null) {
+            // Crops, conversions and inferences of all lanes in one span
+            long start = FrameTracer.now();
+            List<ObjectDetection> results = tiled.detect(tileBackends, frame);
+            tracer.record(traceId, FrameTracer.SPAN_INFERENCE, start, FrameTracer.now());
+            return results;
+        }
+
+        long convertStart = FrameTracer.now();
+        int[] pixels = null;
+        if (backend.usesArgb()) {
+            if (argb.length != frame.width * frame.height) {
+                argb = new int[frame.width * frame.height];
+            }
+            YuvConverter.yuvToArgb(frame, argb);
+            pixels = argb;
         }
+        long inferenceStart = FrameTracer.now();
+        tracer.record(traceId, FrameTracer.SPAN_CONVERT, convertStart, inferenceStart);
 
-        return englishText;
+        List<ObjectDetection> results = backend.detect(frame, pixels);
+        tracer.record(traceId, FrameTracer.SPAN_INFERENCE, inferenceStart, FrameTracer.now());
+        return results;
     }
 
     public void shutdown() {
+        backgroundExecutor.execute(() -> {
+            if (tileExecutor != null) {
+                tileExecutor.shutdown();
+                // Lane 0 is detectorBackend, closed below
+                for (int i = 1; i < tileBackends.size(); i++) {
+                    tileBackends.get(i).close();
+                }
+            }
+            if (detectorBackend != null) {
+                detectorBackend.close();
+            }
+        });
         backgroundExecutor.shutdown();
     }
-}
\ No newline at end of file
+}
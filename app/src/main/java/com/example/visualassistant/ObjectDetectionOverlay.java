@@ -4,19 +4,62 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
 import android.graphics.RectF;
 import android.util.AttributeSet;
-import android.view.View;
+import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
-public class ObjectDetectionOverlay extends View {
+/**
+ * Draws detection boxes over the camera preview on its own render thread, so the main
+ * thread does no per-frame work for it. Analyzers hand results over from their own
+ * threads through the {@link OverlayAnimator}'s latest-wins mailbox and wake the
+ * renderer, which draws while boxes glide and parks once they settle. Label text and
+ * its measured width are kept per class and the percentages are prebuilt, so drawing
+ * a frame allocates nothing.
+ */
+public class ObjectDetectionOverlay extends SurfaceView implements SurfaceHolder.Callback {
 
-    private List<DetectionResult> detectionResults = new ArrayList<>();
+    private static final String TAG = "ObjectDetectionOverlay";
+
+    private final OverlayAnimator animator = new OverlayAnimator();
     private Paint boxPaint;
     private Paint textPaint;
     private Paint textBackgroundPaint;
+    // Labels are measured on the analyzer threads, never with the renderer's paint
+    private Paint measurePaint;
+
+    // Per class id: the label with a trailing space, and its width. Written before the
+    // update naming the class is published, so the renderer sees them through the mailbox
+    private volatile String[] labelTexts = new String[0];
+    private volatile float[] labelWidths = new float[0];
+    private static final String[] PERCENT_TEXTS = new String[101];
+    private final float[] percentWidths = new float[101];
+
+    static {
+        for (int i = 0; i <= 100; i++) {
+            PERCENT_TEXTS[i] = i + "%";
+        }
+    }
+
+    private volatile Thread renderThread;
+    private volatile boolean rendering;
+    private volatile int surfaceWidth;
+    private volatile int surfaceHeight;
+
+    // Scratch for setDetectionResults and drawFrame
+    private final float[] updateBoxes = new float[4 * OverlayAnimator.MAX_BOXES];
+    private final int[] updateClasses = new int[OverlayAnimator.MAX_BOXES];
+    private final float[] updateScores = new float[OverlayAnimator.MAX_BOXES];
+    private final float[] drawBoxes = new float[4 * OverlayAnimator.MAX_BOXES];
+    private final int[] drawClasses = new int[OverlayAnimator.MAX_BOXES];
+    private final float[] drawScores = new float[OverlayAnimator.MAX_BOXES];
 
     public static class DetectionResult {
         public final RectF boundingBox;
@@ -59,44 +102,171 @@ public class ObjectDetectionOverlay extends View {
         textBackgroundPaint = new Paint();
         textBackgroundPaint.setColor(Color.parseColor("#99000000")); // Semi-transparent black
         textBackgroundPaint.setStyle(Paint.Style.FILL);
+
+        measurePaint = new Paint(textPaint);
+        for (int i = 0; i <= 100; i++) {
+            percentWidths[i] = textPaint.measureText(PERCENT_TEXTS[i]);
+        }
+
+        // Transparent, above the preview's surface but below the rest of the window
+        setZOrderMediaOverlay(true);
+        getHolder().setFormat(PixelFormat.TRANSLUCENT);
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Sets the boxes to show, in normalised coordinates. Call from any thread; the
+     * list is read here and not kept.
+     */
+    public synchronized void setDetectionResults(List<DetectionResult> results) {
+        int count = Math.min(results.size(), OverlayAnimator.MAX_BOXES);
+        for (int i = 0; i < count; i++) {
+            DetectionResult result = results.get(i);
+            updateBoxes[4 * i] = result.boundingBox.left;
+            updateBoxes[4 * i + 1] = result.boundingBox.top;
+            updateBoxes[4 * i + 2] = result.boundingBox.right;
+            updateBoxes[4 * i + 3] = result.boundingBox.bottom;
+            updateClasses[i] = classId(result.label);
+            updateScores[i] = result.confidence;
+        }
+        animator.update(updateBoxes, updateClasses, updateScores, count, FrameTracer.now());
+        wakeRenderer();
+    }
+
+    /**
+     * Sets the boxes to show from parallel arrays, as carried by a {@link PipelineEvent};
+     * call from any thread. The arrays are read here and not kept.
+     */
+    public synchronized void setDetections(float[] boxes, String[] labels, float[] scores, int count) {
+        int n = Math.min(count, OverlayAnimator.MAX_BOXES);
+        for (int i = 0; i < n; i++) {
+            updateClasses[i] = classId(labels[i]);
+        }
+        animator.update(boxes, updateClasses, scores, n, FrameTracer.now());
+        wakeRenderer();
+    }
+
+    // Measures a label the first time its class shows up
+    private int classId(String label) {
+        int id = animator.classId(label);
+        String[] texts = labelTexts;
+        float[] widths = labelWidths;
+        if (id >= texts.length) {
+            int size = Math.max(id + 1, 2 * texts.length);
+            texts = Arrays.copyOf(texts, size);
+            widths = Arrays.copyOf(widths, size);
+        }
+        if (texts[id] == null) {
+            texts[id] = label + " ";
+            widths[id] = measurePaint.measureText(texts[id]);
+        }
+        labelWidths = widths;
+        labelTexts = texts;
+        return id;
+    }
+
+    public synchronized void clearDetections() {
+        animator.clear(FrameTracer.now());
+        wakeRenderer();
+    }
+
+    /**
+     * @return Detection updates replaced by a newer one before they were drawn
+     */
+    public long getDroppedUpdateCount() {
+        return animator.getDroppedUpdateCount();
+    }
+
+    private void wakeRenderer() {
+        Thread thread = renderThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
     }
 
-    public void setDetectionResults(List<DetectionResult> results) {
-        this.detectionResults = results;
-        invalidate(); // Trigger redraw
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        rendering = true;
+        Thread thread = new Thread(() -> renderLoop(holder), "OverlayRenderer");
+        renderThread = thread;
+        thread.start();
     }
 
-    public void clearDetections() {
-        detectionResults.clear();
-        invalidate();
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        surfaceWidth = width;
+        surfaceHeight = height;
+        wakeRenderer();
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // The surface must not be drawn into once this returns
+        rendering = false;
+        Thread thread = renderThread;
+        renderThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
-        for (DetectionResult result : detectionResults) {
-            // Scale bounding box coordinates to match the view dimensions
-            float left = result.boundingBox.left * getWidth();
-            float top = result.boundingBox.top * getHeight();
-            float right = result.boundingBox.right * getWidth();
-            float bottom = result.boundingBox.bottom * getHeight();
+    private void renderLoop(SurfaceHolder holder) {
+        while (rendering) {
+            long now = FrameTracer.now();
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null) {
+                Log.w(TAG, "Overlay surface not ready");
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                drawFrame(canvas, now);
+            } finally {
+                // Blocks while the surface's buffers are queued, pacing this loop to the display
+                holder.unlockCanvasAndPost(canvas);
+            }
+            if (!animator.isAnimating(now)) {
+                // Until the next update, resize or shutdown
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    private void drawFrame(Canvas canvas, long now) {
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+
+        int count = animator.frame(now, drawBoxes, drawClasses, drawScores);
+        String[] texts = labelTexts;
+        float[] widths = labelWidths;
+        int width = surfaceWidth;
+        int height = surfaceHeight;
+        float textHeight = textPaint.getTextSize();
+        for (int i = 0; i < count; i++) {
+            // Scale bounding box coordinates to match the surface dimensions
+            float left = drawBoxes[4 * i] * width;
+            float top = drawBoxes[4 * i + 1] * height;
+            float right = drawBoxes[4 * i + 2] * width;
+            float bottom = drawBoxes[4 * i + 3] * height;
 
             // Draw bounding box
             canvas.drawRect(left, top, right, bottom, boxPaint);
 
-            // Format the text to display
-            String displayText = result.label + " " + Math.round(result.confidence * 100) + "%";
-
-            // Measure text dimensions
-            float textWidth = textPaint.measureText(displayText);
-            float textHeight = textPaint.getTextSize();
+            int classId = drawClasses[i];
+            int percent = Math.max(0, Math.min(100, Math.round(drawScores[i] * 100)));
+            float labelWidth = widths[classId];
+            float textWidth = labelWidth + percentWidths[percent];
 
             // Draw text background
             canvas.drawRect(left, top - textHeight, left + textWidth, top, textBackgroundPaint);
 
             // Draw text
-            canvas.drawText(displayText, left, top - 5, textPaint);
+            canvas.drawText(texts[classId], left, top - 5, textPaint);
+            canvas.drawText(PERCENT_TEXTS[percent], left + labelWidth, top - 5, textPaint);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Box positions for {@link ObjectDetectionOverlay}, animated at display rate between
+ * detection updates that arrive about once a second.
+ *
+ * Updates are copied into preallocated slots of a {@link LatestMailbox}, so they can
+ * come from any thread without blocking the renderer, and an update the renderer has
+ * not drawn yet is replaced rather than queued. When the renderer picks an update up,
+ * each new box is matched to the displayed box of the same class it overlaps most
+ * and glides there from its current position over the recent update interval; new
+ * boxes appear in place and unmatched old ones are dropped. Labels are reduced to
+ * class ids once, so rendering a frame allocates nothing.
+ */
+public class OverlayAnimator {
+
+    public static final int MAX_BOXES = 32;
+
+    static final long MIN_DURATION_NANOS = 100_000_000L;
+    static final long MAX_DURATION_NANOS = 1_000_000_000L;
+    private static final float MATCH_IOU = 0.1f;
+
+    private final Map<String, Integer> classIds = new HashMap<>();
+    private final List<String> labels = new ArrayList<>();
+
+    // One detection update, copied into a mailbox slot
+    private static final class Update {
+        final float[] boxes = new float[4 * MAX_BOXES];
+        final int[] classes = new int[MAX_BOXES];
+        final float[] scores = new float[MAX_BOXES];
+        int count;
+        long nanos;
+    }
+
+    private final LatestMailbox<Update> updates = new LatestMailbox<>(Update::new);
+
+    // Renderer state: where each box started and where it is heading
+    private final float[] startBoxes = new float[4 * MAX_BOXES];
+    private final float[] targetBoxes = new float[4 * MAX_BOXES];
+    private final int[] targetClasses = new int[MAX_BOXES];
+    private final float[] targetScores = new float[MAX_BOXES];
+    private final int[] previousClasses = new int[MAX_BOXES];
+    private int targetCount;
+    private final float[] currentBoxes = new float[4 * MAX_BOXES];
+    private final boolean[] matched = new boolean[MAX_BOXES];
+    private long animationStart;
+    private boolean moving;
+    private long durationNanos = MAX_DURATION_NANOS;
+    private long lastUpdateNanos = -1;
+
+    /**
+     * @return A small stable id for {@code label}; only the first sighting of a label allocates.
+     */
+    public synchronized int classId(String label) {
+        Integer id = classIds.get(label);
+        if (id == null) {
+            id = labels.size();
+            classIds.put(label, id);
+            labels.add(label);
+        }
+        return id;
+    }
+
+    public synchronized String label(int classId) {
+        return labels.get(classId);
+    }
+
+    public synchronized int getClassCount() {
+        return labels.size();
+    }
+
+    /**
+     * Publishes a new set of normalised boxes (left, top, right, bottom per box); at most
+     * {@link #MAX_BOXES} are kept. The arrays are copied, so callers may reuse them.
+     */
+    public synchronized void update(float[] boxes, int[] classes, float[] scores, int count, long nowNanos) {
+        // Writers hold this object's monitor, as the mailbox takes one writer at a time
+        Update update = updates.writeSlot();
+        int n = Math.min(count, MAX_BOXES);
+        System.arraycopy(boxes, 0, update.boxes, 0, 4 * n);
+        System.arraycopy(classes, 0, update.classes, 0, n);
+        System.arraycopy(scores, 0, update.scores, 0, n);
+        update.count = n;
+        update.nanos = nowNanos;
+        updates.publish();
+    }
+
+    public void clear(long nowNanos) {
+        update(targetBoxes, targetClasses, targetScores, 0, nowNanos);
+    }
+
+    /**
+     * @return Updates replaced by a newer one before the renderer drew them
+     */
+    public long getDroppedUpdateCount() {
+        return updates.getOverwrittenCount();
+    }
+
+    /**
+     * Positions of all boxes at {@code nowNanos}, for drawing. Call from one renderer thread.
+     *
+     * @return The number of boxes written to the output arrays
+     */
+    public int frame(long nowNanos, float[] outBoxes, int[] outClasses, float[] outScores) {
+        Update update = updates.poll();
+        if (update != null) {
+            adopt(update, nowNanos);
+        }
+        float t = progress(nowNanos);
+        // Ease out, so boxes settle gently on their targets
+        float eased = 1 - (1 - t) * (1 - t);
+        for (int i = 0; i < 4 * targetCount; i++) {
+            float value = startBoxes[i] + (targetBoxes[i] - startBoxes[i]) * eased;
+            currentBoxes[i] = value;
+            outBoxes[i] = value;
+        }
+        System.arraycopy(targetClasses, 0, outClasses, 0, targetCount);
+        System.arraycopy(targetScores, 0, outScores, 0, targetCount);
+        return targetCount;
+    }
+
+    /**
+     * @return Whether boxes are still moving at {@code nowNanos}, i.e. another frame is needed.
+     */
+    public boolean isAnimating(long nowNanos) {
+        if (updates.hasFresh()) return true;
+        return moving && progress(nowNanos) < 1f;
+    }
+
+    private float progress(long nowNanos) {
+        long elapsed = nowNanos - animationStart;
+        return elapsed >= durationNanos ? 1f : Math.max(0f, (float) elapsed / durationNanos);
+    }
+
+    // Takes a published update as the new targets
+    private void adopt(Update update, long nowNanos) {
+        if (lastUpdateNanos >= 0) {
+            long interval = update.nanos - lastUpdateNanos;
+            durationNanos = Math.max(MIN_DURATION_NANOS, Math.min(MAX_DURATION_NANOS, interval));
+        }
+        lastUpdateNanos = update.nanos;
+
+        int previousCount = targetCount;
+        // currentBoxes still holds where the previous boxes were last drawn
+        for (int i = 0; i < previousCount; i++) {
+            matched[i] = false;
+        }
+        System.arraycopy(targetClasses, 0, previousClasses, 0, previousCount);
+
+        targetCount = update.count;
+        System.arraycopy(update.boxes, 0, targetBoxes, 0, 4 * targetCount);
+        System.arraycopy(update.classes, 0, targetClasses, 0, targetCount);
+        System.arraycopy(update.scores, 0, targetScores, 0, targetCount);
+
+        for (int i = 0; i < targetCount; i++) {
+            int best = -1;
+            float bestIou = MATCH_IOU;
+            for (int j = 0; j < previousCount; j++) {
+                if (matched[j] || previousClasses[j] != targetClasses[i]) continue;
+                float iou = iou(currentBoxes, j, targetBoxes, i);
+                if (iou > bestIou) {
+                    bestIou = iou;
+                    best = j;
+                }
+            }
+            float[] from = targetBoxes;
+            int fromIndex = i;
+            if (best >= 0) {
+                matched[best] = true;
+                from = currentBoxes;
+                fromIndex = best;
+            }
+            System.arraycopy(from, 4 * fromIndex, startBoxes, 4 * i, 4);
+        }
+        moving = false;
+        for (int i = 0; i < 4 * targetCount && !moving; i++) {
+            moving = startBoxes[i] != targetBoxes[i];
+        }
+        animationStart = nowNanos;
+    }
+
+    private static float iou(float[] a, int i, float[] b, int j) {
+        float left = Math.max(a[4 * i], b[4 * j]);
+        float top = Math.max(a[4 * i + 1], b[4 * j + 1]);
+        float right = Math.min(a[4 * i + 2], b[4 * j + 2]);
+        float bottom = Math.min(a[4 * i + 3], b[4 * j + 3]);
+        if (right <= left || bottom <= top) return 0f;
+        float intersection = (right - left) * (bottom - top);
+        float areaA = (a[4 * i + 2] - a[4 * i]) * (a[4 * i + 3] - a[4 * i + 1]);
+        float areaB = (b[4 * j + 2] - b[4 * j]) * (b[4 * j + 3] - b[4 * j + 1]);
+        return intersection / (areaA + areaB - intersection);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.visualassistant;
+
+/**
+ * One slot of the {@link PipelineEventBus}. Slots are preallocated and reused for every
+ * lap of the ring, so consumers must copy anything they keep past their handler call;
+ * strings are shared references, never copied.
+ */
+public final class PipelineEvent {
+
+    /** Overlay boxes of a frame, with the announcement and summary to speak. */
+    public static final int DETECTIONS = 1;
+    /** Recognised text of a frame; empty when none was found or recognition failed. */
+    public static final int TEXT = 2;
+    /** An obstacle close ahead in navigation mode; {@link #text} says where. */
+    public static final int HAZARD = 3;
+    /** The app switched mode; {@link #text} is the mode name. */
+    public static final int MODE_CHANGE = 4;
+
+    public static final int MAX_BOXES = OverlayAnimator.MAX_BOXES;
+
+    public int type;
+    public long traceId;
+    public long publishNanos;
+    public String text;
+    public String summary;
+    public String language;
+
+    // Normalised boxes, left, top, right and bottom per box
+    public final float[] boxes = new float[4 * MAX_BOXES];
+    public final String[] labels = new String[MAX_BOXES];
+    public final float[] scores = new float[MAX_BOXES];
+    public int count;
+
+    void reset(int type, long traceId) {
+        this.type = type;
+        this.traceId = traceId;
+        text = null;
+        summary = null;
+        language = null;
+        count = 0;
+    }
+
+    public static String typeName(int type) {
+        switch (type) {
+            case DETECTIONS:
+                return "detections";
+            case TEXT:
+                return "text";
+            case HAZARD:
+                return "hazard";
+            case MODE_CHANGE:
+                return "mode";
+            default:
+                return "unknown";
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.visualassistant;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated ring of {@link PipelineEvent} slots carrying detections, recognised text,
+ * hazard alerts and mode changes from the analyzers to speech, overlay and haptics.
+ *
+ * There is one producer sequence: the publish methods hold this object's monitor while
+ * they claim, fill and publish a slot, which serialises the analyzers' threads (only one
+ * analyzer runs at a time behind FrameRouter, so this is uncontended). Each consumer
+ * follows the producer's cursor with its own sequence on its own thread and never
+ * locks; the producer waits rather than overwrite a slot a consumer has not handled yet,
+ * but only for {@link #CLAIM_TIMEOUT_NANOS}, after which the event is dropped and counted,
+ * so a stuck consumer cannot stall the analyzers or the UI thread publishing mode changes.
+ * A handler that throws is reported and skips only that event. Neither side allocates
+ * per event.
+ */
+public class PipelineEventBus {
+
+    public interface EventHandler {
+        /**
+         * Called on the consumer's thread; {@code event} is only valid until this returns.
+         *
+         * @param endOfBatch Whether no further event is available right now
+         */
+        void onEvent(PipelineEvent event, long sequence, boolean endOfBatch);
+    }
+
+    public interface ErrorListener {
+        /**
+         * Called on the consumer's thread when its handler throws; the consumer goes on
+         * with the next event.
+         */
+        void onHandlerError(String consumer, long sequence, RuntimeException error);
+    }
+
+    /**
+     * How an idle consumer waits for the next event.
+     */
+    public enum WaitStrategy {
+        /** Lowest latency and a whole core burnt, for benchmarks. */
+        BUSY_SPIN,
+        /** Spins, then yields the core to other runnable threads. */
+        YIELDING,
+        /** Spins, yields, then sleeps for short intervals; no producer signal needed. */
+        SLEEPING,
+        /** Parks until the producer wakes it, for consumers that are idle most of the time. */
+        BLOCKING
+    }
+
+    // Longest a publisher waits for a full ring before dropping its event
+    static final long CLAIM_TIMEOUT_NANOS = 100_000_000L;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = 100_000L;
+
+    private final PipelineEvent[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    // Producer state, guarded by this object's monitor
+    private long nextSequence = -1;
+    private long cachedGatingSequence = -1;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile ErrorListener errorListener;
+    // Copy on write; not guarded by the producer's monitor, which may be waiting on a consumer
+    private final Object consumersLock = new Object();
+    private volatile Consumer[] consumers = new Consumer[0];
+
+    /**
+     * @param capacity Number of slots, a power of two
+     */
+    public PipelineEventBus(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        slots = new PipelineEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new PipelineEvent();
+        }
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return The sequence of the last published event, -1 before the first
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * @return Events dropped because a consumer was too far behind
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public void setErrorListener(ErrorListener listener) {
+        this.errorListener = listener;
+    }
+
+    /**
+     * Adds a consumer that starts after the last published event. Call {@link Consumer#start}
+     * or drive {@link Consumer#run} from a thread of your own.
+     */
+    public Consumer subscribe(String name, EventHandler handler, WaitStrategy waitStrategy) {
+        synchronized (consumersLock) {
+            Consumer consumer = new Consumer(name, handler, waitStrategy, cursor.get());
+            Consumer[] updated = Arrays.copyOf(consumers, consumers.length + 1);
+            updated[updated.length - 1] = consumer;
+            consumers = updated;
+            return consumer;
+        }
+    }
+
+    public void unsubscribe(Consumer consumer) {
+        synchronized (consumersLock) {
+            Consumer[] current = consumers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == consumer) {
+                    Consumer[] updated = new Consumer[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    consumers = updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Publishes a frame's overlay boxes, at most {@link PipelineEvent#MAX_BOXES}, with what
+     * to speak about them.
+     *
+     * @param detections   Detections in normalised coordinates; read here and not kept
+     * @param announcement Newly seen objects, or null if nothing is due
+     * @param summary      The frame's summary, or null
+     */
+    public synchronized void publishDetections(long traceId, List<ObjectDetection> detections,
+                                               String announcement, String summary) {
+        long sequence = claim();
+        if (sequence < 0) return;
+        PipelineEvent event = slots[(int) sequence & mask];
+        event.reset(PipelineEvent.DETECTIONS, traceId);
+        event.text = announcement;
+        event.summary = summary;
+        int count = Math.min(detections.size(), PipelineEvent.MAX_BOXES);
+        for (int i = 0; i < count; i++) {
+            ObjectDetection detection = detections.get(i);
+            event.boxes[4 * i] = detection.getLeft();
+            event.boxes[4 * i + 1] = detection.getTop();
+            event.boxes[4 * i + 2] = detection.getRight();
+            event.boxes[4 * i + 3] = detection.getBottom();
+            event.labels[i] = detection.getLabel();
+            event.scores[i] = detection.getConfidence();
+        }
+        event.count = count;
+        publish(sequence, event);
+    }
+
+    /**
+     * @param language Language the text was detected in, or null if unknown
+     */
+    public synchronized void publishText(long traceId, String text, String language) {
+        long sequence = claim();
+        if (sequence < 0) return;
+        PipelineEvent event = slots[(int) sequence & mask];
+        event.reset(PipelineEvent.TEXT, traceId);
+        event.text = text;
+        event.language = language;
+        publish(sequence, event);
+    }
+
+    public synchronized void publishHazard(long traceId, String message) {
+        long sequence = claim();
+        if (sequence < 0) return;
+        PipelineEvent event = slots[(int) sequence & mask];
+        event.reset(PipelineEvent.HAZARD, traceId);
+        event.text = message;
+        publish(sequence, event);
+    }
+
+    public synchronized void publishModeChange(String mode, String language) {
+        long sequence = claim();
+        if (sequence < 0) return;
+        PipelineEvent event = slots[(int) sequence & mask];
+        event.reset(PipelineEvent.MODE_CHANGE, 0);
+        event.text = mode;
+        event.language = language;
+        publish(sequence, event);
+    }
+
+    /**
+     * Called with the monitor held: waits until the next slot is free of every consumer.
+     *
+     * @return The slot's sequence, or -1 if the event was dropped after waiting too long
+     */
+    private long claim() {
+        long sequence = nextSequence + 1;
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > cachedGatingSequence) {
+            long deadline = FrameTracer.now() + CLAIM_TIMEOUT_NANOS;
+            long minimum;
+            while (wrapPoint > (minimum = minimumConsumerSequence(sequence - 1))) {
+                if (FrameTracer.now() - deadline >= 0) {
+                    dropped.incrementAndGet();
+                    return -1;
+                }
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+            cachedGatingSequence = minimum;
+        }
+        nextSequence = sequence;
+        return sequence;
+    }
+
+    private void publish(long sequence, PipelineEvent event) {
+        event.publishNanos = FrameTracer.now();
+        cursor.set(sequence);
+        Consumer[] current = consumers;
+        for (Consumer consumer : current) {
+            if (consumer.waitStrategy == WaitStrategy.BLOCKING) {
+                Thread waiter = consumer.waiter;
+                if (waiter != null) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+    }
+
+    private long minimumConsumerSequence(long fallback) {
+        long minimum = fallback;
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * One consumer's position in the ring and the loop that hands it events.
+     */
+    public final class Consumer implements Runnable {
+        private final String name;
+        private final EventHandler handler;
+        private final AtomicLong errors = new AtomicLong();
+        final WaitStrategy waitStrategy;
+        final AtomicLong sequence;
+        volatile Thread waiter;
+        private volatile boolean running = true;
+        private volatile Thread thread;
+
+        Consumer(String name, EventHandler handler, WaitStrategy waitStrategy, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.waitStrategy = waitStrategy;
+            this.sequence = new AtomicLong(start);
+        }
+
+        public Thread start() {
+            Thread started = new Thread(this, name);
+            started.setDaemon(true);
+            thread = started;
+            started.start();
+            return started;
+        }
+
+        /**
+         * Stops after the event in hand, waits for the thread started by {@link #start}
+         * and releases the consumer's hold on the ring.
+         */
+        public void halt() {
+            running = false;
+            Thread started = thread;
+            if (started != null) {
+                LockSupport.unpark(started);
+                try {
+                    started.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            unsubscribe(this);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (running) {
+                long available = waitFor(next);
+                if (available < next) continue;
+                for (long s = next; s <= available; s++) {
+                    try {
+                        handler.onEvent(slots[(int) s & mask], s, s == available);
+                    } catch (RuntimeException e) {
+                        reportError(s, e);
+                    }
+                }
+                // Frees the handled slots for the producer
+                sequence.lazySet(available);
+                next = available + 1;
+            }
+        }
+
+        private void reportError(long s, RuntimeException error) {
+            errors.incrementAndGet();
+            ErrorListener listener = errorListener;
+            if (listener != null) {
+                listener.onHandlerError(name, s, error);
+            }
+        }
+
+        /**
+         * @return The highest published sequence, or less than {@code next} once halted
+         */
+        private long waitFor(long next) {
+            int tries = 0;
+            long available;
+            while ((available = cursor.get()) < next && running) {
+                switch (waitStrategy) {
+                    case BUSY_SPIN:
+                        break;
+                    case YIELDING:
+                        if (++tries > SPIN_TRIES) Thread.yield();
+                        break;
+                    case SLEEPING:
+                        if (++tries > SPIN_TRIES + YIELD_TRIES) {
+                            LockSupport.parkNanos(SLEEP_NANOS);
+                        } else if (tries > SPIN_TRIES) {
+                            Thread.yield();
+                        }
+                        break;
+                    case BLOCKING:
+                        waiter = Thread.currentThread();
+                        // The producer may have published before it could see the waiter
+                        if (cursor.get() < next && running) {
+                            LockSupport.park(this);
+                        }
+                        waiter = null;
+                        break;
+                }
+            }
+            return available;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSequence() {
+            return sequence.get();
+        }
+
+        /**
+         * @return Events whose handler threw
+         */
+        public long getErrorCount() {
+            return errors.get();
+        }
+
+        /**
+         * @return Events published but not yet handled by this consumer
+         */
+        public long getLag() {
+            return cursor.get() - sequence.get();
+        }
+    }
+}
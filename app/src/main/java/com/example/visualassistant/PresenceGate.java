@@ -0,0 +1,26 @@
+package com.example.visualassistant;
+
+/**
+ * First stage of a {@link CascadeDetector}: a cheap check of whether a frame may
+ * contain anything worth running the full detector on. Implementations:
+ * {@link LumaChangeGate}, stubs in host tests.
+ */
+public interface PresenceGate {
+
+    /**
+     * @param frame The frame in YUV form
+     * @param argb  The same frame converted to unrotated ARGB pixels, or null when the
+     *              detector behind the gate does not use them
+     * @return How likely the frame holds something relevant, from 0 to 1
+     */
+    float score(YuvFrame frame, int[] argb) throws Exception;
+
+    /**
+     * Called after the full detector ran on the frame last scored, whether the gate
+     * passed it or a refresh forced it.
+     */
+    default void onDetectorRun() {
+    }
+
+    void close();
+}
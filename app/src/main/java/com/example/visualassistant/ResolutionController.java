@@ -0,0 +1,214 @@
+package com.example.visualassistant;
+
+/**
+ * Picks the analysis resolution from a fixed ladder of sizes, per mode.
+ *
+ * Each mode has a {@link Profile}: the rungs it may use and the per-frame latency it
+ * can afford. Every mode starts from the same rung and a mode switch keeps the current
+ * one when the new mode allows it, so switching does not rebind the camera; the
+ * controller adapts from there. The analyzers report how long each frame took
+ * and, when reading, how tall the recognised text lines were. The controller steps
+ * down when the smoothed latency stays over budget, and steps up only when the next
+ * rung is predicted to fit and the task can use it: small text lines for reading,
+ * spare time for the other modes. Large text lets reading step down again.
+ *
+ * To avoid thrashing, a step needs several consecutive agreeing evaluations, no
+ * step is taken within {@link #MIN_DWELL_NANOS} of the previous one, and samples
+ * from frames that started before the last change are ignored.
+ *
+ * Callers supply the clock, so the controller can be driven in host tests.
+ */
+public class ResolutionController {
+
+    // Analysis sizes in sensor orientation, 4:3 like the camera's native output
+    static final int[] LADDER_WIDTHS = {320, 480, 640, 960, 1280};
+    static final int[] LADDER_HEIGHTS = {240, 360, 480, 720, 960};
+
+    static final int START_RUNG = 2;
+    static final long MIN_DWELL_NANOS = 2_000_000_000L;
+    static final int STEP_DOWN_AFTER = 2;
+    static final int STEP_UP_AFTER = 3;
+    // The next rung must be predicted to take less than this share of the budget
+    static final float STEP_UP_HEADROOM = 0.8f;
+    private static final float LATENCY_SMOOTHING = 0.3f;
+
+    // Median text line height as a fraction of the upright frame height
+    static final float SMALL_TEXT_LINE = 0.035f;
+    static final float LARGE_TEXT_LINE = 0.1f;
+
+    public enum Profile {
+        // Obstacles are large and the corridor crop zooms in; speed matters most
+        NAVIGATION(0, 2, 150, false),
+        // The detector scales every frame to its input size, so more pixels buy little
+        OBJECT_DETECTION(0, 2, 300, false),
+        TEXT_RECOGNITION(1, 4, 1000, true),
+        DESCRIBE(1, 3, 1500, true);
+
+        final int minRung;
+        final int maxRung;
+        final long budgetNanos;
+        final boolean textDriven;
+
+        Profile(int minRung, int maxRung, long budgetMillis, boolean textDriven) {
+            this.minRung = minRung;
+            this.maxRung = maxRung;
+            this.budgetNanos = budgetMillis * 1_000_000L;
+            this.textDriven = textDriven;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called on the thread that reported the frame which caused the change,
+         * or on the caller of {@link #setProfile}.
+         */
+        void onResolutionChanged(int width, int height);
+    }
+
+    private Listener listener;
+    private Profile profile = Profile.OBJECT_DETECTION;
+    private int rung = START_RUNG;
+
+    private long lastChangeNanos = Long.MIN_VALUE / 2;
+    private long latencyEwmaNanos = -1;
+    private int overBudgetCount;
+    private int underBudgetCount;
+    // +1 text too small to read well, -1 larger than needed, 0 unknown
+    private int textNeed;
+    private long switchCount;
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Switches to a mode's profile, keeping the current rung if the profile allows it.
+     * Latency measured in the previous mode is discarded.
+     */
+    public synchronized void setProfile(Profile profile, long nowNanos) {
+        if (profile == this.profile) return;
+        this.profile = profile;
+        textNeed = 0;
+        changeRung(rung, nowNanos);
+    }
+
+    public synchronized Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Reports one processed frame.
+     *
+     * @param startNanos When the analyzer started on the frame; frames started before
+     *                   the last resolution change are ignored.
+     */
+    public synchronized void onFrameProcessed(long startNanos, long endNanos) {
+        if (startNanos < lastChangeNanos) return;
+        long latency = endNanos - startNanos;
+        latencyEwmaNanos = latencyEwmaNanos < 0 ? latency
+                : (long) (latencyEwmaNanos + LATENCY_SMOOTHING * (latency - latencyEwmaNanos));
+        evaluate(endNanos);
+    }
+
+    /**
+     * Reports the median height of the text lines found in the last frame.
+     *
+     * @param lineHeight Fraction of the upright frame height, or negative if no text was found.
+     */
+    public synchronized void onTextLineHeight(float lineHeight) {
+        if (lineHeight < 0) {
+            textNeed = 0;
+        } else if (lineHeight < SMALL_TEXT_LINE) {
+            textNeed = 1;
+        } else if (lineHeight > LARGE_TEXT_LINE) {
+            textNeed = -1;
+        } else {
+            textNeed = 0;
+        }
+    }
+
+    private void evaluate(long nowNanos) {
+        long budget = profile.budgetNanos;
+        if (latencyEwmaNanos > budget) {
+            overBudgetCount++;
+            underBudgetCount = 0;
+        } else if (wantsStepUp(budget)) {
+            underBudgetCount++;
+            overBudgetCount = 0;
+        } else if (profile.textDriven && textNeed < 0) {
+            // Text is larger than needed: counts towards stepping down to save time
+            overBudgetCount++;
+            underBudgetCount = 0;
+        } else {
+            overBudgetCount = 0;
+            underBudgetCount = 0;
+        }
+
+        if (nowNanos - lastChangeNanos < MIN_DWELL_NANOS) return;
+        if (overBudgetCount >= STEP_DOWN_AFTER && rung > profile.minRung) {
+            changeRung(rung - 1, nowNanos);
+        } else if (underBudgetCount >= STEP_UP_AFTER && rung < profile.maxRung) {
+            changeRung(rung + 1, nowNanos);
+        }
+    }
+
+    private boolean wantsStepUp(long budget) {
+        if (rung >= profile.maxRung) return false;
+        if (profile.textDriven && textNeed <= 0) return false;
+        // Per-frame cost is assumed to grow with the pixel count, which overestimates
+        // model time for detectors with a fixed input size: the safe direction
+        float areaRatio = (float) pixels(rung + 1) / pixels(rung);
+        return latencyEwmaNanos * areaRatio < budget * STEP_UP_HEADROOM;
+    }
+
+    private void changeRung(int newRung, long nowNanos) {
+        newRung = Math.max(profile.minRung, Math.min(profile.maxRung, newRung));
+        lastChangeNanos = nowNanos;
+        latencyEwmaNanos = -1;
+        overBudgetCount = 0;
+        underBudgetCount = 0;
+        if (newRung == rung) return;
+        rung = newRung;
+        switchCount++;
+        if (listener != null) {
+            listener.onResolutionChanged(getWidth(), getHeight());
+        }
+    }
+
+    private static int pixels(int rung) {
+        return LADDER_WIDTHS[rung] * LADDER_HEIGHTS[rung];
+    }
+
+    public synchronized int getWidth() {
+        return LADDER_WIDTHS[rung];
+    }
+
+    public synchronized int getHeight() {
+        return LADDER_HEIGHTS[rung];
+    }
+
+    public synchronized int getRung() {
+        return rung;
+    }
+
+    /**
+     * @return Number of resolution changes since creation.
+     */
+    public synchronized long getSwitchCount() {
+        return switchCount;
+    }
+
+    /**
+     * @return Smoothed per-frame latency at the current resolution, or -1 before the first sample.
+     */
+    public synchronized long getLatencyEwmaNanos() {
+        return latencyEwmaNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return profile + " " + getWidth() + "x" + getHeight()
+                + " (latency " + (latencyEwmaNanos < 0 ? "-" : latencyEwmaNanos / 1_000_000L + " ms")
+                + ", budget " + profile.budgetNanos / 1_000_000L + " ms, " + switchCount + " switches)";
+    }
+}
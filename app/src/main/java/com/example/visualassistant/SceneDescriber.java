@@ -0,0 +1,336 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs object detection and text recognition on the same converted frame and
+ * merges both into one spoken description.
+ *
+ * The frame is converted once by the caller and shared by reference count; the
+ * detector and the recognizer each run on their own worker, so a description
+ * costs roughly as much as the slower of the two rather than their sum. The two
+ * workers get a fair share of the device: each has at most one job, and a new
+ * frame is only admitted once both have finished the previous one, so neither
+ * model can queue up work while the other is starved.
+ */
+public class SceneDescriber {
+
+    private static final int MAX_DESCRIBED_OBJECTS = 3;
+
+    public interface Listener {
+        /**
+         * Called on whichever worker finishes last.
+         */
+        void onSceneDescribed(Description description);
+    }
+
+    /**
+     * One merged scene description and what it cost.
+     */
+    public static class Description {
+        public final long traceId;
+        public final String text;
+        /** Normalised overlay boxes, owned by the receiver. */
+        public final List<ObjectDetection> detections;
+        public final long detectionNanos;
+        public final long recognitionNanos;
+        /** Submission to merge; close to max(detection, recognition) when both run in parallel. */
+        public final long wallNanos;
+        /** Median text line height from {@link TextRecognizerBackend#getLastLineHeight}, or -1. */
+        public final float textLineHeight;
+        /** Why detection or recognition failed on this frame, or null; the other's result is still used. */
+        public final Exception detectionError;
+        public final Exception recognitionError;
+
+        Description(long traceId, String text, List<ObjectDetection> detections,
+                    long detectionNanos, long recognitionNanos, long wallNanos, float textLineHeight,
+                    Exception detectionError, Exception recognitionError) {
+            this.traceId = traceId;
+            this.text = text;
+            this.detections = detections;
+            this.detectionNanos = detectionNanos;
+            this.recognitionNanos = recognitionNanos;
+            this.wallNanos = wallNanos;
+            this.textLineHeight = textLineHeight;
+            this.detectionError = detectionError;
+            this.recognitionError = recognitionError;
+        }
+    }
+
+    private final Executor detectionExecutor;
+    private final Executor recognitionExecutor;
+    private final DetectionPostProcessor postProcessor = new DetectionPostProcessor();
+    private final FrameTracer tracer = FrameTracer.getInstance();
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    private volatile DetectorBackend detectorBackend;
+    private volatile TextRecognizerBackend textRecognizerBackend;
+    private volatile String currentLanguage = TextAnnouncer.ENGLISH;
+
+    public SceneDescriber(Executor detectionExecutor, Executor recognitionExecutor) {
+        this.detectionExecutor = detectionExecutor;
+        this.recognitionExecutor = recognitionExecutor;
+    }
+
+    public void setDetectorBackend(DetectorBackend backend) {
+        this.detectorBackend = backend;
+    }
+
+    public void setTextRecognizerBackend(TextRecognizerBackend backend) {
+        this.textRecognizerBackend = backend;
+    }
+
+    /**
+     * Closes the detector; call on the detection worker so it cannot overlap a frame.
+     */
+    public void closeDetectorBackend() {
+        DetectorBackend backend = detectorBackend;
+        detectorBackend = null;
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+    /**
+     * Closes the recognizer; call on the recognition worker so it cannot overlap a frame.
+     */
+    public void closeTextRecognizerBackend() {
+        TextRecognizerBackend backend = textRecognizerBackend;
+        textRecognizerBackend = null;
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+    /**
+     * @param language ENGLISH, HINDI or MARATHI
+     */
+    public void setCurrentLanguage(String language) {
+        this.currentLanguage = language;
+        postProcessor.setCurrentLanguage(language);
+    }
+
+    /**
+     * @return Whether the detector reads ARGB pixels, so frames should be converted
+     *         before {@link #describe}
+     */
+    public boolean usesArgb() {
+        DetectorBackend detector = detectorBackend;
+        return detector != null && detector.usesArgb();
+    }
+
+    /**
+     * @return True while a frame is being described; further frames are refused.
+     */
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    /**
+     * Describes a converted frame. Takes over the caller's reference to {@code frame}
+     * and releases it in every case.
+     *
+     * @return False if the previous frame is still being described, or if no backend is ready
+     */
+    public boolean describe(SharedFrame frame, long traceId, Listener listener) {
+        DetectorBackend detector = detectorBackend;
+        TextRecognizerBackend recognizer = textRecognizerBackend;
+        if ((detector == null && recognizer == null) || !busy.compareAndSet(false, true)) {
+            frame.release();
+            return false;
+        }
+
+        Job job = new Job(frame, traceId, listener);
+        // One reference per worker; the caller's reference is dropped at the end
+        frame.retain();
+        try {
+            detectionExecutor.execute(() -> job.detect(detector));
+        } catch (RejectedExecutionException e) {
+            job.skip();
+        }
+        frame.retain();
+        try {
+            recognitionExecutor.execute(() -> job.recognize(recognizer));
+        } catch (RejectedExecutionException e) {
+            job.skip();
+        }
+        frame.release();
+        return true;
+    }
+
+    /**
+     * Runs each backend once on a blank frame on its own worker, so the first description
+     * does not pay for lazy model initialisation. Steps not yet started when
+     * {@code cancelled} reports true are skipped.
+     */
+    public void warmUp(int width, int height, BooleanSupplier cancelled) {
+        try {
+            detectionExecutor.execute(() -> {
+                DetectorBackend detector = detectorBackend;
+                if (detector == null || cancelled.getAsBoolean()) return;
+                YuvFrame blank = YuvFrame.gray(width, height);
+                int[] argb = null;
+                if (detector.usesArgb()) {
+                    argb = new int[width * height];
+                    YuvConverter.yuvToArgb(blank, argb);
+                }
+                try {
+                    detector.detect(blank, argb);
+                } catch (Exception e) {
+                    // The first real frame reports it
+                }
+            });
+            recognitionExecutor.execute(() -> {
+                TextRecognizerBackend recognizer = textRecognizerBackend;
+                if (recognizer == null || cancelled.getAsBoolean()) return;
+                try {
+                    recognizer.recognize(YuvFrame.gray(width, height));
+                } catch (Exception e) {
+                    // The first real frame reports it
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private final class Job {
+        private final SharedFrame frame;
+        private final long traceId;
+        private final Listener listener;
+        private final long startNanos = FrameTracer.now();
+        private final AtomicInteger pending = new AtomicInteger(2);
+
+        // Each written by one worker, read after both have counted down
+        private volatile String objectsSentence;
+        private volatile List<ObjectDetection> detections = Collections.emptyList();
+        private volatile long detectionNanos;
+        private volatile String recognizedText = "";
+        private volatile long recognitionNanos;
+        private volatile float textLineHeight = -1f;
+        private volatile Exception detectionError;
+        private volatile Exception recognitionError;
+
+        Job(SharedFrame frame, long traceId, Listener listener) {
+            this.frame = frame;
+            this.traceId = traceId;
+            this.listener = listener;
+        }
+
+        void detect(DetectorBackend detector) {
+            long start = FrameTracer.now();
+            try {
+                if (detector != null) {
+                    YuvFrame yuv = frame.yuv;
+                    int[] argb = null;
+                    if (detector.usesArgb()) {
+                        // Converted here if the detector changed after the frame was taken
+                        if (!frame.hasArgb()) {
+                            frame.convert();
+                        }
+                        argb = frame.argb;
+                    }
+                    List<ObjectDetection> results = detector.detect(yuv, argb);
+                    postProcessor.process(results, yuv.orientedWidth(), yuv.orientedHeight(),
+                            yuv.timestampNanos / 1_000_000L, false);
+                    List<ObjectDetection> overlay = postProcessor.getOverlayResults();
+                    List<ObjectDetection> copies = new ArrayList<>(overlay.size());
+                    for (ObjectDetection detection : overlay) {
+                        copies.add(new ObjectDetection(detection));
+                    }
+                    detections = copies;
+                    objectsSentence = objectsSentence(copies);
+                }
+            } catch (Exception e) {
+                detectionError = e;
+            } finally {
+                long end = FrameTracer.now();
+                detectionNanos = end - start;
+                tracer.record(traceId, FrameTracer.SPAN_INFERENCE, start, end);
+                frame.release();
+                finishOne();
+            }
+        }
+
+        void recognize(TextRecognizerBackend recognizer) {
+            long start = FrameTracer.now();
+            try {
+                if (recognizer != null) {
+                    String text = recognizer.recognize(frame.yuv);
+                    recognizedText = text != null ? text.trim() : "";
+                    textLineHeight = recognizer.getLastLineHeight();
+                }
+            } catch (Exception e) {
+                recognitionError = e;
+            } finally {
+                long end = FrameTracer.now();
+                recognitionNanos = end - start;
+                tracer.record(traceId, FrameTracer.SPAN_OCR, start, end);
+                frame.release();
+                finishOne();
+            }
+        }
+
+        // The worker could not be scheduled (executor shut down)
+        void skip() {
+            frame.release();
+            finishOne();
+        }
+
+        private void finishOne() {
+            if (pending.decrementAndGet() != 0) {
+                return;
+            }
+            long messageStart = FrameTracer.now();
+            String text = merge(objectsSentence, recognizedText);
+            tracer.record(traceId, FrameTracer.SPAN_MESSAGE, messageStart, FrameTracer.now());
+
+            Description description = new Description(traceId, text, detections,
+                    detectionNanos, recognitionNanos, FrameTracer.now() - startNanos, textLineHeight,
+                    detectionError, recognitionError);
+            busy.set(false);
+            if (listener != null) {
+                listener.onSceneDescribed(description);
+            }
+        }
+    }
+
+    // "I can see a, b, c" for up to three distinct labels, or the no-object message
+    private String objectsSentence(List<ObjectDetection> detections) {
+        if (detections.isEmpty()) {
+            return postProcessor.getSummary();
+        }
+        StringBuilder message = new StringBuilder("I can see ");
+        List<String> labels = new ArrayList<>(MAX_DESCRIBED_OBJECTS);
+        for (ObjectDetection detection : detections) {
+            if (labels.contains(detection.getLabel())) continue;
+            if (!labels.isEmpty()) message.append(", ");
+            message.append(detection.getLabel());
+            labels.add(detection.getLabel());
+            if (labels.size() == MAX_DESCRIBED_OBJECTS) break;
+        }
+        return postProcessor.translateOutput(message.toString());
+    }
+
+    private String merge(String objects, String text) {
+        StringBuilder description = new StringBuilder();
+        if (objects != null) {
+            description.append(objects);
+        }
+        if (!text.isEmpty()) {
+            if (description.length() > 0) description.append(". ");
+            description.append(TextAnnouncer.buildAnnouncement(text, currentLanguage));
+        }
+        if (description.length() == 0) {
+            description.append(TextAnnouncer.NO_TEXT_MESSAGE);
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.visualassistant;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in recorder that captures analysis frames, detections and announcements into
+ * {@link FrameContainer} files for later replay.
+ *
+ * Analyzer threads only copy planes into a pooled frame and enqueue it; encoding
+ * and file I/O happen on a dedicated writer thread. When the writer falls behind
+ * and the pool is empty, frames are dropped rather than stalling the camera.
+ * Files are rotated at {@code maxFileBytes} and the oldest are deleted once more
+ * than {@code maxFiles} exist. Each recording session has its own queue and writer
+ * thread, so stopping never waits for the writer and a new session can start while
+ * the previous one is still flushing.
+ */
+public class SessionRecorder {
+    private static final String TAG = "SessionRecorder";
+
+    public static final String FILE_PREFIX = "session-";
+    public static final String FILE_SUFFIX = ".vafr";
+
+    private static final int FRAME_POOL_SIZE = 3;
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final long frameIntervalNanos;
+    private final int chromaShift;
+
+    private final BlockingQueue<YuvFrame> framePool = new ArrayBlockingQueue<>(FRAME_POOL_SIZE);
+
+    private final AtomicLong recordedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    // The session being recorded, null while not recording
+    private volatile Session session;
+    private volatile long lastSampledNanos = Long.MIN_VALUE / 2;
+    // Writer threads of sessions that may still be flushing
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private long lastStartMillis;
+
+    public interface ErrorListener {
+        /**
+         * Called on the writer thread. Recording stops after an error while writing, or
+         * an unexpected exception, and carries on after one while closing or deleting
+         * old files.
+         */
+        void onRecordingError(String message, Exception cause);
+    }
+
+    private volatile ErrorListener errorListener;
+    private final AtomicLong errors = new AtomicLong();
+
+    private static class Entry {
+        final byte type;
+        final long timestampNanos;
+        final YuvFrame frame;
+        final List<ObjectDetection> detections;
+        final String text;
+
+        Entry(byte type, long timestampNanos, YuvFrame frame, List<ObjectDetection> detections, String text) {
+            this.type = type;
+            this.timestampNanos = timestampNanos;
+            this.frame = frame;
+            this.detections = detections;
+            this.text = text;
+        }
+    }
+
+    /**
+     * @param directory       Where recordings are written
+     * @param maxFileBytes    Size at which a new file is started
+     * @param maxFiles        Number of files kept; older ones are deleted
+     * @param frameIntervalMs Minimum frame-time gap between recorded frames
+     * @param chromaShift     0 to record luma only, 1 for full 4:2:0 chroma, 2+ for subsampled chroma
+     */
+    public SessionRecorder(File directory, long maxFileBytes, int maxFiles, long frameIntervalMs, int chromaShift) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.frameIntervalNanos = frameIntervalMs * 1_000_000L;
+        this.chromaShift = chromaShift;
+        for (int i = 0; i < FRAME_POOL_SIZE; i++) {
+            framePool.add(new YuvFrame());
+        }
+    }
+
+    public void setErrorListener(ErrorListener listener) {
+        this.errorListener = listener;
+    }
+
+    public synchronized void start() {
+        if (session != null) return;
+        // Distinct even for a quick restart, as the previous session may still be writing
+        lastStartMillis = Math.max(System.currentTimeMillis(), lastStartMillis + 1);
+        Session started = new Session(lastStartMillis);
+        session = started;
+        Thread writerThread = new Thread(started, TAG);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThreads.removeIf(thread -> !thread.isAlive());
+        writerThreads.add(writerThread);
+        writerThread.start();
+    }
+
+    /**
+     * Stops recording without waiting: the writer thread flushes everything already
+     * queued and closes the file on its own.
+     */
+    public synchronized void stop() {
+        Session stopped = session;
+        if (stopped == null) return;
+        session = null;
+        stopped.stopping = true;
+    }
+
+    /**
+     * Waits for the writers of stopped sessions to finish, for tests and tooling that
+     * read the files right after {@link #stop}.
+     *
+     * @return Whether every writer finished in time
+     */
+    boolean awaitWriters(long timeoutMillis) throws InterruptedException {
+        List<Thread> threads;
+        synchronized (this) {
+            threads = new ArrayList<>(writerThreads);
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (thread.isAlive()) return false;
+        }
+        return true;
+    }
+
+    public boolean isRecording() {
+        return session != null;
+    }
+
+    /**
+     * Returns a pooled frame to copy the current image into, or null if this frame
+     * should not be recorded (not sampled, not recording, or the writer is behind).
+     * A non-null frame must be handed back through {@link #submitFrame}.
+     */
+    public YuvFrame acquireFrame(long timestampNanos) {
+        if (session == null || timestampNanos - lastSampledNanos < frameIntervalNanos) {
+            return null;
+        }
+        YuvFrame frame = framePool.poll();
+        if (frame == null) {
+            droppedFrames.incrementAndGet();
+            return null;
+        }
+        lastSampledNanos = timestampNanos;
+        return frame;
+    }
+
+    public void submitFrame(YuvFrame frame) {
+        Session current = session;
+        Entry entry = new Entry(FrameContainer.RECORD_FRAME, frame.timestampNanos, frame, null, null);
+        // A session stopped meanwhile may have drained its queue for the last time
+        if (current == null || !current.queue.offer(entry) || (current.finished && current.queue.remove(entry))) {
+            droppedFrames.incrementAndGet();
+            framePool.offer(frame);
+        }
+    }
+
+    /**
+     * @param detections Detections with boxes normalised to 0..1
+     */
+    public void recordDetections(long timestampNanos, List<ObjectDetection> detections) {
+        Session current = session;
+        if (current == null) return;
+        // Entries may be pooled by the caller and overwritten before the writer gets to them
+        List<ObjectDetection> copy = new ArrayList<>(detections.size());
+        for (ObjectDetection detection : detections) {
+            copy.add(new ObjectDetection(detection));
+        }
+        current.queue.offer(new Entry(FrameContainer.RECORD_DETECTIONS, timestampNanos, null, copy, null));
+    }
+
+    public void recordAnnouncement(long timestampNanos, String text) {
+        Session current = session;
+        if (current == null || text == null) return;
+        current.queue.offer(new Entry(FrameContainer.RECORD_ANNOUNCEMENT, timestampNanos, null, null, text));
+    }
+
+    public long getRecordedFrames() {
+        return recordedFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    private void reportError(String message, Exception cause) {
+        errors.incrementAndGet();
+        ErrorListener listener = errorListener;
+        if (listener != null) {
+            listener.onRecordingError(message, cause);
+        }
+    }
+
+    // Ends the session after a failure, unless it has already been stopped or replaced
+    private synchronized void endSession(Session failed) {
+        failed.stopping = true;
+        if (session == failed) {
+            session = null;
+        }
+    }
+
+    /**
+     * One recording session: its queue and the writer thread's file state.
+     */
+    private final class Session implements Runnable {
+        final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final long startMillis;
+        volatile boolean stopping;
+        // Set before the final drain, once nothing more will be written
+        volatile boolean finished;
+
+        // Writer thread state
+        private FrameContainer.Writer writer;
+        private int fileIndex = 0;
+
+        Session(long startMillis) {
+            this.startMillis = startMillis;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopping || !queue.isEmpty()) {
+                    Entry entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (entry == null) continue;
+                    try {
+                        write(entry);
+                    } finally {
+                        if (entry.frame != null) {
+                            framePool.offer(entry.frame);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                reportError("Recording stopped: " + e.getMessage(), e);
+                endSession(this);
+            } finally {
+                closeWriter();
+                finished = true;
+                // Frames still queued after a failure go back to the pool
+                Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    if (entry.frame != null) {
+                        framePool.offer(entry.frame);
+                    }
+                }
+            }
+        }
+
+        private void write(Entry entry) throws IOException {
+            long recordSize = FrameContainer.RECORD_HEADER_SIZE + (entry.frame != null
+                    ? FrameContainer.framePayloadSize(entry.frame.width, entry.frame.height, chromaShift)
+                    : 0);
+            // A record larger than the cap still goes into a fresh file on its own
+            if (writer == null || (writer.getBytesWritten() > FrameContainer.FILE_HEADER_SIZE
+                    && writer.getBytesWritten() + recordSize > maxFileBytes)) {
+                rotate();
+            }
+
+            long before = writer.getBytesWritten();
+            switch (entry.type) {
+                case FrameContainer.RECORD_FRAME:
+                    writer.writeFrame(entry.frame, chromaShift);
+                    recordedFrames.incrementAndGet();
+                    break;
+                case FrameContainer.RECORD_DETECTIONS:
+                    writer.writeDetections(entry.timestampNanos, entry.detections);
+                    break;
+                default:
+                    writer.writeAnnouncement(entry.timestampNanos, entry.text);
+                    break;
+            }
+            bytesWritten.addAndGet(writer.getBytesWritten() - before);
+        }
+
+        private void rotate() throws IOException {
+            closeWriter();
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            File file = new File(directory, FILE_PREFIX + startMillis + "-" + (fileIndex++) + FILE_SUFFIX);
+            // Append-only: the channel is opened in append mode and never seeks
+            writer = new FrameContainer.Writer(new FileOutputStream(file, true).getChannel());
+            bytesWritten.addAndGet(FrameContainer.FILE_HEADER_SIZE);
+            deleteOldRecordings();
+        }
+
+        private void closeWriter() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    reportError("Error closing recording: " + e.getMessage(), e);
+                }
+                writer = null;
+            }
+        }
+    }
+
+    private void deleteOldRecordings() {
+        List<File> recordings = listRecordings(directory);
+        for (int i = 0; i < recordings.size() - maxFiles; i++) {
+            if (!recordings.get(i).delete()) {
+                reportError("Could not delete " + recordings.get(i), null);
+            }
+        }
+    }
+
+    /**
+     * @return Recordings in the directory, oldest first, for replay tooling.
+     */
+    public static List<File> listRecordings(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        List<File> recordings = new ArrayList<>();
+        if (files == null) {
+            return recordings;
+        }
+        Arrays.sort(files, (a, b) -> compareNames(a.getName(), b.getName()));
+        recordings.addAll(Arrays.asList(files));
+        return recordings;
+    }
+
+    // Orders "session-<start>-<index>" by start time, then numerically so index 10 sorts after 9
+    static int compareNames(String a, String b) {
+        long[] keyA = parseName(a);
+        long[] keyB = parseName(b);
+        if (keyA == null || keyB == null) {
+            // Names we did not write sort first, by name, and are deleted first
+            return keyA != null ? 1 : keyB != null ? -1 : a.compareTo(b);
+        }
+        int byStart = Long.compare(keyA[0], keyB[0]);
+        return byStart != 0 ? byStart : Long.compare(keyA[1], keyB[1]);
+    }
+
+    /**
+     * @return Start time and index of a recording's file name, or null if not one of ours
+     */
+    private static long[] parseName(String name) {
+        String key = name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length());
+        int dash = key.lastIndexOf('-');
+        if (dash <= 0) return null;
+        try {
+            return new long[]{Long.parseLong(key.substring(0, dash)), Long.parseLong(key.substring(dash + 1))};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
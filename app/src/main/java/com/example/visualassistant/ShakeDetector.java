@@ -0,0 +1,125 @@
+package com.example.visualassistant;
+
+/**
+ * Recognises a deliberate shake of the phone, the SOS gesture, from raw accelerometer
+ * samples at game rate.
+ *
+ * Gravity is tracked with a low-pass filter and subtracted, and the magnitude of the
+ * remaining linear acceleration goes into a fixed ring of primitive samples. A peak is
+ * a rise above {@link #PEAK_THRESHOLD} after falling below {@link #RELEASE_THRESHOLD};
+ * {@link #REQUIRED_PEAKS} peaks within {@link #WINDOW_NANOS} fire. A hard shake peaks
+ * twice per back-and-forth, so it fires within about 300 ms, while walking stays well
+ * under the threshold and a single knock or drop gives only one peak. Nothing is
+ * allocated per sample.
+ */
+public class ShakeDetector {
+
+    // In m/s^2 of linear acceleration
+    static final float PEAK_THRESHOLD = 13f;
+    static final float RELEASE_THRESHOLD = 6f;
+    static final int REQUIRED_PEAKS = 3;
+    static final long WINDOW_NANOS = 500_000_000L;
+    static final long COOLDOWN_NANOS = 3_000_000_000L;
+
+    // Time constant of the gravity estimate; a gap longer than MAX_GAP restarts it
+    private static final float GRAVITY_TAU_NANOS = 300_000_000f;
+    private static final long MAX_GAP_NANOS = 200_000_000L;
+    // 1 s at the fastest sensor rates
+    private static final int CAPACITY = 512;
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] magnitudes = new float[CAPACITY];
+    private int head;
+    private int size;
+
+    private float gravityX;
+    private float gravityY;
+    private float gravityZ;
+    private long lastSampleNanos = Long.MIN_VALUE;
+    // Peaks at or before this time were already used or belong to an old gesture
+    private long ignoreUntilNanos = Long.MIN_VALUE;
+    private int fireCount;
+
+    /**
+     * @param timestampNanos Sensor event timestamp
+     * @return Whether this sample completes a shake
+     */
+    public boolean onSample(long timestampNanos, float x, float y, float z) {
+        long gap = timestampNanos - lastSampleNanos;
+        if (lastSampleNanos == Long.MIN_VALUE || gap > MAX_GAP_NANOS || gap < 0) {
+            // First sample, or the sensor was paused: start again from here
+            gravityX = x;
+            gravityY = y;
+            gravityZ = z;
+            size = 0;
+        } else {
+            float alpha = gap / (GRAVITY_TAU_NANOS + gap);
+            gravityX += alpha * (x - gravityX);
+            gravityY += alpha * (y - gravityY);
+            gravityZ += alpha * (z - gravityZ);
+        }
+        lastSampleNanos = timestampNanos;
+
+        float linearX = x - gravityX;
+        float linearY = y - gravityY;
+        float linearZ = z - gravityZ;
+        float magnitude = (float) Math.sqrt(linearX * linearX + linearY * linearY + linearZ * linearZ);
+
+        head = (head + 1) & (CAPACITY - 1);
+        times[head] = timestampNanos;
+        magnitudes[head] = magnitude;
+        if (size < CAPACITY) size++;
+
+        if (magnitude < PEAK_THRESHOLD || timestampNanos < ignoreUntilNanos) {
+            return false;
+        }
+        if (countPeaks(timestampNanos) < REQUIRED_PEAKS) {
+            return false;
+        }
+        fireCount++;
+        ignoreUntilNanos = timestampNanos + COOLDOWN_NANOS;
+        return true;
+    }
+
+    /**
+     * Rising edges above the peak threshold within the window ending at {@code nowNanos},
+     * walking the ring from the newest sample back.
+     */
+    private int countPeaks(long nowNanos) {
+        long windowStart = Math.max(nowNanos - WINDOW_NANOS, ignoreUntilNanos);
+        int peaks = 0;
+        boolean high = false;
+        int index = head;
+        for (int i = 0; i < size; i++) {
+            if (times[index] < windowStart) break;
+            float magnitude = magnitudes[index];
+            if (magnitude >= PEAK_THRESHOLD) {
+                if (!high) {
+                    high = true;
+                    peaks++;
+                }
+            } else if (magnitude < RELEASE_THRESHOLD) {
+                high = false;
+            }
+            index = (index - 1) & (CAPACITY - 1);
+        }
+        return peaks;
+    }
+
+    /**
+     * @return Magnitude of linear acceleration in the newest sample, in m/s^2
+     */
+    public float getLastMagnitude() {
+        return size == 0 ? 0f : magnitudes[head];
+    }
+
+    public int getFireCount() {
+        return fireCount;
+    }
+
+    public void reset() {
+        size = 0;
+        lastSampleNanos = Long.MIN_VALUE;
+        ignoreUntilNanos = Long.MIN_VALUE;
+    }
+}
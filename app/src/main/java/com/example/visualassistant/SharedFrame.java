@@ -0,0 +1,101 @@
+package com.example.visualassistant;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A converted frame (YUV planes plus ARGB pixels, if a consumer reads them) shared by
+ * several workers.
+ *
+ * The frame is converted once and handed to each consumer with {@link #retain()};
+ * every holder calls {@link #release()} when done and the last release returns the
+ * buffers to the pool they came from.
+ */
+public final class SharedFrame {
+
+    public final YuvFrame yuv = new YuvFrame();
+    public int[] argb = new int[0];
+    // Whether argb holds the current YUV frame; cleared when the frame is acquired again
+    private boolean hasArgb;
+
+    private final Pool pool;
+    private final AtomicInteger refCount = new AtomicInteger();
+
+    private SharedFrame(Pool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sizes the ARGB buffer for the current YUV frame and converts into it.
+     */
+    public void convert() {
+        int pixels = yuv.width * yuv.height;
+        if (argb.length != pixels) {
+            argb = new int[pixels];
+        }
+        YuvConverter.yuvToArgb(yuv, argb);
+        hasArgb = true;
+    }
+
+    /**
+     * @return Whether {@link #convert} has run since the frame was acquired
+     */
+    public boolean hasArgb() {
+        return hasArgb;
+    }
+
+    public SharedFrame retain() {
+        if (refCount.getAndIncrement() <= 0) {
+            throw new IllegalStateException("Frame retained after it was released");
+        }
+        return this;
+    }
+
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(this);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame released more often than retained");
+        }
+    }
+
+    int refCount() {
+        return refCount.get();
+    }
+
+    /**
+     * Fixed set of frames, so steady-state conversion allocates nothing.
+     */
+    public static final class Pool {
+        private final BlockingQueue<SharedFrame> free;
+
+        public Pool(int size) {
+            free = new ArrayBlockingQueue<>(size);
+            for (int i = 0; i < size; i++) {
+                free.add(new SharedFrame(this));
+            }
+        }
+
+        /**
+         * @return A frame holding one reference, or null if all frames are in use.
+         */
+        public SharedFrame acquire() {
+            SharedFrame frame = free.poll();
+            if (frame != null) {
+                frame.hasArgb = false;
+                frame.refCount.set(1);
+            }
+            return frame;
+        }
+
+        public int available() {
+            return free.size();
+        }
+
+        private void recycle(SharedFrame frame) {
+            free.offer(frame);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.visualassistant;
+
+import com.example.visualassistant.VoiceCommandMatcher.Command;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Warms a mode's pipeline while its voice command is still being spoken. A partial
+ * result such as "nav" or "पढ़" hints at a command; the pipeline registered for it then
+ * prepares its buffers and runs its models once on a blank frame on its own workers.
+ * A different hint, or a final command that differs, cancels the warm-up: steps not yet
+ * started are skipped, and one already running finishes harmlessly.
+ *
+ * The delay from the end of a command to the mode's first announcement is kept apart for
+ * pipelines that were warm, by speculation or earlier use, and those that were cold, so
+ * the gain can be read from one session, or with speculation off for a baseline.
+ */
+public class SpeculativeWarmup {
+
+    public interface Pipeline {
+        /**
+         * Queues warm-up work on the pipeline's own workers and returns at once. Each step
+         * should be skipped once {@code cancelled} reports true.
+         */
+        void warmUp(BooleanSupplier cancelled);
+    }
+
+    private static final class Ticket implements BooleanSupplier {
+        volatile boolean cancelled;
+
+        @Override
+        public boolean getAsBoolean() {
+            return cancelled;
+        }
+    }
+
+    private final Map<Command, Pipeline> pipelines = new EnumMap<>(Command.class);
+    // Pipelines that have produced a result, so speculation no longer helps
+    private final Set<Command> warm = EnumSet.noneOf(Command.class);
+    private boolean enabled = true;
+
+    private Command speculated;
+    private Ticket ticket;
+    private long started;
+    private long hits;
+    private long cancelled;
+
+    // The command whose first result is awaited, and whether its pipeline was warm
+    private Command pending;
+    private long pendingNanos;
+    private boolean pendingWarm;
+
+    private long warmCount;
+    private long warmTotalNanos;
+    private long warmMaxNanos;
+    private long coldCount;
+    private long coldTotalNanos;
+    private long coldMaxNanos;
+
+    public synchronized void register(Command command, Pipeline pipeline) {
+        pipelines.put(command, pipeline);
+    }
+
+    /**
+     * Turns speculation off, e.g. to measure cold mode switches; latencies are still kept.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            cancelSpeculation();
+        }
+    }
+
+    /**
+     * @param hint The command a partial result is heading for, or null if none
+     */
+    public synchronized void onHint(Command hint) {
+        if (!enabled || hint == null || hint == speculated) {
+            return;
+        }
+        Pipeline pipeline = pipelines.get(hint);
+        if (pipeline == null || warm.contains(hint)) {
+            return;
+        }
+        cancelSpeculation();
+        speculated = hint;
+        ticket = new Ticket();
+        started++;
+        pipeline.warmUp(ticket);
+    }
+
+    /**
+     * Settles the utterance: keeps the warm-up if it was for {@code command}, cancels it
+     * otherwise, and starts timing until the command's first result.
+     *
+     * @param command         The command acted on, or null if the utterance had none
+     * @param commandEndNanos When the user finished giving it
+     */
+    public synchronized void onCommand(Command command, long commandEndNanos) {
+        boolean hit = command != null && command == speculated;
+        if (hit) {
+            hits++;
+            speculated = null;
+            ticket = null;
+        } else {
+            cancelSpeculation();
+        }
+        if (command == null || !pipelines.containsKey(command)) {
+            return;
+        }
+        pending = command;
+        pendingNanos = commandEndNanos;
+        pendingWarm = hit || warm.contains(command);
+    }
+
+    /**
+     * Reports an announcement from the pipeline of {@code mode}.
+     */
+    public synchronized void onResult(Command mode, long publishNanos) {
+        if (mode == null) {
+            return;
+        }
+        warm.add(mode);
+        if (mode != pending || publishNanos < pendingNanos) {
+            return;
+        }
+        long latency = publishNanos - pendingNanos;
+        if (pendingWarm) {
+            warmCount++;
+            warmTotalNanos += latency;
+            warmMaxNanos = Math.max(warmMaxNanos, latency);
+        } else {
+            coldCount++;
+            coldTotalNanos += latency;
+            coldMaxNanos = Math.max(coldMaxNanos, latency);
+        }
+        pending = null;
+    }
+
+    private void cancelSpeculation() {
+        if (ticket != null) {
+            ticket.cancelled = true;
+            cancelled++;
+        }
+        speculated = null;
+        ticket = null;
+    }
+
+    public synchronized long getStartedCount() {
+        return started;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getCancelledCount() {
+        return cancelled;
+    }
+
+    public synchronized long getWarmCount() {
+        return warmCount;
+    }
+
+    public synchronized long getColdCount() {
+        return coldCount;
+    }
+
+    /**
+     * @return Mean delay from command to first announcement with a warm pipeline, or -1 if none yet
+     */
+    public synchronized long getWarmLatencyNanos() {
+        return warmCount > 0 ? warmTotalNanos / warmCount : -1;
+    }
+
+    /**
+     * @return Mean delay from command to first announcement with a cold pipeline, or -1 if none yet
+     */
+    public synchronized long getColdLatencyNanos() {
+        return coldCount > 0 ? coldTotalNanos / coldCount : -1;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "warm-ups " + started + " (" + hits + " used, " + cancelled + " cancelled), first announcement warm "
+                + getWarmLatencyNanos() / 1_000_000L + " ms avg / " + warmMaxNanos / 1_000_000L + " ms max over "
+                + warmCount + ", cold " + getColdLatencyNanos() / 1_000_000L + " ms avg / "
+                + coldMaxNanos / 1_000_000L + " ms max over " + coldCount;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.visualassistant;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the four outputs of an SSD detection post-processing step (boxes as
+ * normalised ymin, xmin, ymax, xmax; class indices; scores; detection count) into
+ * {@link ObjectDetection}s in upright frame pixels.
+ *
+ * Each output may be float32 or quantized uint8. Quantized scores are compared
+ * against the threshold in the integer domain, so only the boxes that survive it
+ * are ever dequantized.
+ */
+public class SsdOutputDecoder {
+
+    public static final int BOXES = 0;
+    public static final int CLASSES = 1;
+    public static final int SCORES = 2;
+    public static final int COUNT = 3;
+
+    private final ByteBuffer[] outputs = new ByteBuffer[4];
+    // A scale of 0 marks a float32 output
+    private final float[] scales = new float[4];
+    private final int[] zeroPoints = new int[4];
+
+    private final String[] labels;
+    private final int labelOffset;
+    private int dequantizedCount;
+
+    /**
+     * @param labels Label per class index; a leading "???" background entry is skipped
+     */
+    public SsdOutputDecoder(String[] labels) {
+        this.labels = labels;
+        this.labelOffset = labels.length > 0 && "???".equals(labels[0]) ? 1 : 0;
+    }
+
+    /**
+     * @param scale Quantization scale of a uint8 output, or 0 for float32
+     */
+    public void setOutput(int output, ByteBuffer buffer, float scale, int zeroPoint) {
+        outputs[output] = buffer.order(ByteOrder.nativeOrder());
+        scales[output] = scale;
+        zeroPoints[output] = zeroPoint;
+    }
+
+    /**
+     * @return The highest-scoring detections at or above {@code scoreThreshold}, at most
+     *         {@code maxResults}, scaled to a {@code width} x {@code height} frame
+     */
+    public List<ObjectDetection> decode(float scoreThreshold, int maxResults, float width, float height) {
+        int capacity = outputs[SCORES].capacity() / (scales[SCORES] != 0 ? 1 : 4);
+        int count = Math.min(capacity, Math.round(value(COUNT, 0)));
+        List<ObjectDetection> detections = new ArrayList<>(Math.min(count, maxResults));
+
+        // Threshold in the stored domain, so scores are only dequantized for survivors
+        boolean quantizedScores = scales[SCORES] != 0;
+        int rawThreshold = quantizedScores
+                ? (int) Math.ceil(scoreThreshold / scales[SCORES] + zeroPoints[SCORES] - 1e-4f) : 0;
+
+        for (int i = 0; i < count && detections.size() < maxResults; i++) {
+            float score;
+            if (quantizedScores) {
+                int raw = outputs[SCORES].get(i) & 0xFF;
+                if (raw < rawThreshold) continue;
+                score = (raw - zeroPoints[SCORES]) * scales[SCORES];
+            } else {
+                score = outputs[SCORES].getFloat(4 * i);
+                if (score < scoreThreshold) continue;
+            }
+            dequantizedCount++;
+
+            int classIndex = Math.round(value(CLASSES, i)) + labelOffset;
+            String label = classIndex >= 0 && classIndex < labels.length ? labels[classIndex] : "unknown";
+            float top = clamp(value(BOXES, 4 * i)) * height;
+            float left = clamp(value(BOXES, 4 * i + 1)) * width;
+            float bottom = clamp(value(BOXES, 4 * i + 2)) * height;
+            float right = clamp(value(BOXES, 4 * i + 3)) * width;
+            detections.add(new ObjectDetection(label, score, 0f, left, top, right, bottom));
+        }
+        return detections;
+    }
+
+    private float value(int output, int index) {
+        ByteBuffer buffer = outputs[output];
+        if (scales[output] == 0) {
+            return buffer.getFloat(4 * index);
+        }
+        return ((buffer.get(index) & 0xFF) - zeroPoints[output]) * scales[output];
+    }
+
+    private static float clamp(float value) {
+        return value < 0f ? 0f : (value > 1f ? 1f : value);
+    }
+
+    /**
+     * @return Detections dequantized and built so far, over all frames.
+     */
+    public int getDequantizedCount() {
+        return dequantizedCount;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.visualassistant;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Writes a camera frame straight into a model's NHWC RGB input tensor, resized to
+ * the tensor size and rotated upright, without going through ARGB or a Bitmap.
+ *
+ * Sampling is nearest-neighbour through per-column and per-row offset tables that
+ * are only rebuilt when the frame or tensor geometry changes, so writing a frame
+ * allocates nothing. {@link #writeUint8} keeps the whole path in integers for
+ * quantized models; {@link #writeFloat} normalises for float models.
+ */
+public class TensorInputWriter {
+
+    // BT.601 full-range coefficients in 16.16 fixed point, as in YuvConverter
+    private static final int V_TO_R = 91881;
+    private static final int U_TO_G = 22554;
+    private static final int V_TO_G = 46802;
+    private static final int U_TO_B = 116130;
+    private static final int ROUND = 1 << 15;
+
+    // Plane offsets: luma index = lumaColumn[x] + lumaRow[y], likewise for chroma
+    private int[] lumaColumn = new int[0];
+    private int[] lumaRow = new int[0];
+    private int[] chromaColumn = new int[0];
+    private int[] chromaRow = new int[0];
+    private int tableWidth = -1;
+    private int tableHeight = -1;
+    private int tableFrameWidth = -1;
+    private int tableFrameHeight = -1;
+    private int tableRotation = -1;
+    private int tableChromaShift = -1;
+
+    private byte[] rgb = new byte[0];
+    private float[] floats = new float[0];
+    private ByteBuffer floatTarget;
+    private FloatBuffer floatView;
+
+    /**
+     * Writes {@code width * height * 3} bytes of RGB at the buffer's position and
+     * leaves the position after them.
+     */
+    public void writeUint8(YuvFrame frame, int width, int height, ByteBuffer dst) {
+        prepare(frame, width, height);
+        int size = width * height * 3;
+        if (rgb.length < size) {
+            rgb = new byte[size];
+        }
+        fill(frame, width, height, rgb);
+        dst.put(rgb, 0, size);
+    }
+
+    /**
+     * Writes {@code width * height * 3} floats, {@code (value - mean) / std} per channel,
+     * at the buffer's position in native order and leaves the position after them.
+     */
+    public void writeFloat(YuvFrame frame, int width, int height, float mean, float std, ByteBuffer dst) {
+        prepare(frame, width, height);
+        int size = width * height * 3;
+        if (rgb.length < size) {
+            rgb = new byte[size];
+        }
+        if (floats.length < size) {
+            floats = new float[size];
+        }
+        fill(frame, width, height, rgb);
+        float scale = 1f / std;
+        for (int i = 0; i < size; i++) {
+            floats[i] = ((rgb[i] & 0xFF) - mean) * scale;
+        }
+        if (dst != floatTarget) {
+            floatTarget = dst;
+            ByteBuffer whole = dst.duplicate();
+            whole.clear();
+            floatView = whole.order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        floatView.clear();
+        floatView.position(dst.position() / 4);
+        floatView.put(floats, 0, size);
+        dst.position(dst.position() + 4 * size);
+    }
+
+    private void fill(YuvFrame frame, int width, int height, byte[] out) {
+        final byte[] yPlane = frame.y;
+        final byte[] uPlane = frame.u;
+        final byte[] vPlane = frame.v;
+        final boolean chroma = frame.hasChroma;
+        int o = 0;
+        for (int y = 0; y < height; y++) {
+            int lumaBase = lumaRow[y];
+            int chromaBase = chromaRow[y];
+            for (int x = 0; x < width; x++) {
+                int luma = yPlane[lumaBase + lumaColumn[x]] & 0xFF;
+                if (!chroma) {
+                    byte grey = (byte) luma;
+                    out[o++] = grey;
+                    out[o++] = grey;
+                    out[o++] = grey;
+                    continue;
+                }
+                int chromaIndex = chromaBase + chromaColumn[x];
+                int cb = (uPlane[chromaIndex] & 0xFF) - 128;
+                int cr = (vPlane[chromaIndex] & 0xFF) - 128;
+                int scaled = luma << 16;
+                int r = (scaled + V_TO_R * cr + ROUND) >> 16;
+                int g = (scaled - U_TO_G * cb - V_TO_G * cr + ROUND) >> 16;
+                int b = (scaled + U_TO_B * cb + ROUND) >> 16;
+                out[o++] = (byte) (r < 0 ? 0 : (r > 255 ? 255 : r));
+                out[o++] = (byte) (g < 0 ? 0 : (g > 255 ? 255 : g));
+                out[o++] = (byte) (b < 0 ? 0 : (b > 255 ? 255 : b));
+            }
+        }
+    }
+
+    private void prepare(YuvFrame frame, int width, int height) {
+        int rotation = ((frame.rotationDegrees % 360) + 360) % 360;
+        if (width == tableWidth && height == tableHeight && frame.width == tableFrameWidth
+                && frame.height == tableFrameHeight && rotation == tableRotation
+                && frame.chromaShift == tableChromaShift) {
+            return;
+        }
+        if (lumaColumn.length < width) {
+            lumaColumn = new int[width];
+            chromaColumn = new int[width];
+        }
+        if (lumaRow.length < height) {
+            lumaRow = new int[height];
+            chromaRow = new int[height];
+        }
+
+        int frameWidth = frame.width;
+        int frameHeight = frame.height;
+        int shift = frame.chromaShift;
+        int chromaWidth = frame.chromaWidth();
+        int uprightWidth = frame.orientedWidth();
+        int uprightHeight = frame.orientedHeight();
+        for (int x = 0; x < width; x++) {
+            // Centre of the destination pixel in upright frame pixels
+            int upright = (int) (((2L * x + 1) * uprightWidth) / (2L * width));
+            switch (rotation) {
+                case 90:
+                    // Upright x runs up the sensor rows from the bottom
+                    int row90 = frameHeight - 1 - upright;
+                    lumaColumn[x] = row90 * frameWidth;
+                    chromaColumn[x] = (row90 >> shift) * chromaWidth;
+                    break;
+                case 180:
+                    lumaColumn[x] = frameWidth - 1 - upright;
+                    chromaColumn[x] = (frameWidth - 1 - upright) >> shift;
+                    break;
+                case 270:
+                    lumaColumn[x] = upright * frameWidth;
+                    chromaColumn[x] = (upright >> shift) * chromaWidth;
+                    break;
+                default:
+                    lumaColumn[x] = upright;
+                    chromaColumn[x] = upright >> shift;
+                    break;
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            int upright = (int) (((2L * y + 1) * uprightHeight) / (2L * height));
+            switch (rotation) {
+                case 90:
+                    lumaRow[y] = upright;
+                    chromaRow[y] = upright >> shift;
+                    break;
+                case 180:
+                    int row180 = frameHeight - 1 - upright;
+                    lumaRow[y] = row180 * frameWidth;
+                    chromaRow[y] = (row180 >> shift) * chromaWidth;
+                    break;
+                case 270:
+                    lumaRow[y] = frameWidth - 1 - upright;
+                    chromaRow[y] = (frameWidth - 1 - upright) >> shift;
+                    break;
+                default:
+                    lumaRow[y] = upright * frameWidth;
+                    chromaRow[y] = (upright >> shift) * chromaWidth;
+                    break;
+            }
+        }
+
+        tableWidth = width;
+        tableHeight = height;
+        tableFrameWidth = frameWidth;
+        tableFrameHeight = frameHeight;
+        tableRotation = rotation;
+        tableChromaShift = shift;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.visualassistant;
+
+/**
+ * Picks the language for recognised text and builds the sentence that is spoken.
+ *
+ * Android-free counterpart of TextRecognitionAnalyzer's speech logic, shared with
+ * the replay harness so recorded sessions produce the same announcements.
+ */
+public final class TextAnnouncer {
+
+    public static final String ENGLISH = "ENGLISH";
+    public static final String HINDI = "HINDI";
+    public static final String MARATHI = "MARATHI";
+    public static final String AUTO = "AUTO";
+
+    public static final String NO_TEXT_MESSAGE = "No text found";
+
+    // Gap between OCR runs, long enough for the previous text to be spoken
+    public static final long PROCESSING_INTERVAL = 3000;
+
+    private TextAnnouncer() {
+    }
+
+    /**
+     * Resolves the language to speak the text in.
+     *
+     * @param text              The recognised text
+     * @param preferredLanguage AUTO, ENGLISH, HINDI or MARATHI
+     * @return ENGLISH, HINDI or MARATHI
+     */
+    public static String detectLanguage(String text, String preferredLanguage) {
+        // Check for preferred language override
+        if (ENGLISH.equals(preferredLanguage) || HINDI.equals(preferredLanguage)
+                || MARATHI.equals(preferredLanguage)) {
+            return preferredLanguage;
+        }
+
+        // Auto detect the appropriate language
+        if (containsDevanagari(text)) {
+            if (isLikelyHindi(text)) {
+                return HINDI;
+            } else if (isLikelyMarathi(text)) {
+                return MARATHI;
+            }
+            // If we can't determine specific Devanagari language, try Hindi by default
+            return HINDI;
+        }
+
+        // Default to English for non-Devanagari text
+        return ENGLISH;
+    }
+
+    /**
+     * @return The full sentence to speak for the recognised text in the given language.
+     */
+    public static String buildAnnouncement(String text, String language) {
+        if (text.isEmpty()) {
+            return NO_TEXT_MESSAGE;
+        }
+        if (HINDI.equals(language)) {
+            return "पहचाना गया पाठ: " + text;
+        } else if (MARATHI.equals(language)) {
+            return "ओळखलेला मजकूर: " + text;
+        }
+        return "Recognized text: " + text;
+    }
+
+    // Check if text contains Devanagari script
+    static boolean containsDevanagari(String text) {
+        // Devanagari Unicode range check
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x0900 && c <= 0x097F) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Check if text is likely Hindi
+    static boolean isLikelyHindi(String text) {
+        // This is a simplified check - could be enhanced with more sophisticated language detection
+        // Basic check based on common Hindi words/characters
+        return text.contains("है") || text.contains("में") || text.contains("का") ||
+                text.contains("के") || text.contains("की") || text.contains("एक");
+    }
+
+    // Check if text is likely Marathi
+    static boolean isLikelyMarathi(String text) {
+        // This is a simplified check - could be enhanced with more sophisticated language detection
+        // Basic check based on common Marathi words/characters
+        return text.contains("आहे") || text.contains("मध्ये") || text.contains("च्या") ||
+                text.contains("आणि") || text.contains("एक") || text.contains("मराठी");
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.visualassistant;
 
 import android.content.Context;
-import android.media.Image;
 import android.os.Handler;
 import android.os.Looper;
 import android.speech.tts.TextToSpeech;
@@ -12,44 +11,42 @@ import androidx.annotation.NonNull;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 import java.util.concurrent.ExecutorService;
-import com.google.android.gms.tasks.Tasks;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
-import com.google.mlkit.vision.text.devanagari.DevanagariTextRecognizerOptions;
 
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.UUID;
-import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 public class TextRecognitionAnalyzer implements ImageAnalysis.Analyzer {
     private static final String TAG = "TextRecognitionAnalyzer";
 
     private final Context context;
-    private TextRecognizer latinTextRecognizer;
-    private TextRecognizer devanagariTextRecognizer;
+    private TextRecognizerBackend textRecognizerBackend;
 
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
+    private final FrameTracer tracer = FrameTracer.getInstance();
+    private final FreshnessGate freshnessGate = new FreshnessGate(FreshnessGate.READ_BUDGET_NANOS);
 
     private long lastProcessingTimestamp = 0;
-    private static final long PROCESSING_INTERVAL = 3000; // 3 seconds to allow TTS to complete
+    static final long PROCESSING_INTERVAL = TextAnnouncer.PROCESSING_INTERVAL;
 
     private String lastRecognizedText = "";
     private final AtomicBoolean isProcessing = new AtomicBoolean(false);
     private final AtomicBoolean isSpeaking = new AtomicBoolean(false);
 
-    private OnTextRecognizedListener listener;
+    private volatile PipelineEventBus eventBus;
+    private volatile MotionGovernor motionGovernor;
+    private volatile SessionRecorder sessionRecorder;
+    private volatile ResolutionController resolutionController;
+    private volatile ListeningLoop.UtteranceListener utteranceListener;
     private TextToSpeech englishTTS;
     private TextToSpeech hindiTTS;
     private TextToSpeech marathiTTS;
 
-    private String preferredLanguage = "AUTO"; // AUTO, ENGLISH, HINDI, MARATHI
+    private volatile String preferredLanguage = "AUTO"; // AUTO, ENGLISH, HINDI, MARATHI
 
     public void setPreferredLanguage(String language) {
         Log.d(TAG, "Setting preferred language to: " + language);
@@ -63,9 +60,8 @@ public class TextRecognitionAnalyzer implements ImageAnalysis.Analyzer {
     public TextRecognitionAnalyzer(Context context) {
         this.context = context;
 
-        // Initialize both text recognizers
-        latinTextRecognizer = TextRecognition.getClient(new TextRecognizerOptions.Builder().build());
-        devanagariTextRecognizer = TextRecognition.getClient(new DevanagariTextRecognizerOptions.Builder().build());
+        // Latin and Devanagari recognizers
+        textRecognizerBackend = new MlKitTextRecognizerBackend();
 
         // Initialize all TTS engines
         initializeTextToSpeech();
@@ -122,103 +118,149 @@ public class TextRecognitionAnalyzer implements ImageAnalysis.Analyzer {
             @Override
             public void onStart(String utteranceId) {
                 isSpeaking.set(true);
+                tracer.onUtteranceStarted(utteranceId);
+                ListeningLoop.UtteranceListener listener = utteranceListener;
+                if (listener != null) {
+                    listener.onUtteranceStarted(utteranceId);
+                }
                 Log.d(TAG, "Started speaking utterance: " + utteranceId);
             }
 
             @Override
             public void onDone(String utteranceId) {
                 isSpeaking.set(false);
+                onUtteranceEnded(utteranceId);
                 Log.d(TAG, "Finished speaking utterance: " + utteranceId);
             }
 
             @Override
             public void onError(String utteranceId) {
                 isSpeaking.set(false);
+                onUtteranceEnded(utteranceId);
                 Log.e(TAG, "TTS error for utterance: " + utteranceId);
             }
+
+            @Override
+            public void onStop(String utteranceId, boolean interrupted) {
+                isSpeaking.set(false);
+                onUtteranceEnded(utteranceId);
+            }
         });
     }
 
+    private void onUtteranceEnded(String utteranceId) {
+        ListeningLoop.UtteranceListener listener = utteranceListener;
+        if (listener != null) {
+            listener.onUtteranceEnded(utteranceId);
+        }
+    }
+
+    /**
+     * Record sampled frames and announcements while a recorder is set (null to stop)
+     */
+    public void setSessionRecorder(SessionRecorder recorder) {
+        this.sessionRecorder = recorder;
+    }
+
+    /**
+     * Report OCR latency and text line size to {@code controller} so it can adapt the analysis resolution
+     */
+    public void setResolutionController(ResolutionController controller) {
+        this.resolutionController = controller;
+    }
+
     /**
-     * Interface for text recognition callbacks
+     * Report each announcement's progress to {@code listener}, so voice commands are not listened for over it
      */
-    public interface OnTextRecognizedListener {
-        void onTextRecognized(String text);
+    public void setUtteranceListener(ListeningLoop.UtteranceListener listener) {
+        this.utteranceListener = listener;
     }
 
     /**
-     * Set the listener for text recognition events
+     * Let {@code governor} pick the frames to analyse from how the user is moving (null for a fixed interval)
      */
-    public void setOnTextRecognizedListener(OnTextRecognizedListener listener) {
-        this.listener = listener;
+    public void setMotionGovernor(MotionGovernor governor) {
+        this.motionGovernor = governor;
     }
 
-    // Check if text contains Devanagari script
-    private boolean containsDevanagari(String text) {
-        // Devanagari Unicode range check
-        for (char c : text.toCharArray()) {
-            if (c >= 0x0900 && c <= 0x097F) {
-                return true;
+    /**
+     * Run the recognizers once on a blank frame on the analysis thread, ahead of a likely
+     * switch to reading mode, so the first real frame does not pay for ML Kit's lazy model
+     * initialisation. Skipped if {@code cancelled} reports true before it starts.
+     */
+    public void warmUp(BooleanSupplier cancelled) {
+        analysisExecutor.execute(() -> {
+            TextRecognizerBackend backend = textRecognizerBackend;
+            if (backend == null || cancelled.getAsBoolean()) {
+                return;
             }
-        }
-        return false;
+            long start = FrameTracer.now();
+            try {
+                backend.recognize(YuvFrame.gray(ModelLoader.WARMUP_WIDTH, ModelLoader.WARMUP_HEIGHT));
+                Log.d(TAG, "Warmed up in " + (FrameTracer.now() - start) / 1_000_000L + " ms");
+            } catch (Exception e) {
+                Log.e(TAG, "Warm-up failed: " + e.getMessage());
+            }
+        });
     }
 
-    // Check if text is likely Hindi
-    private boolean isLikelyHindi(String text) {
-        // This is a simplified check - could be enhanced with more sophisticated language detection
-        // Basic check based on common Hindi words/characters
-        return text.contains("है") || text.contains("में") || text.contains("का") ||
-                text.contains("के") || text.contains("की") || text.contains("एक");
+    /**
+     * @return Reading deadlines, with counts of cancelled, downgraded and stale-dropped frames
+     */
+    public FreshnessGate getFreshnessGate() {
+        return freshnessGate;
+    }
+
+    /**
+     * Publish each frame's recognised text, empty when none was found, to {@code bus}
+     */
+    public void setEventBus(PipelineEventBus bus) {
+        this.eventBus = bus;
     }
 
-    // Check if text is likely Marathi
-    private boolean isLikelyMarathi(String text) {
-        // This is a simplified check - could be enhanced with more sophisticated language detection
-        // Basic check based on common Marathi words/characters
-        return text.contains("आहे") || text.contains("मध्ये") || text.contains("च्या") ||
-                text.contains("आणि") || text.contains("एक") || text.contains("मराठी");
+    private void publishText(long traceId, String text, String language) {
+        PipelineEventBus bus = eventBus;
+        if (bus != null) {
+            bus.publishText(traceId, text, language);
+        }
     }
 
     // Speak text using the appropriate TTS engine
-    private void speakTextInDetectedLanguage(String text) {
+    private void speakTextInDetectedLanguage(String text, String language, long traceId) {
+        String utteranceId = FrameTracer.utteranceId(traceId);
+        SessionRecorder recorder = sessionRecorder;
         if (text.isEmpty()) {
-            speakText(englishTTS, "No text found", TextToSpeech.QUEUE_FLUSH);
+            if (recorder != null) {
+                recorder.recordAnnouncement(traceId, TextAnnouncer.NO_TEXT_MESSAGE);
+            }
+            speakText(englishTTS, TextAnnouncer.NO_TEXT_MESSAGE, TextToSpeech.QUEUE_FLUSH, utteranceId);
             return;
         }
 
         Log.d(TAG, "Detected text: " + text);
 
-        // Check for preferred language override
-        if (preferredLanguage.equals("ENGLISH")) {
-            speakText(englishTTS, "Recognized text: " + text, TextToSpeech.QUEUE_FLUSH);
-            return;
-        } else if (preferredLanguage.equals("HINDI")) {
-            speakText(hindiTTS, "पहचाना गया पाठ: " + text, TextToSpeech.QUEUE_FLUSH);
-            return;
-        } else if (preferredLanguage.equals("MARATHI")) {
-            speakText(marathiTTS, "ओळखलेला मजकूर: " + text, TextToSpeech.QUEUE_FLUSH);
-            return;
-        }
-
-        // Auto detect and speak in appropriate language
-        if (containsDevanagari(text)) {
-            if (isLikelyHindi(text)) {
-                speakText(hindiTTS, "पहचाना गया पाठ: " + text, TextToSpeech.QUEUE_FLUSH);
-            } else if (isLikelyMarathi(text)) {
-                speakText(marathiTTS, "ओळखलेला मजकूर: " + text, TextToSpeech.QUEUE_FLUSH);
-            } else {
-                // If we can't determine specific Devanagari language, try Hindi by default
-                speakText(hindiTTS, "पहचाना गया पाठ: " + text, TextToSpeech.QUEUE_FLUSH);
-            }
+        TextToSpeech tts;
+        if (language.equals(TextAnnouncer.HINDI)) {
+            tts = hindiTTS;
+        } else if (language.equals(TextAnnouncer.MARATHI)) {
+            tts = marathiTTS;
         } else {
-            // Default to English for non-Devanagari text
-            speakText(englishTTS, "Recognized text: " + text, TextToSpeech.QUEUE_FLUSH);
+            tts = englishTTS;
+        }
+        String announcement = TextAnnouncer.buildAnnouncement(text, language);
+        if (recorder != null) {
+            recorder.recordAnnouncement(traceId, announcement);
         }
+        speakText(tts, announcement, TextToSpeech.QUEUE_FLUSH, utteranceId);
     }
 
     // Safe method to speak text with proper error handling
     private void speakText(TextToSpeech tts, String textToSpeak, int queueMode) {
+        // Not tied to a frame, so a random id is fine
+        speakText(tts, textToSpeak, queueMode, UUID.randomUUID().toString());
+    }
+
+    private void speakText(TextToSpeech tts, String textToSpeak, int queueMode, String utteranceId) {
         if (tts == null) {
             Log.e(TAG, "TextToSpeech is null, cannot speak");
             return;
@@ -228,17 +270,19 @@ public class TextRecognitionAnalyzer implements ImageAnalysis.Analyzer {
             tts.stop();
         }
 
-        // Generate unique utterance ID
-        String utteranceId = UUID.randomUUID().toString();
-
         HashMap<String, String> params = new HashMap<>();
         params.put(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
 
+        ListeningLoop.UtteranceListener listener = utteranceListener;
+        if (listener != null) {
+            listener.onUtteranceQueued(utteranceId);
+        }
         int result = tts.speak(textToSpeak, queueMode, params);
         if (result != TextToSpeech.SUCCESS) {
             Log.e(TAG, "Failed to speak text. Error code: " + result);
             // Reset speaking flag in case of failure
             isSpeaking.set(false);
+            onUtteranceEnded(utteranceId);
         } else {
             Log.d(TAG, "Speaking text: " + textToSpeak);
         }
@@ -248,10 +292,19 @@ public class TextRecognitionAnalyzer implements ImageAnalysis.Analyzer {
     @Override
     public void analyze(@NonNull ImageProxy imageProxy) {
         long currentTimestamp = System.currentTimeMillis();
+        // Arrival here stands in for capture: sensor timestamps may use another clock
+        final long captureNanos = FrameTracer.now();
+
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            BitmapUtils.recordFrame(recorder, imageProxy);
+        }
 
         // Don't process if we're still processing an image or speaking text
-        if (isProcessing.get() || isSpeaking.get() ||
-                currentTimestamp - lastProcessingTimestamp < PROCESSING_INTERVAL) {
+        MotionGovernor governor = motionGovernor;
+        if (isProcessing.get() || isSpeaking.get() || (governor != null
+                ? !governor.shouldAnalyze(currentTimestamp, lastProcessingTimestamp, PROCESSING_INTERVAL)
+                : currentTimestamp - lastProcessingTimestamp < PROCESSING_INTERVAL)) {
             imageProxy.close();
             return;
         }
@@ -259,104 +312,88 @@ public class TextRecognitionAnalyzer implements ImageAnalysis.Analyzer {
         // Set processing flag to true
         isProcessing.set(true);
         lastProcessingTimestamp = currentTimestamp;
+        if (governor != null) {
+            governor.onAnalyzed();
+        }
+
+        final long traceId = imageProxy.getImageInfo().getTimestamp();
+        tracer.beginFrame(traceId);
 
         Log.d(TAG, "Starting multi-language image analysis");
 
+        // Copy the planes so the camera buffer can be released before the slow OCR call
+        final long copyStart = FrameTracer.now();
+        final YuvFrame frame;
+        try {
+            frame = BitmapUtils.toYuvFrame(imageProxy, new YuvFrame());
+        } catch (Exception e) {
+            Log.e(TAG, "Exception in analyze: " + e.getMessage(), e);
+            imageProxy.close();
+            isProcessing.set(false);
+            publishText(traceId, "", null);
+            mainHandler.post(() -> {
+                speakText(englishTTS, "Camera image unavailable", TextToSpeech.QUEUE_FLUSH);
+            });
+            return;
+        }
+        imageProxy.close();
+
         // Process on a separate thread
         analysisExecutor.execute(() -> {
             try {
-                // Get the image
-                Image mediaImage = imageProxy.getImage();
-
-                if (mediaImage != null) {
-                    // Create InputImage
-                    InputImage inputImage = InputImage.fromMediaImage(
-                            mediaImage,
-                            imageProxy.getImageInfo().getRotationDegrees());
-
-                    // Process with both recognizers simultaneously
-                    try {
-                        // Process with Latin recognizer
-                        String latinText = Tasks.await(
-                                latinTextRecognizer.process(inputImage)
-                                        .continueWith(task -> {
-                                            if (task.isSuccessful() && task.getResult() != null) {
-                                                return task.getResult().getText().trim();
-                                            }
-                                            return "";
-                                        }),
-                                3, TimeUnit.SECONDS
-                        );
-
-                        // Process with Devanagari recognizer
-                        String devanagariText = Tasks.await(
-                                devanagariTextRecognizer.process(inputImage)
-                                        .continueWith(task -> {
-                                            if (task.isSuccessful() && task.getResult() != null) {
-                                                return task.getResult().getText().trim();
-                                            }
-                                            return "";
-                                        }),
-                                3, TimeUnit.SECONDS
-                        );
-
-                        // Combine results, prioritizing Devanagari if present
-                        final String recognizedText;
-                        if (!devanagariText.isEmpty()) {
-                            recognizedText = devanagariText;
-                            Log.d(TAG, "Devanagari text recognized: " + devanagariText);
-                        } else if (!latinText.isEmpty()) {
-                            recognizedText = latinText;
-                            Log.d(TAG, "Latin text recognized: " + latinText);
-                        } else {
-                            recognizedText = "";
-                            Log.d(TAG, "No text recognized");
-                        }
-
-                        // Handle on main thread
-                        mainHandler.post(() -> {
-                            // Save the text
-                            lastRecognizedText = recognizedText;
-
-                            // Notify listener
-                            if (listener != null) {
-                                listener.onTextRecognized(recognizedText);
-                            }
-
-                            // Speak recognized text with auto-detection
-                            speakTextInDetectedLanguage(recognizedText);
-                        });
-
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error during text recognition tasks: " + e.getMessage(), e);
-                        mainHandler.post(() -> {
-                            if (listener != null) {
-                                listener.onTextRecognized("");
-                            }
-                            speakText(englishTTS, "Text recognition failed", TextToSpeech.QUEUE_FLUSH);
-                        });
-                    }
+                long ocrStart = FrameTracer.now();
+                if (!freshnessGate.admit(captureNanos, ocrStart)) {
+                    Log.d(TAG, "Frame missed its deadline before OCR: " + freshnessGate);
+                    return;
+                }
+                final String recognizedText = textRecognizerBackend.recognize(frame);
+                long ocrEnd = FrameTracer.now();
+                tracer.record(traceId, FrameTracer.SPAN_OCR, ocrStart, ocrEnd);
+                ResolutionController controller = resolutionController;
+                if (controller != null) {
+                    controller.onTextLineHeight(textRecognizerBackend.getLastLineHeight());
+                    controller.onFrameProcessed(copyStart, ocrEnd);
+                }
 
+                if (recognizedText.isEmpty()) {
+                    Log.d(TAG, "No text recognized");
                 } else {
-                    Log.e(TAG, "Media image is null");
-                    mainHandler.post(() -> {
-                        if (listener != null) {
-                            listener.onTextRecognized("");
-                        }
-                        speakText(englishTTS, "Camera image unavailable", TextToSpeech.QUEUE_FLUSH);
-                    });
+                    Log.d(TAG, "Text recognized: " + recognizedText);
+                }
+
+                FreshnessGate.Verdict verdict = freshnessGate.complete(captureNanos, ocrStart, ocrEnd);
+                if (verdict == FreshnessGate.Verdict.STALE) {
+                    Log.d(TAG, "Dropped stale text: " + freshnessGate);
+                    return;
                 }
+
+                final String language = recognizedText.isEmpty()
+                        ? null : TextAnnouncer.detectLanguage(recognizedText, preferredLanguage);
+                publishText(traceId, recognizedText, language);
+                if (verdict == FreshnessGate.Verdict.LATE) {
+                    // Never read out text that may no longer be in front of the user
+                    Log.d(TAG, "Late text not spoken: " + freshnessGate);
+                    return;
+                }
+
+                // Handle on main thread
+                mainHandler.post(() -> {
+                    // Save the text
+                    lastRecognizedText = recognizedText;
+
+                    // Speak recognized text with auto-detection
+                    long messageStart = FrameTracer.now();
+                    speakTextInDetectedLanguage(recognizedText, language, traceId);
+                    tracer.record(traceId, FrameTracer.SPAN_MESSAGE, messageStart, FrameTracer.now());
+                });
             } catch (Exception e) {
-                Log.e(TAG, "Exception in analyze: " + e.getMessage(), e);
+                Log.e(TAG, "Error during text recognition tasks: " + e.getMessage(), e);
+                publishText(traceId, "", null);
                 mainHandler.post(() -> {
-                    if (listener != null) {
-                        listener.onTextRecognized("");
-                    }
-                    speakText(englishTTS, "Image analysis error", TextToSpeech.QUEUE_FLUSH);
+                    speakText(englishTTS, "Text recognition failed", TextToSpeech.QUEUE_FLUSH);
                 });
             } finally {
-                // Release the ImageProxy resources and reset processing flag
-                imageProxy.close();
+                // Reset processing flag
                 isProcessing.set(false);
             }
         });
@@ -367,14 +404,9 @@ public class TextRecognitionAnalyzer implements ImageAnalysis.Analyzer {
  * Clean up resources
  */
 public void shutdown() {
-    if (latinTextRecognizer != null) {
-        latinTextRecognizer.close();
-        latinTextRecognizer = null;
-    }
-
-    if (devanagariTextRecognizer != null) {
-        devanagariTextRecognizer.close();
-        devanagariTextRecognizer = null;
+    if (textRecognizerBackend != null) {
+        textRecognizerBackend.close();
+        textRecognizerBackend = null;
     }
 
     if (englishTTS != null) {
@@ -0,0 +1,23 @@
+package com.example.visualassistant;
+
+/**
+ * An OCR engine that the analyzers and the replay harness can run a frame through.
+ * Implementations: {@link MlKitTextRecognizerBackend} on device, stubs in host tests.
+ */
+public interface TextRecognizerBackend {
+
+    /**
+     * @return The recognised text, trimmed, or an empty string if there is none.
+     */
+    String recognize(YuvFrame frame) throws Exception;
+
+    /**
+     * @return Median height of the text lines found by the last {@link #recognize} call,
+     *         as a fraction of the upright frame height, or -1 if unknown or no text.
+     */
+    default float getLastLineHeight() {
+        return -1f;
+    }
+
+    void close();
+}
@@ -0,0 +1,88 @@
+package com.example.visualassistant;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.graphics.RectF;
+
+import org.tensorflow.lite.support.image.TensorImage;
+import org.tensorflow.lite.support.label.Category;
+import org.tensorflow.lite.task.core.BaseOptions;
+import org.tensorflow.lite.task.vision.detector.Detection;
+import org.tensorflow.lite.task.vision.detector.ObjectDetector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DetectorBackend} backed by the TensorFlow Lite Task Library ObjectDetector.
+ */
+public class TfliteDetectorBackend implements DetectorBackend {
+
+    private final ObjectDetector objectDetector;
+
+    public TfliteDetectorBackend(Context context, String modelFile, float scoreThreshold, int maxResults)
+            throws IOException {
+        this(context, modelFile, scoreThreshold, maxResults, 0);
+    }
+
+    /**
+     * @param numThreads Interpreter threads, e.g. from {@link InterpreterTuner}; 0 keeps the library default
+     */
+    public TfliteDetectorBackend(Context context, String modelFile, float scoreThreshold, int maxResults,
+                                 int numThreads) throws IOException {
+        objectDetector = ObjectDetector.createFromFileAndOptions(context, modelFile,
+                options(scoreThreshold, maxResults, numThreads));
+    }
+
+    /**
+     * @param model Model bytes in a direct or mapped buffer, e.g. from {@link #mapAsset}
+     */
+    public TfliteDetectorBackend(ByteBuffer model, float scoreThreshold, int maxResults, int numThreads) {
+        objectDetector = ObjectDetector.createFromBufferAndOptions(model, options(scoreThreshold, maxResults, numThreads));
+    }
+
+    private static ObjectDetector.ObjectDetectorOptions options(float scoreThreshold, int maxResults, int numThreads) {
+        ObjectDetector.ObjectDetectorOptions.Builder builder = ObjectDetector.ObjectDetectorOptions.builder()
+                .setMaxResults(maxResults)
+                .setScoreThreshold(scoreThreshold);
+        if (numThreads > 0) {
+            builder.setBaseOptions(BaseOptions.builder().setNumThreads(numThreads).build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Memory-maps a model stored uncompressed in the app assets.
+     */
+    public static MappedByteBuffer mapAsset(Context context, String modelFile) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(modelFile)) {
+            return ModelLoader.map(descriptor.getFileDescriptor(), descriptor.getStartOffset(),
+                    descriptor.getDeclaredLength());
+        }
+    }
+
+    @Override
+    public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+        Bitmap bitmap = BitmapUtils.argbToBitmap(argb, frame.width, frame.height, frame.rotationDegrees);
+        List<Detection> results = objectDetector.detect(TensorImage.fromBitmap(bitmap));
+
+        List<ObjectDetection> detections = new ArrayList<>(results.size());
+        for (Detection result : results) {
+            if (result.getCategories().isEmpty()) continue;
+            Category category = result.getCategories().get(0);
+            RectF box = result.getBoundingBox();
+            detections.add(new ObjectDetection(category.getLabel(), category.getScore(), 0f,
+                    box.left, box.top, box.right, box.bottom));
+        }
+        return detections;
+    }
+
+    @Override
+    public void close() {
+        objectDetector.close();
+    }
+}
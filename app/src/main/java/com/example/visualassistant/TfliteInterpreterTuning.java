@@ -0,0 +1,111 @@
+package com.example.visualassistant;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs {@link InterpreterTuner} against a TensorFlow Lite model from the app assets,
+ * feeding it random input of the model's own input shape and type.
+ */
+public final class TfliteInterpreterTuning {
+    private static final String TAG = "InterpreterTuning";
+    static final String STORE_FILE = "interpreter_tuning.properties";
+
+    private TfliteInterpreterTuning() {
+    }
+
+    /**
+     * Loads the stored configuration for {@code modelFile}, tuning first if this device
+     * has not seen this exact model yet. Blocks for the length of the benchmark, so
+     * call it off the main thread.
+     *
+     * @param model       The model bytes, e.g. from {@link TfliteDetectorBackend#mapAsset}; only read
+     * @param threadsOnly Tune the thread count alone, with XNNPACK on as in the Task Library's
+     *                    CPU path, for a runtime that cannot take the XNNPACK setting
+     */
+    public static InterpreterTuner.Config loadOrTune(Context context, String modelFile, ByteBuffer model,
+                                                     boolean threadsOnly) throws Exception {
+        InterpreterTuner tuner = new InterpreterTuner(new File(context.getFilesDir(), STORE_FILE),
+                config -> new InterpreterSession(model.duplicate(), config));
+        int processors = Runtime.getRuntime().availableProcessors();
+        // Stored apart, so each grid's winner is only ever applied to its own runtime
+        String modelHash = InterpreterTuner.modelHash(model);
+        InterpreterTuner.Config config = threadsOnly
+                ? tuner.loadOrTune(deviceKey(), modelHash + "/threads", InterpreterTuner.threadGrid(processors, true))
+                : tuner.loadOrTune(deviceKey(), modelHash, InterpreterTuner.defaultGrid(processors));
+        Log.d(TAG, modelFile + ": " + config + " (" + tuner + ")");
+        if (tuner.getLastSaveError() != null) {
+            Log.w(TAG, "Could not store tuning result: " + tuner.getLastSaveError().getMessage());
+        }
+        return config;
+    }
+
+    static String deviceKey() {
+        return Build.MANUFACTURER + "-" + Build.MODEL + "-" + Build.HARDWARE + "-" + Build.VERSION.SDK_INT;
+    }
+
+    private static class InterpreterSession implements InterpreterTuner.Session {
+        private final Interpreter interpreter;
+        private final Object[] inputs;
+        private final Map<Integer, Object> outputs = new HashMap<>();
+
+        InterpreterSession(ByteBuffer model, InterpreterTuner.Config config) {
+            Interpreter.Options options = new Interpreter.Options()
+                    .setNumThreads(config.numThreads)
+                    .setUseXNNPACK(config.useXnnpack);
+            interpreter = new Interpreter(model, options);
+
+            ByteBuffer input = allocate(interpreter.getInputTensor(0));
+            Random random = new Random(0);
+            while (input.hasRemaining()) {
+                input.put((byte) random.nextInt());
+            }
+            if (interpreter.getInputTensor(0).dataType() == DataType.FLOAT32) {
+                // Random bytes can form NaNs; keep float inputs in the model's usual range
+                input.rewind();
+                while (input.remaining() >= 4) {
+                    input.putFloat(random.nextFloat() * 2 - 1);
+                }
+            }
+            inputs = new Object[]{input};
+            for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+                outputs.put(i, allocate(interpreter.getOutputTensor(i)));
+            }
+        }
+
+        private static ByteBuffer allocate(Tensor tensor) {
+            int elements = 1;
+            for (int dimension : tensor.shape()) {
+                elements *= dimension;
+            }
+            int bytes = tensor.dataType() == DataType.UINT8 ? 1 : 4;
+            return ByteBuffer.allocateDirect(elements * bytes).order(ByteOrder.nativeOrder());
+        }
+
+        @Override
+        public void run() {
+            ((ByteBuffer) inputs[0]).rewind();
+            for (Object output : outputs.values()) {
+                ((ByteBuffer) output).rewind();
+            }
+            interpreter.runForMultipleInputsOutputs(inputs, outputs);
+        }
+
+        @Override
+        public void close() {
+            interpreter.close();
+        }
+    }
+}
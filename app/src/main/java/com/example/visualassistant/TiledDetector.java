@@ -0,0 +1,233 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a detector on overlapping tiles of the frame, for small or distant objects.
+ *
+ * The detector scales its input to a fixed model size, so a tile gives every object
+ * in it several times the model pixels it gets in the whole frame. A whole-frame pass
+ * runs alongside for objects larger than a tile. Tiles are cropped at full camera
+ * resolution and run in parallel, one lane per detector instance, and the results are
+ * merged with class-aware non-maximum suppression. All boxes are returned in pixel
+ * coordinates of the whole rotated frame.
+ *
+ * With {@link Schedule#ALL} every tile runs on every frame. With
+ * {@link Schedule#ROUND_ROBIN} one tile runs per frame and the last results of the
+ * other tiles are merged in, so a full sweep takes as many frames as there are tiles.
+ */
+public class TiledDetector {
+
+    public enum Schedule {
+        ALL, ROUND_ROBIN
+    }
+
+    public static final int DEFAULT_COLUMNS = 2;
+    public static final int DEFAULT_ROWS = 2;
+    public static final float DEFAULT_OVERLAP = 0.2f;
+
+    // Same-class boxes overlapping more than this are one object
+    static final float IOU_THRESHOLD = 0.5f;
+    // Share of the smaller box inside a same-class box for it to be part of that object
+    static final float CONTAINMENT_THRESHOLD = 0.8f;
+
+    private final ExecutorService executor;
+    private final Schedule schedule;
+    private final int tileCount;
+    // Tile rectangles in normalised upright coordinates, tile i at [4 * i]
+    private final float[] tiles;
+
+    private final Lane[] lanes;
+    // Last results per tile, in whole-frame pixels; index tileCount is the whole frame
+    private final List<List<ObjectDetection>> tileResults;
+    private int nextTile;
+    private final NonMaxSuppression nms = new NonMaxSuppression();
+    private final NonMaxSuppression.DetectionArrays mergeArrays = new NonMaxSuppression.DetectionArrays();
+
+    private long frameCount;
+    private long tileRuns;
+
+    /**
+     * @param executor Runs the lanes; give it at least {@code lanes} threads for full parallelism
+     * @param lanes    Number of tiles run at the same time, one detector instance each
+     */
+    public TiledDetector(ExecutorService executor, int lanes, int columns, int rows, float overlap,
+                         Schedule schedule) {
+        if (columns < 1 || rows < 1 || overlap < 0 || overlap >= 1 || lanes < 1) {
+            throw new IllegalArgumentException("Bad tiling: " + columns + "x" + rows
+                    + ", overlap " + overlap + ", lanes " + lanes);
+        }
+        this.executor = executor;
+        this.schedule = schedule;
+        this.tileCount = columns * rows;
+        this.tiles = layout(columns, rows, overlap);
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane();
+        }
+        tileResults = new ArrayList<>(tileCount + 1);
+        for (int i = 0; i <= tileCount; i++) {
+            tileResults.add(Collections.<ObjectDetection>emptyList());
+        }
+    }
+
+    public TiledDetector(ExecutorService executor, int lanes, Schedule schedule) {
+        this(executor, lanes, DEFAULT_COLUMNS, DEFAULT_ROWS, DEFAULT_OVERLAP, schedule);
+    }
+
+    // Tiles of equal size that overlap their neighbours by the given share of a tile
+    static float[] layout(int columns, int rows, float overlap) {
+        float tileWidth = 1f / (columns - (columns - 1) * overlap);
+        float tileHeight = 1f / (rows - (rows - 1) * overlap);
+        float[] tiles = new float[4 * columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int i = 4 * (row * columns + column);
+                tiles[i] = column * tileWidth * (1 - overlap);
+                tiles[i + 1] = row * tileHeight * (1 - overlap);
+                // The last tile ends exactly on the edge whatever the rounding
+                tiles[i + 2] = column == columns - 1 ? 1f : tiles[i] + tileWidth;
+                tiles[i + 3] = row == rows - 1 ? 1f : tiles[i + 1] + tileHeight;
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Detects on the tiles due this frame plus the whole frame, and merges them with
+     * the last results of the other tiles.
+     *
+     * @param backends One detector per lane; lane {@code i} only ever uses {@code backends.get(i)},
+     *                 so instances need not be thread-safe. Fewer backends than lanes use fewer lanes.
+     */
+    public List<ObjectDetection> detect(List<DetectorBackend> backends, YuvFrame frame) throws Exception {
+        frameCount++;
+
+        // Work items: tile indices due this frame, then the whole frame
+        int[] due;
+        if (schedule == Schedule.ALL) {
+            due = new int[tileCount + 1];
+            for (int i = 0; i < tileCount; i++) {
+                due[i] = i;
+            }
+        } else {
+            due = new int[]{nextTile, -1};
+            nextTile = (nextTile + 1) % tileCount;
+        }
+        due[due.length - 1] = tileCount;
+
+        int laneCount = Math.min(lanes.length, backends.size());
+        List<Future<?>> futures = new ArrayList<>(laneCount);
+        for (int l = 0; l < laneCount; l++) {
+            Lane lane = lanes[l];
+            DetectorBackend backend = backends.get(l);
+            int first = l;
+            futures.add(executor.submit(() -> {
+                for (int w = first; w < due.length; w += laneCount) {
+                    tileResults.set(due[w], lane.run(backend, frame, due[w]));
+                }
+                return null;
+            }));
+        }
+        // Surfaces the first lane failure after all lanes have stopped touching the buffers
+        Exception failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        tileRuns += due.length - 1;
+
+        List<ObjectDetection> all = new ArrayList<>();
+        for (List<ObjectDetection> results : tileResults) {
+            all.addAll(results);
+        }
+        return mergeClassAware(all);
+    }
+
+    /**
+     * Class-aware non-maximum merging: same-label boxes overlapping by more than
+     * {@link #IOU_THRESHOLD} IoU are one object, and a box mostly inside another, as
+     * when a tile edge cuts an object, widens it to cover both. Input detections are
+     * not modified.
+     */
+    List<ObjectDetection> mergeClassAware(List<ObjectDetection> detections) {
+        mergeArrays.load(detections);
+        int merged = nms.merge(mergeArrays.boxes, mergeArrays.scores, mergeArrays.classes, mergeArrays.count,
+                IOU_THRESHOLD, CONTAINMENT_THRESHOLD,
+                mergeArrays.outBoxes, mergeArrays.outScores, mergeArrays.outClasses);
+        return mergeArrays.outputs(merged);
+    }
+
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return Tile inferences run so far, not counting the whole-frame passes.
+     */
+    public long getTileRuns() {
+        return tileRuns;
+    }
+
+    float[] getTiles() {
+        return Arrays.copyOf(tiles, tiles.length);
+    }
+
+    // Conversion buffers of one lane, only touched by the thread running it
+    private class Lane {
+        private final YuvFrame tileFrame = new YuvFrame();
+        private final int[] offset = new int[2];
+        private int[] argb = new int[0];
+
+        List<ObjectDetection> run(DetectorBackend backend, YuvFrame frame, int tile) throws Exception {
+            YuvFrame input = frame;
+            if (tile < tileCount) {
+                int i = 4 * tile;
+                YuvConverter.cropUpright(frame, tiles[i], tiles[i + 1], tiles[i + 2], tiles[i + 3],
+                        tileFrame, offset);
+                input = tileFrame;
+            } else {
+                offset[0] = 0;
+                offset[1] = 0;
+            }
+
+            int[] converted = null;
+            if (backend.usesArgb()) {
+                int pixels = input.width * input.height;
+                if (argb.length != pixels) {
+                    argb = new int[pixels];
+                }
+                YuvConverter.yuvToArgb(input, argb);
+                converted = argb;
+            }
+
+            List<ObjectDetection> results = new ArrayList<>();
+            for (ObjectDetection detection : backend.detect(input, converted)) {
+                results.add(detection.offset(offset[0], offset[1]));
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.visualassistant;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds voice commands in recognised speech. Keywords and synonyms in English, Hindi and
+ * Marathi are compiled once into an Aho-Corasick automaton flattened to a transition table,
+ * so a transcript is scanned in a single pass with one array lookup per character whatever
+ * the number of keywords, and a keyword only counts as a whole word.
+ *
+ * Every keyword has a weight for how unlikely it is to be said without meaning the command.
+ * A final result fires its command when weight times the recogniser's confidence reaches
+ * {@link #FINAL_THRESHOLD}. Partial results carry no confidence, so they fire only a single
+ * unambiguous command reaching {@link #PARTIAL_THRESHOLD}, and a keyword that ends the
+ * partial text still counts at half its weight until the next partial shows it again: it
+ * may be the start of a longer word. A command fires at most once per utterance.
+ *
+ * Not thread-safe; the recognition listener calls it on the main thread, and matching
+ * allocates nothing.
+ */
+public class VoiceCommandMatcher {
+
+    /** In priority order, for transcripts naming several commands. */
+    public enum Command {
+        CANCEL, NAVIGATE, READ, DESCRIBE, IDENTIFY, HOME, SOS, STOP, DETAIL, RECORD,
+        ENGLISH, HINDI, MARATHI
+    }
+
+    static final float FINAL_THRESHOLD = 0.5f;
+    static final float PARTIAL_THRESHOLD = 0.8f;
+    // Weight kept by a keyword that ends a partial result and may still grow
+    static final float OPEN_WORD_FACTOR = 0.5f;
+    // Characters of a keyword, as automaton steps, before a partial word hints at its command
+    static final int MIN_HINT_LENGTH = 3;
+
+    private static final Command[] COMMANDS = Command.values();
+    private static final int ROOT = 0;
+    private static final char NUKTA = '\u093C';
+    private static final char NUKTA_LETTERS_START = '\u0929';
+    private static final char DEVANAGARI_END = '\u0980';
+    // Longest keyword in automaton steps; a power of two
+    private static final int MAX_KEYWORD_LENGTH = 32;
+
+    // Keyword tables: Command, weight, then the keywords sharing them
+    private static final Object[][] KEYWORDS = {
+            {Command.CANCEL, 1f, "cancel", "रद्द", "कैंसल", "कॅन्सल"},
+            {Command.NAVIGATE, 1f, "navigate", "navigation", "नेविगेट", "नेविगेशन", "नेव्हिगेट"},
+            {Command.NAVIGATE, 0.8f, "रास्ता", "रस्ता", "मार्ग"},
+            {Command.READ, 0.9f, "read", "reading", "पढ़ो", "पढ़िए", "पढ़ें", "वाचा", "वाचन"},
+            {Command.DESCRIBE, 1f, "describe", "वर्णन"},
+            {Command.IDENTIFY, 1f, "identify", "पहचानो", "पहचान", "ओळख", "ओळखा"},
+            {Command.HOME, 0.9f, "home", "होम", "मुख्य"},
+            {Command.SOS, 1f, "sos", "s o s", "emergency", "एसओएस", "आपातकाल", "बचाओ", "आणीबाणी", "वाचवा"},
+            {Command.SOS, 0.7f, "help", "मदद", "मदत"},
+            {Command.STOP, 1f, "stop", "रुको", "रुकिए", "थांबा", "थांब"},
+            {Command.STOP, 0.8f, "बंद"},
+            {Command.DETAIL, 1f, "detail", "details", "विस्तार", "तपशील"},
+            {Command.RECORD, 1f, "record", "रिकॉर्ड", "रेकॉर्ड"},
+            {Command.ENGLISH, 1f, "english", "अंग्रेज़ी", "अंग्रेजी", "इंग्लिश", "इंग्रजी"},
+            {Command.HINDI, 1f, "hindi", "हिंदी", "हिन्दी"},
+            {Command.MARATHI, 1f, "marathi", "मराठी"},
+    };
+
+    // Compiled automaton: a dense transition table over the keyword alphabet. Characters
+    // below DEVANAGARI_END map to their class, anything else to class 0, which no keyword uses
+    private final short[] charClass = new short[DEVANAGARI_END];
+    private final int classCount;
+    private final int[] transitions;
+    // Keyword ending at the node, or -1, and the next node on the fail chain that ends one
+    private final int[] keywordAt;
+    private final int[] outputLink;
+    // Depth of each node, and the ordinal of the one command all keywords through it share,
+    // or -1 when they differ
+    private final int[] depth;
+    private final int[] hintOrdinal;
+
+    private final Command[] keywordCommand;
+    private final float[] keywordWeight;
+    private final int[] keywordLength;
+
+    // Per scan, indexed by command ordinal
+    private final float[] closedWeight = new float[COMMANDS.length];
+    private final float[] openWeight = new float[COMMANDS.length];
+    // Text index of each recent automaton step, as nukta letters take two steps
+    private final int[] stepIndex = new int[MAX_KEYWORD_LENGTH];
+
+    // Where the last scan ended, to read a hint off the trailing word
+    private int endState;
+    private int endStep;
+
+    private Command lastOpenCommand;
+    private Command hint;
+    private boolean firedThisUtterance;
+    private float lastConfidence;
+
+    public VoiceCommandMatcher() {
+        List<Command> commands = new ArrayList<>();
+        List<Float> weights = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+        for (Object[] row : KEYWORDS) {
+            for (int i = 2; i < row.length; i++) {
+                // Nukta letters are matched as letter plus sign, however they arrive
+                String keyword = Normalizer.normalize((String) row[i], Normalizer.Form.NFD);
+                if (keyword.length() > MAX_KEYWORD_LENGTH) {
+                    throw new IllegalStateException("Keyword too long: " + keyword);
+                }
+                commands.add((Command) row[0]);
+                weights.add((Float) row[1]);
+                keywords.add(keyword);
+            }
+        }
+
+        // Alphabet, with upper case ASCII folded onto lower case
+        short classes = 1;
+        for (String keyword : keywords) {
+            for (char c : keyword.toCharArray()) {
+                if (c >= DEVANAGARI_END) {
+                    throw new IllegalStateException("Keyword outside Latin and Devanagari: " + keyword);
+                }
+                if (charClass[c] == 0) {
+                    charClass[c] = classes++;
+                }
+            }
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            charClass[c] = charClass[Character.toLowerCase(c)];
+        }
+        classCount = classes;
+
+        // Plain trie first
+        List<int[]> children = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        List<Integer> hints = new ArrayList<>();
+        children.add(new int[classCount]);
+        ends.add(-1);
+        hints.add(-1);
+        for (int k = 0; k < keywords.size(); k++) {
+            int ordinal = commands.get(k).ordinal();
+            int node = ROOT;
+            for (char c : keywords.get(k).toCharArray()) {
+                int next = children.get(node)[charClass[c]];
+                if (next == 0) {
+                    next = children.size();
+                    children.add(new int[classCount]);
+                    ends.add(-1);
+                    hints.add(ordinal);
+                    children.get(node)[charClass[c]] = next;
+                } else if (hints.get(next) != ordinal) {
+                    hints.set(next, -1);
+                }
+                node = next;
+            }
+            ends.set(node, k);
+        }
+
+        // Breadth first, so every fail target is complete before it is used: a missing edge
+        // takes the fail target's transition, which makes the trie a DFA
+        int nodes = children.size();
+        transitions = new int[nodes * classCount];
+        keywordAt = new int[nodes];
+        outputLink = new int[nodes];
+        depth = new int[nodes];
+        hintOrdinal = new int[nodes];
+        hintOrdinal[ROOT] = -1;
+        int[] fail = new int[nodes];
+        keywordAt[ROOT] = -1;
+        outputLink[ROOT] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(ROOT);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int[] edges = children.get(node);
+            for (int a = 1; a < classCount; a++) {
+                int child = edges[a];
+                if (child == 0) {
+                    transitions[node * classCount + a] = node == ROOT ? ROOT : transitions[fail[node] * classCount + a];
+                    continue;
+                }
+                transitions[node * classCount + a] = child;
+                fail[child] = node == ROOT ? ROOT : transitions[fail[node] * classCount + a];
+                keywordAt[child] = ends.get(child);
+                depth[child] = depth[node] + 1;
+                hintOrdinal[child] = hints.get(child);
+                outputLink[child] = keywordAt[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+
+        keywordCommand = commands.toArray(new Command[0]);
+        keywordWeight = new float[weights.size()];
+        keywordLength = new int[keywords.size()];
+        for (int k = 0; k < keywords.size(); k++) {
+            keywordWeight[k] = weights.get(k);
+            keywordLength[k] = keywords.get(k).length();
+        }
+    }
+
+    /**
+     * @return The letter without its nukta if {@code c} is a precomposed Devanagari nukta
+     *         letter, otherwise 0
+     */
+    private static char nuktaBase(char c) {
+        if (c >= '\u0958' && c <= '\u095F') {
+            return "\u0915\u0916\u0917\u091C\u0921\u0922\u092B\u092F".charAt(c - '\u0958');
+        }
+        switch (c) {
+            case '\u0929':
+                return '\u0928';
+            case '\u0931':
+                return '\u0930';
+            case '\u0934':
+                return '\u0933';
+            default:
+                return 0;
+        }
+    }
+
+    // Devanagari vowel signs and viramas are marks, not letters, but still inside a word
+    private static boolean isWordChar(char c) {
+        if (Character.isLetterOrDigit(c)) return true;
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    /**
+     * Runs the automaton over {@code text}, keeping the best keyword weight per command in
+     * {@link #closedWeight}, or {@link #openWeight} for a keyword that ends the text.
+     */
+    private void scan(CharSequence text) {
+        Arrays.fill(closedWeight, 0f);
+        Arrays.fill(openWeight, 0f);
+        int length = text.length();
+        int state = ROOT;
+        int step = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= NUKTA_LETTERS_START && c < DEVANAGARI_END) {
+                char base = nuktaBase(c);
+                if (base != 0) {
+                    state = transitions[state * classCount + charClass[base]];
+                    stepIndex[step++ & (MAX_KEYWORD_LENGTH - 1)] = i;
+                    c = NUKTA;
+                }
+            }
+            state = transitions[state * classCount + (c < DEVANAGARI_END ? charClass[c] : 0)];
+            stepIndex[step++ & (MAX_KEYWORD_LENGTH - 1)] = i;
+
+            for (int node = keywordAt[state] >= 0 ? state : outputLink[state]; node >= 0; node = outputLink[node]) {
+                int k = keywordAt[node];
+                int start = stepIndex[(step - keywordLength[k]) & (MAX_KEYWORD_LENGTH - 1)];
+                if (start > 0 && isWordChar(text.charAt(start - 1))) continue;
+                int ordinal = keywordCommand[k].ordinal();
+                if (i + 1 == length) {
+                    openWeight[ordinal] = Math.max(openWeight[ordinal], keywordWeight[k]);
+                } else if (!isWordChar(text.charAt(i + 1))) {
+                    closedWeight[ordinal] = Math.max(closedWeight[ordinal], keywordWeight[k]);
+                }
+            }
+        }
+        endState = state;
+        endStep = step;
+    }
+
+    /**
+     * @return The command the word ending {@code text} is the start of, or null
+     */
+    private Command trailingHint(CharSequence text) {
+        int ordinal = hintOrdinal[endState];
+        if (ordinal < 0 || depth[endState] < MIN_HINT_LENGTH) return null;
+        int start = stepIndex[(endStep - depth[endState]) & (MAX_KEYWORD_LENGTH - 1)];
+        if (start > 0 && isWordChar(text.charAt(start - 1))) return null;
+        return COMMANDS[ordinal];
+    }
+
+    /**
+     * Matches a complete transcript, without regard to the current utterance.
+     *
+     * @param recognizerConfidence The recogniser's confidence in the transcript, or a negative
+     *                             value when it gives none
+     * @return The highest priority command that clears {@link #FINAL_THRESHOLD}, or null
+     */
+    public Command match(CharSequence text, float recognizerConfidence) {
+        scan(text);
+        float confidence = recognizerConfidence < 0 ? 1f : recognizerConfidence;
+        for (Command command : COMMANDS) {
+            float weight = Math.max(closedWeight[command.ordinal()], openWeight[command.ordinal()]);
+            if (weight * confidence >= FINAL_THRESHOLD) {
+                lastConfidence = weight * confidence;
+                return command;
+            }
+        }
+        return null;
+    }
+
+    /** Starts a new utterance; call when the recogniser starts listening. */
+    public void beginUtterance() {
+        lastOpenCommand = null;
+        hint = null;
+        firedThisUtterance = false;
+    }
+
+    /**
+     * @return The command to act on now, or null to keep listening
+     */
+    public Command onPartialResult(CharSequence text) {
+        if (firedThisUtterance) return null;
+        scan(text);
+        hint = trailingHint(text);
+        Command best = null;
+        float bestConfidence = 0f;
+        Command open = null;
+        for (Command command : COMMANDS) {
+            int ordinal = command.ordinal();
+            float confidence = closedWeight[ordinal];
+            if (openWeight[ordinal] > 0f) {
+                open = command;
+                float factor = command == lastOpenCommand ? 1f : OPEN_WORD_FACTOR;
+                confidence = Math.max(confidence, openWeight[ordinal] * factor);
+            }
+            if (confidence <= 0f) continue;
+            if (best != null) {
+                // Several commands heard: let the final result decide
+                best = null;
+                break;
+            }
+            best = command;
+            bestConfidence = confidence;
+        }
+        lastOpenCommand = open;
+        if (best == null || bestConfidence < PARTIAL_THRESHOLD) return null;
+        lastConfidence = bestConfidence;
+        firedThisUtterance = true;
+        return best;
+    }
+
+    /**
+     * @return The command to act on, or null when none cleared the threshold or one already
+     *         fired from a partial result of this utterance
+     */
+    public Command onFinalResult(CharSequence text, float recognizerConfidence) {
+        if (firedThisUtterance) return null;
+        Command command = match(text, recognizerConfidence);
+        firedThisUtterance = command != null;
+        return command;
+    }
+
+    /**
+     * @return The command the last word of the latest partial result is heading for, such as
+     *         NAVIGATE for "nav", or null; a hint, not a decision
+     */
+    public Command getHint() {
+        return hint;
+    }
+
+    /**
+     * @return Whether a command already fired in the current utterance
+     */
+    public boolean hasFired() {
+        return firedThisUtterance;
+    }
+
+    /**
+     * @return Confidence of the last command returned
+     */
+    public float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    int getNodeCount() {
+        return keywordAt.length;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.visualassistant;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure-Java YUV 4:2:0 conversion routines.
+ *
+ * Replaces the old YuvImage -> JPEG -> Bitmap round trip with a direct integer
+ * BT.601 (full range, as produced by camera HALs) conversion into a caller-owned
+ * ARGB buffer. Nothing in here touches Android classes, so the same code runs in
+ * the app and in host-side replay, tests and benchmarks.
+ */
+public final class YuvConverter {
+
+    // BT.601 full-range coefficients in 16.16 fixed point
+    private static final int V_TO_R = 91881;   // 1.402
+    private static final int U_TO_G = 22554;   // 0.344136
+    private static final int V_TO_G = 46802;   // 0.714136
+    private static final int U_TO_B = 116130;  // 1.772
+    private static final int ROUND = 1 << 15;
+
+    private YuvConverter() {
+    }
+
+    /**
+     * Copies one camera plane into a tightly packed array, dropping row padding and
+     * de-interleaving semi-planar chroma (pixel stride 2).
+     */
+    public static void copyPlane(ByteBuffer src, int rowStride, int pixelStride,
+                                 int width, int height, byte[] dst) {
+        int base = src.position();
+        if (pixelStride == 1 && rowStride == width) {
+            src.get(dst, 0, width * height);
+            src.position(base);
+            return;
+        }
+
+        int out = 0;
+        for (int row = 0; row < height; row++) {
+            int rowStart = base + row * rowStride;
+            if (pixelStride == 1) {
+                src.position(rowStart);
+                src.get(dst, out, width);
+                out += width;
+            } else {
+                for (int col = 0; col < width; col++) {
+                    dst[out++] = src.get(rowStart + col * pixelStride);
+                }
+            }
+        }
+        src.position(base);
+    }
+
+    /**
+     * Converts a frame to packed ARGB_8888 pixels (unrotated, width x height).
+     * Frames recorded without chroma come out as greyscale.
+     */
+    public static void yuvToArgb(YuvFrame frame, int[] argb) {
+        final int width = frame.width;
+        final int height = frame.height;
+        final byte[] yPlane = frame.y;
+
+        if (!frame.hasChroma) {
+            for (int i = 0, n = width * height; i < n; i++) {
+                int luma = yPlane[i] & 0xFF;
+                argb[i] = 0xFF000000 | (luma << 16) | (luma << 8) | luma;
+            }
+            return;
+        }
+
+        final byte[] uPlane = frame.u;
+        final byte[] vPlane = frame.v;
+        final int shift = frame.chromaShift;
+        final int chromaWidth = frame.chromaWidth();
+
+        int out = 0;
+        for (int row = 0; row < height; row++) {
+            int chromaRow = (row >> shift) * chromaWidth;
+            for (int col = 0; col < width; col++) {
+                int chromaIndex = chromaRow + (col >> shift);
+                int luma = (yPlane[out] & 0xFF) << 16;
+                int cb = (uPlane[chromaIndex] & 0xFF) - 128;
+                int cr = (vPlane[chromaIndex] & 0xFF) - 128;
+
+                int r = (luma + V_TO_R * cr + ROUND) >> 16;
+                int g = (luma - U_TO_G * cb - V_TO_G * cr + ROUND) >> 16;
+                int b = (luma + U_TO_B * cb + ROUND) >> 16;
+
+                r = r < 0 ? 0 : (r > 255 ? 255 : r);
+                g = g < 0 ? 0 : (g > 255 ? 255 : g);
+                b = b < 0 ? 0 : (b > 255 ? 255 : b);
+
+                argb[out++] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /**
+     * Writes the frame as NV21 (Y plane followed by interleaved V/U at 4:2:0), the
+     * layout ML Kit accepts for byte-array input. Further subsampled chroma is
+     * replicated back up to 4:2:0; frames without chroma get neutral grey chroma.
+     *
+     * @return The number of bytes written.
+     */
+    public static int yuvToNv21(YuvFrame frame, byte[] nv21) {
+        final int width = frame.width;
+        final int height = frame.height;
+        final int lumaSize = width * height;
+        System.arraycopy(frame.y, 0, nv21, 0, lumaSize);
+
+        final int outChromaWidth = (width + 1) >> 1;
+        final int outChromaHeight = (height + 1) >> 1;
+        final int srcChromaWidth = frame.chromaWidth();
+        final int extraShift = frame.chromaShift - 1;
+
+        int out = lumaSize;
+        for (int row = 0; row < outChromaHeight; row++) {
+            int srcRow = (row >> extraShift) * srcChromaWidth;
+            for (int col = 0; col < outChromaWidth; col++) {
+                if (frame.hasChroma) {
+                    int srcIndex = srcRow + (col >> extraShift);
+                    nv21[out++] = frame.v[srcIndex];
+                    nv21[out++] = frame.u[srcIndex];
+                } else {
+                    nv21[out++] = (byte) 128;
+                    nv21[out++] = (byte) 128;
+                }
+            }
+        }
+        return out;
+    }
+
+    public static int nv21Size(int width, int height) {
+        return width * height + 2 * ((width + 1) >> 1) * ((height + 1) >> 1);
+    }
+
+    /**
+     * Copies a region of {@code src} into {@code dst}, keeping the rotation. The region is
+     * given in normalised coordinates of the upright (rotated) frame and is widened to
+     * whole chroma samples.
+     *
+     * @param offset Receives the crop's top-left corner in pixels of the upright frame
+     */
+    public static void cropUpright(YuvFrame src, float left, float top, float right, float bottom,
+                                   YuvFrame dst, int[] offset) {
+        int rotation = ((src.rotationDegrees % 360) + 360) % 360;
+
+        // Region in normalised sensor coordinates (before rotation)
+        float sensorLeft, sensorTop, sensorRight, sensorBottom;
+        switch (rotation) {
+            case 90:
+                sensorLeft = top;
+                sensorRight = bottom;
+                sensorTop = 1 - right;
+                sensorBottom = 1 - left;
+                break;
+            case 180:
+                sensorLeft = 1 - right;
+                sensorRight = 1 - left;
+                sensorTop = 1 - bottom;
+                sensorBottom = 1 - top;
+                break;
+            case 270:
+                sensorLeft = 1 - bottom;
+                sensorRight = 1 - top;
+                sensorTop = left;
+                sensorBottom = right;
+                break;
+            default:
+                sensorLeft = left;
+                sensorRight = right;
+                sensorTop = top;
+                sensorBottom = bottom;
+                break;
+        }
+
+        // Align to whole chroma samples so the chroma planes crop cleanly
+        int align = 1 << src.chromaShift;
+        int x0 = alignDown((int) (sensorLeft * src.width), align);
+        int y0 = alignDown((int) (sensorTop * src.height), align);
+        int x1 = Math.min(src.width, alignUp((int) Math.ceil(sensorRight * src.width), align));
+        int y1 = Math.min(src.height, alignUp((int) Math.ceil(sensorBottom * src.height), align));
+        int width = x1 - x0;
+        int height = y1 - y0;
+
+        dst.ensureCapacity(width, height, src.chromaShift);
+        dst.rotationDegrees = src.rotationDegrees;
+        dst.timestampNanos = src.timestampNanos;
+        dst.hasChroma = src.hasChroma;
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(src.y, (y0 + row) * src.width + x0, dst.y, row * width, width);
+        }
+        if (src.hasChroma) {
+            int chromaX = x0 >> src.chromaShift;
+            int chromaY = y0 >> src.chromaShift;
+            int srcChromaWidth = src.chromaWidth();
+            int chromaWidth = dst.chromaWidth();
+            for (int row = 0, rows = dst.chromaHeight(); row < rows; row++) {
+                int from = (chromaY + row) * srcChromaWidth + chromaX;
+                System.arraycopy(src.u, from, dst.u, row * chromaWidth, chromaWidth);
+                System.arraycopy(src.v, from, dst.v, row * chromaWidth, chromaWidth);
+            }
+        }
+
+        // Where the crop lands once the frame is rotated upright
+        switch (rotation) {
+            case 90:
+                offset[0] = src.height - y1;
+                offset[1] = x0;
+                break;
+            case 180:
+                offset[0] = src.width - x1;
+                offset[1] = src.height - y1;
+                break;
+            case 270:
+                offset[0] = y0;
+                offset[1] = src.width - x1;
+                break;
+            default:
+                offset[0] = x0;
+                offset[1] = y0;
+                break;
+        }
+    }
+
+    private static int alignDown(int value, int align) {
+        return value & -align;
+    }
+
+    private static int alignUp(int value, int align) {
+        return (value + align - 1) & -align;
+    }
+}
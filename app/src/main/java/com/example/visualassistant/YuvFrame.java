@@ -0,0 +1,102 @@
+package com.example.visualassistant;
+
+import java.util.Arrays;
+
+/**
+ * Camera frame in planar YUV 4:2:0 form, independent of Android classes.
+ *
+ * The Y plane is stored tightly packed (row stride == width). The U and V planes
+ * are stored tightly packed at {@code width >> chromaShift} by
+ * {@code height >> chromaShift}; a chroma shift of 1 is regular 4:2:0, larger
+ * shifts are the further subsampled chroma written by the session recorder.
+ * Frames are meant to be reused: {@link #ensureCapacity} only reallocates when
+ * the geometry grows.
+ */
+public class YuvFrame {
+
+    public int width;
+    public int height;
+    public int rotationDegrees;
+    public long timestampNanos;
+
+    public byte[] y = new byte[0];
+    public byte[] u = new byte[0];
+    public byte[] v = new byte[0];
+    public int chromaShift = 1;
+    public boolean hasChroma = true;
+
+    public YuvFrame() {
+    }
+
+    public YuvFrame(int width, int height) {
+        ensureCapacity(width, height, 1);
+    }
+
+    /**
+     * @return A uniform mid-grey frame, for warming up models before any camera frame arrives
+     */
+    public static YuvFrame gray(int width, int height) {
+        YuvFrame frame = new YuvFrame(width, height);
+        Arrays.fill(frame.y, (byte) 128);
+        Arrays.fill(frame.u, (byte) 128);
+        Arrays.fill(frame.v, (byte) 128);
+        return frame;
+    }
+
+    /**
+     * Sets the frame geometry and makes sure the plane arrays are large enough for it.
+     */
+    public void ensureCapacity(int width, int height, int chromaShift) {
+        this.width = width;
+        this.height = height;
+        this.chromaShift = chromaShift;
+
+        int lumaSize = width * height;
+        if (y.length < lumaSize) {
+            y = new byte[lumaSize];
+        }
+        int chromaSize = chromaWidth() * chromaHeight();
+        if (u.length < chromaSize) {
+            u = new byte[chromaSize];
+            v = new byte[chromaSize];
+        }
+    }
+
+    public int chromaWidth() {
+        return (width + (1 << chromaShift) - 1) >> chromaShift;
+    }
+
+    public int chromaHeight() {
+        return (height + (1 << chromaShift) - 1) >> chromaShift;
+    }
+
+    /**
+     * @return The width of the frame once the sensor rotation has been applied.
+     */
+    public int orientedWidth() {
+        return rotationDegrees % 180 == 0 ? width : height;
+    }
+
+    /**
+     * @return The height of the frame once the sensor rotation has been applied.
+     */
+    public int orientedHeight() {
+        return rotationDegrees % 180 == 0 ? height : width;
+    }
+
+    /**
+     * Copies geometry, metadata and plane contents from another frame.
+     */
+    public void copyFrom(YuvFrame other) {
+        ensureCapacity(other.width, other.height, other.chromaShift);
+        rotationDegrees = other.rotationDegrees;
+        timestampNanos = other.timestampNanos;
+        hasChroma = other.hasChroma;
+        System.arraycopy(other.y, 0, y, 0, width * height);
+        if (hasChroma) {
+            int chromaSize = chromaWidth() * chromaHeight();
+            System.arraycopy(other.u, 0, u, 0, chromaSize);
+            System.arraycopy(other.v, 0, v, 0, chromaSize);
+        }
+    }
+}
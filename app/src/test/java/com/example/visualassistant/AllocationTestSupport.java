@@ -0,0 +1,61 @@
+package com.example.visualassistant;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures heap allocation on the host JVM for the tests that keep a hot path
+ * allocation-free. Allocation is read from the thread's allocation counter, so anything
+ * the code under test allocates on that thread counts, whether or not the JIT would later
+ * remove it. Tests are skipped on JVMs without the counter.
+ */
+final class AllocationTestSupport {
+
+    private AllocationTestSupport() {
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+
+    /**
+     * @return Bytes allocated so far by {@code thread}, which must be alive
+     */
+    static long allocatedBytes(Thread thread) {
+        return threadBean().getThreadAllocatedBytes(thread.getId());
+    }
+
+    /**
+     * @return Bytes the current thread allocates per run of {@code step}, after {@code warmUpRuns}
+     *         unmeasured runs
+     */
+    static long bytesPerRun(Runnable step, int warmUpRuns, int measuredRuns) {
+        com.sun.management.ThreadMXBean threadBean = threadBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < warmUpRuns; i++) {
+            step.run();
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < measuredRuns; i++) {
+            step.run();
+        }
+        // Integer division absorbs the few bytes the counter read itself may allocate
+        return (threadBean.getThreadAllocatedBytes(threadId) - before) / measuredRuns;
+    }
+
+    static void assertAtMost(String what, long budget, Runnable step, int warmUpRuns, int measuredRuns) {
+        long perRun = bytesPerRun(step, warmUpRuns, measuredRuns);
+        assertTrue(what + " allocated " + perRun + " bytes per run, budget is " + budget, perRun <= budget);
+    }
+
+    static void assertNoAllocation(String what, Runnable step, int warmUpRuns, int measuredRuns) {
+        assertAtMost(what, 0, step, warmUpRuns, measuredRuns);
+    }
+}
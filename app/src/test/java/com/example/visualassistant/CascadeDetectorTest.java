@@ -0,0 +1,112 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CascadeDetectorTest {
+
+    @Test
+    public void runsTheDetectorOnlyWhenTheGateFiresOrARefreshIsDue() throws Exception {
+        ScriptedGate gate = new ScriptedGate(0f, 0f, 0.9f, 0f, 0f, 0f, 0f, 0f, 0f, 0f);
+        SlowDetector detector = new SlowDetector();
+        CascadeDetector cascade = new CascadeDetector(gate, detector, 0.5f, 4);
+        YuvFrame frame = ReplayTestSupport.frameWithObject(64, 48, 0, 8, 8, 24, 40);
+        int[] argb = argb(frame);
+
+        for (int i = 0; i < 10; i++) {
+            List<ObjectDetection> results = cascade.detect(frame, argb);
+            // Frames 0 and 1 come before any full run has been seen
+            assertEquals("frame " + i, i < 2 ? 0 : 1, results.size());
+        }
+
+        // Gate fired on frame 2, the refresh interval forced frame 6
+        assertEquals(2, detector.calls);
+        assertEquals(0.1f, cascade.getPassRate(), 1e-6f);
+        assertEquals(1, cascade.getRefreshCount());
+        assertEquals(2, gate.detectorRuns);
+        // Six frames after the first full run were skipped at about the detector's cost each
+        assertTrue(cascade.getSavedNanos() >= 6 * (SlowDetector.MILLIS - 1) * 1_000_000L);
+    }
+
+    @Test
+    public void skippedFramesReturnCopiesCallersCanModify() throws Exception {
+        CascadeDetector cascade = new CascadeDetector(new ScriptedGate(1f, 0f, 0f),
+                new ReplayTestSupport.BrightRegionDetector(), 0.5f, 0);
+        YuvFrame frame = ReplayTestSupport.frameWithObject(64, 48, 0, 8, 8, 24, 40);
+        int[] argb = argb(frame);
+
+        ObjectDetection first = cascade.detect(frame, argb).get(0);
+        first.set("person", 0.9f, 0f, 100, 100, 110, 110);
+        ObjectDetection repeated = cascade.detect(frame, argb).get(0);
+        repeated.set("person", 0.9f, 0f, 200, 200, 210, 210);
+
+        assertEquals(8f, cascade.detect(frame, argb).get(0).getLeft(), 0f);
+    }
+
+    @Test
+    public void lumaChangeGateFiresOnChangeSinceTheLastDetection() {
+        LumaChangeGate gate = new LumaChangeGate();
+        YuvFrame empty = ReplayTestSupport.emptyFrame(160, 120, 0);
+        YuvFrame withObject = ReplayTestSupport.frameWithObject(160, 120, 0, 40, 30, 120, 90);
+
+        // No reference yet
+        assertEquals(1f, gate.score(empty, null), 0f);
+        gate.onDetectorRun();
+        assertEquals(0f, gate.score(empty, null), 0f);
+
+        float score = gate.score(withObject, null);
+        assertTrue("score " + score, score > 0.2f);
+        // Not yet detected, so the change is still reported on the next frame
+        assertEquals(score, gate.score(withObject, null), 0f);
+        gate.onDetectorRun();
+        assertEquals(0f, gate.score(withObject, null), 0f);
+    }
+
+    private static int[] argb(YuvFrame frame) {
+        int[] argb = new int[frame.width * frame.height];
+        YuvConverter.yuvToArgb(frame, argb);
+        return argb;
+    }
+
+    private static class ScriptedGate implements PresenceGate {
+        private final float[] scores;
+        private int next;
+        int detectorRuns;
+
+        ScriptedGate(float... scores) {
+            this.scores = scores;
+        }
+
+        @Override
+        public float score(YuvFrame frame, int[] argb) {
+            return scores[Math.min(next++, scores.length - 1)];
+        }
+
+        @Override
+        public void onDetectorRun() {
+            detectorRuns++;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class SlowDetector extends ReplayTestSupport.BrightRegionDetector {
+        static final long MILLIS = 5;
+
+        @Override
+        public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+            try {
+                Thread.sleep(MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.detect(frame, argb);
+        }
+    }
+}
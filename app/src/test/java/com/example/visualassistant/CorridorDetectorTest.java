@@ -0,0 +1,143 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CorridorDetectorTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    @Test
+    public void mapsCorridorDetectionsBackToTheUprightFrame() throws Exception {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            int orientedWidth = rotation % 180 == 0 ? WIDTH : HEIGHT;
+            int orientedHeight = rotation % 180 == 0 ? HEIGHT : WIDTH;
+            // An obstacle low in the middle of the upright picture
+            int left = orientedWidth / 2 - 10;
+            int top = orientedHeight - 30;
+            YuvFrame frame = uprightObject(rotation, left, top, left + 20, top + 20);
+
+            CorridorDetector corridor = new CorridorDetector();
+            OrientedBrightDetector detector = new OrientedBrightDetector();
+            List<ObjectDetection> results = corridor.detect(detector, frame);
+
+            assertEquals("rotation " + rotation, 1, results.size());
+            ObjectDetection detection = results.get(0);
+            assertEquals("rotation " + rotation, left, detection.getLeft(), 0f);
+            assertEquals("rotation " + rotation, top, detection.getTop(), 0f);
+            assertEquals("rotation " + rotation, left + 20, detection.getRight(), 0f);
+            assertEquals("rotation " + rotation, top + 20, detection.getBottom(), 0f);
+
+            // The detector only saw the corridor, not the whole frame
+            assertTrue(detector.lastPixels < WIDTH * HEIGHT / 2);
+        }
+    }
+
+    @Test
+    public void scansThePeripheryAtALowerCadence() throws Exception {
+        // Object in the upper left corner, outside the default corridor
+        YuvFrame frame = uprightObject(0, 4, 4, 24, 24);
+        CorridorDetector corridor = new CorridorDetector(0.2f, 0.35f, 0.8f, 1f, 3);
+        OrientedBrightDetector detector = new OrientedBrightDetector();
+
+        int framesWithObject = 0;
+        for (int i = 0; i < 9; i++) {
+            List<ObjectDetection> results = corridor.detect(detector, frame);
+            if (!results.isEmpty()) {
+                framesWithObject++;
+                assertEquals(4f, results.get(0).getLeft(), 0f);
+                assertEquals(24f, results.get(0).getBottom(), 0f);
+            }
+        }
+
+        assertEquals(3, framesWithObject);
+        assertEquals(3, corridor.getPeripheryFrameCount());
+        // 9 corridor crops plus 3 whole frames is still far less than 9 whole frames
+        assertTrue(corridor.getConvertedPixels() < 9L * WIDTH * HEIGHT);
+    }
+
+    @Test
+    public void peripheryPassDoesNotRepeatCorridorObjects() throws Exception {
+        YuvFrame frame = uprightObject(0, 70, 90, 90, 110);
+        CorridorDetector corridor = new CorridorDetector(0.2f, 0.35f, 0.8f, 1f, 1);
+
+        List<ObjectDetection> results = corridor.detect(new OrientedBrightDetector(), frame);
+
+        assertEquals(1, results.size());
+    }
+
+    /**
+     * Builds a sensor frame with the given rotation whose upright picture has one bright
+     * rectangle at the given upright pixel coordinates.
+     */
+    private static YuvFrame uprightObject(int rotation, int left, int top, int right, int bottom) {
+        YuvFrame frame = new YuvFrame(WIDTH, HEIGHT);
+        frame.rotationDegrees = rotation;
+        Arrays.fill(frame.u, (byte) 128);
+        Arrays.fill(frame.v, (byte) 128);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int[] upright = toUpright(x, y, WIDTH, HEIGHT, rotation);
+                boolean inside = upright[0] >= left && upright[0] < right
+                        && upright[1] >= top && upright[1] < bottom;
+                frame.y[y * WIDTH + x] = inside ? ReplayTestSupport.OBJECT_LUMA : ReplayTestSupport.BACKGROUND_LUMA;
+            }
+        }
+        return frame;
+    }
+
+    // Clockwise rotation of a sensor pixel into the upright picture
+    private static int[] toUpright(int x, int y, int width, int height, int rotation) {
+        switch (rotation) {
+            case 90:
+                return new int[]{height - 1 - y, x};
+            case 180:
+                return new int[]{width - 1 - x, height - 1 - y};
+            case 270:
+                return new int[]{y, width - 1 - x};
+            default:
+                return new int[]{x, y};
+        }
+    }
+
+    /**
+     * Reports the bright region of its input in upright pixel coordinates, as a real
+     * detector working on the rotated bitmap would.
+     */
+    private static class OrientedBrightDetector implements DetectorBackend {
+        int lastPixels;
+
+        @Override
+        public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+            lastPixels = frame.width * frame.height;
+            int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = -1, bottom = -1;
+            for (int y = 0; y < frame.height; y++) {
+                for (int x = 0; x < frame.width; x++) {
+                    if (((argb[y * frame.width + x] >> 8) & 0xFF) > 200) {
+                        int[] upright = toUpright(x, y, frame.width, frame.height, frame.rotationDegrees);
+                        left = Math.min(left, upright[0]);
+                        top = Math.min(top, upright[1]);
+                        right = Math.max(right, upright[0] + 1);
+                        bottom = Math.max(bottom, upright[1] + 1);
+                    }
+                }
+            }
+            List<ObjectDetection> detections = new ArrayList<>();
+            if (right > 0) {
+                detections.add(new ObjectDetection("chair", 0.9f, 0f, left, top, right, bottom));
+            }
+            return detections;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FallDetectorTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long PERIOD = 20 * MS;
+    private static final float G = 9.81f;
+
+    // Synthetic trace segments; each returns the acceleration vector at t into out
+    private interface Segment {
+        void sample(long t, float[] out);
+    }
+
+    private final Random noise = new Random(11);
+    private final float[] sample = new float[3];
+    private long clock;
+
+    /**
+     * Feeds {@code duration} of {@code segment}.
+     *
+     * @return Time of the first sample that confirmed a fall, or -1
+     */
+    private long play(FallDetector detector, long duration, Segment segment) {
+        long fired = -1;
+        long start = clock;
+        for (; clock < start + duration; clock += PERIOD) {
+            segment.sample(clock - start, sample);
+            float jitter = (float) noise.nextGaussian() * 0.2f;
+            if (detector.onSample(clock, sample[0] + jitter, sample[1] + jitter, sample[2] + jitter) && fired < 0) {
+                fired = clock;
+            }
+        }
+        return fired;
+    }
+
+    private static Segment upright() {
+        return (t, out) -> set(out, 0f, G, 0f);
+    }
+
+    private static Segment lyingFlat() {
+        return (t, out) -> set(out, 0f, 0f, G);
+    }
+
+    private static Segment freeFall() {
+        return (t, out) -> set(out, 0.3f, 0.8f, 0.2f);
+    }
+
+    // A sharp spike, then bouncing that dies away
+    private static Segment impact() {
+        return (t, out) -> {
+            if (t < 60 * MS) {
+                set(out, 12f, 30f, 8f);
+            } else {
+                float bounce = 6f * (float) Math.exp(-t / 150e6) * (float) Math.sin(2 * Math.PI * 8 * t / 1e9);
+                set(out, bounce, 0f, G + bounce);
+            }
+        };
+    }
+
+    private static Segment walking() {
+        return (t, out) -> set(out, 1.5f * (float) Math.sin(2 * Math.PI * 2 * t / 1e9),
+                G + 3f * (float) Math.sin(2 * Math.PI * 4 * t / 1e9), 0f);
+    }
+
+    private static void set(float[] out, float x, float y, float z) {
+        out[0] = x;
+        out[1] = y;
+        out[2] = z;
+    }
+
+    @Test
+    public void aFallIsConfirmedOnceThePhoneLiesStill() {
+        FallDetector detector = new FallDetector();
+        assertEquals(-1, play(detector, 2000 * MS, walking()));
+        assertEquals(-1, play(detector, 400 * MS, freeFall()));
+        long impactAt = clock;
+        assertEquals(-1, play(detector, 600 * MS, impact()));
+        assertEquals(FallDetector.State.CHECKING_STILLNESS, detector.getState());
+
+        long fired = play(detector, 4000 * MS, lyingFlat());
+
+        long expected = impactAt + FallDetector.SETTLE_NANOS + FallDetector.STILL_NANOS;
+        assertTrue("fired at " + fired, fired >= expected && fired <= expected + 2 * PERIOD);
+        assertEquals(1, detector.getFallCount());
+        assertEquals(FallDetector.State.WATCHING, detector.getState());
+    }
+
+    @Test
+    public void shakingIsNotAFall() {
+        FallDetector detector = new FallDetector();
+        play(detector, 1000 * MS, upright());
+        play(detector, 3000 * MS, (t, out) -> set(out, 30f * (float) Math.sin(2 * Math.PI * 5 * t / 1e9), G, 0f));
+        play(detector, 4000 * MS, lyingFlat());
+
+        assertEquals(0, detector.getFallCount());
+        assertTrue(detector.getImpactsWithoutFreeFall() > 0);
+    }
+
+    @Test
+    public void aDroppedPhoneThatIsPickedUpIsNotAFall() {
+        FallDetector detector = new FallDetector();
+        play(detector, 1000 * MS, upright());
+        play(detector, 300 * MS, freeFall());
+        play(detector, 600 * MS, impact());
+        play(detector, 1500 * MS, lyingFlat());
+        // Picked up and carried on before the stillness check completes
+        play(detector, 3000 * MS, walking());
+
+        assertEquals(0, detector.getFallCount());
+        assertEquals(FallDetector.State.WATCHING, detector.getState());
+    }
+
+    @Test
+    public void aBriefDipBeforeAnImpactIsNotFreeFall() {
+        FallDetector detector = new FallDetector();
+        play(detector, 1000 * MS, upright());
+        // Sitting down hard: a 40 ms dip, then the jolt
+        play(detector, 40 * MS, freeFall());
+        play(detector, 600 * MS, impact());
+        play(detector, 4000 * MS, upright());
+
+        assertEquals(0, detector.getFallCount());
+        assertEquals(1, detector.getImpactsWithoutFreeFall());
+    }
+
+    @Test
+    public void samplesDoNotAllocate() {
+        // A fall every 5 s, so every state is exercised
+        float[] trace = new float[3 * 250];
+        for (int i = 0; i < 250; i++) {
+            long t = i * PERIOD;
+            if (t >= 1000 * MS && t < 1300 * MS) {
+                set(sample, 0.3f, 0.8f, 0.2f);
+            } else if (t >= 1300 * MS && t < 1360 * MS) {
+                set(sample, 12f, 30f, 8f);
+            } else {
+                set(sample, 0f, t < 1000 * MS ? G : 0f, t < 1000 * MS ? 0f : G);
+            }
+            System.arraycopy(sample, 0, trace, 3 * i, 3);
+        }
+        FallDetector detector = new FallDetector();
+        int[] next = {0};
+        AllocationTestSupport.assertNoAllocation("FallDetector.onSample", () -> {
+            int i = next[0]++;
+            int o = 3 * (i % 250);
+            detector.onSample((i + 1) * PERIOD, trace[o], trace[o + 1], trace[o + 2]);
+        }, 2500, 100_000);
+        assertTrue(detector.getFallCount() > 0);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs frames through the per-frame hot path on the host JVM and fails if a stage
+ * allocates. Only spoken frames may allocate, up to {@link #ANNOUNCEMENT_BUDGET}.
+ */
+public class FrameAllocationTest {
+
+    private static final int WARM_UP_FRAMES = 200;
+    private static final int MEASURED_FRAMES = 1000;
+    // Bytes per spoken frame: the message strings and the repeat-suppression entries
+    private static final long ANNOUNCEMENT_BUDGET = 2048;
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final String[] LABELS = {"person", "chair", "car", "bicycle", "dog", "cup"};
+
+    @Test
+    public void conversionStaysWithinBudget() {
+        // Camera-like planes: padded rows, chroma interleaved with pixel stride 2
+        int rowStride = WIDTH + 32;
+        Random random = new Random(1);
+        ByteBuffer yPlane = randomDirectBuffer(random, rowStride * HEIGHT);
+        ByteBuffer uPlane = randomDirectBuffer(random, rowStride * HEIGHT / 2);
+        ByteBuffer vPlane = randomDirectBuffer(random, rowStride * HEIGHT / 2);
+        YuvFrame frame = new YuvFrame();
+        int[] argb = new int[WIDTH * HEIGHT];
+
+        // Same steps as BitmapUtils.toYuvFrame followed by the analyzer's ARGB conversion
+        Runnable convert = () -> {
+            frame.ensureCapacity(WIDTH, HEIGHT, 1);
+            YuvConverter.copyPlane(yPlane, rowStride, 1, WIDTH, HEIGHT, frame.y);
+            YuvConverter.copyPlane(uPlane, rowStride, 2, frame.chromaWidth(), frame.chromaHeight(), frame.u);
+            YuvConverter.copyPlane(vPlane, rowStride, 2, frame.chromaWidth(), frame.chromaHeight(), frame.v);
+            YuvConverter.yuvToArgb(frame, argb);
+        };
+
+        AllocationTestSupport.assertNoAllocation("conversion", convert, WARM_UP_FRAMES, 50);
+    }
+
+    @Test
+    public void silentPostProcessingStaysWithinBudget() {
+        for (boolean navigation : new boolean[]{false, true}) {
+            for (String language : new String[]{"ENGLISH", "HINDI", "MARATHI"}) {
+                DetectionPostProcessor postProcessor = new DetectionPostProcessor();
+                postProcessor.setIsNavigationMode(navigation);
+                postProcessor.setCurrentLanguage(language);
+                List<List<ObjectDetection>> frames = detectionFrames();
+                int[] frameIndex = {0};
+
+                Runnable process = () -> {
+                    int index = frameIndex[0]++;
+                    postProcessor.process(frames.get(index % frames.size()), WIDTH, HEIGHT, index, false);
+                };
+
+                AllocationTestSupport.assertNoAllocation(
+                        "post-processing (" + language + (navigation ? ", navigation)" : ")"),
+                        process, WARM_UP_FRAMES, MEASURED_FRAMES);
+            }
+        }
+    }
+
+    @Test
+    public void announcementStaysWithinBudget() {
+        for (boolean navigation : new boolean[]{false, true}) {
+            for (String language : new String[]{"ENGLISH", "HINDI", "MARATHI"}) {
+                DetectionPostProcessor postProcessor = new DetectionPostProcessor();
+                postProcessor.setIsNavigationMode(navigation);
+                postProcessor.setCurrentLanguage(language);
+                List<List<ObjectDetection>> frames = detectionFrames();
+                int[] frameIndex = {0};
+
+                // Frames far enough apart that repeat suppression never hides a label
+                Runnable speak = () -> {
+                    int index = frameIndex[0]++;
+                    postProcessor.process(frames.get(index % frames.size()), WIDTH, HEIGHT, index * 20_000L, true);
+                };
+
+                AllocationTestSupport.assertAtMost(
+                        "announcement (" + language + (navigation ? ", navigation)" : ")"),
+                        ANNOUNCEMENT_BUDGET, speak, WARM_UP_FRAMES, MEASURED_FRAMES);
+            }
+        }
+    }
+
+    @Test
+    public void tracingStaysWithinBudget() {
+        FrameTracer tracer = new FrameTracer(256);
+        long[] traceId = {0};
+
+        Runnable trace = () -> {
+            long id = traceId[0]++;
+            long start = FrameTracer.now();
+            tracer.beginFrame(id);
+            tracer.record(id, FrameTracer.SPAN_CONVERT, start, FrameTracer.now());
+            tracer.record(id, FrameTracer.SPAN_INFERENCE, start, FrameTracer.now());
+            tracer.record(id, FrameTracer.SPAN_MESSAGE, start, FrameTracer.now());
+        };
+
+        AllocationTestSupport.assertNoAllocation("tracing", trace, WARM_UP_FRAMES, MEASURED_FRAMES);
+    }
+
+    private static List<List<ObjectDetection>> detectionFrames() {
+        Random random = new Random(7);
+        List<List<ObjectDetection>> frames = new ArrayList<>();
+        frames.add(new ArrayList<>());
+        for (int f = 0; f < 8; f++) {
+            List<ObjectDetection> detections = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                float left = random.nextFloat() * WIDTH * 0.5f;
+                float top = random.nextFloat() * HEIGHT * 0.5f;
+                detections.add(new ObjectDetection(LABELS[(f + i) % LABELS.length], 0.2f + random.nextFloat() * 0.8f,
+                        0f, left, top, left + WIDTH * 0.5f, top + HEIGHT * 0.5f));
+            }
+            frames.add(detections);
+        }
+        return frames;
+    }
+
+    private static ByteBuffer randomDirectBuffer(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+}
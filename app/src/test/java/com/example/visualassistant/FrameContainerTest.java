@@ -0,0 +1,100 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameContainerTest {
+
+    @Test
+    public void roundTrip_preservesFramesDetectionsAndAnnouncements() throws Exception {
+        YuvFrame frame = ReplayTestSupport.frameWithObject(64, 48, 1234, 10, 10, 20, 20);
+        frame.rotationDegrees = 90;
+        for (int i = 0; i < frame.u.length; i++) {
+            frame.u[i] = (byte) i;
+            frame.v[i] = (byte) (255 - i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameContainer.Writer writer = new FrameContainer.Writer(Channels.newChannel(bytes), 99L);
+        writer.writeFrame(frame, 1);
+        writer.writeDetections(frame.timestampNanos, Collections.singletonList(
+                new ObjectDetection("chair", 0.75f, 0f, 0.1f, 0.2f, 0.3f, 0.4f)));
+        writer.writeAnnouncement(frame.timestampNanos, "मैं देख सकता हूँ chair");
+        writer.writeFrame(frame, 0);
+        writer.close();
+        assertEquals(bytes.size(), writer.getBytesWritten());
+
+        FrameContainer.Reader reader = new FrameContainer.Reader(
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(99L, reader.getCreatedMillis());
+
+        assertEquals(FrameContainer.RECORD_FRAME, reader.next());
+        YuvFrame decoded = reader.readFrame(new YuvFrame());
+        assertEquals(64, decoded.width);
+        assertEquals(48, decoded.height);
+        assertEquals(90, decoded.rotationDegrees);
+        assertEquals(frame.timestampNanos, decoded.timestampNanos);
+        assertTrue(decoded.hasChroma);
+        assertArrayEquals(frame.y, Arrays.copyOf(decoded.y, 64 * 48));
+        assertArrayEquals(frame.u, Arrays.copyOf(decoded.u, frame.u.length));
+
+        assertEquals(FrameContainer.RECORD_DETECTIONS, reader.next());
+        List<ObjectDetection> detections = reader.readDetections();
+        assertEquals(1, detections.size());
+        assertEquals("chair", detections.get(0).getLabel());
+        assertEquals(0.4f, detections.get(0).getBottom(), 0f);
+
+        assertEquals(FrameContainer.RECORD_ANNOUNCEMENT, reader.next());
+        assertEquals("मैं देख सकता हूँ chair", reader.readAnnouncement());
+
+        assertEquals(FrameContainer.RECORD_FRAME, reader.next());
+        assertFalse(reader.readFrame(decoded).hasChroma);
+
+        assertEquals(FrameContainer.RECORD_END, reader.next());
+    }
+
+    @Test
+    public void subsampledChroma_isDecimatedAndStillConverts() throws Exception {
+        YuvFrame frame = ReplayTestSupport.frameWithObject(32, 32, 0, 0, 0, 32, 32);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameContainer.Writer writer = new FrameContainer.Writer(Channels.newChannel(bytes));
+        writer.writeFrame(frame, 2);
+        assertEquals(FrameContainer.FILE_HEADER_SIZE + FrameContainer.RECORD_HEADER_SIZE
+                + FrameContainer.framePayloadSize(32, 32, 2), bytes.size());
+
+        FrameContainer.Reader reader = new FrameContainer.Reader(
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        reader.next();
+        YuvFrame decoded = reader.readFrame(new YuvFrame());
+        assertEquals(2, decoded.chromaShift);
+        assertEquals(8, decoded.chromaWidth());
+
+        int[] argb = new int[32 * 32];
+        YuvConverter.yuvToArgb(decoded, argb);
+        // Neutral chroma keeps bright luma grey
+        assertEquals(0xFFE6E6E6, argb[0]);
+    }
+
+    @Test
+    public void truncatedTail_endsCleanly() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameContainer.Writer writer = new FrameContainer.Writer(Channels.newChannel(bytes));
+        writer.writeAnnouncement(1, "first");
+        writer.writeAnnouncement(2, "second");
+        byte[] data = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+
+        FrameContainer.Reader reader = new FrameContainer.Reader(
+                Channels.newChannel(new ByteArrayInputStream(data)));
+        assertEquals(FrameContainer.RECORD_ANNOUNCEMENT, reader.next());
+        assertEquals("first", reader.readAnnouncement());
+        assertEquals(FrameContainer.RECORD_END, reader.next());
+    }
+}
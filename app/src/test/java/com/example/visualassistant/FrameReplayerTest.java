@@ -0,0 +1,107 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameReplayerTest {
+
+    private static byte[] recordWalk() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameContainer.Writer writer = new FrameContainer.Writer(Channels.newChannel(bytes), 0L);
+        // 10 fps for 5 s; a large obstacle on the right for the first 2 s
+        for (int i = 0; i < 50; i++) {
+            long millis = i * 100L;
+            YuvFrame frame = millis < 2000
+                    ? ReplayTestSupport.frameWithObject(80, 60, millis, 40, 5, 80, 60)
+                    : ReplayTestSupport.emptyFrame(80, 60, millis);
+            writer.writeFrame(frame, 1);
+        }
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static FrameReplayer.ReplayReport replay(byte[] recording, boolean navigation) throws Exception {
+        FrameReplayer replayer = new FrameReplayer(new ReplayTestSupport.BrightRegionDetector(), null);
+        replayer.setIsNavigationMode(navigation);
+        return replayer.replay(new FrameContainer.Reader(
+                Channels.newChannel(new ByteArrayInputStream(recording))));
+    }
+
+    @Test
+    public void navigationReplay_announcesObstacleOnTheRight() throws Exception {
+        FrameReplayer.ReplayReport report = replay(recordWalk(), true);
+
+        assertEquals(50, report.frameCount);
+        // Analysis is rate-limited to once per second of frame time
+        assertEquals(5, report.detectionFrameCount);
+        // The detailed alert needs SPEECH_INTERVAL since the previous analysis,
+        // which the 1 s analysis cadence only allows on the first frame
+        assertEquals(Arrays.asList(
+                "0: person ahead to the right. ",
+                "0: Detected object: person",
+                "1000: Detected object: person",
+                "2000: No object detected",
+                "3000: No object detected",
+                "4000: No object detected"), report.announcements);
+
+        ObjectDetection box = report.detections.get(0).get(0);
+        assertEquals(0.5f, box.getLeft(), 1e-6f);
+        assertEquals(1f, box.getRight(), 1e-6f);
+    }
+
+    @Test
+    public void replay_isDeterministic() throws Exception {
+        byte[] recording = recordWalk();
+        assertEquals(replay(recording, false).announcements, replay(recording, false).announcements);
+    }
+
+    @Test
+    public void replay_convertsOnlyForBackendsThatReadArgb() throws Exception {
+        List<int[]> pixelsSeen = new ArrayList<>();
+        DetectorBackend planesOnly = new DetectorBackend() {
+            @Override
+            public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+                pixelsSeen.add(argb);
+                return Collections.emptyList();
+            }
+
+            @Override
+            public boolean usesArgb() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        FrameReplayer replayer = new FrameReplayer(planesOnly, null);
+        replayer.replay(new FrameContainer.Reader(Channels.newChannel(new ByteArrayInputStream(recordWalk()))));
+
+        assertEquals(5, pixelsSeen.size());
+        for (int[] pixels : pixelsSeen) {
+            assertNull(pixels);
+        }
+    }
+
+    @Test
+    public void textReplay_usesDetectedLanguage() throws Exception {
+        FrameReplayer replayer = new FrameReplayer(null,
+                new ReplayTestSupport.FixedTextRecognizer("यह एक किताब है"));
+        for (int i = 0; i < 7; i++) {
+            replayer.processFrame(ReplayTestSupport.emptyFrame(16, 16, i * 1000L));
+        }
+        assertEquals(Arrays.asList(
+                "0: पहचाना गया पाठ: यह एक किताब है",
+                "3000: पहचाना गया पाठ: यह एक किताब है",
+                "6000: पहचाना गया पाठ: यह एक किताब है"), replayer.getReport().announcements);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class FrameTracerTest {
+
+    @Test
+    public void utteranceId_roundTripsTraceId() {
+        String id = FrameTracer.utteranceId(123456789L);
+        assertEquals(123456789L, FrameTracer.traceIdFromUtterance(id));
+        assertEquals(FrameTracer.NO_TRACE, FrameTracer.traceIdFromUtterance("3f2a-uuid"));
+        assertEquals(FrameTracer.NO_TRACE, FrameTracer.traceIdFromUtterance(null));
+    }
+
+    @Test
+    public void utteranceStart_closesGlassToEarSpan() throws Exception {
+        FrameTracer tracer = new FrameTracer(16);
+        tracer.beginFrame(42L);
+        tracer.record(42L, FrameTracer.SPAN_INFERENCE, 1000, 5000);
+        tracer.onUtteranceStarted(FrameTracer.utteranceId(42L));
+        assertEquals(2, tracer.size());
+
+        // A second onStart for the same frame must not produce another span
+        tracer.onUtteranceStarted(FrameTracer.utteranceId(42L));
+        assertEquals(2, tracer.size());
+
+        StringWriter out = new StringWriter();
+        tracer.writeChromeTrace(out);
+        String json = out.toString();
+        assertTrue(json.startsWith("{\"traceEvents\":["));
+        assertTrue(json.contains("\"name\":\"glass_to_ear\""));
+        assertTrue(json.contains("\"name\":\"inference\",\"cat\":\"frame\",\"ph\":\"X\""));
+        assertTrue(json.contains("\"ts\":1.000,\"dur\":4.000"));
+        assertTrue(json.contains("\"frame\":\"42\""));
+    }
+
+    @Test
+    public void ringBuffer_keepsNewestSpans() throws Exception {
+        FrameTracer tracer = new FrameTracer(4);
+        for (long i = 0; i < 10; i++) {
+            tracer.record(i, FrameTracer.SPAN_CONVERT, i * 1000, i * 1000 + 10);
+        }
+        assertEquals(4, tracer.size());
+
+        StringWriter out = new StringWriter();
+        tracer.writeChromeTrace(out);
+        String json = out.toString();
+        assertFalse(json.contains("\"frame\":\"5\""));
+        assertTrue(json.indexOf("\"frame\":\"6\"") < json.indexOf("\"frame\":\"9\""));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FreshnessGateTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void resultsAreJudgedByTheirFrameAge() {
+        FreshnessGate gate = new FreshnessGate(FreshnessGate.NAVIGATION_BUDGET_NANOS);
+
+        assertEquals(FreshnessGate.Verdict.FRESH, gate.complete(0, 100 * MS, 600 * MS));
+        // Late results are only drawn, results from seconds ago are dropped
+        assertEquals(FreshnessGate.Verdict.LATE, gate.complete(0, 900 * MS, 1000 * MS));
+        assertEquals(FreshnessGate.Verdict.STALE, gate.complete(0, 2400 * MS, 2500 * MS));
+
+        assertEquals(1, gate.getFreshCount());
+        assertEquals(1, gate.getDowngradedCount());
+        assertEquals(1, gate.getStaleDroppedCount());
+    }
+
+    @Test
+    public void jobsThatCannotMakeTheirDeadlineAreCancelled() {
+        FreshnessGate gate = new FreshnessGate(FreshnessGate.NAVIGATION_BUDGET_NANOS);
+        // Nothing learned yet: anything up to the deadline starts
+        assertTrue(gate.admit(0, 690 * MS));
+        assertFalse(gate.admit(0, 710 * MS));
+
+        // Inference takes 300 ms, so a frame already 500 ms old cannot finish in time
+        gate.complete(0, 0, 300 * MS);
+        assertEquals(300 * MS, gate.getExpectedProcessingNanos());
+        assertTrue(gate.admit(1000 * MS, 1350 * MS));
+        assertFalse(gate.admit(1000 * MS, 1500 * MS));
+        assertEquals(2, gate.getCancelledCount());
+
+        // A device slower than the budget still gets its freshest frames through
+        for (int i = 0; i < 50; i++) {
+            gate.complete(0, 0, 2000 * MS);
+        }
+        assertTrue(gate.admit(5000 * MS, 5000 * MS));
+        assertFalse(gate.admit(5000 * MS, 5400 * MS));
+    }
+}
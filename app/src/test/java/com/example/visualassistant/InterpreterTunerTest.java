@@ -0,0 +1,137 @@
+package com.example.visualassistant;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InterpreterTunerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void picksTheFastestConfigurationAndReusesItNextSession() throws Exception {
+        File store = new File(folder.getRoot(), "tuning.properties");
+        List<InterpreterTuner.Config> grid = InterpreterTuner.defaultGrid(8);
+        assertEquals(8, grid.size());
+        // Two threads without XNNPACK is fastest on this made-up device
+        ScriptedFactory factory = new ScriptedFactory(new InterpreterTuner.Config(2, false));
+
+        InterpreterTuner first = new InterpreterTuner(store, factory, 1, 3);
+        InterpreterTuner.Config winner = first.loadOrTune("pixel", "abc", grid);
+        assertEquals(new InterpreterTuner.Config(2, false), winner);
+        assertTrue(first.wasTuned());
+        assertEquals(grid.size(), first.getLastMedians().size());
+        assertEquals(grid, factory.opened);
+
+        // A later session finds it without running anything
+        factory.opened.clear();
+        InterpreterTuner second = new InterpreterTuner(store, factory, 1, 3);
+        assertEquals(winner, second.loadOrTune("pixel", "abc", grid));
+        assertFalse(second.wasTuned());
+        assertTrue(factory.opened.isEmpty());
+
+        // A different model or device tunes again
+        second.loadOrTune("pixel", "def", grid);
+        assertTrue(second.wasTuned());
+        assertEquals(grid, factory.opened);
+    }
+
+    @Test
+    public void aThreadOnlyGridKeepsXnnpackFixed() {
+        List<InterpreterTuner.Config> grid = InterpreterTuner.threadGrid(8, true);
+        assertEquals(InterpreterTuner.MAX_THREADS, grid.size());
+        for (int i = 0; i < grid.size(); i++) {
+            assertEquals(new InterpreterTuner.Config(i + 1, true), grid.get(i));
+        }
+    }
+
+    @Test
+    public void skipsConfigurationsThatFailToOpen() throws Exception {
+        ScriptedFactory factory = new ScriptedFactory(new InterpreterTuner.Config(1, true));
+        factory.failing = new InterpreterTuner.Config(1, true);
+        InterpreterTuner tuner = new InterpreterTuner(new File(folder.getRoot(), "t.properties"), factory, 0, 1);
+
+        InterpreterTuner.Config winner = tuner.tune(InterpreterTuner.defaultGrid(2));
+
+        assertNotEquals(factory.failing, winner);
+        assertEquals(3, tuner.getLastMedians().size());
+    }
+
+    @Test
+    public void aFailedSaveIsReportedAndStillReturnsTheWinner() throws Exception {
+        ScriptedFactory factory = new ScriptedFactory(new InterpreterTuner.Config(1, false));
+        File missingDir = new File(folder.getRoot(), "missing");
+        InterpreterTuner tuner = new InterpreterTuner(new File(missingDir, "t.properties"), factory, 0, 1);
+
+        assertEquals(new InterpreterTuner.Config(1, false),
+                tuner.loadOrTune("pixel", "abc", InterpreterTuner.defaultGrid(1)));
+        assertNotNull(tuner.getLastSaveError());
+
+        assertTrue(missingDir.mkdirs());
+        tuner.loadOrTune("pixel", "abc", InterpreterTuner.defaultGrid(1));
+        assertTrue(tuner.wasTuned());
+        assertNull(tuner.getLastSaveError());
+    }
+
+    @Test
+    public void configsRoundTripAndHashesAreStable() throws Exception {
+        InterpreterTuner.Config config = new InterpreterTuner.Config(3, true);
+        assertEquals(config, InterpreterTuner.Config.parse(config.toString()));
+        assertNull(InterpreterTuner.Config.parse("threads=0,xnnpack=true"));
+        assertNull(InterpreterTuner.Config.parse("garbage"));
+
+        String hash = InterpreterTuner.modelHash(new ByteArrayInputStream("abc".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+    }
+
+    /**
+     * Each run costs a busy-wait, short for the favoured configuration and longer the
+     * further the others are from it.
+     */
+    private static class ScriptedFactory implements InterpreterTuner.SessionFactory {
+        private final InterpreterTuner.Config fastest;
+        final List<InterpreterTuner.Config> opened = new ArrayList<>();
+        InterpreterTuner.Config failing;
+
+        ScriptedFactory(InterpreterTuner.Config fastest) {
+            this.fastest = fastest;
+        }
+
+        @Override
+        public InterpreterTuner.Session open(InterpreterTuner.Config config) throws Exception {
+            opened.add(config);
+            if (config.equals(failing)) {
+                throw new IllegalStateException("delegate unavailable");
+            }
+            long cost = 200_000L * (1 + Math.abs(config.numThreads - fastest.numThreads)
+                    + (config.useXnnpack == fastest.useXnnpack ? 0 : 2));
+            return new InterpreterTuner.Session() {
+                @Override
+                public void run() {
+                    long end = FrameTracer.now() + cost;
+                    while (FrameTracer.now() < end) {
+                        // Spin rather than sleep so the timings stay tight
+                    }
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
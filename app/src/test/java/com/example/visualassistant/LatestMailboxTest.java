@@ -0,0 +1,74 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LatestMailboxTest {
+
+    private static final class Slot {
+        long first;
+        long second;
+    }
+
+    @Test
+    public void theReaderOnlySeesTheLatestResult() {
+        LatestMailbox<Slot> mailbox = new LatestMailbox<>(Slot::new);
+        assertNull(mailbox.poll());
+
+        for (int i = 1; i <= 3; i++) {
+            mailbox.writeSlot().first = i;
+            mailbox.publish();
+        }
+        assertTrue(mailbox.hasFresh());
+        Slot read = mailbox.poll();
+        assertEquals(3, read.first);
+        assertFalse(mailbox.hasFresh());
+        assertNull(mailbox.poll());
+        assertEquals(3, mailbox.getPublishedCount());
+        assertEquals(2, mailbox.getOverwrittenCount());
+
+        // The slot being read is never handed back to the writer
+        for (int i = 0; i < 4; i++) {
+            Slot written = mailbox.writeSlot();
+            written.first = 10 + i;
+            mailbox.publish();
+            assertNotSame(read, written);
+        }
+        assertEquals(13, mailbox.poll().first);
+    }
+
+    @Test
+    public void concurrentReadsAreNeverTornOrOutOfOrder() throws Exception {
+        LatestMailbox<Slot> mailbox = new LatestMailbox<>(Slot::new);
+        final long count = 200_000;
+        Thread writer = new Thread(() -> {
+            for (long i = 1; i <= count; i++) {
+                Slot slot = mailbox.writeSlot();
+                slot.first = i;
+                slot.second = -i;
+                mailbox.publish();
+            }
+        });
+        writer.start();
+
+        long last = 0;
+        long reads = 0;
+        while (last < count) {
+            Slot slot = mailbox.poll();
+            if (slot == null) continue;
+            assertEquals(slot.first, -slot.second);
+            assertTrue(slot.first > last);
+            last = slot.first;
+            reads++;
+        }
+        writer.join();
+
+        assertEquals(count, mailbox.getPublishedCount());
+        assertEquals(count - reads, mailbox.getOverwrittenCount());
+    }
+}
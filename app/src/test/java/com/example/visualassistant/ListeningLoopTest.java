@@ -0,0 +1,262 @@
+package com.example.visualassistant;
+
+import com.example.visualassistant.ListeningLoop.Failure;
+import com.example.visualassistant.ListeningLoop.State;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ListeningLoopTest {
+
+    /**
+     * A single-threaded handler on a virtual clock; tasks run in time order as it advances.
+     */
+    private static final class VirtualScheduler implements ListeningLoop.Scheduler {
+        private static final class Task {
+            final Runnable runnable;
+            final long at;
+
+            Task(Runnable runnable, long at) {
+                this.runnable = runnable;
+                this.at = at;
+            }
+        }
+
+        private final List<Task> tasks = new ArrayList<>();
+        long now;
+
+        @Override
+        public long nowMillis() {
+            return now;
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            tasks.add(new Task(task, now + delayMillis));
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            tasks.removeIf(t -> t.runnable == task);
+        }
+
+        void advance(long millis) {
+            long end = now + millis;
+            while (true) {
+                Task next = null;
+                for (Task t : tasks) {
+                    if (t.at <= end && (next == null || t.at < next.at)) {
+                        next = t;
+                    }
+                }
+                if (next == null) break;
+                tasks.remove(next);
+                now = next.at;
+                next.runnable.run();
+            }
+            now = end;
+        }
+    }
+
+    private static final class FakeRecognizer implements ListeningLoop.Recognizer {
+        int starts;
+        int cancels;
+        boolean busy;
+
+        @Override
+        public void start() {
+            starts++;
+            if (busy) {
+                throw new IllegalStateException("busy");
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancels++;
+        }
+    }
+
+    private final VirtualScheduler clock = new VirtualScheduler();
+    private final FakeRecognizer recognizer = new FakeRecognizer();
+    private final ListeningLoop loop = new ListeningLoop(recognizer, clock);
+
+    // The recogniser takes this long to open the microphone
+    private static final long READY_DELAY = 80;
+
+    private void becomeReady() {
+        clock.advance(READY_DELAY);
+        loop.onReadyForSpeech();
+    }
+
+    /**
+     * Hears a command, queues a reply of {@code replyMillis} and reports the results.
+     */
+    private void hearCommand(String replyId, long replyMillis) {
+        clock.advance(1500);
+        loop.onEndOfSpeech();
+        clock.advance(300);
+        loop.onUtteranceQueued(replyId);
+        loop.onSessionEnded();
+        clock.advance(0);
+        clock.advance(50);
+        loop.onUtteranceStarted(replyId);
+        clock.advance(replyMillis);
+        loop.onUtteranceEnded(replyId);
+    }
+
+    @Test
+    public void listensAgainTheMomentTheReplyHasBeenSpoken() {
+        loop.start();
+        becomeReady();
+        hearCommand("reply-1", 2000);
+
+        assertEquals(State.STARTING, loop.getState());
+        assertEquals(2, recognizer.starts);
+        becomeReady();
+        // Deaf only while starting, processing and speaking; never waiting on a fixed delay
+        assertEquals(2 * READY_DELAY + 300 + 50 + 2000, loop.getDeafMillis());
+        assertEquals(2050, loop.getTimeInMillis(State.WAITING_FOR_SPEECH));
+        assertEquals(1500, loop.getTimeInMillis(State.LISTENING));
+    }
+
+    @Test
+    public void resultsWithoutSpeechRestartOnTheNextTurn() {
+        loop.start();
+        becomeReady();
+        loop.onEndOfSpeech();
+        loop.onSessionEnded();
+        assertEquals(State.READY, loop.getState());
+        assertEquals(1, recognizer.starts);
+        clock.advance(0);
+        assertEquals(State.STARTING, loop.getState());
+        assertEquals(2, recognizer.starts);
+    }
+
+    @Test
+    public void overlappingStartRequestsRunOneSession() {
+        loop.onUtteranceQueued("welcome");
+        loop.start();
+        loop.start();
+        assertEquals(State.WAITING_FOR_SPEECH, loop.getState());
+        loop.onUtteranceEnded("welcome");
+        loop.start();
+        loop.onUtteranceEnded("welcome");
+        clock.advance(1000);
+
+        assertEquals(1, recognizer.starts);
+        assertEquals(2, loop.getIgnoredStartCount());
+        assertEquals(State.STARTING, loop.getState());
+    }
+
+    @Test
+    public void speechFromSeveralEnginesIsAllWaitedFor() {
+        loop.start();
+        becomeReady();
+        loop.onEndOfSpeech();
+        loop.onUtteranceQueued("mode");
+        loop.onUtteranceQueued("text-7");
+        loop.onSessionEnded();
+        clock.advance(0);
+        loop.onUtteranceEnded("mode");
+        assertEquals(State.WAITING_FOR_SPEECH, loop.getState());
+        // Ending an utterance twice, e.g. stopped and then flushed, changes nothing
+        loop.onUtteranceEnded("mode");
+        assertEquals(State.WAITING_FOR_SPEECH, loop.getState());
+        loop.onUtteranceEnded("text-7");
+        assertEquals(State.STARTING, loop.getState());
+    }
+
+    @Test
+    public void errorsRetryWithGrowingBackoff() {
+        loop.start();
+        recognizer.busy = true;
+        loop.onError(Failure.RETRY);
+        assertEquals(State.BACKOFF, loop.getState());
+        long backoff = ListeningLoop.MIN_BACKOFF_MILLIS;
+        for (int start = 2; start <= 5; start++) {
+            clock.advance(backoff - 1);
+            assertEquals(start - 1, recognizer.starts);
+            clock.advance(1);
+            assertEquals(start, recognizer.starts);
+            backoff *= 2;
+        }
+        for (int i = 0; i < 10; i++) {
+            clock.advance(ListeningLoop.MAX_BACKOFF_MILLIS);
+        }
+        assertEquals(15, recognizer.starts);
+        assertEquals(15, loop.getErrorCount());
+
+        // A session that gets going resets the backoff
+        recognizer.busy = false;
+        clock.advance(ListeningLoop.MAX_BACKOFF_MILLIS);
+        becomeReady();
+        loop.onError(Failure.RETRY);
+        clock.advance(ListeningLoop.MIN_BACKOFF_MILLIS);
+        assertEquals(State.STARTING, loop.getState());
+        assertEquals(17, recognizer.starts);
+    }
+
+    @Test
+    public void silenceRestartsAtOnceAndMissingPermissionStops() {
+        loop.start();
+        becomeReady();
+        loop.onError(Failure.SILENCE);
+        clock.advance(0);
+        assertEquals(State.STARTING, loop.getState());
+
+        loop.onError(Failure.FATAL);
+        assertEquals(State.IDLE, loop.getState());
+        clock.advance(60_000);
+        assertEquals(2, recognizer.starts);
+        assertEquals(READY_DELAY, loop.getDeafMillis());
+    }
+
+    @Test
+    public void watchdogsRecoverFromLostCallbacks() {
+        loop.start();
+        // Never becomes ready
+        clock.advance(ListeningLoop.START_TIMEOUT_MILLIS);
+        assertEquals(1, recognizer.cancels);
+        clock.advance(ListeningLoop.MIN_BACKOFF_MILLIS);
+        becomeReady();
+        loop.onEndOfSpeech();
+        // Results never come
+        clock.advance(ListeningLoop.RESULT_TIMEOUT_MILLIS);
+        assertEquals(2, recognizer.cancels);
+        assertEquals(3, recognizer.starts);
+
+        // A lost TTS callback holds listening off for a bounded time only
+        loop.onUtteranceQueued("lost");
+        loop.restart();
+        clock.advance(0);
+        assertEquals(State.WAITING_FOR_SPEECH, loop.getState());
+        clock.advance(ListeningLoop.SPEECH_TIMEOUT_MILLIS);
+        assertEquals(State.STARTING, loop.getState());
+        assertEquals(3, loop.getTimeoutCount());
+    }
+
+    @Test
+    public void suspendedLoopStaysQuietUntilStarted() {
+        loop.start();
+        becomeReady();
+        loop.suspend();
+        assertEquals(1, recognizer.cancels);
+        // Late callbacks from the cancelled session are ignored
+        loop.onError(Failure.RETRY);
+        loop.restart();
+        clock.advance(60_000);
+        assertEquals(State.SUSPENDED, loop.getState());
+        assertEquals(1, recognizer.starts);
+
+        loop.start();
+        assertEquals(2, recognizer.starts);
+        // Suspended time is not deaf time: listening was not wanted
+        assertEquals(60_000, loop.getTimeInMillis(State.SUSPENDED));
+        assertEquals(READY_DELAY, loop.getDeafMillis());
+    }
+}
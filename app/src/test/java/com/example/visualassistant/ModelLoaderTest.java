@@ -0,0 +1,148 @@
+package com.example.visualassistant;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModelLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mapsWarmsUpAndThenSignalsReadiness() throws Exception {
+        File file = folder.newFile("model.tflite");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{'h', 'e', 'a', 'd', 'm', 'o', 'd', 'e', 'l'});
+        }
+        ReplayTestSupport.BrightRegionDetector detector = new ReplayTestSupport.BrightRegionDetector();
+        AtomicReference<String> seenModel = new AtomicReference<>();
+        ModelLoader loader = new ModelLoader("model", () -> {
+            try (FileInputStream in = new FileInputStream(file)) {
+                // Skip a four-byte header, as an asset inside an APK sits at an offset
+                return ModelLoader.map(in.getFD(), 4, file.length() - 4);
+            }
+        }, model -> {
+            byte[] bytes = new byte[model.remaining()];
+            model.duplicate().get(bytes);
+            seenModel.set(new String(bytes, "US-ASCII"));
+            return detector;
+        }, 2);
+        CountDownLatch notified = new CountDownLatch(1);
+        AtomicReference<DetectorBackend> notifiedBackend = new AtomicReference<>();
+        loader.addListener(new ModelLoader.ReadinessListener() {
+            @Override
+            public void onModelReady(DetectorBackend backend) {
+                notifiedBackend.set(backend);
+                notified.countDown();
+            }
+
+            @Override
+            public void onModelFailed(Exception error) {
+                fail(error.getMessage());
+            }
+        }, Runnable::run);
+        assertFalse(loader.isReady());
+        assertNull(loader.getBackend());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertSame(detector, loader.load(executor).get(5, TimeUnit.SECONDS));
+            assertTrue(notified.await(5, TimeUnit.SECONDS));
+            // A second load is a no-op returning the same future
+            assertSame(loader.getReadiness(), loader.load(executor));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertSame(detector, notifiedBackend.get());
+        assertTrue(loader.isReady());
+        assertEquals("model", seenModel.get());
+        assertEquals(2, detector.calls);
+        assertTrue(loader.getWarmupNanos() > 0);
+        assertTrue(loader.toString(), loader.toString().contains("2 warm-up runs"));
+    }
+
+    @Test
+    public void eachClaimAfterTheFirstGetsItsOwnWarmBackend() throws Exception {
+        List<ReplayTestSupport.BrightRegionDetector> created = new ArrayList<>();
+        ModelLoader loader = new ModelLoader("shared", () -> ByteBuffer.allocate(1), model -> {
+            ReplayTestSupport.BrightRegionDetector detector = new ReplayTestSupport.BrightRegionDetector();
+            created.add(detector);
+            return detector;
+        }, 2);
+        DetectorBackend loaded = loader.load(Runnable::run).get();
+
+        assertSame(loaded, loader.claimBackend());
+        DetectorBackend second = loader.claimBackend();
+        assertNotSame(loaded, second);
+        assertEquals(2, created.size());
+        assertEquals(2, created.get(1).calls);
+    }
+
+    @Test
+    public void reportsFailureAndClosesTheHalfLoadedBackend() throws Exception {
+        ClosingDetector detector = new ClosingDetector();
+        ModelLoader loader = new ModelLoader("broken", () -> ByteBuffer.allocate(1), model -> detector, 1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        loader.addListener(new ModelLoader.ReadinessListener() {
+            @Override
+            public void onModelReady(DetectorBackend backend) {
+                fail("should not be ready");
+            }
+
+            @Override
+            public void onModelFailed(Exception error) {
+                failure.set(error);
+            }
+        }, Runnable::run);
+
+        try {
+            loader.load(Runnable::run).get();
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        assertTrue(failure.get() instanceof IOException);
+        assertTrue(detector.closed);
+        assertFalse(loader.isReady());
+        assertEquals("broken failed", loader.toString());
+    }
+
+    private static class ClosingDetector implements DetectorBackend {
+        boolean closed;
+
+        @Override
+        public List<ObjectDetection> detect(YuvFrame frame, int[] argb) throws IOException {
+            throw new IOException("bad model");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
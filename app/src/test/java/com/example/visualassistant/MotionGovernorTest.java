@@ -0,0 +1,200 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MotionGovernorTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long SENSOR_PERIOD = 20 * MS;
+    private static final long FRAME_PERIOD = 33 * MS;
+    private static final float G = 9.81f;
+    private static final long INTERVAL = 1000;
+
+    // Still for 5 s, walk for 5 s, turn for 1 s while walking, walk for 5 s, stand still for 5 s
+    private static final long WALK_START = 5000 * MS;
+    private static final long TURN_START = 10_000 * MS;
+    private static final long TURN_END = 11_000 * MS;
+    private static final long STILL_AGAIN = 16_000 * MS;
+    private static final long END = 21_000 * MS;
+
+    private final Random noise = new Random(7);
+
+    private void feedSensors(MotionGovernor governor, long t, boolean withGyroscope) {
+        boolean walking = t >= WALK_START && t < STILL_AGAIN;
+        float jitter = (float) noise.nextGaussian() * 0.05f;
+        float bounce = walking ? 3f * (float) Math.sin(2 * Math.PI * 2 * t / 1e9) : 0f;
+        governor.onAccelerometer(t, jitter, G + bounce + jitter, jitter);
+        if (withGyroscope) {
+            float yaw = t >= TURN_START && t < TURN_END ? 3f : walking ? 0.2f : 0f;
+            governor.onGyroscope(t, jitter, yaw + jitter, jitter);
+        }
+    }
+
+    /**
+     * Plays the whole trace with camera frames at 30 fps, analysing a frame whenever the
+     * governor says so and as if inference were instant.
+     *
+     * @return Times of analysed frames
+     */
+    private List<Long> simulate(MotionGovernor governor, boolean withGyroscope) {
+        List<Long> analysed = new ArrayList<>();
+        long nextFrame = 0;
+        long lastAnalysisMillis = -INTERVAL;
+        for (long t = 0; t < END; t += SENSOR_PERIOD) {
+            feedSensors(governor, t, withGyroscope);
+            while (nextFrame <= t) {
+                long nowMillis = nextFrame / MS;
+                if (governor.shouldAnalyze(nowMillis, lastAnalysisMillis, INTERVAL)) {
+                    governor.onAnalyzed();
+                    analysed.add(nextFrame);
+                    lastAnalysisMillis = nowMillis;
+                }
+                nextFrame += FRAME_PERIOD;
+            }
+        }
+        return analysed;
+    }
+
+    private static int countBetween(List<Long> times, long from, long to) {
+        int count = 0;
+        for (long time : times) {
+            if (time >= from && time < to) count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void cadenceFollowsStillnessWalkingAndTurns() {
+        MotionGovernor governor = new MotionGovernor();
+        List<Long> analysed = simulate(governor, true);
+
+        // Standing still: every other interval once classified; walking: every interval
+        assertTrue(countBetween(analysed, 1000 * MS, WALK_START) <= 3);
+        assertTrue(countBetween(analysed, WALK_START + 1000 * MS, TURN_START) >= 4);
+        assertTrue(countBetween(analysed, STILL_AGAIN + 1000 * MS, END) <= 3);
+
+        // Nothing while turning, then a frame right after the turn settles
+        assertEquals(0, countBetween(analysed, TURN_START + 100 * MS, TURN_END));
+        long firstAfterTurn = -1;
+        for (long time : analysed) {
+            if (time >= TURN_END) {
+                firstAfterTurn = time;
+                break;
+            }
+        }
+        assertTrue("first frame " + (firstAfterTurn - TURN_END) / MS + " ms after the turn",
+                firstAfterTurn >= TURN_END && firstAfterTurn - TURN_END <= 300 * MS);
+        assertTrue(governor.getSkippedWhileTurning() > 20);
+
+        // A fixed 1 s interval would have analysed about 21 frames
+        assertTrue("analysed " + analysed.size(), analysed.size() < 18);
+        assertEquals(MotionGovernor.State.STILL, governor.getState());
+    }
+
+    @Test
+    public void aSustainedTurnIsStillAnalysedNowAndThen() {
+        MotionGovernor governor = new MotionGovernor();
+        // Walking for 2 s, then turning without pause for 10 s
+        long turnStart = 2000 * MS;
+        long end = 12_000 * MS;
+        List<Long> analysed = new ArrayList<>();
+        long nextFrame = 0;
+        long lastAnalysisMillis = -INTERVAL;
+        for (long t = 0; t < end; t += SENSOR_PERIOD) {
+            float bounce = 3f * (float) Math.sin(2 * Math.PI * 2 * t / 1e9);
+            governor.onAccelerometer(t, 0f, G + bounce, 0f);
+            governor.onGyroscope(t, 0f, t >= turnStart ? 3f : 0.2f, 0f);
+            while (nextFrame <= t) {
+                long nowMillis = nextFrame / MS;
+                if (governor.shouldAnalyze(nowMillis, lastAnalysisMillis, INTERVAL)) {
+                    governor.onAnalyzed();
+                    analysed.add(nextFrame);
+                    lastAnalysisMillis = nowMillis;
+                }
+                nextFrame += FRAME_PERIOD;
+            }
+        }
+
+        assertEquals(MotionGovernor.State.TURNING, governor.getState());
+        long maxGap = MotionGovernor.MAX_TURN_SKIP_FACTOR * INTERVAL * MS + FRAME_PERIOD;
+        long previous = turnStart;
+        for (long time : analysed) {
+            if (time >= turnStart) {
+                assertTrue("gap " + (time - previous) / MS + " ms", time - previous <= maxGap);
+                previous = time;
+            }
+        }
+        assertTrue(end - previous <= maxGap);
+        // Still far fewer than walking's one per interval
+        int duringTurn = countBetween(analysed, turnStart, end);
+        assertTrue("analysed " + duringTurn, duringTurn >= 3 && duringTurn <= 4);
+        assertTrue(governor.getSkippedWhileTurning() > 250);
+    }
+
+    @Test
+    public void aFrameTurnedAwayAfterTheTurnDoesNotUseItUp() {
+        MotionGovernor governor = new MotionGovernor();
+        long t = 0;
+        for (; t < TURN_END + 500 * MS; t += SENSOR_PERIOD) {
+            feedSensors(governor, t, true);
+        }
+        long nowMillis = t / MS;
+        assertEquals(MotionGovernor.State.WALKING, governor.getState());
+
+        // The analyzer is still busy with a frame from the turn and drops this one
+        assertTrue(governor.shouldAnalyze(nowMillis, nowMillis - 100, INTERVAL));
+        // So the next frame is still let through at once, and only that one
+        assertTrue(governor.shouldAnalyze(nowMillis + 33, nowMillis - 100, INTERVAL));
+        governor.onAnalyzed();
+        assertFalse(governor.shouldAnalyze(nowMillis + 66, nowMillis + 33, INTERVAL));
+    }
+
+    @Test
+    public void statesAreClassifiedAlongTheTrace() {
+        MotionGovernor governor = new MotionGovernor();
+        for (long t = 0; t < END; t += SENSOR_PERIOD) {
+            feedSensors(governor, t, true);
+            if (t == 4000 * MS) assertEquals(MotionGovernor.State.STILL, governor.getState());
+            if (t == 9000 * MS) assertEquals(MotionGovernor.State.WALKING, governor.getState());
+            if (t == 10_500 * MS) assertEquals(MotionGovernor.State.TURNING, governor.getState());
+            if (t == 13_000 * MS) assertEquals(MotionGovernor.State.WALKING, governor.getState());
+        }
+        assertEquals(MotionGovernor.State.STILL, governor.getState());
+        assertTrue(governor.hasGyroscope());
+    }
+
+    @Test
+    public void withoutAGyroscopeTurnsAreNotReported() {
+        MotionGovernor governor = new MotionGovernor();
+        List<Long> analysed = simulate(governor, false);
+
+        assertFalse(governor.hasGyroscope());
+        assertEquals(0, governor.getSkippedWhileTurning());
+        assertTrue(countBetween(analysed, TURN_START, TURN_END) >= 1);
+    }
+
+    @Test
+    public void samplesDoNotAllocate() {
+        MotionGovernor governor = new MotionGovernor();
+        float[] bounce = new float[100];
+        for (int i = 0; i < bounce.length; i++) {
+            bounce[i] = 3f * (float) Math.sin(2 * Math.PI * i / 25);
+        }
+        int[] next = {0};
+        AllocationTestSupport.assertNoAllocation("MotionGovernor sample", () -> {
+            int i = next[0]++;
+            long t = (i + 1) * SENSOR_PERIOD;
+            governor.onAccelerometer(t, 0f, G + bounce[i % 100], 0f);
+            governor.onGyroscope(t, 0f, i % 500 < 50 ? 3f : 0f, 0f);
+            governor.shouldAnalyze(t / MS, 0, INTERVAL);
+        }, 10_000, 100_000);
+    }
+}
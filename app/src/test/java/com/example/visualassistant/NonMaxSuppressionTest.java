@@ -0,0 +1,135 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NonMaxSuppressionTest {
+
+    // Two overlapping people, a chair on top of the first person, and a separate person
+    private static final float[] BOXES = {
+            10, 10, 50, 90,
+            12, 12, 52, 92,
+            10, 10, 50, 90,
+            200, 10, 240, 90,
+    };
+    private static final float[] SCORES = {0.8f, 0.9f, 0.7f, 0.6f};
+    private static final int[] CLASSES = {0, 0, 1, 0};
+
+    @Test
+    public void greedyKeepsTheBestBoxPerClass() {
+        NonMaxSuppression nms = new NonMaxSuppression();
+        int[] keep = new int[4];
+
+        int kept = nms.greedy(BOXES, SCORES, CLASSES, 4, 0.5f, keep);
+        assertEquals(3, kept);
+        assertArrayEquals(new int[]{1, 2, 3}, Arrays.copyOf(keep, kept));
+
+        // Class-agnostic: the chair goes too
+        kept = nms.greedy(BOXES, SCORES, null, 4, 0.5f, keep);
+        assertArrayEquals(new int[]{1, 3}, Arrays.copyOf(keep, kept));
+    }
+
+    @Test
+    public void gridMatchesPairwiseGreedy() {
+        Random random = new Random(3);
+        for (int count : new int[]{300, 2000}) {
+            float[] boxes = new float[4 * count];
+            float[] scores = new float[count];
+            int[] classes = new int[count];
+            for (int i = 0; i < count; i++) {
+                float left = random.nextFloat() * 1000;
+                float top = random.nextFloat() * 1000;
+                float size = 5 + random.nextFloat() * (i % 10 == 0 ? 300 : 40);
+                boxes[4 * i] = left;
+                boxes[4 * i + 1] = top;
+                boxes[4 * i + 2] = left + size;
+                boxes[4 * i + 3] = top + size * (0.5f + random.nextFloat());
+                scores[i] = random.nextFloat();
+                classes[i] = random.nextInt(3);
+            }
+
+            NonMaxSuppression pairwise = new NonMaxSuppression();
+            pairwise.setGridThreshold(Integer.MAX_VALUE);
+            NonMaxSuppression grid = new NonMaxSuppression();
+            grid.setGridThreshold(0);
+            int[] expected = new int[count];
+            int[] actual = new int[count];
+
+            int expectedCount = pairwise.greedy(boxes, scores, classes, count, 0.3f, expected);
+            int actualCount = grid.greedy(boxes, scores, classes, count, 0.3f, actual);
+            assertTrue(expectedCount < count);
+            assertArrayEquals(Arrays.copyOf(expected, expectedCount), Arrays.copyOf(actual, actualCount));
+
+            float[] expectedScores = scores.clone();
+            float[] actualScores = scores.clone();
+            expectedCount = pairwise.soft(boxes, expectedScores, classes, count, 0.5f, 0.05f, expected);
+            actualCount = grid.soft(boxes, actualScores, classes, count, 0.5f, 0.05f, actual);
+            assertArrayEquals(Arrays.copyOf(expected, expectedCount), Arrays.copyOf(actual, actualCount));
+            assertArrayEquals(expectedScores, actualScores, 0f);
+        }
+    }
+
+    @Test
+    public void softNmsDecaysOverlappingBoxesInsteadOfDroppingThem() {
+        NonMaxSuppression nms = new NonMaxSuppression();
+        float[] scores = SCORES.clone();
+        int[] keep = new int[4];
+
+        int kept = nms.soft(BOXES, scores, CLASSES, 4, 0.5f, 0.01f, keep);
+
+        assertEquals(4, kept);
+        assertEquals(1, keep[0]);
+        assertEquals(0.9f, scores[1], 0f);
+        // Heavily overlapping same-class box decayed, other class and distant box untouched
+        assertTrue(scores[0] < 0.8f * 0.5f);
+        assertEquals(0.7f, scores[2], 0f);
+        assertEquals(0.6f, scores[3], 0f);
+    }
+
+    @Test
+    public void weightedFusionAveragesClusters() {
+        NonMaxSuppression nms = new NonMaxSuppression();
+        float[] outBoxes = new float[16];
+        float[] outScores = new float[4];
+        int[] outClasses = new int[4];
+
+        int fused = nms.fuse(BOXES, SCORES, CLASSES, 4, 0.5f, outBoxes, outScores, outClasses);
+
+        assertEquals(3, fused);
+        // Score-weighted mean of boxes 1 and 0
+        float expectedLeft = (0.9f * 12 + 0.8f * 10) / 1.7f;
+        assertEquals(expectedLeft, outBoxes[0], 1e-4f);
+        assertEquals((0.9f + 0.8f) / 2, outScores[0], 1e-6f);
+        assertEquals(0, outClasses[0]);
+        assertEquals(1, outClasses[1]);
+        assertEquals(0.6f, outScores[2], 0f);
+    }
+
+    @Test
+    public void mergeJoinsPiecesOfACutObject() {
+        // Left and right halves of one object from two tiles, plus the whole-frame box
+        float[] boxes = {
+                60, 40, 90, 80,
+                70, 40, 100, 80,
+                60, 40, 100, 80,
+        };
+        float[] scores = {0.9f, 0.85f, 0.6f};
+        int[] classes = {0, 0, 0};
+        float[] outBoxes = new float[12];
+        float[] outScores = new float[3];
+        int[] outClasses = new int[3];
+
+        int merged = new NonMaxSuppression().merge(boxes, scores, classes, 3, 0.5f, 0.8f,
+                outBoxes, outScores, outClasses);
+
+        assertEquals(1, merged);
+        assertArrayEquals(new float[]{60, 40, 100, 80}, Arrays.copyOf(outBoxes, 4), 0f);
+        assertEquals(0.9f, outScores[0], 0f);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OverlayAnimatorTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final float[] boxes = new float[4 * OverlayAnimator.MAX_BOXES];
+    private final int[] classes = new int[OverlayAnimator.MAX_BOXES];
+    private final float[] scores = new float[OverlayAnimator.MAX_BOXES];
+
+    @Test
+    public void matchedBoxesGlideToTheirNewPositions() {
+        OverlayAnimator animator = new OverlayAnimator();
+        int person = animator.classId("person");
+        int chair = animator.classId("chair");
+        assertEquals(person, animator.classId("person"));
+
+        animator.update(new float[]{0.1f, 0.1f, 0.3f, 0.5f, 0.6f, 0.6f, 0.8f, 0.9f},
+                new int[]{person, chair}, new float[]{0.9f, 0.7f}, 2, 0);
+        assertEquals(2, animator.frame(0, boxes, classes, scores));
+        // First boxes appear in place
+        assertEquals(0.1f, boxes[0], 0f);
+        assertFalse(animator.isAnimating(0));
+
+        // One second later the person moved right, the chair is gone and a car appeared
+        animator.update(new float[]{0.2f, 0.1f, 0.4f, 0.5f, 0.0f, 0.0f, 0.1f, 0.1f},
+                new int[]{person, animator.classId("car")}, new float[]{0.8f, 0.6f}, 2, SECOND);
+        assertEquals(2, animator.frame(SECOND, boxes, classes, scores));
+        assertEquals(0.1f, boxes[0], 1e-6f);
+        assertEquals(0f, boxes[4], 0f);
+        assertTrue(animator.isAnimating(SECOND));
+
+        // Halfway through the one-second update interval, eased out
+        animator.frame(SECOND + SECOND / 2, boxes, classes, scores);
+        assertEquals(0.1f + 0.1f * 0.75f, boxes[0], 1e-6f);
+        assertEquals(0.8f, scores[0], 0f);
+        assertEquals(person, classes[0]);
+
+        animator.frame(2 * SECOND, boxes, classes, scores);
+        assertEquals(0.2f, boxes[0], 1e-6f);
+        assertFalse(animator.isAnimating(2 * SECOND));
+    }
+
+    @Test
+    public void boxesOfAnotherClassDoNotMorphIntoEachOther() {
+        OverlayAnimator animator = new OverlayAnimator();
+        animator.update(new float[]{0.1f, 0.1f, 0.5f, 0.5f}, new int[]{animator.classId("dog")},
+                new float[]{0.9f}, 1, 0);
+        animator.frame(0, boxes, classes, scores);
+
+        animator.update(new float[]{0.15f, 0.1f, 0.55f, 0.5f}, new int[]{animator.classId("cat")},
+                new float[]{0.9f}, 1, SECOND);
+        animator.frame(SECOND, boxes, classes, scores);
+
+        assertEquals(0.15f, boxes[0], 0f);
+        animator.clear(2 * SECOND);
+        assertEquals(0, animator.frame(2 * SECOND, boxes, classes, scores));
+    }
+
+    @Test
+    public void drawingFramesDoesNotAllocate() {
+        OverlayAnimator animator = new OverlayAnimator();
+        float[] update = new float[4 * 10];
+        int[] updateClasses = new int[10];
+        float[] updateScores = new float[10];
+        for (int i = 0; i < 10; i++) {
+            update[4 * i] = i * 0.05f;
+            update[4 * i + 1] = 0.1f;
+            update[4 * i + 2] = i * 0.05f + 0.2f;
+            update[4 * i + 3] = 0.5f;
+            updateClasses[i] = animator.classId("label" + (i % 4));
+            updateScores[i] = 0.5f;
+        }
+
+        // A detection update every 60 frames, as at 1 Hz on a 60 Hz display
+        long frameNanos = SECOND / 60;
+        Runnable drawFrame = new Runnable() {
+            long frame;
+
+            @Override
+            public void run() {
+                long now = frame++ * frameNanos;
+                if (frame % 60 == 0) {
+                    update[0] += 0.001f;
+                    animator.update(update, updateClasses, updateScores, 10, now);
+                }
+                animator.frame(now, boxes, classes, scores);
+                animator.isAnimating(now);
+            }
+        };
+        AllocationTestSupport.assertNoAllocation("OverlayAnimator frame", drawFrame, 1000, 6000);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineEventBusTest {
+
+    private static final int EVENTS = 20_000;
+
+    private final List<ObjectDetection> detections = Arrays.asList(
+            new ObjectDetection("person", 0.9f, 0f, 0.1f, 0.2f, 0.3f, 0.4f),
+            new ObjectDetection("chair", 0.6f, 0f, 0.5f, 0.5f, 0.9f, 0.8f));
+
+    // Checks every event arrives once and in order, whatever the wait strategy
+    private static final class OrderCheck implements PipelineEventBus.EventHandler {
+        final CountDownLatch done = new CountDownLatch(1);
+        long expected;
+        boolean inOrder = true;
+        int sleepEvery;
+
+        @Override
+        public void onEvent(PipelineEvent event, long sequence, boolean endOfBatch) {
+            if (sequence != expected || event.traceId != expected) {
+                inOrder = false;
+            }
+            if (sleepEvery > 0 && sequence % sleepEvery == 0) {
+                // A slow consumer the producer must wait for
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            expected++;
+            if (expected == EVENTS) {
+                done.countDown();
+            }
+        }
+    }
+
+    @Test
+    public void everyConsumerSeesEveryEventInOrder() throws Exception {
+        PipelineEventBus bus = new PipelineEventBus(8);
+        List<OrderCheck> checks = new ArrayList<>();
+        List<PipelineEventBus.Consumer> consumers = new ArrayList<>();
+        for (PipelineEventBus.WaitStrategy strategy : PipelineEventBus.WaitStrategy.values()) {
+            OrderCheck check = new OrderCheck();
+            if (strategy == PipelineEventBus.WaitStrategy.BLOCKING) {
+                check.sleepEvery = 1000;
+            }
+            checks.add(check);
+            consumers.add(bus.subscribe(strategy.name(), check, strategy));
+        }
+        for (PipelineEventBus.Consumer consumer : consumers) {
+            consumer.start();
+        }
+
+        for (int i = 0; i < EVENTS; i++) {
+            bus.publishHazard(i, "wall ahead");
+            // The ring is never lapped past its slowest consumer
+            for (PipelineEventBus.Consumer consumer : consumers) {
+                assertTrue(consumer.getLag() <= bus.getCapacity());
+            }
+        }
+
+        for (OrderCheck check : checks) {
+            assertTrue(check.done.await(10, TimeUnit.SECONDS));
+            assertTrue(check.inOrder);
+        }
+        for (PipelineEventBus.Consumer consumer : consumers) {
+            consumer.halt();
+            assertEquals(EVENTS - 1, consumer.getSequence());
+        }
+    }
+
+    @Test
+    public void slotsCarryTheLatestFieldsOfEachType() throws Exception {
+        PipelineEventBus bus = new PipelineEventBus(4);
+        List<String> seen = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(5);
+        PipelineEventBus.Consumer consumer = bus.subscribe("Check", (event, sequence, endOfBatch) -> {
+            switch (event.type) {
+                case PipelineEvent.DETECTIONS:
+                    seen.add(event.count + " " + event.labels[1] + " " + event.boxes[6] + " " + event.summary);
+                    break;
+                case PipelineEvent.TEXT:
+                    // Nothing of the detections event in this slot's previous lap shows through
+                    seen.add(event.text + " " + event.language + " " + event.summary + " " + event.count);
+                    break;
+                default:
+                    seen.add(PipelineEvent.typeName(event.type) + " " + event.text);
+                    break;
+            }
+            done.countDown();
+        }, PipelineEventBus.WaitStrategy.BLOCKING);
+        consumer.start();
+
+        bus.publishDetections(1, detections, null, "I see a person");
+        for (int i = 0; i < 3; i++) {
+            bus.publishModeChange("READ", "ENGLISH");
+        }
+        // Reuses the detections slot
+        bus.publishText(2, "EXIT", TextAnnouncer.ENGLISH);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        consumer.halt();
+        assertEquals("2 chair 0.9 I see a person", seen.get(0));
+        assertEquals("mode READ", seen.get(1));
+        assertEquals("EXIT " + TextAnnouncer.ENGLISH + " null 0", seen.get(4));
+        assertEquals(5, seen.size());
+    }
+
+    @Test
+    public void aThrowingOrStuckConsumerDoesNotStallPublishers() throws Exception {
+        PipelineEventBus bus = new PipelineEventBus(4);
+        List<String> errors = new ArrayList<>();
+        bus.setErrorListener((name, sequence, error) -> errors.add(name + " " + sequence + " " + error.getMessage()));
+        CountDownLatch handled = new CountDownLatch(10);
+        PipelineEventBus.Consumer throwing = bus.subscribe("Throwing", (event, sequence, endOfBatch) -> {
+            handled.countDown();
+            if (sequence == 2) {
+                throw new IllegalStateException("no TTS");
+            }
+        }, PipelineEventBus.WaitStrategy.BLOCKING);
+        throwing.start();
+
+        for (int i = 0; i < 10; i++) {
+            bus.publishHazard(i, "wall ahead");
+        }
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        throwing.halt();
+        assertEquals(9, throwing.getSequence());
+        assertEquals(1, throwing.getErrorCount());
+        assertEquals(Arrays.asList("Throwing 2 no TTS"), errors);
+        assertEquals(0, bus.getDroppedCount());
+
+        // Never started, so it never frees a slot: publishing waits a bounded time, then drops
+        PipelineEventBus.Consumer stuck = bus.subscribe("Stuck", (event, sequence, endOfBatch) -> { },
+                PipelineEventBus.WaitStrategy.BLOCKING);
+        long start = FrameTracer.now();
+        for (int i = 0; i < 6; i++) {
+            bus.publishModeChange("READ", "ENGLISH");
+        }
+        long elapsed = FrameTracer.now() - start;
+        assertEquals(2, bus.getDroppedCount());
+        assertEquals(stuck.getSequence() + bus.getCapacity(), bus.getCursor());
+        assertTrue(elapsed >= 2 * PipelineEventBus.CLAIM_TIMEOUT_NANOS);
+        assertTrue(elapsed < 2 * PipelineEventBus.CLAIM_TIMEOUT_NANOS + TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void publishingAndConsumingDoNotAllocate() throws Exception {
+        PipelineEventBus bus = new PipelineEventBus(64);
+        float[] sink = new float[1];
+        PipelineEventBus.Consumer consumer = bus.subscribe("Sink", (event, sequence, endOfBatch) ->
+                sink[0] += event.boxes[0] + event.count, PipelineEventBus.WaitStrategy.YIELDING);
+        Thread consumerThread = consumer.start();
+
+        Runnable publishRound = () -> {
+            for (int i = 0; i < EVENTS; i++) {
+                bus.publishDetections(i, detections, null, "summary");
+                bus.publishHazard(i, "stairs ahead");
+            }
+        };
+        publishRound.run();
+        while (consumer.getLag() > 0) {
+            Thread.yield();
+        }
+
+        long consumerBefore = AllocationTestSupport.allocatedBytes(consumerThread);
+        long producerBytes = AllocationTestSupport.bytesPerRun(publishRound, 0, 1);
+        while (consumer.getLag() > 0) {
+            Thread.yield();
+        }
+        long consumerBytes = AllocationTestSupport.allocatedBytes(consumerThread) - consumerBefore;
+        consumer.halt();
+
+        // Integer division absorbs the few bytes the counter reads themselves may allocate
+        long events = 2L * EVENTS;
+        assertEquals("producer allocated " + producerBytes + " bytes", 0, producerBytes / events);
+        assertEquals("consumer allocated " + consumerBytes + " bytes", 0, consumerBytes / events);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class QuantizedPipelineTest {
+
+    @Test
+    public void uint8InputMatchesTheArgbPathAtEveryRotation() {
+        YuvFrame frame = randomFrame(64, 48);
+        int[] argb = new int[64 * 48];
+        TensorInputWriter writer = new TensorInputWriter();
+        ByteBuffer input = ByteBuffer.allocateDirect(30 * 20 * 3);
+
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            frame.rotationDegrees = rotation;
+            YuvConverter.yuvToArgb(frame, argb);
+            int width = rotation % 180 == 0 ? 30 : 20;
+            int height = rotation % 180 == 0 ? 20 : 30;
+            input.clear();
+            writer.writeUint8(frame, width, height, input);
+            assertEquals(width * height * 3, input.position());
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int uprightX = (2 * x + 1) * frame.orientedWidth() / (2 * width);
+                    int uprightY = (2 * y + 1) * frame.orientedHeight() / (2 * height);
+                    int pixel = argb[sensorIndex(frame, uprightX, uprightY)];
+                    int o = 3 * (y * width + x);
+                    String where = rotation + " at " + x + "," + y;
+                    assertEquals(where, (pixel >> 16) & 0xFF, input.get(o) & 0xFF);
+                    assertEquals(where, (pixel >> 8) & 0xFF, input.get(o + 1) & 0xFF);
+                    assertEquals(where, pixel & 0xFF, input.get(o + 2) & 0xFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void floatInputIsTheNormalisedUint8Input() {
+        YuvFrame frame = randomFrame(40, 30);
+        frame.rotationDegrees = 90;
+        TensorInputWriter writer = new TensorInputWriter();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(16 * 16 * 3);
+        ByteBuffer floats = ByteBuffer.allocateDirect(16 * 16 * 3 * 4).order(ByteOrder.nativeOrder());
+
+        writer.writeUint8(frame, 16, 16, bytes);
+        writer.writeFloat(frame, 16, 16, 127.5f, 127.5f, floats);
+
+        assertEquals(floats.capacity(), floats.position());
+        for (int i = 0; i < bytes.capacity(); i++) {
+            assertEquals(((bytes.get(i) & 0xFF) - 127.5f) / 127.5f, floats.getFloat(4 * i), 1e-6f);
+        }
+    }
+
+    @Test
+    public void quantizedOutputsDecodeLikeFloatOnesAboveTheThreshold() {
+        String[] labels = {"???", "person", "bicycle", "car"};
+        float[] boxes = {0.1f, 0.2f, 0.5f, 0.6f, 0f, 0f, 1f, 1f, 0.5f, 0.5f, 0.7f, 0.9f};
+        float[] classes = {0, 2, 1};
+        float[] scores = {0.9f, 0.2f, 0.6f};
+
+        SsdOutputDecoder floatDecoder = new SsdOutputDecoder(labels);
+        floatDecoder.setOutput(SsdOutputDecoder.BOXES, floatBuffer(boxes), 0f, 0);
+        floatDecoder.setOutput(SsdOutputDecoder.CLASSES, floatBuffer(classes), 0f, 0);
+        floatDecoder.setOutput(SsdOutputDecoder.SCORES, floatBuffer(scores), 0f, 0);
+        floatDecoder.setOutput(SsdOutputDecoder.COUNT, floatBuffer(new float[]{3}), 0f, 0);
+
+        float boxScale = 1 / 255f;
+        float scoreScale = 1 / 256f;
+        SsdOutputDecoder quantizedDecoder = new SsdOutputDecoder(labels);
+        quantizedDecoder.setOutput(SsdOutputDecoder.BOXES, quantize(boxes, boxScale, 0), boxScale, 0);
+        quantizedDecoder.setOutput(SsdOutputDecoder.CLASSES, quantize(classes, 1f, 0), 1f, 0);
+        quantizedDecoder.setOutput(SsdOutputDecoder.SCORES, quantize(scores, scoreScale, 0), scoreScale, 0);
+        quantizedDecoder.setOutput(SsdOutputDecoder.COUNT, floatBuffer(new float[]{3}), 0f, 0);
+
+        List<ObjectDetection> expected = floatDecoder.decode(0.5f, 10, 300, 200);
+        List<ObjectDetection> actual = quantizedDecoder.decode(0.5f, 10, 300, 200);
+
+        assertEquals(2, expected.size());
+        assertEquals("person", expected.get(0).getLabel());
+        assertEquals(60f, expected.get(0).getLeft(), 1e-4f);
+        assertEquals(20f, expected.get(0).getTop(), 1e-4f);
+        assertEquals("bicycle", expected.get(1).getLabel());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLabel(), actual.get(i).getLabel());
+            assertEquals(expected.get(i).getConfidence(), actual.get(i).getConfidence(), scoreScale);
+            assertEquals(expected.get(i).getRight(), actual.get(i).getRight(), 300 * boxScale);
+            assertEquals(expected.get(i).getBottom(), actual.get(i).getBottom(), 200 * boxScale);
+        }
+        // The box below the threshold was never dequantized
+        assertEquals(2, quantizedDecoder.getDequantizedCount());
+        assertEquals(1, quantizedDecoder.decode(0.5f, 1, 300, 200).size());
+    }
+
+    private static int sensorIndex(YuvFrame frame, int uprightX, int uprightY) {
+        switch (frame.rotationDegrees) {
+            case 90:
+                return (frame.height - 1 - uprightX) * frame.width + uprightY;
+            case 180:
+                return (frame.height - 1 - uprightY) * frame.width + frame.width - 1 - uprightX;
+            case 270:
+                return uprightX * frame.width + frame.width - 1 - uprightY;
+            default:
+                return uprightY * frame.width + uprightX;
+        }
+    }
+
+    private static YuvFrame randomFrame(int width, int height) {
+        YuvFrame frame = new YuvFrame(width, height);
+        Random random = new Random(5);
+        random.nextBytes(frame.y);
+        random.nextBytes(frame.u);
+        random.nextBytes(frame.v);
+        return frame;
+    }
+
+    private static ByteBuffer floatBuffer(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * values.length).order(ByteOrder.nativeOrder());
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer quantize(float[] values, float scale, int zeroPoint) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(values.length);
+        for (float value : values) {
+            buffer.put((byte) Math.round(value / scale + zeroPoint));
+        }
+        return buffer;
+    }
+}
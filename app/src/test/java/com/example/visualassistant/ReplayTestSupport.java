@@ -0,0 +1,90 @@
+package com.example.visualassistant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Synthetic frames and stub backends shared by the host-side pipeline tests.
+ */
+final class ReplayTestSupport {
+
+    static final byte BACKGROUND_LUMA = 40;
+    static final byte OBJECT_LUMA = (byte) 230;
+
+    private ReplayTestSupport() {
+    }
+
+    /**
+     * A dark frame with one bright rectangle (in unrotated pixel coordinates).
+     */
+    static YuvFrame frameWithObject(int width, int height, long timestampMillis,
+                                    int left, int top, int right, int bottom) {
+        YuvFrame frame = new YuvFrame(width, height);
+        frame.timestampNanos = timestampMillis * 1_000_000L;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                boolean inside = col >= left && col < right && row >= top && row < bottom;
+                frame.y[row * width + col] = inside ? OBJECT_LUMA : BACKGROUND_LUMA;
+            }
+        }
+        Arrays.fill(frame.u, (byte) 128);
+        Arrays.fill(frame.v, (byte) 128);
+        return frame;
+    }
+
+    static YuvFrame emptyFrame(int width, int height, long timestampMillis) {
+        return frameWithObject(width, height, timestampMillis, 0, 0, 0, 0);
+    }
+
+    /**
+     * Reports the bounding box of all bright pixels as a single "person", like a
+     * detector would for an unrotated frame.
+     */
+    static class BrightRegionDetector implements DetectorBackend {
+        int calls = 0;
+
+        @Override
+        public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+            calls++;
+            int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = -1, bottom = -1;
+            for (int row = 0; row < frame.height; row++) {
+                for (int col = 0; col < frame.width; col++) {
+                    // Green channel of the converted pixel is close to luma for grey input
+                    if (((argb[row * frame.width + col] >> 8) & 0xFF) > 200) {
+                        left = Math.min(left, col);
+                        top = Math.min(top, row);
+                        right = Math.max(right, col + 1);
+                        bottom = Math.max(bottom, row + 1);
+                    }
+                }
+            }
+            List<ObjectDetection> detections = new ArrayList<>();
+            if (right > 0) {
+                detections.add(new ObjectDetection("person", 0.9f, 0f, left, top, right, bottom));
+            }
+            return detections;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static class FixedTextRecognizer implements TextRecognizerBackend {
+        private final String text;
+
+        FixedTextRecognizer(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String recognize(YuvFrame frame) {
+            return text;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResolutionControllerTest {
+
+    private static final long MILLIS = 1_000_000L;
+    private static final long FRAME_INTERVAL = 100 * MILLIS;
+
+    private long now = 1_000_000 * MILLIS;
+
+    @Test
+    public void stepsDownWhenLatencyStaysOverBudget() {
+        ResolutionController controller = new ResolutionController();
+        List<Integer> widths = new ArrayList<>();
+        controller.setListener((width, height) -> widths.add(width));
+        controller.setProfile(ResolutionController.Profile.NAVIGATION, now);
+        assertEquals(640, controller.getWidth());
+
+        // A slow phone: 400 ms per frame against a 150 ms budget
+        runFrames(controller, 100, 400);
+
+        assertEquals(320, controller.getWidth());
+        assertEquals(0, controller.getRung());
+        assertEquals(2, controller.getSwitchCount());
+        assertEquals(Integer.valueOf(480), widths.get(0));
+        assertEquals(Integer.valueOf(320), widths.get(1));
+    }
+
+    @Test
+    public void doesNotThrashOnBorderlineLatency() {
+        ResolutionController controller = new ResolutionController();
+        controller.setProfile(ResolutionController.Profile.OBJECT_DETECTION, now);
+        long switches = controller.getSwitchCount();
+
+        // Alternating just over and well under budget never gives enough agreeing evaluations
+        for (int i = 0; i < 200; i++) {
+            runFrames(controller, 1, i % 2 == 0 ? 320 : 60);
+        }
+
+        assertEquals(640, controller.getWidth());
+        assertEquals(switches, controller.getSwitchCount());
+    }
+
+    @Test
+    public void raisesResolutionForSmallTextWhileItFits() {
+        ResolutionController controller = new ResolutionController();
+        controller.setProfile(ResolutionController.Profile.TEXT_RECOGNITION, now);
+        assertEquals(640, controller.getWidth());
+
+        // Fast OCR but no small text: nothing to gain from more pixels
+        runFrames(controller, 20, 200);
+        assertEquals(640, controller.getWidth());
+
+        // Small lines: step up while the larger frame is predicted to fit the budget
+        for (int i = 0; i < 100; i++) {
+            controller.onTextLineHeight(0.02f);
+            long pixels = (long) controller.getWidth() * controller.getHeight();
+            runFrames(controller, 1, 200 * pixels / (640 * 480));
+        }
+        // 960x720 takes 450 ms; 1280x960 would take 800 ms, not under 80% of the 1 s budget
+        assertEquals(960, controller.getWidth());
+
+        // Large lines: go back down to save time
+        for (int i = 0; i < 100; i++) {
+            controller.onTextLineHeight(0.2f);
+            runFrames(controller, 1, 200);
+        }
+        assertEquals(480, controller.getWidth());
+    }
+
+    @Test
+    public void modeSwitchesKeepTheResolutionWhenAllowed() {
+        ResolutionController controller = new ResolutionController();
+        List<Integer> widths = new ArrayList<>();
+        controller.setListener((width, height) -> widths.add(width));
+
+        controller.setProfile(ResolutionController.Profile.NAVIGATION, now);
+        controller.setProfile(ResolutionController.Profile.TEXT_RECOGNITION, now);
+        controller.setProfile(ResolutionController.Profile.DESCRIBE, now);
+        controller.setProfile(ResolutionController.Profile.OBJECT_DETECTION, now);
+        assertEquals(0, controller.getSwitchCount());
+        assertEquals(0, widths.size());
+
+        // Navigation adapted down to 320x240, below the lowest rung reading may use
+        controller.setProfile(ResolutionController.Profile.NAVIGATION, now);
+        runFrames(controller, 100, 400);
+        assertEquals(320, controller.getWidth());
+        controller.setProfile(ResolutionController.Profile.TEXT_RECOGNITION, now);
+        assertEquals(480, controller.getWidth());
+        controller.setProfile(ResolutionController.Profile.DESCRIBE, now);
+        assertEquals(480, controller.getWidth());
+        assertEquals(3, controller.getSwitchCount());
+    }
+
+    @Test
+    public void ignoresFramesStartedBeforeAChange() {
+        ResolutionController controller = new ResolutionController();
+        controller.setProfile(ResolutionController.Profile.NAVIGATION, now);
+        long changedAt = now;
+        now += ResolutionController.MIN_DWELL_NANOS;
+
+        // Slow frames that began at the old resolution must not push the new one down
+        for (int i = 0; i < 10; i++) {
+            controller.onFrameProcessed(changedAt - MILLIS, now);
+            now += FRAME_INTERVAL;
+        }
+
+        assertEquals(640, controller.getWidth());
+        assertEquals(-1, controller.getLatencyEwmaNanos());
+    }
+
+    private void runFrames(ResolutionController controller, int frames, long latencyMillis) {
+        for (int i = 0; i < frames; i++) {
+            long start = now;
+            now += latencyMillis * MILLIS;
+            controller.onFrameProcessed(start, now);
+            now += FRAME_INTERVAL;
+        }
+    }
+}
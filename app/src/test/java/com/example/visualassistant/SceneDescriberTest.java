@@ -0,0 +1,156 @@
+package com.example.visualassistant;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SceneDescriberTest {
+
+    private static final long MODEL_MILLIS = 200;
+
+    private final ExecutorService detectionExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService recognitionExecutor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        detectionExecutor.shutdownNow();
+        recognitionExecutor.shutdownNow();
+    }
+
+    @Test
+    public void mergesDetectionAndTextIntoOneDescription() throws Exception {
+        SceneDescriber describer = new SceneDescriber(detectionExecutor, recognitionExecutor);
+        describer.setDetectorBackend(new ReplayTestSupport.BrightRegionDetector());
+        describer.setTextRecognizerBackend(new ReplayTestSupport.FixedTextRecognizer("EXIT"));
+        SharedFrame.Pool pool = new SharedFrame.Pool(2);
+
+        SceneDescriber.Description description = describe(describer, pool,
+                ReplayTestSupport.frameWithObject(64, 48, 0, 8, 8, 24, 40));
+
+        assertEquals("I can see person. Recognized text: EXIT", description.text);
+        assertEquals(1, description.detections.size());
+        // Both workers released their references
+        assertEquals(2, pool.available());
+    }
+
+    @Test
+    public void runsBothModelsInParallel() throws Exception {
+        SceneDescriber describer = new SceneDescriber(detectionExecutor, recognitionExecutor);
+        describer.setDetectorBackend(new SlowDetector());
+        describer.setTextRecognizerBackend(new SlowRecognizer());
+        SharedFrame.Pool pool = new SharedFrame.Pool(2);
+
+        SceneDescriber.Description description = describe(describer, pool,
+                ReplayTestSupport.emptyFrame(64, 48, 0));
+
+        assertTrue(description.detectionNanos >= MODEL_MILLIS * 1_000_000L);
+        assertTrue(description.recognitionNanos >= MODEL_MILLIS * 1_000_000L);
+        // Close to one model's cost, well short of both run back to back
+        assertTrue("wall " + description.wallNanos / 1_000_000L + " ms",
+                description.wallNanos < (2 * MODEL_MILLIS - MODEL_MILLIS / 2) * 1_000_000L);
+        assertEquals("No object detected", description.text);
+    }
+
+    @Test
+    public void refusesFramesWhileBusyAndReleasesThem() throws Exception {
+        SceneDescriber describer = new SceneDescriber(detectionExecutor, recognitionExecutor);
+        describer.setDetectorBackend(new SlowDetector());
+        describer.setTextRecognizerBackend(new SlowRecognizer());
+        SharedFrame.Pool pool = new SharedFrame.Pool(2);
+
+        CountDownLatch done = new CountDownLatch(1);
+        SharedFrame first = pool.acquire();
+        first.yuv.copyFrom(ReplayTestSupport.emptyFrame(64, 48, 0));
+        first.convert();
+        assertTrue(describer.describe(first, 1, description -> done.countDown()));
+        assertTrue(describer.isBusy());
+
+        SharedFrame second = pool.acquire();
+        assertNotNull(second);
+        assertFalse(describer.describe(second, 2, description -> { }));
+        assertEquals(1, pool.available());
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        recognitionExecutor.submit(() -> { }).get();
+        detectionExecutor.submit(() -> { }).get();
+        assertFalse(describer.isBusy());
+        assertEquals(2, pool.available());
+    }
+
+    @Test
+    public void aFailedModelIsReportedAndTheOtherStillDescribes() throws Exception {
+        SceneDescriber describer = new SceneDescriber(detectionExecutor, recognitionExecutor);
+        describer.setDetectorBackend(new ReplayTestSupport.BrightRegionDetector());
+        describer.setTextRecognizerBackend(new ReplayTestSupport.FixedTextRecognizer("") {
+            @Override
+            public String recognize(YuvFrame frame) {
+                throw new IllegalStateException("model not loaded");
+            }
+        });
+        SharedFrame.Pool pool = new SharedFrame.Pool(2);
+
+        SceneDescriber.Description description = describe(describer, pool,
+                ReplayTestSupport.frameWithObject(64, 48, 0, 8, 8, 24, 40));
+
+        assertEquals("I can see person", description.text);
+        assertNull(description.detectionError);
+        assertEquals("model not loaded", description.recognitionError.getMessage());
+        assertEquals(2, pool.available());
+    }
+
+    private static SceneDescriber.Description describe(SceneDescriber describer, SharedFrame.Pool pool,
+                                                       YuvFrame source) throws InterruptedException {
+        SharedFrame frame = pool.acquire();
+        frame.yuv.copyFrom(source);
+        frame.convert();
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<SceneDescriber.Description> result = new AtomicReference<>();
+        assertTrue(describer.describe(frame, 1, description -> {
+            result.set(description);
+            done.countDown();
+        }));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return result.get();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(MODEL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class SlowDetector extends ReplayTestSupport.BrightRegionDetector {
+        @Override
+        public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+            sleep();
+            return super.detect(frame, argb);
+        }
+    }
+
+    private static class SlowRecognizer extends ReplayTestSupport.FixedTextRecognizer {
+        SlowRecognizer() {
+            super("");
+        }
+
+        @Override
+        public String recognize(YuvFrame frame) {
+            sleep();
+            return super.recognize(frame);
+        }
+    }
+}
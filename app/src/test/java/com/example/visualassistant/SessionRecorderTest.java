@@ -0,0 +1,195 @@
+package com.example.visualassistant;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SessionRecorderTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("recordings", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void recordsSampledFramesAndEvents() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(directory, 1 << 20, 4, 100, 1);
+        recorder.start();
+
+        // 30 frames 33ms apart, sampled every 100ms -> frames 0, 4, 8, ... (one every 132ms)
+        int sampled = 0;
+        for (int i = 0; i < 30; i++) {
+            YuvFrame frame = recorder.acquireFrame(i * 33_000_000L);
+            if (frame == null) continue;
+            sampled++;
+            frame.copyFrom(ReplayTestSupport.emptyFrame(64, 48, i * 33L));
+            recorder.submitFrame(frame);
+            // Keep the pool from running dry so the count is deterministic
+            while (recorder.getRecordedFrames() < sampled) {
+                Thread.sleep(1);
+            }
+        }
+        recorder.recordDetections(0, Collections.singletonList(
+                new ObjectDetection("person", 0.9f, 0f, 0.1f, 0.2f, 0.3f, 0.4f)));
+        recorder.recordAnnouncement(0, "Detected object: person");
+        recorder.stop();
+        assertTrue(recorder.awaitWriters(5000));
+
+        assertEquals(8, sampled);
+        assertEquals(8, recorder.getRecordedFrames());
+
+        List<File> recordings = SessionRecorder.listRecordings(directory);
+        assertEquals(1, recordings.size());
+        assertEquals(recordings.get(0).length(), recorder.getBytesWritten());
+
+        int frames = 0;
+        String announcement = null;
+        List<ObjectDetection> detections = null;
+        try (FrameContainer.Reader reader = new FrameContainer.Reader(
+                new FileInputStream(recordings.get(0)).getChannel())) {
+            YuvFrame frame = new YuvFrame();
+            int type;
+            while ((type = reader.next()) != FrameContainer.RECORD_END) {
+                if (type == FrameContainer.RECORD_FRAME) {
+                    reader.readFrame(frame);
+                    assertEquals(64, frame.width);
+                    frames++;
+                } else if (type == FrameContainer.RECORD_DETECTIONS) {
+                    detections = reader.readDetections();
+                } else if (type == FrameContainer.RECORD_ANNOUNCEMENT) {
+                    announcement = reader.readAnnouncement();
+                }
+            }
+        }
+        assertEquals(8, frames);
+        assertNotNull(detections);
+        assertEquals("person", detections.get(0).getLabel());
+        assertEquals("Detected object: person", announcement);
+    }
+
+    @Test
+    public void rotatesFilesAndKeepsOnlyTheNewest() throws Exception {
+        int frameRecord = FrameContainer.RECORD_HEADER_SIZE + FrameContainer.framePayloadSize(64, 48, 0);
+        // Room for two frames per file
+        long maxFileBytes = FrameContainer.FILE_HEADER_SIZE + 2L * frameRecord;
+        SessionRecorder recorder = new SessionRecorder(directory, maxFileBytes, 3, 0, 0);
+        recorder.start();
+
+        for (int i = 0; i < 10; i++) {
+            YuvFrame frame = recorder.acquireFrame(i * 1_000_000L);
+            assertNotNull(frame);
+            frame.copyFrom(ReplayTestSupport.emptyFrame(64, 48, i));
+            recorder.submitFrame(frame);
+            while (recorder.getRecordedFrames() <= i) {
+                Thread.sleep(1);
+            }
+        }
+        recorder.stop();
+        assertTrue(recorder.awaitWriters(5000));
+
+        List<File> recordings = SessionRecorder.listRecordings(directory);
+        assertEquals(3, recordings.size());
+        for (File file : recordings) {
+            assertTrue(file.length() <= maxFileBytes);
+        }
+        // Files 0 and 1 were deleted; the last one holds frames 8 and 9
+        assertTrue(recordings.get(2).getName().endsWith("-4" + SessionRecorder.FILE_SUFFIX));
+    }
+
+    @Test
+    public void ordersFilesBySessionThenIndexPastTen() throws Exception {
+        // An earlier session that got as far as file 12
+        for (int i = 0; i <= 12; i++) {
+            assertTrue(new File(directory, SessionRecorder.FILE_PREFIX + "1000-" + i + SessionRecorder.FILE_SUFFIX)
+                    .createNewFile());
+        }
+        SessionRecorder recorder = new SessionRecorder(directory, 1 << 20, 3, 0, 0);
+        recorder.start();
+        YuvFrame frame = recorder.acquireFrame(0);
+        frame.copyFrom(ReplayTestSupport.emptyFrame(64, 48, 0));
+        recorder.submitFrame(frame);
+        recorder.stop();
+        assertTrue(recorder.awaitWriters(5000));
+
+        // The oldest files went, not the one just opened by the new session
+        List<File> recordings = SessionRecorder.listRecordings(directory);
+        assertEquals(3, recordings.size());
+        assertEquals(SessionRecorder.FILE_PREFIX + "1000-11" + SessionRecorder.FILE_SUFFIX, recordings.get(0).getName());
+        assertEquals(SessionRecorder.FILE_PREFIX + "1000-12" + SessionRecorder.FILE_SUFFIX, recordings.get(1).getName());
+        assertTrue(recordings.get(2).getName().endsWith("-0" + SessionRecorder.FILE_SUFFIX));
+        assertEquals(1, recorder.getRecordedFrames());
+        assertEquals(0, recorder.getErrorCount());
+    }
+
+    @Test
+    public void stopReturnsAtOnceAndANewSessionCanStart() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(directory, 1 << 20, 4, 0, 0);
+        recorder.start();
+        recorder.recordAnnouncement(0, "first");
+        recorder.stop();
+        assertFalse(recorder.isRecording());
+        recorder.start();
+        recorder.recordAnnouncement(1, "second");
+        recorder.stop();
+        assertTrue(recorder.awaitWriters(5000));
+        assertEquals(0, recorder.getErrorCount());
+        // Each session in a file of its own, even if both started within the same millisecond
+        assertEquals(2, SessionRecorder.listRecordings(directory).size());
+    }
+
+    @Test
+    public void dropsFramesWhenNotRecording() {
+        SessionRecorder recorder = new SessionRecorder(directory, 1 << 20, 4, 0, 1);
+        assertNull(recorder.acquireFrame(0));
+        assertEquals(0, SessionRecorder.listRecordings(directory).size());
+    }
+
+    @Test
+    public void writeErrorsStopRecordingAndAreReported() throws Exception {
+        // A plain file where the recordings directory should be
+        File blocked = new File(directory, "blocked");
+        assertTrue(blocked.createNewFile());
+        SessionRecorder recorder = new SessionRecorder(blocked, 1 << 20, 4, 0, 1);
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        recorder.setErrorListener((message, cause) -> messages.add(message));
+        recorder.start();
+        recorder.recordAnnouncement(0, "Detected object: person");
+        for (int i = 0; i < 200 && recorder.isRecording(); i++) {
+            Thread.sleep(10);
+        }
+        recorder.stop();
+        assertTrue(recorder.awaitWriters(5000));
+
+        assertFalse(recorder.isRecording());
+        assertEquals(1, recorder.getErrorCount());
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0), messages.get(0).startsWith("Recording stopped"));
+    }
+}
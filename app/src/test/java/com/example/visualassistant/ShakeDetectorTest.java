@@ -0,0 +1,108 @@
+package com.example.visualassistant;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShakeDetectorTest {
+
+    private static final long MS = 1_000_000L;
+    // SENSOR_DELAY_GAME delivers about every 20 ms
+    private static final long PERIOD = 20 * MS;
+    private static final float G = 9.81f;
+
+    // Synthetic accelerometer trace of a phone held upright, gravity along y
+    private interface Motion {
+        /** Linear acceleration along x at {@code t}, in m/s^2. */
+        float x(long t);
+    }
+
+    private final Random noise = new Random(3);
+
+    /**
+     * Feeds {@code duration} of {@code motion} starting at {@code start}.
+     *
+     * @return Time of the first sample that fired, or -1
+     */
+    private long play(ShakeDetector detector, long start, long duration, Motion motion) {
+        long fired = -1;
+        for (long t = start; t < start + duration; t += PERIOD) {
+            float jitter = (float) noise.nextGaussian() * 0.3f;
+            if (detector.onSample(t, motion.x(t - start) + jitter, G + jitter, jitter) && fired < 0) {
+                fired = t;
+            }
+        }
+        return fired;
+    }
+
+    private static Motion sine(float amplitude, float hertz) {
+        return t -> amplitude * (float) Math.sin(2 * Math.PI * hertz * t / 1e9);
+    }
+
+    @Test
+    public void aDeliberateShakeFiresWithin300Milliseconds() {
+        ShakeDetector detector = new ShakeDetector();
+        play(detector, 0, 2000 * MS, t -> 0f);
+
+        long fired = play(detector, 2000 * MS, 1000 * MS, sine(25f, 5f));
+
+        assertTrue("fired at " + fired, fired >= 2000 * MS);
+        assertTrue("fired " + (fired / MS - 2000) + " ms in", fired - 2000 * MS <= 300 * MS);
+        assertEquals(1, detector.getFireCount());
+    }
+
+    @Test
+    public void walkingKnocksAndTiltingDoNotFire() {
+        ShakeDetector detector = new ShakeDetector();
+        // Brisk walking: about 2 steps a second, a few m/s^2
+        assertEquals(-1, play(detector, 0, 10_000 * MS, sine(4f, 2f)));
+        // One hard knock, as when the phone is put down
+        assertEquals(-1, play(detector, 10_000 * MS, 1000 * MS,
+                t -> t >= 200 * MS && t < 240 * MS ? 30f : 0f));
+        // Slowly turning the phone over shifts gravity between axes
+        assertEquals(-1, play(detector, 11_000 * MS, 2000 * MS,
+                t -> G * (float) Math.sin(Math.PI / 2 * t / 2e9)));
+        assertEquals(0, detector.getFireCount());
+    }
+
+    @Test
+    public void aLongShakeFiresOnceUntilTheCooldownEnds() {
+        ShakeDetector detector = new ShakeDetector();
+        play(detector, 0, 500 * MS, t -> 0f);
+        play(detector, 500 * MS, 2500 * MS, sine(25f, 5f));
+        assertEquals(1, detector.getFireCount());
+
+        // Still shaking after the cooldown: the SOS gesture again
+        play(detector, 3000 * MS, 2000 * MS, sine(25f, 5f));
+        assertEquals(2, detector.getFireCount());
+    }
+
+    @Test
+    public void peaksFromBeforeAPauseDoNotCount() {
+        ShakeDetector detector = new ShakeDetector();
+        play(detector, 0, 500 * MS, t -> 0f);
+        // Two half-cycles, then the listener is unregistered
+        play(detector, 500 * MS, 200 * MS, sine(25f, 5f));
+        detector.reset();
+        play(detector, 700 * MS, 60 * MS, t -> t == 0 ? 0f : 25f);
+        assertEquals(0, detector.getFireCount());
+    }
+
+    @Test
+    public void samplesDoNotAllocate() {
+        ShakeDetector detector = new ShakeDetector();
+        float[] trace = new float[1000];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = 25f * (float) Math.sin(2 * Math.PI * 5 * i * PERIOD / 1e9);
+        }
+        int[] sample = {0};
+        AllocationTestSupport.assertNoAllocation("ShakeDetector.onSample", () -> {
+            int i = sample[0]++;
+            detector.onSample((i + 1) * PERIOD, trace[i % trace.length], G, 0f);
+        }, 10_000, 100_000);
+        assertTrue(detector.getFireCount() > 0);
+    }
+}
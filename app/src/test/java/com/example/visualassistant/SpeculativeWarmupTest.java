@@ -0,0 +1,158 @@
+package com.example.visualassistant;
+
+import com.example.visualassistant.VoiceCommandMatcher.Command;
+
+import org.junit.Test;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpeculativeWarmupTest {
+
+    private static final long MS = 1_000_000L;
+    // First inference after start-up pays for model initialisation
+    private static final long COLD_FRAME = 400 * MS;
+    private static final long WARM_FRAME = 50 * MS;
+
+    /**
+     * A pipeline on a virtual clock: warm-up is queued, then run when the test says its
+     * worker got to it, and takes as long as a cold frame.
+     */
+    private static final class FakePipeline implements SpeculativeWarmup.Pipeline {
+        BooleanSupplier queued;
+        int warmUps;
+        long warmFrom = -1;
+
+        @Override
+        public void warmUp(BooleanSupplier cancelled) {
+            queued = cancelled;
+            warmUps++;
+        }
+
+        void runQueued(long now) {
+            if (queued != null && !queued.getAsBoolean() && warmFrom < 0) {
+                warmFrom = now + COLD_FRAME;
+            }
+            queued = null;
+        }
+
+        /**
+         * @return When the first frame analysed from {@code modeStart} is announced
+         */
+        long firstAnnouncement(long modeStart) {
+            return warmFrom >= 0 ? Math.max(modeStart, warmFrom) + WARM_FRAME : modeStart + COLD_FRAME;
+        }
+    }
+
+    private final VoiceCommandMatcher matcher = new VoiceCommandMatcher();
+
+    /**
+     * Says "please navigate" with partial results every 150 ms, the pipeline's worker idle,
+     * and reports the first announcement once the final result has switched modes.
+     */
+    private void sayNavigate(SpeculativeWarmup warmup, FakePipeline pipeline) {
+        String[] partials = {"please", "please nav", "please navi", "please navigate"};
+        matcher.beginUtterance();
+        long now = 0;
+        for (String partial : partials) {
+            assertNull(matcher.onPartialResult(partial));
+            warmup.onHint(matcher.getHint());
+            pipeline.runQueued(now);
+            now += 150 * MS;
+        }
+        long speechEnd = now;
+        // The recogniser settles on the final result a little after the end of speech
+        now += 100 * MS;
+        Command command = matcher.onFinalResult("please navigate", 0.9f);
+        assertEquals(Command.NAVIGATE, command);
+        warmup.onCommand(command, speechEnd);
+        warmup.onResult(Command.NAVIGATE, pipeline.firstAnnouncement(now));
+    }
+
+    @Test
+    public void speculationCutsTheDelayToTheFirstAnnouncement() {
+        SpeculativeWarmup baseline = new SpeculativeWarmup();
+        baseline.setEnabled(false);
+        FakePipeline coldPipeline = new FakePipeline();
+        baseline.register(Command.NAVIGATE, coldPipeline);
+        sayNavigate(baseline, coldPipeline);
+
+        SpeculativeWarmup speculative = new SpeculativeWarmup();
+        FakePipeline warmPipeline = new FakePipeline();
+        speculative.register(Command.NAVIGATE, warmPipeline);
+        sayNavigate(speculative, warmPipeline);
+
+        assertEquals(0, coldPipeline.warmUps);
+        assertEquals(1, baseline.getColdCount());
+        assertEquals(500 * MS, baseline.getColdLatencyNanos());
+
+        // Warmed from "nav" on, 450 ms before the end of speech
+        assertEquals(1, warmPipeline.warmUps);
+        assertEquals(1, speculative.getHitCount());
+        assertEquals(1, speculative.getWarmCount());
+        assertEquals(150 * MS, speculative.getWarmLatencyNanos());
+    }
+
+    @Test
+    public void aDifferentFinalCommandCancelsTheWarmUp() {
+        SpeculativeWarmup warmup = new SpeculativeWarmup();
+        FakePipeline reading = new FakePipeline();
+        warmup.register(Command.READ, reading);
+
+        matcher.beginUtterance();
+        matcher.onPartialResult("rea");
+        warmup.onHint(matcher.getHint());
+        assertEquals(1, reading.warmUps);
+        warmup.onCommand(matcher.onFinalResult("record", -1f), 300 * MS);
+
+        assertTrue(reading.queued.getAsBoolean());
+        reading.runQueued(350 * MS);
+        assertEquals(-1, reading.warmFrom);
+        assertEquals(1, warmup.getCancelledCount());
+        assertEquals(0, warmup.getHitCount());
+    }
+
+    @Test
+    public void aChangedHintCancelsTheEarlierWarmUp() {
+        SpeculativeWarmup warmup = new SpeculativeWarmup();
+        FakePipeline describing = new FakePipeline();
+        FakePipeline identifying = new FakePipeline();
+        warmup.register(Command.DESCRIBE, describing);
+        warmup.register(Command.IDENTIFY, identifying);
+
+        warmup.onHint(Command.DESCRIBE);
+        BooleanSupplier describeTicket = describing.queued;
+        warmup.onHint(Command.DESCRIBE);
+        assertEquals(1, describing.warmUps);
+
+        warmup.onHint(Command.IDENTIFY);
+        assertTrue(describeTicket.getAsBoolean());
+        assertFalse(identifying.queued.getAsBoolean());
+        warmup.onCommand(Command.IDENTIFY, 0);
+        assertFalse(identifying.queued.getAsBoolean());
+        assertEquals(1, warmup.getHitCount());
+        assertEquals(1, warmup.getCancelledCount());
+    }
+
+    @Test
+    public void aPipelineThatHasAnnouncedIsNotWarmedAgain() {
+        SpeculativeWarmup warmup = new SpeculativeWarmup();
+        FakePipeline reading = new FakePipeline();
+        warmup.register(Command.READ, reading);
+
+        warmup.onCommand(Command.READ, 0);
+        warmup.onResult(Command.READ, COLD_FRAME);
+        assertEquals(1, warmup.getColdCount());
+
+        warmup.onHint(Command.READ);
+        assertEquals(0, reading.warmUps);
+        warmup.onCommand(Command.READ, 1000 * MS);
+        warmup.onResult(Command.READ, 1000 * MS + WARM_FRAME);
+        assertEquals(1, warmup.getWarmCount());
+        assertEquals(WARM_FRAME, warmup.getWarmLatencyNanos());
+    }
+}
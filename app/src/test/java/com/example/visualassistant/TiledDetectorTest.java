@@ -0,0 +1,127 @@
+package com.example.visualassistant;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TiledDetectorTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void findsSmallObjectsTheWholeFrameMisses() throws Exception {
+        YuvFrame frame = ReplayTestSupport.frameWithObject(WIDTH, HEIGHT, 0, 10, 10, 20, 20);
+        List<DetectorBackend> backends = backends(2);
+
+        assertTrue(backends.get(0).detect(frame, argb(frame)).isEmpty());
+
+        TiledDetector tiled = new TiledDetector(executor, 2, TiledDetector.Schedule.ALL);
+        List<ObjectDetection> results = tiled.detect(backends, frame);
+
+        assertEquals(1, results.size());
+        assertEquals(10f, results.get(0).getLeft(), 0f);
+        assertEquals(20f, results.get(0).getBottom(), 0f);
+        assertEquals(4, tiled.getTileRuns());
+        // Four tiles and the whole frame, shared between both lanes
+        assertEquals(1 + 3, ((ModelSizeDetector) backends.get(0)).calls);
+        assertEquals(2, ((ModelSizeDetector) backends.get(1)).calls);
+    }
+
+    @Test
+    public void mergesAnObjectCutByTileEdges() throws Exception {
+        // Spans all four tiles
+        YuvFrame frame = ReplayTestSupport.frameWithObject(WIDTH, HEIGHT, 0, 60, 40, 100, 80);
+
+        TiledDetector tiled = new TiledDetector(executor, 2, TiledDetector.Schedule.ALL);
+        List<ObjectDetection> results = tiled.detect(backends(2), frame);
+
+        assertEquals(1, results.size());
+        ObjectDetection detection = results.get(0);
+        assertEquals(60f, detection.getLeft(), 0f);
+        assertEquals(40f, detection.getTop(), 0f);
+        assertEquals(100f, detection.getRight(), 0f);
+        assertEquals(80f, detection.getBottom(), 0f);
+    }
+
+    @Test
+    public void roundRobinCoversEveryTileOverSuccessiveFrames() throws Exception {
+        // Bottom right corner, only in the last tile
+        YuvFrame frame = ReplayTestSupport.frameWithObject(WIDTH, HEIGHT, 0, 140, 100, 150, 110);
+        TiledDetector tiled = new TiledDetector(executor, 2, TiledDetector.Schedule.ROUND_ROBIN);
+        List<DetectorBackend> backends = backends(2);
+
+        int firstSeen = -1;
+        for (int i = 0; i < 2 * tiled.getTileCount(); i++) {
+            List<ObjectDetection> results = tiled.detect(backends, frame);
+            if (firstSeen < 0 && !results.isEmpty()) {
+                firstSeen = i;
+            }
+            // Once seen, the tile's results are carried until it runs again
+            assertEquals("frame " + i, firstSeen >= 0 ? 1 : 0, results.size());
+        }
+
+        assertEquals(tiled.getTileCount() - 1, firstSeen);
+        assertEquals(2 * tiled.getTileCount(), tiled.getTileRuns());
+    }
+
+    @Test
+    public void tilesCoverTheFrameWithOverlap() {
+        float[] tiles = TiledDetector.layout(3, 2, 0.25f);
+        assertEquals(0f, tiles[0], 0f);
+        assertEquals(1f, tiles[4 * 2 + 2], 0f);
+        assertEquals(1f, tiles[4 * 5 + 3], 0f);
+        // Neighbours overlap by a quarter of a tile
+        float tileWidth = tiles[2] - tiles[0];
+        assertEquals(tileWidth * 0.25f, tiles[2] - tiles[4], 1e-6f);
+    }
+
+    private static List<DetectorBackend> backends(int count) {
+        List<DetectorBackend> backends = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            backends.add(new ModelSizeDetector());
+        }
+        return backends;
+    }
+
+    private static int[] argb(YuvFrame frame) {
+        int[] argb = new int[frame.width * frame.height];
+        YuvConverter.yuvToArgb(frame, argb);
+        return argb;
+    }
+
+    /**
+     * Like a detector with a fixed input size: objects covering less than 1% of its
+     * input shrink below what the model can see and are missed.
+     */
+    private static class ModelSizeDetector extends ReplayTestSupport.BrightRegionDetector {
+        private static final float MIN_FRACTION = 0.01f;
+
+        @Override
+        public synchronized List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+            List<ObjectDetection> detections = super.detect(frame, argb);
+            List<ObjectDetection> visible = new ArrayList<>();
+            for (ObjectDetection detection : detections) {
+                float area = (detection.getRight() - detection.getLeft()) * (detection.getBottom() - detection.getTop());
+                if (area >= MIN_FRACTION * frame.width * frame.height) {
+                    visible.add(detection);
+                }
+            }
+            return visible;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.visualassistant;
+
+import com.example.visualassistant.VoiceCommandMatcher.Command;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VoiceCommandMatcherTest {
+
+    private static final float NO_SCORE = -1f;
+
+    private final VoiceCommandMatcher matcher = new VoiceCommandMatcher();
+
+    @Test
+    public void keywordsInAllThreeLanguagesMapToCommands() {
+        Object[][] cases = {
+                {"start navigation please", Command.NAVIGATE},
+                {"नेविगेट करो", Command.NAVIGATE},
+                {"please READ this", Command.READ},
+                {"यह पढ़ो", Command.READ},
+                {"हे वाचा", Command.READ},
+                {"describe the room", Command.DESCRIBE},
+                {"वर्णन करो", Command.DESCRIBE},
+                {"identify", Command.IDENTIFY},
+                {"इसे पहचानो", Command.IDENTIFY},
+                {"हे ओळखा", Command.IDENTIFY},
+                {"go home", Command.HOME},
+                {"SOS", Command.SOS},
+                {"बचाओ", Command.SOS},
+                {"मला वाचवा", Command.SOS},
+                {"stop", Command.STOP},
+                {"रुको", Command.STOP},
+                {"थांबा", Command.STOP},
+                {"cancel that", Command.CANCEL},
+                {"रद्द करो", Command.CANCEL},
+                {"more details", Command.DETAIL},
+                {"record", Command.RECORD},
+                {"switch to english", Command.ENGLISH},
+                {"हिंदी में बोलो", Command.HINDI},
+                {"मराठी", Command.MARATHI},
+        };
+        for (Object[] c : cases) {
+            assertEquals((String) c[0], c[1], matcher.match((String) c[0], NO_SCORE));
+        }
+    }
+
+    @Test
+    public void onlyWholeWordsMatch() {
+        assertNull(matcher.match("I am already here", NO_SCORE));
+        assertNull(matcher.match("bread and butter", NO_SCORE));
+        assertNull(matcher.match("where is my stopwatch", NO_SCORE));
+        assertNull(matcher.match("homeless", NO_SCORE));
+        // पहचान is a keyword, but पहचानी continues the word with a vowel sign
+        assertNull(matcher.match("पहचानी", NO_SCORE));
+        assertEquals(Command.READ, matcher.match("read, please", NO_SCORE));
+    }
+
+    @Test
+    public void nuktaLettersMatchWhetherPrecomposedOrNot() {
+        // पढ़ो with ढ़ as one code point, then as ढ plus nukta
+        assertEquals(Command.READ, matcher.match("यह \u092A\u095D\u094B", NO_SCORE));
+        assertEquals(Command.READ, matcher.match("यह \u092A\u0922\u093C\u094B", NO_SCORE));
+        assertEquals(Command.ENGLISH, matcher.match("\u0905\u0902\u0917\u094D\u0930\u0947\u095B\u0940", NO_SCORE));
+    }
+
+    @Test
+    public void severalCommandsResolveInPriorityOrder() {
+        assertEquals(Command.NAVIGATE, matcher.match("navigate home", NO_SCORE));
+        assertEquals(Command.CANCEL, matcher.match("stop stop cancel", NO_SCORE));
+    }
+
+    @Test
+    public void weakKeywordsNeedAConfidentRecognizer() {
+        assertEquals(Command.SOS, matcher.match("help", 0.9f));
+        assertNull(matcher.match("help", 0.6f));
+        assertNull(matcher.match("read", 0.5f));
+        assertEquals(Command.STOP, matcher.match("stop", 0.5f));
+    }
+
+    @Test
+    public void partialResultsFireOnceTheKeywordIsComplete() {
+        matcher.beginUtterance();
+        assertNull(matcher.onPartialResult("st"));
+        // Could still become "stopwatch"
+        assertNull(matcher.onPartialResult("stop"));
+        assertEquals(Command.STOP, matcher.onPartialResult("stop"));
+        assertTrue(matcher.hasFired());
+        assertNull(matcher.onPartialResult("stop now"));
+        assertNull(matcher.onFinalResult("stop now", NO_SCORE));
+
+        matcher.beginUtterance();
+        assertFalse(matcher.hasFired());
+        assertEquals(Command.SOS, matcher.onPartialResult("sos please"));
+
+        matcher.beginUtterance();
+        assertNull(matcher.onPartialResult("stop"));
+        assertNull(matcher.onPartialResult("stopwatch"));
+        assertNull(matcher.onFinalResult("stopwatch", NO_SCORE));
+    }
+
+    @Test
+    public void ambiguousOrWeakPartialsWaitForTheFinalResult() {
+        matcher.beginUtterance();
+        assertNull(matcher.onPartialResult("stop reading"));
+        assertNull(matcher.onPartialResult("stop reading now"));
+        assertEquals(Command.READ, matcher.onFinalResult("stop reading now", NO_SCORE));
+
+        matcher.beginUtterance();
+        assertNull(matcher.onPartialResult("help me"));
+        assertNull(matcher.onPartialResult("help me please"));
+        assertEquals(Command.SOS, matcher.onFinalResult("help me please", 0.8f));
+    }
+
+    @Test
+    public void partialWordsHintAtTheCommandTheyStart() {
+        matcher.beginUtterance();
+        assertNull(matcher.onPartialResult("please nav"));
+        assertEquals(Command.NAVIGATE, matcher.getHint());
+        assertNull(matcher.onPartialResult("यह \u092A\u0922\u093C"));
+        assertEquals(Command.READ, matcher.getHint());
+        // "re" could be read or record
+        assertNull(matcher.onPartialResult("re"));
+        assertNull(matcher.getHint());
+        assertNull(matcher.onPartialResult("rec"));
+        assertEquals(Command.RECORD, matcher.getHint());
+        assertNull(matcher.onPartialResult("unnav"));
+        assertNull(matcher.getHint());
+        assertNull(matcher.onPartialResult("nav "));
+        assertNull(matcher.getHint());
+    }
+
+    @Test
+    public void matchingDoesNotAllocate() {
+        String[] transcripts = {"please start navigation", "यह पढ़ो", "मला वाचवा", "where is my stopwatch"};
+        int[] next = {0};
+        AllocationTestSupport.assertNoAllocation("VoiceCommandMatcher utterance", () -> {
+            String transcript = transcripts[next[0]++ & 3];
+            matcher.beginUtterance();
+            matcher.onPartialResult(transcript);
+            matcher.onFinalResult(transcript, 0.9f);
+        }, 10_000, 100_000);
+    }
+}
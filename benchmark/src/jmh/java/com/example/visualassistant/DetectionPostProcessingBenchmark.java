@@ -0,0 +1,75 @@
+package com.example.visualassistant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame detection post-processing: confidence filter, box normalisation, area ratio,
+ * direction bucketing, repeat suppression and message building.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DetectionPostProcessingBenchmark {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 640;
+    private static final String[] LABELS = {"person", "chair", "car", "bicycle", "dog", "bottle", "cup", "door"};
+
+    @Param({"false", "true"})
+    public boolean navigationMode;
+
+    @Param({"ENGLISH", "HINDI"})
+    public String language;
+
+    private final DetectionPostProcessor postProcessor = new DetectionPostProcessor();
+    private final List<ObjectDetection> detections = new ArrayList<>();
+    private long frameTime;
+
+    @Setup
+    public void setUp() {
+        postProcessor.setIsNavigationMode(navigationMode);
+        postProcessor.setCurrentLanguage(language);
+
+        // Same shape as the detector output: up to 10 boxes, a mix above and below threshold
+        Random random = new Random(42);
+        for (int i = 0; i < 10; i++) {
+            float left = random.nextFloat() * WIDTH * 0.5f;
+            float top = random.nextFloat() * HEIGHT * 0.5f;
+            float right = left + WIDTH * (0.2f + random.nextFloat() * 0.5f);
+            float bottom = top + HEIGHT * (0.2f + random.nextFloat() * 0.5f);
+            detections.add(new ObjectDetection(LABELS[i % LABELS.length], 0.3f + random.nextFloat() * 0.7f,
+                    0f, left, top, right, bottom));
+        }
+    }
+
+    @Benchmark
+    public List<ObjectDetection> processSilentFrame() {
+        postProcessor.process(detections, WIDTH, HEIGHT, frameTime++, false);
+        return postProcessor.getOverlayResults();
+    }
+
+    @Benchmark
+    public String processSpokenFrame() {
+        // Step past the repeat suppression window so every call builds a message
+        frameTime += 20_000;
+        postProcessor.process(detections, WIDTH, HEIGHT, frameTime, true);
+        return postProcessor.getAnnouncement();
+    }
+
+    @Benchmark
+    public String direction() {
+        return DetectionPostProcessor.direction((frameTime++ & 1023) / 1023f);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.visualassistant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Language handling on the speech path: script/language detection of OCR output,
+ * announcement building and translation of detection messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LanguageBenchmark {
+
+    @Param({"ENGLISH", "HINDI", "MARATHI"})
+    public String language;
+
+    private String recognizedText;
+    private String detectionMessage;
+    private final DetectionPostProcessor postProcessor = new DetectionPostProcessor();
+
+    @Setup
+    public void setUp() {
+        // Typical sign / label sized OCR results
+        if (TextAnnouncer.HINDI.equals(language)) {
+            recognizedText = "यह रास्ता मुख्य बाजार की ओर जाता है। कृपया बाईं ओर चलें।";
+        } else if (TextAnnouncer.MARATHI.equals(language)) {
+            recognizedText = "हा रस्ता मुख्य बाजाराकडे जातो आणि मराठी शाळा डावीकडे आहे.";
+        } else {
+            recognizedText = "Platform 2 - Trains to Central Station. Please stand behind the yellow line.";
+        }
+        detectionMessage = "person ahead to the left. chair ahead to the front. car ahead to the right. ";
+        postProcessor.setCurrentLanguage(language);
+    }
+
+    @Benchmark
+    public String detectLanguage() {
+        return TextAnnouncer.detectLanguage(recognizedText, TextAnnouncer.AUTO);
+    }
+
+    @Benchmark
+    public String buildAnnouncement() {
+        return TextAnnouncer.buildAnnouncement(recognizedText,
+                TextAnnouncer.detectLanguage(recognizedText, TextAnnouncer.AUTO));
+    }
+
+    @Benchmark
+    public String translateOutput() {
+        return postProcessor.translateOutput(detectionMessage);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.visualassistant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java-side input and output work for a 640x480 portrait frame into a 300x300 SSD input:
+ * ARGB conversion plus float input, float input alone, uint8 input from the planes, and
+ * decoding 100 candidate boxes from float or uint8 outputs. Only this preprocessing and
+ * decoding is compared, never inference: both {@link ModelVariant}s run the same 8-bit
+ * model and no float model ships, so the float cases are what a float model's input and
+ * output would cost, not a pipeline the app can run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModelInputBenchmark {
+
+    private static final int INPUT_SIZE = 300;
+    private static final int CANDIDATES = 100;
+    private static final String[] LABELS = {"???", "person", "bicycle", "car", "motorcycle", "bus", "chair"};
+
+    private YuvFrame frame;
+    private int[] argb;
+    private final TensorInputWriter writer = new TensorInputWriter();
+    private ByteBuffer floatInput;
+    private ByteBuffer uint8Input;
+    private SsdOutputDecoder floatDecoder;
+    private SsdOutputDecoder quantizedDecoder;
+
+    @Setup
+    public void setUp() {
+        frame = new YuvFrame(640, 480);
+        frame.rotationDegrees = 90;
+        Random random = new Random(42);
+        random.nextBytes(frame.y);
+        random.nextBytes(frame.u);
+        random.nextBytes(frame.v);
+        argb = new int[640 * 480];
+        floatInput = ByteBuffer.allocateDirect(4 * 3 * INPUT_SIZE * INPUT_SIZE).order(ByteOrder.nativeOrder());
+        uint8Input = ByteBuffer.allocateDirect(3 * INPUT_SIZE * INPUT_SIZE);
+
+        // Scores fall off steeply as after NMS, about a tenth above the 0.5 threshold
+        float[] boxes = new float[4 * CANDIDATES];
+        float[] classes = new float[CANDIDATES];
+        float[] scores = new float[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            float top = random.nextFloat() * 0.8f;
+            float left = random.nextFloat() * 0.8f;
+            boxes[4 * i] = top;
+            boxes[4 * i + 1] = left;
+            boxes[4 * i + 2] = top + 0.2f;
+            boxes[4 * i + 3] = left + 0.2f;
+            classes[i] = random.nextInt(LABELS.length - 1);
+            scores[i] = 0.95f * (float) Math.exp(-i / 15.0);
+        }
+        floatDecoder = new SsdOutputDecoder(LABELS);
+        floatDecoder.setOutput(SsdOutputDecoder.BOXES, floats(boxes), 0f, 0);
+        floatDecoder.setOutput(SsdOutputDecoder.CLASSES, floats(classes), 0f, 0);
+        floatDecoder.setOutput(SsdOutputDecoder.SCORES, floats(scores), 0f, 0);
+        floatDecoder.setOutput(SsdOutputDecoder.COUNT, floats(new float[]{CANDIDATES}), 0f, 0);
+        quantizedDecoder = new SsdOutputDecoder(LABELS);
+        quantizedDecoder.setOutput(SsdOutputDecoder.BOXES, bytes(boxes, 1 / 255f), 1 / 255f, 0);
+        quantizedDecoder.setOutput(SsdOutputDecoder.CLASSES, bytes(classes, 1f), 1f, 0);
+        quantizedDecoder.setOutput(SsdOutputDecoder.SCORES, bytes(scores, 1 / 256f), 1 / 256f, 0);
+        quantizedDecoder.setOutput(SsdOutputDecoder.COUNT, floats(new float[]{CANDIDATES}), 0f, 0);
+    }
+
+    private static ByteBuffer floats(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * values.length).order(ByteOrder.nativeOrder());
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer bytes(float[] values, float scale) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(values.length);
+        for (float value : values) {
+            buffer.put((byte) Math.min(255, Math.round(value / scale)));
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer argbAndFloatInput() {
+        YuvConverter.yuvToArgb(frame, argb);
+        floatInput.clear();
+        writer.writeFloat(frame, INPUT_SIZE, INPUT_SIZE, 127.5f, 127.5f, floatInput);
+        return floatInput;
+    }
+
+    @Benchmark
+    public ByteBuffer floatInput() {
+        floatInput.clear();
+        writer.writeFloat(frame, INPUT_SIZE, INPUT_SIZE, 127.5f, 127.5f, floatInput);
+        return floatInput;
+    }
+
+    @Benchmark
+    public ByteBuffer uint8Input() {
+        uint8Input.clear();
+        writer.writeUint8(frame, INPUT_SIZE, INPUT_SIZE, uint8Input);
+        return uint8Input;
+    }
+
+    @Benchmark
+    public List<ObjectDetection> decodeFloat() {
+        return floatDecoder.decode(0.5f, 10, 480, 640);
+    }
+
+    @Benchmark
+    public List<ObjectDetection> decodeQuantized() {
+        return quantizedDecoder.decode(0.5f, 10, 480, 640);
+    }
+}
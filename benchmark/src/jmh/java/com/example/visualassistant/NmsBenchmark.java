@@ -0,0 +1,107 @@
+package com.example.visualassistant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Box suppression and merging from {@link NonMaxSuppression}, from one frame's worth
+ * of detections up to the raw output of several tiles and frames combined.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NmsBenchmark {
+
+    @Param({"10", "100", "500", "2000"})
+    public int boxes;
+
+    private final NonMaxSuppression pairwise = new NonMaxSuppression();
+    private final NonMaxSuppression grid = new NonMaxSuppression();
+    private float[] boxArray;
+    private float[] scores;
+    private float[] scratchScores;
+    private int[] classes;
+    private int[] keep;
+    private float[] outBoxes;
+    private float[] outScores;
+    private int[] outClasses;
+
+    @Setup
+    public void setUp() {
+        // Clusters of overlapping candidates around objects in a 640x480 frame, 6 classes
+        Random random = new Random(11);
+        boxArray = new float[4 * boxes];
+        scores = new float[boxes];
+        classes = new int[boxes];
+        int objects = Math.max(1, boxes / 8);
+        float[] centers = new float[3 * objects];
+        for (int o = 0; o < objects; o++) {
+            centers[3 * o] = random.nextFloat() * 640;
+            centers[3 * o + 1] = random.nextFloat() * 480;
+            centers[3 * o + 2] = 10 + random.nextFloat() * 120;
+        }
+        for (int i = 0; i < boxes; i++) {
+            int object = i % objects;
+            float centerX = centers[3 * object];
+            float centerY = centers[3 * object + 1];
+            float size = centers[3 * object + 2];
+            float jitter = size * 0.15f;
+            float left = centerX - size / 2 + (random.nextFloat() - 0.5f) * jitter;
+            float top = centerY - size / 2 + (random.nextFloat() - 0.5f) * jitter;
+            boxArray[4 * i] = left;
+            boxArray[4 * i + 1] = top;
+            boxArray[4 * i + 2] = left + size;
+            boxArray[4 * i + 3] = top + size;
+            scores[i] = 0.3f + random.nextFloat() * 0.7f;
+            classes[i] = object % 6;
+        }
+        scratchScores = new float[boxes];
+        keep = new int[boxes];
+        outBoxes = new float[4 * boxes];
+        outScores = new float[boxes];
+        outClasses = new int[boxes];
+        pairwise.setGridThreshold(Integer.MAX_VALUE);
+        grid.setGridThreshold(0);
+    }
+
+    @Benchmark
+    public int greedy() {
+        return pairwise.greedy(boxArray, scores, classes, boxes, 0.5f, keep);
+    }
+
+    @Benchmark
+    public int greedyGrid() {
+        return grid.greedy(boxArray, scores, classes, boxes, 0.5f, keep);
+    }
+
+    @Benchmark
+    public int soft() {
+        System.arraycopy(scores, 0, scratchScores, 0, boxes);
+        return pairwise.soft(boxArray, scratchScores, classes, boxes, 0.5f, 0.3f, keep);
+    }
+
+    @Benchmark
+    public int softGrid() {
+        System.arraycopy(scores, 0, scratchScores, 0, boxes);
+        return grid.soft(boxArray, scratchScores, classes, boxes, 0.5f, 0.3f, keep);
+    }
+
+    @Benchmark
+    public int fuse() {
+        return pairwise.fuse(boxArray, scores, classes, boxes, 0.55f, outBoxes, outScores, outClasses);
+    }
+
+    @Benchmark
+    public int merge() {
+        return pairwise.merge(boxArray, scores, classes, boxes, 0.5f, 0.8f, outBoxes, outScores, outClasses);
+    }
+}
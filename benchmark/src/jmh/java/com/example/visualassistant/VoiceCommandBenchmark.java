@@ -0,0 +1,70 @@
+package com.example.visualassistant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Voice command matching on recogniser transcripts, against the English-only
+ * {@code contains} chain it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VoiceCommandBenchmark {
+
+    @Param({"ENGLISH", "HINDI", "MARATHI"})
+    public String language;
+
+    private String transcript;
+    private final VoiceCommandMatcher matcher = new VoiceCommandMatcher();
+
+    @Setup
+    public void setUp() {
+        // A command late in the priority order, inside a typical spoken sentence
+        if (TextAnnouncer.HINDI.equals(language)) {
+            transcript = "कृपया अब नेविगेशन बंद करो और रुको";
+        } else if (TextAnnouncer.MARATHI.equals(language)) {
+            transcript = "कृपया आता नेव्हिगेशन बंद करा आणि थांबा";
+        } else {
+            transcript = "okay could you please stop the navigation now";
+        }
+    }
+
+    @Benchmark
+    public VoiceCommandMatcher.Command matchFinal() {
+        return matcher.match(transcript, 0.9f);
+    }
+
+    @Benchmark
+    public VoiceCommandMatcher.Command matchPartial() {
+        matcher.beginUtterance();
+        return matcher.onPartialResult(transcript);
+    }
+
+    @Benchmark
+    public int containsChain() {
+        String command = transcript.toLowerCase();
+        if (command.contains("cancel")) return 0;
+        if (command.contains("navigate")) return 1;
+        if (command.contains("read")) return 2;
+        if (command.contains("describe")) return 3;
+        if (command.contains("identify")) return 4;
+        if (command.contains("home")) return 5;
+        if (command.contains("sos") || command.contains("emergency") || command.contains("help")) return 6;
+        if (command.contains("stop")) return 7;
+        if (command.contains("detail")) return 8;
+        if (command.contains("record")) return 9;
+        if (command.contains("english")) return 10;
+        if (command.contains("hindi")) return 11;
+        if (command.contains("marathi")) return 12;
+        return -1;
+    }
+}
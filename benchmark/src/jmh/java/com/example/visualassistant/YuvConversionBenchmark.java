@@ -0,0 +1,76 @@
+package com.example.visualassistant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camera frame conversion done by BitmapUtils and the analyzers on every analysed frame:
+ * plane copy out of the camera buffers, YUV to ARGB for the detector and YUV to NV21 for OCR.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class YuvConversionBenchmark {
+
+    @Param({"640x480", "1280x720"})
+    public String resolution;
+
+    private YuvFrame frame;
+    private int[] argb;
+    private byte[] nv21;
+
+    // Semi-planar chroma as most camera HALs deliver it: interleaved, pixel stride 2, padded rows
+    private ByteBuffer interleavedChroma;
+    private int chromaRowStride;
+
+    @Setup
+    public void setUp() {
+        String[] size = resolution.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+
+        frame = new YuvFrame(width, height);
+        Random random = new Random(42);
+        random.nextBytes(frame.y);
+        random.nextBytes(frame.u);
+        random.nextBytes(frame.v);
+
+        argb = new int[width * height];
+        nv21 = new byte[YuvConverter.nv21Size(width, height)];
+
+        chromaRowStride = width + 64;
+        byte[] chroma = new byte[chromaRowStride * frame.chromaHeight()];
+        random.nextBytes(chroma);
+        interleavedChroma = ByteBuffer.allocateDirect(chroma.length);
+        interleavedChroma.put(chroma).flip();
+    }
+
+    @Benchmark
+    public int[] yuvToArgb() {
+        YuvConverter.yuvToArgb(frame, argb);
+        return argb;
+    }
+
+    @Benchmark
+    public byte[] yuvToNv21() {
+        YuvConverter.yuvToNv21(frame, nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public byte[] copyInterleavedChroma() {
+        YuvConverter.copyPlane(interleavedChroma, chromaRowStride, 2,
+                frame.chromaWidth(), frame.chromaHeight(), frame.u);
+        return frame.u;
+    }
+}
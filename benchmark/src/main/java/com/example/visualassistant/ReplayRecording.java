@@ -0,0 +1,45 @@
+package com.example.visualassistant;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replays session recordings on the host and prints a report for each, with a detector
+ * that reports nothing, which measures the conversion and post-processing cost on its own.
+ *
+ *   ./gradlew :benchmark:replay --args="session-1700000000000-0.vafr"
+ */
+public final class ReplayRecording {
+
+    private ReplayRecording() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayRecording <recording.vafr>...");
+            System.exit(2);
+        }
+        DetectorBackend noDetections = new DetectorBackend() {
+            @Override
+            public List<ObjectDetection> detect(YuvFrame frame, int[] argb) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        FrameReplayer replayer = new FrameReplayer(noDetections, null);
+        for (String recording : args) {
+            try (FrameContainer.Reader reader = new FrameContainer.Reader(
+                    new FileInputStream(recording).getChannel())) {
+                System.out.println(recording + ": " + replayer.replay(reader));
+            } catch (IOException e) {
+                System.err.println(recording + ": error reading recording: " + e.getMessage());
+            }
+            replayer.reset();
+        }
+    }
+}